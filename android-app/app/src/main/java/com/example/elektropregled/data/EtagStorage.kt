@@ -0,0 +1,67 @@
+package com.example.elektropregled.data
+
+import android.content.Context
+import android.content.SharedPreferences
+
+/**
+ * Čuva ETag validatore zadnjih preuzetih referentnih podataka (postrojenja, polja, checklist)
+ * kako bi se pri osvježavanju slao If-None-Match i server mogao odgovoriti s 304.
+ * Ključ je putanja resursa, npr. "postrojenja/5/polja". Uz njih čuva i zadnju primijenjenu
+ * verziju kataloga za delta sinkronizaciju.
+ */
+class EtagStorage(context: Context) {
+
+    private val preferences: SharedPreferences =
+        context.getSharedPreferences("http_etags", Context.MODE_PRIVATE)
+
+    fun get(kljuc: String): String? = preferences.getString(kljuc, null)
+
+    fun save(kljuc: String, etag: String?) {
+        if (etag.isNullOrBlank()) {
+            preferences.edit().remove(kljuc).apply()
+        } else {
+            preferences.edit().putString(kljuc, etag).apply()
+        }
+    }
+
+    fun remove(kljuc: String) {
+        preferences.edit().remove(kljuc).apply()
+    }
+
+    fun clear() {
+        preferences.edit().clear().apply()
+    }
+
+    /** Zadnja verzija kataloga primijenjena iz v1/sync/changes (0 ako katalog još nije preuzet). */
+    fun getKatalogVerzija(): Long = preferences.getLong(KATALOG_VERZIJA, 0L)
+
+    fun saveKatalogVerzija(verzija: Long) {
+        preferences.edit().putLong(KATALOG_VERZIJA, verzija).apply()
+    }
+
+    /** Briše validatore polja, checklisti i paketa, pa sljedeći dohvat preuzima cijele odgovore. */
+    fun clearPostrojenja() {
+        val editor = preferences.edit()
+        preferences.all.keys.filter { it.startsWith("$POSTROJENJA/") }.forEach { editor.remove(it) }
+        editor.apply()
+    }
+
+    /** Vrijeme (ms) zadnjeg uspješnog potpunog obilaska polja i checklisti (0 ako ga nije bilo). */
+    fun getPunoOsvjezavanje(): Long = preferences.getLong(PUNO_OSVJEZAVANJE, 0L)
+
+    fun savePunoOsvjezavanje(vrijeme: Long) {
+        preferences.edit().putLong(PUNO_OSVJEZAVANJE, vrijeme).apply()
+    }
+
+    companion object {
+        const val POSTROJENJA = "postrojenja"
+        private const val KATALOG_VERZIJA = "katalog_verzija"
+        private const val PUNO_OSVJEZAVANJE = "puno_osvjezavanje"
+
+        fun polja(postrojenjeId: Int) = "postrojenja/$postrojenjeId/polja"
+
+        fun checklist(postrojenjeId: Int, poljeId: Int) = "postrojenja/$postrojenjeId/checklist/$poljeId"
+
+        fun bundle(postrojenjeId: Int) = "postrojenja/$postrojenjeId/bundle"
+    }
+}
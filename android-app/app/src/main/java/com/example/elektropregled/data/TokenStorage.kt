@@ -8,7 +8,11 @@ import androidx.security.crypto.MasterKey
 interface TokenStorage {
     fun saveToken(token: String, expiresIn: Int)
     fun getToken(): String?
-    fun isTokenValid(): Boolean
+    // minPreostaloMs: token koji istječe prije toga smatra se nevažećim
+    fun isTokenValid(minPreostaloMs: Long = 0): Boolean
+    fun saveRefreshToken(token: String, expiresIn: Long)
+    fun getRefreshToken(): String?
+    fun clearRefreshToken()
     fun clearToken()
     fun getUserId(): Int?
     fun saveUserId(userId: Int)
@@ -44,7 +48,7 @@ class EncryptedTokenStorage(context: Context) : TokenStorage {
         return encryptedSharedPreferences.getString("access_token", null)
     }
     
-    override fun isTokenValid(): Boolean {
+    override fun isTokenValid(minPreostaloMs: Long): Boolean {
         val token = getToken() ?: return false
         val createdAt = encryptedSharedPreferences.getLong("token_created_at", 0L)
         val expiresIn = encryptedSharedPreferences.getInt("expires_in", 0)
@@ -52,7 +56,29 @@ class EncryptedTokenStorage(context: Context) : TokenStorage {
         if (createdAt == 0L || expiresIn == 0) return false
         
         val expirationTime = createdAt + (expiresIn * 1000L)
-        return System.currentTimeMillis() < expirationTime
+        return System.currentTimeMillis() + minPreostaloMs < expirationTime
+    }
+
+    override fun saveRefreshToken(token: String, expiresIn: Long) {
+        encryptedSharedPreferences.edit().apply {
+            putString("refresh_token", token)
+            putLong("refresh_expires_at", System.currentTimeMillis() + expiresIn * 1000L)
+            apply()
+        }
+    }
+
+    override fun getRefreshToken(): String? {
+        val token = encryptedSharedPreferences.getString("refresh_token", null) ?: return null
+        val expiresAt = encryptedSharedPreferences.getLong("refresh_expires_at", 0L)
+        return if (System.currentTimeMillis() < expiresAt) token else null
+    }
+
+    override fun clearRefreshToken() {
+        encryptedSharedPreferences.edit().apply {
+            remove("refresh_token")
+            remove("refresh_expires_at")
+            apply()
+        }
     }
     
     override fun clearToken() {
@@ -60,6 +86,8 @@ class EncryptedTokenStorage(context: Context) : TokenStorage {
             remove("access_token")
             remove("token_created_at")
             remove("expires_in")
+            remove("refresh_token")
+            remove("refresh_expires_at")
             remove("user_id")
             remove("username")
             apply()
@@ -19,6 +19,8 @@ object ApiClient {
     
     private val okHttpClient = OkHttpClient.Builder()
         .addInterceptor(loggingInterceptor)
+        // Nakon logging interceptora kako bi se u logu vidio nekomprimirani JSON
+        .addInterceptor(GzipRequestInterceptor())
         .connectTimeout(10, TimeUnit.SECONDS)
         .readTimeout(15, TimeUnit.SECONDS)
         .writeTimeout(15, TimeUnit.SECONDS)
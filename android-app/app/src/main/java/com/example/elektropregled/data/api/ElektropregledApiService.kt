@@ -9,25 +9,60 @@ interface ElektropregledApiService {
     // Note: Endpoints without leading / so they combine with base URL path
     @POST("v1/auth/login")
     suspend fun login(@Body request: LoginRequest): Response<LoginResponse>
+
+    // Novi access token bez lozinke; poslani refresh token time postaje nevažeći
+    @POST("v1/auth/refresh")
+    suspend fun refresh(@Body request: RefreshRequest): Response<LoginResponse>
+
+    @POST("v1/auth/logout")
+    suspend fun logout(@Body request: RefreshRequest): Response<Unit>
     
+    // If-None-Match: zadnji primljeni ETag; server tada može vratiti 304 bez tijela
     @GET("v1/postrojenja")
     suspend fun getPostrojenja(
-        @Header("Authorization") token: String
+        @Header("Authorization") token: String,
+        @Header("If-None-Match") ifNoneMatch: String? = null
     ): Response<List<PostrojenjeSummary>>
     
     @GET("v1/postrojenja/{id}/polja")
     suspend fun getPolja(
         @Path("id") postrojenjeId: Int,
-        @Header("Authorization") token: String
+        @Header("Authorization") token: String,
+        @Header("If-None-Match") ifNoneMatch: String? = null
     ): Response<List<PoljeDto>>
     
     @GET("v1/postrojenja/{id}/checklist")
     suspend fun getChecklist(
         @Path("id") postrojenjeId: Int,
         @Query("id_polje") idPolje: Int,
-        @Header("Authorization") token: String
+        @Header("Authorization") token: String,
+        @Header("If-None-Match") ifNoneMatch: String? = null
     ): Response<List<ChecklistUredaj>>
     
+    // Normalizirani checklist: predložak jednom po vrsti uređaja, vrijednosti po uređaju
+    @GET("v2/postrojenja/{id}/checklist")
+    suspend fun getChecklistV2(
+        @Path("id") postrojenjeId: Int,
+        @Query("id_polje") idPolje: Int,
+        @Header("Authorization") token: String,
+        @Header("If-None-Match") ifNoneMatch: String? = null
+    ): Response<ChecklistV2>
+    
+    // Polja i checklista svih uređaja postrojenja u jednom odgovoru
+    @GET("v1/postrojenja/{id}/bundle")
+    suspend fun getBundle(
+        @Path("id") postrojenjeId: Int,
+        @Header("Authorization") token: String,
+        @Header("If-None-Match") ifNoneMatch: String? = null
+    ): Response<PostrojenjeBundle>
+    
+    // Delta referentnih podataka od zadnje primljene verzije kataloga (0 = cijeli katalog)
+    @GET("v1/sync/changes")
+    suspend fun getKatalogPromjene(
+        @Query("since") since: Long,
+        @Header("Authorization") token: String
+    ): Response<KatalogPromjene>
+    
     @POST("v1/pregled/sync")
     suspend fun syncPregled(
         @Body request: SyncRequest,
@@ -0,0 +1,40 @@
+package com.example.elektropregled.data.api
+
+import okhttp3.Interceptor
+import okhttp3.MediaType
+import okhttp3.RequestBody
+import okhttp3.Response
+import okio.BufferedSink
+import okio.GzipSink
+import okio.buffer
+
+/**
+ * Komprimira tijela zahtjeva (sync pregleda) gzipom prije slanja.
+ * Server ih raspakirava u GzipRequestFilter-u; odgovore OkHttp raspakirava sam.
+ */
+class GzipRequestInterceptor : Interceptor {
+    override fun intercept(chain: Interceptor.Chain): Response {
+        val original = chain.request()
+        val body = original.body
+        if (body == null || original.header("Content-Encoding") != null) {
+            return chain.proceed(original)
+        }
+
+        val compressed = original.newBuilder()
+            .header("Content-Encoding", "gzip")
+            .method(original.method, gzip(body))
+            .build()
+        return chain.proceed(compressed)
+    }
+
+    private fun gzip(body: RequestBody): RequestBody = object : RequestBody() {
+        override fun contentType(): MediaType? = body.contentType()
+
+        // Duljina nije poznata unaprijed, pa se šalje chunked
+        override fun contentLength(): Long = -1
+
+        override fun writeTo(sink: BufferedSink) {
+            GzipSink(sink).buffer().use { body.writeTo(it) }
+        }
+    }
+}
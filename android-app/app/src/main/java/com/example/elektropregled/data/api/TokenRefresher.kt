@@ -0,0 +1,69 @@
+package com.example.elektropregled.data.api
+
+import android.util.Log
+import com.example.elektropregled.data.TokenStorage
+import com.example.elektropregled.data.api.dto.RefreshRequest
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+
+/**
+ * Obnavlja access token preko refresh tokena prije nego istekne, bez ponovne prijave lozinkom.
+ *
+ * Server opoziva korišteni refresh token, a ponovna upotreba opozvanog opoziva cijelu prijavu,
+ * pa se osvježavanje unutar aplikacije serijalizira: druga korutina čeka prvu i zatim vidi
+ * već obnovljen token.
+ */
+object TokenRefresher {
+
+    // Token koji istječe unutar ovog vremena obnavlja se unaprijed (npr. prije duljeg synca)
+    private const val OBNOVI_PRIJE_ISTEKA_MS = 10 * 60 * 1000L
+
+    private val mutex = Mutex()
+
+    /**
+     * Vraća true ako nakon poziva postoji važeći access token.
+     */
+    suspend fun osiguraj(tokenStorage: TokenStorage): Boolean = mutex.withLock {
+        if (tokenStorage.isTokenValid(OBNOVI_PRIJE_ISTEKA_MS)) {
+            return@withLock true
+        }
+        val refreshToken = tokenStorage.getRefreshToken()
+            ?: return@withLock tokenStorage.isTokenValid()
+
+        try {
+            val response = ApiClient.apiService.refresh(RefreshRequest(refreshToken))
+            val body = response.body()
+            if (response.isSuccessful && body != null) {
+                tokenStorage.saveToken(body.access_token, body.expires_in)
+                if (body.refresh_token != null && body.refresh_expires_in != null) {
+                    tokenStorage.saveRefreshToken(body.refresh_token, body.refresh_expires_in)
+                }
+                Log.d("TokenRefresher", "Access token obnovljen")
+                true
+            } else {
+                if (response.code() == 401) {
+                    // Refresh token je istekao ili opozvan; potrebna je prijava lozinkom
+                    tokenStorage.clearRefreshToken()
+                }
+                Log.w("TokenRefresher", "Obnova tokena nije uspjela: ${response.code()}")
+                tokenStorage.isTokenValid()
+            }
+        } catch (e: Exception) {
+            // Bez mreže: postojeći token se koristi dok ne istekne
+            Log.w("TokenRefresher", "Obnova tokena nije uspjela: ${e.message}")
+            tokenStorage.isTokenValid()
+        }
+    }
+
+    /**
+     * Opoziva refresh token na serveru (odjava); lokalni tokeni briše pozivatelj.
+     */
+    suspend fun odjavi(tokenStorage: TokenStorage) {
+        val refreshToken = tokenStorage.getRefreshToken() ?: return
+        try {
+            ApiClient.apiService.logout(RefreshRequest(refreshToken))
+        } catch (e: Exception) {
+            Log.w("TokenRefresher", "Odjava na serveru nije uspjela: ${e.message}")
+        }
+    }
+}
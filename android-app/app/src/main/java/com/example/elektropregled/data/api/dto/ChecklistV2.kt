@@ -0,0 +1,89 @@
+package com.example.elektropregled.data.api.dto
+
+/**
+ * Odgovor v2/postrojenja/{id}/checklist: predložak parametara jednom po vrsti uređaja, a
+ * uređaji nose samo zadnje vrijednosti. [uChecklistUredaje] ga pretvara u v1 oblik koji
+ * koristi ostatak aplikacije.
+ */
+data class ChecklistV2(
+    val vrste: List<VrstaZapis> = emptyList(),
+    val uredaji: List<UredajZapis> = emptyList()
+) {
+    data class VrstaZapis(
+        val idVrUred: Int,
+        val oznVrUred: String,
+        val nazVrUred: String,
+        val parametri: List<ParametarZapis>
+    )
+
+    data class ParametarZapis(
+        val idParametra: Int,
+        val nazParametra: String,
+        val tipPodataka: String,
+        val minVrijednost: Double?,
+        val maxVrijednost: Double?,
+        val mjernaJedinica: String?,
+        val obavezan: Boolean,
+        val redoslijed: Int
+    )
+
+    data class UredajZapis(
+        val idUred: Int,
+        val natpPlocica: String,
+        val tvBroj: String,
+        val idVrUred: Int,
+        val idPolje: Int?,
+        val nazPolje: String?,
+        val napRazina: Double?,
+        val vrijednosti: List<VrijednostZapis> = emptyList()
+    )
+
+    data class VrijednostZapis(
+        val idParametra: Int,
+        val bool: Boolean?,
+        val num: Double?,
+        val txt: String?,
+        val zadnjiPregledAt: String?
+    )
+
+    /**
+     * Spaja predloške vrsta i vrijednosti uređaja u [ChecklistUredaj] listu. Parametar bez
+     * zadnje vrijednosti dobiva istu zadanu vrijednost kao u v1 (ispravno za BOOLEAN).
+     */
+    fun uChecklistUredaje(): List<ChecklistUredaj> {
+        val vrstePoId = vrste.associateBy { it.idVrUred }
+        return uredaji.mapNotNull { uredaj ->
+            val vrsta = vrstePoId[uredaj.idVrUred] ?: return@mapNotNull null
+            val vrijednosti = uredaj.vrijednosti.associateBy { it.idParametra }
+            ChecklistUredaj(
+                idUred = uredaj.idUred,
+                natpPlocica = uredaj.natpPlocica,
+                tvBroj = uredaj.tvBroj,
+                oznVrUred = vrsta.oznVrUred,
+                nazVrUred = vrsta.nazVrUred,
+                idPolje = uredaj.idPolje,
+                nazPolje = uredaj.nazPolje ?: "",
+                napRazina = uredaj.napRazina,
+                parametri = vrsta.parametri.map { p ->
+                    val zadnja = vrijednosti[p.idParametra]
+                    ChecklistParametar(
+                        idParametra = p.idParametra,
+                        nazParametra = p.nazParametra,
+                        tipPodataka = p.tipPodataka,
+                        minVrijednost = p.minVrijednost,
+                        maxVrijednost = p.maxVrijednost,
+                        mjernaJedinica = p.mjernaJedinica,
+                        obavezan = p.obavezan,
+                        redoslijed = p.redoslijed,
+                        defaultVrijednostBool = zadnja?.bool
+                            ?: if (zadnja == null && p.tipPodataka == "BOOLEAN") true else null,
+                        defaultVrijednostNum = zadnja?.num,
+                        defaultVrijednostTxt = zadnja?.txt,
+                        zadnjaProveraDatum = zadnja?.zadnjiPregledAt,
+                        opis = null
+                    )
+                }
+            )
+        }
+    }
+}
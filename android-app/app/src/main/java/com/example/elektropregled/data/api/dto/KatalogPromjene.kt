@@ -0,0 +1,67 @@
+package com.example.elektropregled.data.api.dto
+
+/**
+ * Odgovor GET v1/sync/changes: retci referentnih tablica promijenjeni nakon verzije kataloga
+ * koju klijent već ima. Ako je potpuno = true, odgovor sadrži cijeli katalog.
+ */
+data class KatalogPromjene(
+    val verzija: Long,
+    val potpuno: Boolean,
+    val postrojenja: List<PostrojenjeZapis> = emptyList(),
+    val polja: List<PoljeZapis> = emptyList(),
+    val vrsteUredaja: List<VrstaUredajaZapis> = emptyList(),
+    val uredaji: List<UredajZapis> = emptyList(),
+    val parametri: List<ParametarZapis> = emptyList(),
+    val obrisano: Obrisano = Obrisano()
+) {
+    data class PostrojenjeZapis(
+        val idPostr: Int,
+        val oznVrPostr: String,
+        val nazPostr: String,
+        val lokacija: String?
+    )
+
+    data class PoljeZapis(
+        val idPolje: Int,
+        val napRazina: Double,
+        val oznVrPolje: String,
+        val nazPolje: String,
+        val idPostr: Int
+    )
+
+    data class VrstaUredajaZapis(
+        val idVrUred: Int,
+        val oznVrUred: String,
+        val nazVrUred: String
+    )
+
+    data class UredajZapis(
+        val idUred: Int,
+        val natpPlocica: String,
+        val tvBroj: String,
+        val idPostr: Int,
+        val idPolje: Int?,
+        val idVrUred: Int
+    )
+
+    data class ParametarZapis(
+        val idParametra: Int,
+        val nazParametra: String,
+        val tipPodataka: String,
+        val minVrijednost: Double?,
+        val maxVrijednost: Double?,
+        val mjernaJedinica: String?,
+        val obavezan: Boolean,
+        val redoslijed: Int,
+        val opis: String?,
+        val idVrUred: Int
+    )
+
+    data class Obrisano(
+        val postrojenja: List<Int> = emptyList(),
+        val polja: List<Int> = emptyList(),
+        val vrsteUredaja: List<Int> = emptyList(),
+        val uredaji: List<Int> = emptyList(),
+        val parametri: List<Int> = emptyList()
+    )
+}
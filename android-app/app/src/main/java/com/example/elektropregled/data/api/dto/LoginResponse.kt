@@ -5,5 +5,8 @@ data class LoginResponse(
     val token_type: String,
     val expires_in: Int,
     val username: String,
-    val user_id: Int
+    val user_id: Int,
+    // Stariji server ne šalje refresh token
+    val refresh_token: String? = null,
+    val refresh_expires_in: Long? = null
 )
@@ -0,0 +1,11 @@
+package com.example.elektropregled.data.api.dto
+
+/**
+ * Odgovor v1/postrojenja/{id}/bundle: sva polja i checklista svih uređaja postrojenja u
+ * jednom zahtjevu (zamjenjuje polja + checklist po svakom polju).
+ */
+data class PostrojenjeBundle(
+    val idPostr: Int,
+    val polja: List<PoljeDto>,
+    val uredaji: List<ChecklistUredaj>
+)
@@ -0,0 +1,5 @@
+package com.example.elektropregled.data.api.dto
+
+data class RefreshRequest(
+    val refresh_token: String
+)
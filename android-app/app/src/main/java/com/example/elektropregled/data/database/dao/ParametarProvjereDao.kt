@@ -17,4 +17,13 @@ interface ParametarProvjereDao {
     
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     suspend fun insertAll(parametri: List<ParametarProvjereEntity>)
+    
+    @Upsert
+    suspend fun upsertAll(parametri: List<ParametarProvjereEntity>)
+    
+    @Query("SELECT id_parametra FROM ParametarProvjere")
+    suspend fun getAllIds(): List<Int>
+    
+    @Query("DELETE FROM ParametarProvjere WHERE id_parametra IN (:ids)")
+    suspend fun deleteByIds(ids: List<Int>)
 }
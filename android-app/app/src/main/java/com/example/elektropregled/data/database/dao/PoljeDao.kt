@@ -24,4 +24,14 @@ interface PoljeDao {
     
     @Delete
     suspend fun delete(polje: PoljeEntity)
+    
+    // Upsert ne briše postojeći redak (za razliku od REPLACE), pa ne okida CASCADE na uređaje
+    @Upsert
+    suspend fun upsertAll(polja: List<PoljeEntity>)
+    
+    @Query("SELECT id_polje FROM Polje")
+    suspend fun getAllIds(): List<Int>
+    
+    @Query("DELETE FROM Polje WHERE id_polje IN (:ids)")
+    suspend fun deleteByIds(ids: List<Int>)
 }
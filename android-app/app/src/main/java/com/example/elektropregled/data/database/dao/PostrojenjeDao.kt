@@ -27,4 +27,13 @@ interface PostrojenjeDao {
     
     @Delete
     suspend fun delete(postrojenje: PostrojenjeEntity)
+    
+    @Upsert
+    suspend fun upsertAll(postrojenja: List<PostrojenjeEntity>)
+    
+    @Query("SELECT id_postr FROM Postrojenje")
+    suspend fun getAllIds(): List<Int>
+    
+    @Query("DELETE FROM Postrojenje WHERE id_postr IN (:ids)")
+    suspend fun deleteByIds(ids: List<Int>)
 }
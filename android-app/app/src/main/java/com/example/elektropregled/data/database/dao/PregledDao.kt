@@ -42,4 +42,7 @@ interface PregledDao {
     
     @Query("SELECT * FROM Pregled WHERE id_postr = :postrojenjeId ORDER BY pocetak DESC LIMIT 1")
     suspend fun getLastPregledByPostrojenje(postrojenjeId: Int): PregledEntity?
+    
+    @Query("SELECT DISTINCT id_postr FROM Pregled WHERE status_sinkronizacije <> 'SYNCED'")
+    suspend fun getPostrojenjaUNesinkroniziranim(): List<Int>
 }
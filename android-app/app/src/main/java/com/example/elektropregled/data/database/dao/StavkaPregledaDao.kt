@@ -33,4 +33,11 @@ interface StavkaPregledaDao {
     
     @Query("DELETE FROM StavkaPregleda WHERE id_preg = :pregledId")
     suspend fun deleteByPregled(pregledId: Int)
+    
+    // Uređaji i parametri iz nesinkroniziranih pregleda ne smiju se brisati pri sinkronizaciji kataloga
+    @Query("SELECT DISTINCT s.id_ured FROM StavkaPregleda s JOIN Pregled p ON p.id_preg = s.id_preg WHERE p.status_sinkronizacije <> 'SYNCED'")
+    suspend fun getUredajiUNesinkroniziranim(): List<Int>
+    
+    @Query("SELECT DISTINCT s.id_parametra FROM StavkaPregleda s JOIN Pregled p ON p.id_preg = s.id_preg WHERE p.status_sinkronizacije <> 'SYNCED'")
+    suspend fun getParametriUNesinkroniziranim(): List<Int>
 }
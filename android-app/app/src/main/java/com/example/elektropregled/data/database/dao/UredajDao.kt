@@ -33,4 +33,13 @@ interface UredajDao {
     
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     suspend fun insertAll(uredaji: List<UredajEntity>)
+    
+    @Upsert
+    suspend fun upsertAll(uredaji: List<UredajEntity>)
+    
+    @Query("SELECT id_ured FROM Uredaj")
+    suspend fun getAllIds(): List<Int>
+    
+    @Query("DELETE FROM Uredaj WHERE id_ured IN (:ids)")
+    suspend fun deleteByIds(ids: List<Int>)
 }
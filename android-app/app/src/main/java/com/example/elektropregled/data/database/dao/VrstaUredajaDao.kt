@@ -20,4 +20,16 @@ interface VrstaUredajaDao {
     
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     suspend fun insertAll(vrste: List<VrstaUredajaEntity>)
+    
+    @Upsert
+    suspend fun upsertAll(vrste: List<VrstaUredajaEntity>)
+    
+    @Query("SELECT id_vr_ured FROM VrstaUredaja")
+    suspend fun getAllIds(): List<Int>
+    
+    // Vrsta na koju se još poziva uređaj ili parametar ostaje (parametar nema ON DELETE)
+    @Query("DELETE FROM VrstaUredaja WHERE id_vr_ured IN (:ids) " +
+            "AND id_vr_ured NOT IN (SELECT id_vr_ured FROM Uredaj) " +
+            "AND id_vr_ured NOT IN (SELECT id_vr_ured FROM ParametarProvjere)")
+    suspend fun deleteNekoristeneByIds(ids: List<Int>)
 }
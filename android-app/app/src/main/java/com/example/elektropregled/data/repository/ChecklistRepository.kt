@@ -4,10 +4,13 @@ import android.content.Context
 import com.example.elektropregled.data.api.ApiClient
 import com.example.elektropregled.data.api.dto.ChecklistParametar
 import com.example.elektropregled.data.api.dto.ChecklistUredaj
+import com.example.elektropregled.data.api.dto.KatalogPromjene
+import com.example.elektropregled.data.EtagStorage
 import com.example.elektropregled.data.TokenStorage
 import com.example.elektropregled.data.database.AppDatabase
 import com.example.elektropregled.data.database.entity.*
 import com.example.elektropregled.util.NetworkUtil
+import androidx.room.withTransaction
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.ExperimentalCoroutinesApi
@@ -17,6 +20,7 @@ import kotlinx.coroutines.flow.map
 import kotlinx.coroutines.flow.flatMapLatest
 import kotlinx.coroutines.flow.flowOn
 import kotlinx.coroutines.flow.catch
+import kotlinx.coroutines.flow.first
 import kotlinx.coroutines.launch
 
 class ChecklistRepository(
@@ -30,6 +34,12 @@ class ChecklistRepository(
     private val vrstaUredajaDao = database.vrstaUredajaDao()
     private val parametarDao = database.parametarProvjereDao()
     private val poljeDao = database.poljeDao()
+    private val etagStorage = EtagStorage(context)
+    
+    companion object {
+        // SQLite na starijim Android verzijama dopušta najviše 999 parametara po upitu
+        private const val MAX_ID_PO_UPITU = 500
+    }
     
     /**
      * Get checklist as Flow - OFFLINE-FIRST.
@@ -173,6 +183,8 @@ class ChecklistRepository(
     /**
      * Sync ALL checklist data for a postrojenje (all polja including virtual field).
      * This ensures all data is available offline.
+     * Prvo pokušava jednim zahtjevom na v1/postrojenja/{id}/bundle; ako to ne uspije (npr. stariji
+     * server), pada natrag na dohvat checkliste polje po polje.
      */
     suspend fun syncAllChecklistForPostrojenje(postrojenjeId: Int): Result<Unit> {
         if (!NetworkUtil.isNetworkAvailable(context)) {
@@ -184,6 +196,12 @@ class ChecklistRepository(
             return Result.failure(Exception("Token nije valjan"))
         }
         
+        val bundleResult = syncBundle(postrojenjeId, token)
+        if (bundleResult.isSuccess) {
+            return bundleResult
+        }
+        android.util.Log.w("ChecklistRepository", "Bundle sync failed, falling back to per-polje sync: ${bundleResult.exceptionOrNull()?.message}")
+        
         return try {
             // First, sync all polja to get the list
             val poljaResponse = apiService.getPolja(
@@ -226,6 +244,158 @@ class ChecklistRepository(
         }
     }
     
+    private suspend fun syncBundle(postrojenjeId: Int, token: String): Result<Unit> {
+        return try {
+            val etagKljuc = EtagStorage.bundle(postrojenjeId)
+            val imaLokalnih = uredajDao.getUredajiByPostrojenje(postrojenjeId).isNotEmpty()
+            val ifNoneMatch = if (imaLokalnih) etagStorage.get(etagKljuc) else null
+            val response = apiService.getBundle(postrojenjeId, "Bearer $token", ifNoneMatch)
+            if (response.code() == 304) {
+                android.util.Log.d("ChecklistRepository", "Bundle nepromijenjen (304)")
+                return Result.success(Unit)
+            }
+            val bundle = response.body()
+            if (!response.isSuccessful || bundle == null) {
+                return Result.failure(Exception("Greška pri učitavanju paketa postrojenja: ${response.code()}"))
+            }
+            
+            // Virtualno polje (idPolje == null) nije entitet, njegovi uređaji imaju id_polje = null
+            val polja = bundle.polja.mapNotNull { dto ->
+                val idPolje = dto.idPolje ?: return@mapNotNull null
+                PoljeEntity(
+                    id_polje = idPolje,
+                    nap_razina = dto.napRazina ?: 0.0,
+                    ozn_vr_polje = dto.oznVrPolje ?: "UNKNOWN",
+                    naz_polje = dto.nazPolje,
+                    id_postr = postrojenjeId
+                )
+            }
+            if (polja.isNotEmpty()) {
+                poljeDao.insertAll(polja)
+            }
+            saveChecklistToDatabase(bundle.uredaji, postrojenjeId)
+            etagStorage.save(etagKljuc, response.headers()["ETag"])
+            android.util.Log.d("ChecklistRepository", "Bundle sync: ${polja.size} polja, ${bundle.uredaji.size} uređaja")
+            Result.success(Unit)
+        } catch (e: Exception) {
+            Result.failure(Exception("Greška pri učitavanju paketa postrojenja: ${e.message}", e))
+        }
+    }
+    
+    /**
+     * Delta sinkronizacija referentnih podataka (postrojenja, polja, vrste uređaja, uređaji,
+     * parametri) preko v1/sync/changes. Primjenjuje samo retke promijenjene od zadnje
+     * primijenjene verzije kataloga, u jednoj transakciji, i tek zatim pamti novu verziju.
+     */
+    suspend fun syncKatalogPromjene(): Result<Unit> {
+        if (!NetworkUtil.isNetworkAvailable(context)) {
+            return Result.failure(Exception("Nema internetske veze"))
+        }
+        
+        val token = tokenStorage.getToken()
+        if (token == null || !tokenStorage.isTokenValid()) {
+            return Result.failure(Exception("Token nije valjan"))
+        }
+        
+        return try {
+            val since = etagStorage.getKatalogVerzija()
+            val response = apiService.getKatalogPromjene(since, "Bearer $token")
+            val promjene = response.body()
+            if (!response.isSuccessful || promjene == null) {
+                return Result.failure(Exception("Greška pri učitavanju promjena kataloga: ${response.code()}"))
+            }
+            
+            primijeniPromjeneKataloga(promjene)
+            etagStorage.saveKatalogVerzija(promjene.verzija)
+            android.util.Log.d("ChecklistRepository", "Katalog ${since} -> ${promjene.verzija} (potpuno=${promjene.potpuno}): " +
+                    "${promjene.uredaji.size} uređaja, ${promjene.parametri.size} parametara")
+            Result.success(Unit)
+        } catch (e: Exception) {
+            android.util.Log.e("ChecklistRepository", "Error syncing catalog changes", e)
+            Result.failure(Exception("Greška pri sinkronizaciji kataloga: ${e.message}", e))
+        }
+    }
+    
+    private suspend fun primijeniPromjeneKataloga(promjene: KatalogPromjene) {
+        val postrojenjeDao = database.postrojenjeDao()
+        val pregledDao = database.pregledDao()
+        val stavkaDao = database.stavkaPregledaDao()
+        
+        database.withTransaction {
+            // Roditelji prije djece; upsert ne briše postojeći redak pa ne okida CASCADE
+            val postojeca = promjene.postrojenja.associate { it.idPostr to postrojenjeDao.getPostrojenjeById(it.idPostr) }
+            postrojenjeDao.upsertAll(promjene.postrojenja.map { zapis ->
+                PostrojenjeEntity(
+                    id_postr = zapis.idPostr,
+                    ozn_vr_postr = zapis.oznVrPostr,
+                    naz_postr = zapis.nazPostr,
+                    lokacija = zapis.lokacija,
+                    zadnji_pregled = postojeca[zapis.idPostr]?.zadnji_pregled
+                )
+            })
+            vrstaUredajaDao.upsertAll(promjene.vrsteUredaja.map {
+                VrstaUredajaEntity(id_vr_ured = it.idVrUred, ozn_vr_ured = it.oznVrUred, naz_vr_ured = it.nazVrUred)
+            })
+            poljeDao.upsertAll(promjene.polja.map {
+                PoljeEntity(
+                    id_polje = it.idPolje,
+                    nap_razina = it.napRazina,
+                    ozn_vr_polje = it.oznVrPolje,
+                    naz_polje = it.nazPolje,
+                    id_postr = it.idPostr
+                )
+            })
+            uredajDao.upsertAll(promjene.uredaji.map {
+                UredajEntity(
+                    id_ured = it.idUred,
+                    natp_plocica = it.natpPlocica,
+                    tv_broj = it.tvBroj,
+                    id_postr = it.idPostr,
+                    id_polje = it.idPolje,
+                    id_vr_ured = it.idVrUred
+                )
+            })
+            parametarDao.upsertAll(promjene.parametri.map {
+                ParametarProvjereEntity(
+                    id_parametra = it.idParametra,
+                    naz_parametra = it.nazParametra,
+                    tip_podataka = it.tipPodataka,
+                    min_vrijednost = it.minVrijednost,
+                    max_vrijednost = it.maxVrijednost,
+                    mjerna_jedinica = it.mjernaJedinica,
+                    obavezan = it.obavezan,
+                    redoslijed = it.redoslijed,
+                    opis = it.opis,
+                    id_vr_ured = it.idVrUred
+                )
+            })
+            
+            // Kod potpunog odgovora briše se sve što server više nema; inače samo navedeni ID-evi
+            val obrisano = if (promjene.potpuno) {
+                KatalogPromjene.Obrisano(
+                    postrojenja = postrojenjeDao.getAllIds() - promjene.postrojenja.map { it.idPostr }.toSet(),
+                    polja = poljeDao.getAllIds() - promjene.polja.map { it.idPolje }.toSet(),
+                    vrsteUredaja = vrstaUredajaDao.getAllIds() - promjene.vrsteUredaja.map { it.idVrUred }.toSet(),
+                    uredaji = uredajDao.getAllIds() - promjene.uredaji.map { it.idUred }.toSet(),
+                    parametri = parametarDao.getAllIds() - promjene.parametri.map { it.idParametra }.toSet()
+                )
+            } else {
+                promjene.obrisano
+            }
+            
+            // Retke na koje se pozivaju još neposlani pregledi ne brišemo (CASCADE bi obrisao i pregled)
+            val zadrziUredaje = stavkaDao.getUredajiUNesinkroniziranim().toSet()
+            val zadrziParametre = stavkaDao.getParametriUNesinkroniziranim().toSet()
+            val zadrziPostrojenja = pregledDao.getPostrojenjaUNesinkroniziranim().toSet()
+            
+            (obrisano.parametri - zadrziParametre).chunked(MAX_ID_PO_UPITU).forEach { parametarDao.deleteByIds(it) }
+            (obrisano.uredaji - zadrziUredaje).chunked(MAX_ID_PO_UPITU).forEach { uredajDao.deleteByIds(it) }
+            obrisano.polja.chunked(MAX_ID_PO_UPITU).forEach { poljeDao.deleteByIds(it) }
+            obrisano.vrsteUredaja.chunked(MAX_ID_PO_UPITU).forEach { vrstaUredajaDao.deleteNekoristeneByIds(it) }
+            (obrisano.postrojenja - zadrziPostrojenja).chunked(MAX_ID_PO_UPITU).forEach { postrojenjeDao.deleteByIds(it) }
+        }
+    }
+    
     /**
      * Trigger background sync for checklist if online (non-blocking, fails silently if offline).
      */
@@ -259,18 +429,41 @@ class ChecklistRepository(
         val actualPoljeId = poljeId ?: 0
         
         return try {
-            val response = apiService.getChecklist(postrojenjeId, actualPoljeId, "Bearer $token")
-            if (response.isSuccessful && response.body() != null) {
-                val checklist = response.body()!!
+            val etagKljuc = EtagStorage.checklist(postrojenjeId, actualPoljeId)
+            val lokalniUredaji = if (actualPoljeId == 0) {
+                uredajDao.getUredajiDirectlyOnPostrojenjeFlow(postrojenjeId).first()
+            } else {
+                uredajDao.getUredajiByPoljeFlow(actualPoljeId).first()
+            }
+            val ifNoneMatch = if (lokalniUredaji.isNotEmpty()) etagStorage.get(etagKljuc) else null
+            // v2 šalje predložak parametara jednom po vrsti; server bez v2 vraća 404 pa se koristi v1
+            val v2 = apiService.getChecklistV2(postrojenjeId, actualPoljeId, "Bearer $token", ifNoneMatch)
+            val response = if (v2.code() == 404) {
+                apiService.getChecklist(postrojenjeId, actualPoljeId, "Bearer $token", ifNoneMatch)
+            } else {
+                null
+            }
+            val kod = response?.code() ?: v2.code()
+            if (kod == 304) {
+                android.util.Log.d("ChecklistRepository", "Checklist nepromijenjen (304)")
+                return Result.success(Unit)
+            }
+            val checklist = if (response != null) {
+                if (response.isSuccessful) response.body() else null
+            } else {
+                if (v2.isSuccessful) v2.body()?.uChecklistUredaje() else null
+            }
+            if (checklist != null) {
                 android.util.Log.d("ChecklistRepository", "Sync successful: received ${checklist.size} devices")
                 
                 // Save devices and parameters to local database
                 saveChecklistToDatabase(checklist, postrojenjeId)
                 android.util.Log.d("ChecklistRepository", "Saved checklist to local DB")
+                etagStorage.save(etagKljuc, (response?.headers() ?: v2.headers())["ETag"])
                 
                 Result.success(Unit)
             } else {
-                Result.failure(Exception("Greška pri učitavanju checklistte: ${response.code()}"))
+                Result.failure(Exception("Greška pri učitavanju checklistte: $kod"))
             }
         } catch (e: java.net.SocketTimeoutException) {
             Result.failure(Exception("Server timeout - provjerite internet konekciju", e))
@@ -4,6 +4,7 @@ import android.content.Context
 import com.example.elektropregled.data.api.ApiClient
 import com.example.elektropregled.data.api.dto.PoljeDto
 import com.example.elektropregled.data.api.dto.PostrojenjeSummary
+import com.example.elektropregled.data.EtagStorage
 import com.example.elektropregled.data.TokenStorage
 import com.example.elektropregled.data.database.AppDatabase
 import com.example.elektropregled.data.database.entity.PostrojenjeEntity
@@ -36,6 +37,7 @@ class PostrojenjeRepository(
     private val pregledDao = database.pregledDao()
     private val poljeDao = database.poljeDao()
     private val uredajDao = database.uredajDao()
+    private val etagStorage = EtagStorage(context)
     
     // Background scope for comprehensive sync (using SupervisorJob to prevent cancellation propagation)
     private val backgroundScope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
@@ -150,7 +152,18 @@ class PostrojenjeRepository(
         }
         
         return try {
-            val response = apiService.getPostrojenja("Bearer $token")
+            // If-None-Match šaljemo samo ako lokalno imamo podatke koje ETag opisuje; kad je na redu
+            // periodično potpuno osvježavanje, ne šaljemo ga da 304 ne preskoči obilazak
+            val punoZastarjelo = System.currentTimeMillis() - etagStorage.getPunoOsvjezavanje() >= PUNO_OSVJEZAVANJE_MS
+            val imaLokalnih = postrojenjeDao.getAllPostrojenja().first().isNotEmpty()
+            val ifNoneMatch = if (imaLokalnih && !punoZastarjelo) etagStorage.get(EtagStorage.POSTROJENJA) else null
+            val response = apiService.getPostrojenja("Bearer $token", ifNoneMatch)
+            if (response.code() == 304) {
+                // Ništa se nije promijenilo od zadnjeg preuzimanja - ni popis ni pregledi,
+                // pa ni polja ni checklisti nije potrebno ponovno dohvaćati
+                android.util.Log.d("PostrojenjeRepository", "Postrojenja nepromijenjena (304)")
+                return Result.success(Unit)
+            }
             if (response.isSuccessful && response.body() != null) {
                 val facilities = response.body()!!
                 
@@ -179,6 +192,7 @@ class PostrojenjeRepository(
                     e.printStackTrace()
                     throw e
                 }
+                etagStorage.save(EtagStorage.POSTROJENJA, response.headers()["ETag"])
                 
                 // Trigger comprehensive sync in background (non-blocking)
                 // This will sync all polja and checklist data for all postrojenja in the background
@@ -201,6 +215,23 @@ class PostrojenjeRepository(
                             return@launch
                         }
                         
+                        // Delta kataloga zamjenjuje obilazak svih polja i checklisti; obilazak ostaje
+                        // kao rezerva ako server ne podržava v1/sync/changes ili delta ne uspije, a
+                        // jednom u PUNO_OSVJEZAVANJE_MS i kad delta uspije, da se katalog sam popravi
+                        // ako je neka promjena na serveru prošla mimo dnevnika promjena
+                        val katalogResult = checklistRepository.syncKatalogPromjene()
+                        if (katalogResult.isSuccess && !punoZastarjelo) {
+                            android.util.Log.d("PostrojenjeRepository", "Catalog delta applied - skipping per-postrojenje sync")
+                            return@launch
+                        }
+                        if (katalogResult.isSuccess) {
+                            android.util.Log.d("PostrojenjeRepository", "Catalog delta applied - periodic full sync due")
+                            // Bez validatora: promjena koja je prošla mimo dnevnika nije promijenila ni ETag
+                            etagStorage.clearPostrojenja()
+                        } else {
+                            android.util.Log.w("PostrojenjeRepository", "Catalog delta failed, falling back to full sync: ${katalogResult.exceptionOrNull()?.message}")
+                        }
+                        
                         for (entity in entities) {
                             try {
                                 // Check network and token before each sync (they might change during long-running sync)
@@ -240,6 +271,9 @@ class PostrojenjeRepository(
                         }
                         
                         android.util.Log.d("PostrojenjeRepository", "Background comprehensive sync completed: $syncSuccessCount successful, $syncErrorCount failed")
+                        if (syncErrorCount == 0 && syncSuccessCount == entities.size) {
+                            etagStorage.savePunoOsvjezavanje(System.currentTimeMillis())
+                        }
                     }
                 } else {
                     android.util.Log.w("PostrojenjeRepository", "ChecklistRepository not available - skipping comprehensive sync")
@@ -453,7 +487,13 @@ class PostrojenjeRepository(
         }
         
         return try {
-            val response = apiService.getPolja(postrojenjeId, "Bearer $token")
+            val etagKljuc = EtagStorage.polja(postrojenjeId)
+            val imaLokalnih = poljeDao.getPoljaByPostrojenje(postrojenjeId).first().isNotEmpty()
+            val ifNoneMatch = if (imaLokalnih) etagStorage.get(etagKljuc) else null
+            val response = apiService.getPolja(postrojenjeId, "Bearer $token", ifNoneMatch)
+            if (response.code() == 304) {
+                return Result.success(Unit)
+            }
             if (response.isSuccessful && response.body() != null) {
                 val polja = response.body()!!
                 
@@ -484,6 +524,7 @@ class PostrojenjeRepository(
                 } else {
                     android.util.Log.d("PostrojenjeRepository", "No polja entities to save (all were virtual)")
                 }
+                etagStorage.save(etagKljuc, response.headers()["ETag"])
                 
                 // Note: If hasVirtualField is true, devices directly on facility should be synced
                 // via ChecklistRepository when user accesses the virtual field
@@ -503,5 +544,9 @@ class PostrojenjeRepository(
             Result.failure(Exception("Greška pri učitavanju polja: ${e.message}", e))
         }
     }
-    
+
+    companion object {
+        // Najdulji razmak između potpunih obilazaka polja i checklisti kad delta kataloga uspijeva
+        private const val PUNO_OSVJEZAVANJE_MS = 24 * 60 * 60 * 1000L
+    }
 }
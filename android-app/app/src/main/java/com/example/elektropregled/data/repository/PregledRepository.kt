@@ -1,6 +1,7 @@
 package com.example.elektropregled.data.repository
 
 import com.example.elektropregled.data.api.ApiClient
+import com.example.elektropregled.data.api.TokenRefresher
 import com.example.elektropregled.data.api.dto.*
 import com.example.elektropregled.data.database.AppDatabase
 import com.example.elektropregled.data.database.entity.PregledEntity
@@ -137,6 +138,8 @@ class PregledRepository(
     suspend fun syncPregledi(): SyncResult {
         android.util.Log.d("PregledRepository", "syncPregledi pozvan")
         
+        // Token koji uskoro istječe obnavlja se preko refresh tokena, bez ponovne prijave
+        TokenRefresher.osiguraj(tokenStorage)
         val token = tokenStorage.getToken()
         android.util.Log.d("PregledRepository", "Token: ${if (token != null) "postoji" else "null"}, valjan: ${tokenStorage.isTokenValid()}")
         
@@ -4,6 +4,7 @@ import android.content.Context
 import androidx.work.CoroutineWorker
 import androidx.work.WorkerParameters
 import com.example.elektropregled.ElektropregledApplication
+import com.example.elektropregled.data.api.TokenRefresher
 import com.example.elektropregled.data.repository.PregledRepository
 
 class SyncWorker(
@@ -15,6 +16,11 @@ class SyncWorker(
         val app = applicationContext as? ElektropregledApplication ?: return Result.failure()
         val repository = PregledRepository(app.database, app.tokenStorage)
         
+        // Obnovi token prije synca; bez važećeg tokena i refresh tokena ponavljanje nema smisla
+        if (!TokenRefresher.osiguraj(app.tokenStorage) && app.tokenStorage.getRefreshToken() == null) {
+            return Result.failure()
+        }
+        
         return try {
             val result = repository.syncPregledi()
             when (result) {
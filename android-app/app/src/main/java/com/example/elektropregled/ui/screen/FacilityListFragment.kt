@@ -13,10 +13,12 @@ import androidx.recyclerview.widget.LinearLayoutManager
 import com.example.elektropregled.ElektropregledApplication
 import com.example.elektropregled.R
 import com.example.elektropregled.databinding.FragmentFacilityListBinding
+import com.example.elektropregled.data.api.TokenRefresher
 import com.example.elektropregled.data.api.dto.PostrojenjeSummary
 import com.example.elektropregled.ui.viewmodel.FacilityListViewModel
 import com.example.elektropregled.ui.viewmodel.ViewModelFactory
 import kotlinx.coroutines.launch
+import kotlinx.coroutines.withTimeoutOrNull
 import java.text.Collator
 import java.util.Locale
 
@@ -195,10 +197,14 @@ class FacilityListFragment : Fragment() {
                 }
                 R.id.menu_logout -> {
                     val app = requireActivity().application as ElektropregledApplication
-                    app.tokenStorage.clearToken()
-                    requireActivity().supportFragmentManager.beginTransaction()
-                        .replace(R.id.fragment_container, LoginFragment())
-                        .commit()
+                    viewLifecycleOwner.lifecycleScope.launch {
+                        // Opoziv refresh tokena na serveru; bez mreže se odjava ne smije zadržati
+                        withTimeoutOrNull(ODJAVA_TIMEOUT_MS) { TokenRefresher.odjavi(app.tokenStorage) }
+                        app.tokenStorage.clearToken()
+                        requireActivity().supportFragmentManager.beginTransaction()
+                            .replace(R.id.fragment_container, LoginFragment())
+                            .commit()
+                    }
                     true
                 }
                 else -> false
@@ -211,4 +217,8 @@ class FacilityListFragment : Fragment() {
         super.onDestroyView()
         _binding = null
     }
+
+    companion object {
+        private const val ODJAVA_TIMEOUT_MS = 3_000L
+    }
 }
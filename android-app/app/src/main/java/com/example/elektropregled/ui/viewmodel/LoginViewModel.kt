@@ -7,6 +7,7 @@ import com.example.elektropregled.data.api.ApiClient
 import com.example.elektropregled.data.api.dto.LoginRequest
 import com.example.elektropregled.data.TokenStorage
 import com.example.elektropregled.util.NetworkUtil
+import kotlinx.coroutines.delay
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.launch
@@ -45,11 +46,22 @@ class LoginViewModel(
             _uiState.value = _uiState.value.copy(isLoading = true, errorMessage = null)
             
             try {
-                val response = ApiClient.apiService.login(LoginRequest(username, password))
+                var response = ApiClient.apiService.login(LoginRequest(username, password))
+                // 503: server odbija prijave dok je red provjera lozinki pun - ponovi nakon Retry-After
+                var pokusaj = 1
+                while (response.code() == 503 && pokusaj < MAX_POKUSAJA_PRIJAVE) {
+                    val cekanjeS = response.headers()["Retry-After"]?.toLongOrNull() ?: ZADANO_CEKANJE_S
+                    delay(cekanjeS * 1000 + (0..1000L).random())
+                    response = ApiClient.apiService.login(LoginRequest(username, password))
+                    pokusaj++
+                }
                 
                 if (response.isSuccessful && response.body() != null) {
                     val loginResponse = response.body()!!
                     tokenStorage.saveToken(loginResponse.access_token, loginResponse.expires_in)
+                    if (loginResponse.refresh_token != null && loginResponse.refresh_expires_in != null) {
+                        tokenStorage.saveRefreshToken(loginResponse.refresh_token, loginResponse.refresh_expires_in)
+                    }
                     tokenStorage.saveUserId(loginResponse.user_id)
                     tokenStorage.saveUsername(loginResponse.username)
                     _uiState.value = _uiState.value.copy(
@@ -60,6 +72,7 @@ class LoginViewModel(
                     val errorMsg = when (response.code()) {
                         401 -> "Neispravno korisničko ime ili lozinka"
                         400 -> "Nedostaju podaci"
+                        503 -> "Server je trenutno preopterećen prijavama, pokušajte ponovno za minutu"
                         else -> "Greška pri prijavi: ${response.code()}"
                     }
                     _uiState.value = _uiState.value.copy(
@@ -83,6 +96,11 @@ class LoginViewModel(
         }
     }
     
+    companion object {
+        private const val MAX_POKUSAJA_PRIJAVE = 3
+        private const val ZADANO_CEKANJE_S = 5L
+    }
+
     fun clearError() {
         _uiState.value = _uiState.value.copy(errorMessage = null)
     }
@@ -1,56 +1,113 @@
 package hr.elektropregled.config;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.util.Base64;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+/**
+ * Izdaje i provjerava JWT tokene (HS512). Ključ i parser grade se jednom.
+ * <p>
+ * Provjereni tokeni pamte se do svog {@code exp} u ograničenoj LRU predmemoriji
+ * ({@code jwt.cache.max-tokena}), pa ponovljeni zahtjevi istog tableta ne rade ponovno HMAC
+ * provjeru. Ključ predmemorije je SHA-256 sažetak tokena, a ne sam token.
+ */
 @Component
 public class JwtProvider {
-    @Value("${jwt.secret}")
-    private String jwtSecret;
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final long jwtExpiration;
+    private final int maxTokena;
+    private final Clock clock;
 
-    @Value("${jwt.expiration}")
-    private long jwtExpiration;
+    private final LinkedHashMap<String, Provjeren> provjereni = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Provjeren> eldest) {
+            return size() > maxTokena;
+        }
+    };
+
+    @Autowired
+    public JwtProvider(@Value("${jwt.secret}") String jwtSecret,
+                       @Value("${jwt.expiration}") long jwtExpiration,
+                       @Value("${jwt.cache.max-tokena:10000}") int maxTokena) {
+        this(jwtSecret, jwtExpiration, maxTokena, Clock.systemUTC());
+    }
 
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = jwtSecret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    // Sat se zadaje u testovima; isti sat koriste izdavanje, predmemorija i provjera exp u parseru
+    JwtProvider(String jwtSecret, long jwtExpiration, int maxTokena, Clock clock) {
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.clock = clock;
+        this.parser = Jwts.parser().verifyWith(signingKey).clock(() -> new Date(clock.millis())).build();
+        this.jwtExpiration = jwtExpiration;
+        this.maxTokena = maxTokena;
+    }
+
+    private record Provjeren(String username, long istjeceMs) {
     }
 
     public String generateToken(String username) {
         return Jwts.builder()
                 .subject(username)
-                .issuedAt(new Date())
-                .expiration(new Date(System.currentTimeMillis() + jwtExpiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS512)
+                .issuedAt(new Date(clock.millis()))
+                .expiration(new Date(clock.millis() + jwtExpiration))
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .compact();
     }
 
-    public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    /**
+     * Provjerava potpis i rok tokena jednim parsiranjem i vraća korisničko ime, ili {@code null}
+     * ako token nije ispravan ili je istekao.
+     */
+    public String provjeriToken(String token) {
+        String kljuc = sazetak(token);
+        long sada = clock.millis();
+        synchronized (provjereni) {
+            Provjeren unos = provjereni.get(kljuc);
+            if (unos != null) {
+                if (sada < unos.istjeceMs()) {
+                    return unos.username();
+                }
+                provjereni.remove(kljuc);
+                return null;
+            }
+        }
+
+        Claims claims;
+        try {
+            claims = parser.parseSignedClaims(token).getPayload();
+        } catch (Exception e) {
+            return null;
+        }
+        // Token bez exp se ne pamti; vrijedi samo dok ga parser prihvaća
+        if (claims.getExpiration() != null) {
+            synchronized (provjereni) {
+                provjereni.put(kljuc, new Provjeren(claims.getSubject(), claims.getExpiration().getTime()));
+            }
+        }
         return claims.getSubject();
     }
 
-    public boolean validateToken(String token) {
+    private static String sazetak(String token) {
         try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
-        } catch (Exception e) {
-            return false;
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 nije dostupan", e);
         }
     }
-}
\ No newline at end of file
+}
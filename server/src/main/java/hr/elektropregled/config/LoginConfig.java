@@ -0,0 +1,29 @@
+package hr.elektropregled.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class LoginConfig {
+    /**
+     * Ograničen pool za BCrypt provjeru lozinki pri prijavi. BCrypt je namjerno spor i troši CPU,
+     * pa jutarnji val prijava ne smije zauzeti Tomcat dretve koje poslužuju checklist i sync.
+     * Kad je red pun, zadatak se odbija ({@link ThreadPoolExecutor.AbortPolicy}) i prijava dobiva 503.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor provjeraLozinkeExecutor(@Value("${auth.login.dretvi:2}") int dretvi,
+                                                          @Value("${auth.login.red:200}") int red) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(dretvi);
+        executor.setMaxPoolSize(dretvi);
+        executor.setQueueCapacity(red);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setThreadNamePrefix("login-bcrypt-");
+        executor.initialize();
+        return executor;
+    }
+}
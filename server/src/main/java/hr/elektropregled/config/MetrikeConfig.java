@@ -0,0 +1,18 @@
+package hr.elektropregled.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetrikeConfig {
+    /**
+     * Omogućuje {@code @Timed} na servisnim metodama (checklist, popis postrojenja, sync). Endpointi,
+     * repozitoriji, Hikari pool, Hibernate statistika i executori imaju metrike iz Spring Boota.
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+}
@@ -1,8 +1,12 @@
 package hr.elektropregled.config;
 
 import hr.elektropregled.filter.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
@@ -12,13 +16,19 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final String scrapeToken;
 
-    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter) {
+    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter,
+                          @Value("${management.scrape.token:}") String scrapeToken) {
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
+        this.scrapeToken = scrapeToken;
     }
 
     @Bean
@@ -31,8 +41,14 @@ public class SecurityConfig {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
+                        // Asinkroni dispatch (StreamingResponseBody) nastavlja već autoriziran zahtjev
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/v1/auth/**").permitAll()
                         .requestMatchers("/swagger-ui.html", "/swagger-ui/**", "/v3/api-docs/**").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        // Ostali actuator endpointi (prometheus, metrics) samo sa scrape tokenom, ne s JWT-om korisnika
+                        .requestMatchers("/actuator/**").access((autentikacija, kontekst) ->
+                                new AuthorizationDecision(ispravanScrapeToken(kontekst.getRequest())))
                         .anyRequest().authenticated()
                 )
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
@@ -40,4 +56,14 @@ public class SecurityConfig {
 
         return http.build();
     }
+
+    // Bez postavljenog management.scrape.token metrike nisu dostupne nikome
+    private boolean ispravanScrapeToken(HttpServletRequest request) {
+        String zaglavlje = request.getHeader("Authorization");
+        if (scrapeToken.isEmpty() || zaglavlje == null || !zaglavlje.startsWith("Bearer ")) {
+            return false;
+        }
+        return MessageDigest.isEqual(zaglavlje.substring(7).getBytes(StandardCharsets.UTF_8),
+                scrapeToken.getBytes(StandardCharsets.UTF_8));
+    }
 }
\ No newline at end of file
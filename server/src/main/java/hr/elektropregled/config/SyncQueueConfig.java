@@ -0,0 +1,33 @@
+package hr.elektropregled.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@EnableScheduling
+public class SyncQueueConfig {
+    /**
+     * Ograničen pool za obradu asinkronih sync zahtjeva; broj dretvi ujedno ograničava
+     * koliko DB konekcija worker može zauzeti u isto vrijeme.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor syncQueueExecutor(@Value("${sync.async.workers:2}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(0);
+        // Odbijanje (sve dretve zauzete ili gašenje) baca TaskRejectedException; worker tada preuzeti
+        // batch odmah vraća na čekanje umjesto da ga obrađuje scheduler dretva ili tiho odbaci
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setThreadNamePrefix("sync-queue-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+}
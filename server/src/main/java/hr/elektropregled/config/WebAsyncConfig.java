@@ -0,0 +1,46 @@
+package hr.elektropregled.config;
+
+import hr.elektropregled.exception.ServiceUnavailableException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebAsyncConfig implements WebMvcConfigurer {
+    @Value("${web.async.dretvi:8}")
+    private int dretvi;
+
+    @Value("${web.async.red:100}")
+    private int red;
+
+    @Value("${web.async.retry-after-s:5}")
+    private long retryAfterSekundi;
+
+    /**
+     * Ograničen pool za asinkrone MVC odgovore ({@code StreamingResponseBody} paketa postrojenja
+     * i dovršetak prijave nakon provjere lozinke).
+     * Bez njega Spring MVC za svaki odgovor pokreće novu dretvu ({@code SimpleAsyncTaskExecutor}),
+     * pa val sporih klijenata ne bi imao gornju granicu. Kad je red pun, zahtjev dobiva 503.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor mvcAsyncExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(dretvi);
+        executor.setMaxPoolSize(dretvi);
+        executor.setQueueCapacity(red);
+        executor.setRejectedExecutionHandler((zadatak, pool) -> {
+            throw new ServiceUnavailableException("Server je trenutno preopterećen, pokušajte ponovno", retryAfterSekundi);
+        });
+        executor.setThreadNamePrefix("mvc-async-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(mvcAsyncExecutor());
+    }
+}
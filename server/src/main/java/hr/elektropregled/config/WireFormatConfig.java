@@ -0,0 +1,21 @@
+package hr.elektropregled.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+@Configuration
+public class WireFormatConfig {
+    /**
+     * CBOR uz JSON: klijent ga bira s {@code Accept: application/cbor} (odgovori) odnosno
+     * {@code Content-Type: application/cbor} (tijelo zahtjeva). Mapper se gradi iz Bootovog
+     * builder-a pa vrijede iste postavke kao za JSON. Bean zamjenjuje zadani CBOR konverter na
+     * njegovom mjestu iza JSON-a, tako da JSON ostaje zadani format za klijente bez Accept zaglavlja.
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
@@ -0,0 +1,241 @@
+package hr.elektropregled.controller;
+
+import hr.elektropregled.dto.BulkImportReport;
+import hr.elektropregled.dto.PostrojenjeSummaryDto;
+import hr.elektropregled.dto.StavkaLatestProvjera;
+import hr.elektropregled.service.AuthService;
+import hr.elektropregled.service.BulkImportService;
+import hr.elektropregled.service.ChecklistTemplateCache;
+import hr.elektropregled.service.PostrojenjeService;
+import hr.elektropregled.service.PostrojenjeStatsService;
+import hr.elektropregled.service.ProvjeraLozinkeService;
+import hr.elektropregled.service.ReferentniCache;
+import hr.elektropregled.service.StavkaLatestService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+@RestController
+@RequestMapping("/v1/admin")
+@Tag(name = "Admin", description = "Administratorski endpointi (zahtijevaju ulogu ADMIN)")
+public class AdminController {
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final AuthService authService;
+    private final BulkImportService bulkImportService;
+    private final ChecklistTemplateCache checklistTemplateCache;
+    private final StavkaLatestService stavkaLatestService;
+    private final PostrojenjeStatsService postrojenjeStatsService;
+    private final PostrojenjeService postrojenjeService;
+    private final ReferentniCache referentniCache;
+    private final ProvjeraLozinkeService provjeraLozinkeService;
+
+    public AdminController(AuthService authService,
+                           BulkImportService bulkImportService,
+                           ChecklistTemplateCache checklistTemplateCache,
+                           StavkaLatestService stavkaLatestService,
+                           PostrojenjeStatsService postrojenjeStatsService,
+                           PostrojenjeService postrojenjeService,
+                           ReferentniCache referentniCache,
+                           ProvjeraLozinkeService provjeraLozinkeService) {
+        this.authService = authService;
+        this.bulkImportService = bulkImportService;
+        this.checklistTemplateCache = checklistTemplateCache;
+        this.stavkaLatestService = stavkaLatestService;
+        this.postrojenjeStatsService = postrojenjeStatsService;
+        this.postrojenjeService = postrojenjeService;
+        this.referentniCache = referentniCache;
+        this.provjeraLozinkeService = provjeraLozinkeService;
+    }
+
+    @PostMapping(value = "/import/stavke", consumes = {"text/csv", NDJSON})
+    @Operation(summary = "Skupni unos povijesnih pregleda",
+            description = "Prima CSV (sa zaglavljem) ili NDJSON, jedan redak po stavci pregleda. Stupci: " +
+                    "pregled_lokalni_id, id_korisnika, id_postr, pocetak, kraj, pregled_napomena, stavka_lokalni_id, " +
+                    "id_ured, id_parametra, vrijednost_bool, vrijednost_num, vrijednost_txt, napomena, vrijeme_unosa. " +
+                    "Podaci se strujno učitavaju naredbom COPY i validiraju u bazi; neispravni redovi se preskaču " +
+                    "i navode u izvještaju. Zahtijeva JWT token korisnika s ulogom ADMIN.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Unos završen, vraća izvještaj",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = BulkImportReport.class))),
+            @ApiResponse(responseCode = "400", description = "Ulaz se ne može pročitati (npr. neispravan CSV)",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "401", description = "Nedostaje ili neispravan JWT token",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "403", description = "Korisnik nema ulogu ADMIN",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "500", description = "Greška na serveru",
+                    content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<BulkImportReport> importStavke(HttpServletRequest httpRequest) throws IOException {
+        authService.requireAdmin((String) httpRequest.getAttribute("username"));
+
+        String contentType = httpRequest.getContentType();
+        BulkImportService.Format format = contentType != null && contentType.startsWith(NDJSON)
+                ? BulkImportService.Format.NDJSON
+                : BulkImportService.Format.CSV;
+
+        try (Reader reader = new InputStreamReader(httpRequest.getInputStream(), StandardCharsets.UTF_8)) {
+            return ResponseEntity.ok(bulkImportService.importStavke(reader, format));
+        }
+    }
+
+    @GetMapping("/cache/checklist")
+    @Operation(summary = "Statistika predmemorije predložaka checkliste",
+            description = "Vraća broj vrsta uređaja u predmemoriji te broj pogodaka, promašaja i izbačenih unosa " +
+                    "od pokretanja servera. Zahtijeva JWT token korisnika s ulogom ADMIN.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Statistika predmemorije",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ChecklistTemplateCache.Statistika.class))),
+            @ApiResponse(responseCode = "401", description = "Nedostaje ili neispravan JWT token",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "403", description = "Korisnik nema ulogu ADMIN",
+                    content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<ChecklistTemplateCache.Statistika> checklistCacheStatistika(HttpServletRequest httpRequest) {
+        authService.requireAdmin((String) httpRequest.getAttribute("username"));
+        return ResponseEntity.ok(checklistTemplateCache.statistika());
+    }
+
+    @PostMapping("/cache/checklist/invalidate")
+    @Operation(summary = "Poništavanje predmemorije predložaka checkliste",
+            description = "Briše sve predloške iz predmemorije, npr. nakon izmjene parametara provjere izravno u bazi. " +
+                    "Zahtijeva JWT token korisnika s ulogom ADMIN.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Predmemorija je ispražnjena"),
+            @ApiResponse(responseCode = "401", description = "Nedostaje ili neispravan JWT token",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "403", description = "Korisnik nema ulogu ADMIN",
+                    content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<Void> invalidirajChecklistCache(HttpServletRequest httpRequest) {
+        authService.requireAdmin((String) httpRequest.getAttribute("username"));
+        checklistTemplateCache.invalidirajSve();
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/cache/referentni")
+    @Operation(summary = "Statistika L2 predmemorije referentnih podataka",
+            description = "Za svaku regiju Hibernate L2 predmemorije (postrojenje, polje, vrsta_uredaja, uredaj, " +
+                    "parametar_provjere) vraća broj unosa, pogodaka, promašaja i upisa, te iste brojače za " +
+                    "predmemoriju upita. Brojači rade samo uz hibernate.generate_statistics (u produkciji " +
+                    "HIBERNATE_STATISTIKA=true). Zahtijeva JWT token korisnika s ulogom ADMIN.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Statistika predmemorije",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ReferentniCache.Statistika.class))),
+            @ApiResponse(responseCode = "401", description = "Nedostaje ili neispravan JWT token",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "403", description = "Korisnik nema ulogu ADMIN",
+                    content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<ReferentniCache.Statistika> referentniCacheStatistika(HttpServletRequest httpRequest) {
+        authService.requireAdmin((String) httpRequest.getAttribute("username"));
+        return ResponseEntity.ok(referentniCache.statistika());
+    }
+
+    @PostMapping("/cache/referentni/invalidate")
+    @Operation(summary = "Poništavanje L2 predmemorije referentnih podataka",
+            description = "Prazni sve regije entiteta i predmemoriju upita, npr. nakon izmjene kataloga izravno u bazi. " +
+                    "Zahtijeva JWT token korisnika s ulogom ADMIN.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Predmemorija je ispražnjena"),
+            @ApiResponse(responseCode = "401", description = "Nedostaje ili neispravan JWT token",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "403", description = "Korisnik nema ulogu ADMIN",
+                    content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<Void> invalidirajReferentniCache(HttpServletRequest httpRequest) {
+        authService.requireAdmin((String) httpRequest.getAttribute("username"));
+        referentniCache.isprazni();
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/login/statistika")
+    @Operation(summary = "Statistika provjere lozinki pri prijavi",
+            description = "Vraća veličinu poola za BCrypt provjeru, trenutnu dubinu reda, broj provjera i odbijenih " +
+                    "prijava (503) te prosječno čekanje u redu i trajanje provjere od pokretanja servera. " +
+                    "Zahtijeva JWT token korisnika s ulogom ADMIN.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Statistika provjere lozinki",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProvjeraLozinkeService.Statistika.class))),
+            @ApiResponse(responseCode = "401", description = "Nedostaje ili neispravan JWT token",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "403", description = "Korisnik nema ulogu ADMIN",
+                    content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<ProvjeraLozinkeService.Statistika> loginStatistika(HttpServletRequest httpRequest) {
+        authService.requireAdmin((String) httpRequest.getAttribute("username"));
+        return ResponseEntity.ok(provjeraLozinkeService.statistika());
+    }
+
+    @GetMapping("/stavka-latest/provjera")
+    @Operation(summary = "Provjera tablice zadnjih vrijednosti",
+            description = "Uspoređuje stavka_latest sa zadnjim stavkama izračunatim iz cijele povijesti pregleda " +
+                    "i vraća broj parova koji nedostaju, zastarjelih i suvišnih redova. Ne mijenja podatke. " +
+                    "Zahtijeva JWT token korisnika s ulogom ADMIN.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Rezultat provjere",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = StavkaLatestProvjera.class))),
+            @ApiResponse(responseCode = "401", description = "Nedostaje ili neispravan JWT token",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "403", description = "Korisnik nema ulogu ADMIN",
+                    content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<StavkaLatestProvjera> provjeriStavkaLatest(HttpServletRequest httpRequest) {
+        authService.requireAdmin((String) httpRequest.getAttribute("username"));
+        return ResponseEntity.ok(stavkaLatestService.provjeri());
+    }
+
+    @PostMapping("/stavka-latest/obnovi")
+    @Operation(summary = "Ponovna izgradnja tablice zadnjih vrijednosti",
+            description = "Briše i ponovno puni stavka_latest iz povijesti pregleda, zatim vraća rezultat provjere. " +
+                    "Zahtijeva JWT token korisnika s ulogom ADMIN.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Tablica je ponovno izgrađena",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = StavkaLatestProvjera.class))),
+            @ApiResponse(responseCode = "401", description = "Nedostaje ili neispravan JWT token",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "403", description = "Korisnik nema ulogu ADMIN",
+                    content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<StavkaLatestProvjera> obnoviStavkaLatest(HttpServletRequest httpRequest) {
+        authService.requireAdmin((String) httpRequest.getAttribute("username"));
+        stavkaLatestService.obnovi();
+        return ResponseEntity.ok(stavkaLatestService.provjeri());
+    }
+
+    @PostMapping("/postrojenje-stats/obnovi")
+    @Operation(summary = "Ponovna izgradnja statistike postrojenja",
+            description = "Ponovno računa postrojenje_stats (broj pregleda, zadnji pregled i korisnik) iz cijele " +
+                    "tablice pregled i vraća listu postrojenja kakvu vidi početni ekran. " +
+                    "Zahtijeva JWT token korisnika s ulogom ADMIN.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Statistika je ponovno izgrađena",
+                    content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = PostrojenjeSummaryDto.class)))),
+            @ApiResponse(responseCode = "401", description = "Nedostaje ili neispravan JWT token",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "403", description = "Korisnik nema ulogu ADMIN",
+                    content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<List<PostrojenjeSummaryDto>> obnoviPostrojenjeStats(HttpServletRequest httpRequest) {
+        authService.requireAdmin((String) httpRequest.getAttribute("username"));
+        postrojenjeStatsService.obnovi();
+        return ResponseEntity.ok(postrojenjeService.listPostrojenjaWithStats());
+    }
+}
@@ -2,6 +2,7 @@ package hr.elektropregled.controller;
 
 import hr.elektropregled.dto.LoginRequest;
 import hr.elektropregled.dto.LoginResponse;
+import hr.elektropregled.dto.RefreshRequest;
 import hr.elektropregled.service.AuthService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -16,6 +17,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/v1/auth")
 @Tag(name = "Authentication", description = "Endpointi za autentifikaciju")
@@ -27,7 +30,8 @@ public class AuthController {
     }
 
     @PostMapping("/login")
-    @Operation(summary = "Prijava korisnika", description = "Provjerava korisničko ime i lozinku te vraća JWT token")
+    @Operation(summary = "Prijava korisnika", description = "Provjerava korisničko ime i lozinku te vraća JWT token. " +
+            "Lozinke se provjeravaju na ograničenom poolu; kad je red provjera pun, odgovor je 503 s Retry-After.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Uspješna prijava",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = LoginResponse.class))),
@@ -35,11 +39,42 @@ public class AuthController {
                     content = @Content(mediaType = "application/json")),
             @ApiResponse(responseCode = "404", description = "Korisničko ime ili lozinka nisu ispravni",
                     content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "503", description = "Previše istovremenih prijava; ponoviti nakon Retry-After sekundi",
+                    content = @Content(mediaType = "application/json")),
             @ApiResponse(responseCode = "500", description = "Greška na serveru",
                     content = @Content(mediaType = "application/json"))
     })
-    public ResponseEntity<LoginResponse> login(@Valid @RequestBody LoginRequest request) {
-        LoginResponse response = authService.login(request);
-        return ResponseEntity.ok(response);
+    public CompletableFuture<ResponseEntity<LoginResponse>> login(@Valid @RequestBody LoginRequest request) {
+        return authService.login(request).thenApply(ResponseEntity::ok);
+    }
+
+    @PostMapping("/refresh")
+    @Operation(summary = "Osvježavanje access tokena",
+            description = "Za važeći refresh token vraća novi JWT access token i novi refresh token, bez provjere " +
+                    "lozinke. Korišteni refresh token se opoziva; ponovna upotreba opozvanog tokena opoziva sve " +
+                    "tokene iz iste prijave.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Novi access i refresh token",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = LoginResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Nedostaje refresh token",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "401", description = "Refresh token nije valjan, istekao je ili je opozvan",
+                    content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<LoginResponse> refresh(@Valid @RequestBody RefreshRequest request) {
+        return ResponseEntity.ok(authService.osvjezi(request));
+    }
+
+    @PostMapping("/logout")
+    @Operation(summary = "Odjava",
+            description = "Opoziva refresh token i sve tokene iz iste prijave. Već izdani access token vrijedi do isteka.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Refresh token je opozvan"),
+            @ApiResponse(responseCode = "400", description = "Nedostaje refresh token",
+                    content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<Void> logout(@Valid @RequestBody RefreshRequest request) {
+        authService.odjava(request);
+        return ResponseEntity.noContent().build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+package hr.elektropregled.controller;
+
+import hr.elektropregled.dto.KatalogPromjeneResponse;
+import hr.elektropregled.service.KatalogPromjeneService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/v1/sync")
+@Tag(name = "Katalog Sync", description = "Delta sinkronizacija referentnih podataka")
+public class KatalogSyncController {
+    private final KatalogPromjeneService katalogPromjeneService;
+
+    public KatalogSyncController(KatalogPromjeneService katalogPromjeneService) {
+        this.katalogPromjeneService = katalogPromjeneService;
+    }
+
+    @GetMapping("/changes")
+    @Operation(summary = "Promjene kataloga od verzije",
+            description = "Vraća postrojenja, polja, vrste uređaja, uređaje i parametre provjere dodane, izmijenjene ili " +
+                    "obrisane nakon verzije since. Klijent sprema vraćenu verziju i šalje je pri sljedećem pozivu. " +
+                    "Za since=0 ili previše staru verziju vraća se cijeli katalog (potpuno=true).")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Uspjeh",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = KatalogPromjeneResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Neautorizirano", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Greška na serveru", content = @Content)
+    })
+    public ResponseEntity<KatalogPromjeneResponse> promjene(
+            @Parameter(description = "Zadnja verzija kataloga koju klijent ima (0 za prvo preuzimanje)")
+            @RequestParam(value = "since", defaultValue = "0") long since) {
+        return ResponseEntity.ok(katalogPromjeneService.promjeneOd(since));
+    }
+}
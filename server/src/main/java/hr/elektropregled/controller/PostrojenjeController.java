@@ -1,9 +1,13 @@
 package hr.elektropregled.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import hr.elektropregled.dto.ChecklistDeviceDto;
 import hr.elektropregled.dto.PoljeDto;
+import hr.elektropregled.dto.PostrojenjeBundleDto;
 import hr.elektropregled.dto.PostrojenjeSummaryDto;
 import hr.elektropregled.service.PostrojenjeService;
+import hr.elektropregled.service.VerzijaPodatakaService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -12,12 +16,18 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -25,10 +35,21 @@ import java.util.List;
 @RequestMapping("/v1/postrojenja")
 @Tag(name = "Postrojenja", description = "Pregled postrojenja, polja i generiranje checklist-a")
 public class PostrojenjeController {
+    private static final String CBOR = "application/cbor";
+
     private final PostrojenjeService postrojenjeService;
+    private final VerzijaPodatakaService verzijaPodatakaService;
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper cborMapper;
 
-    public PostrojenjeController(PostrojenjeService postrojenjeService) {
+    public PostrojenjeController(PostrojenjeService postrojenjeService,
+                                 VerzijaPodatakaService verzijaPodatakaService,
+                                 ObjectMapper objectMapper,
+                                 MappingJackson2CborHttpMessageConverter cborConverter) {
         this.postrojenjeService = postrojenjeService;
+        this.verzijaPodatakaService = verzijaPodatakaService;
+        this.jsonMapper = objectMapper;
+        this.cborMapper = cborConverter.getObjectMapper();
     }
 
     @GetMapping
@@ -37,11 +58,15 @@ public class PostrojenjeController {
             @ApiResponse(responseCode = "200", description = "Uspjeh",
                     content = @Content(mediaType = "application/json",
                             array = @ArraySchema(schema = @Schema(implementation = PostrojenjeSummaryDto.class)))),
+            @ApiResponse(responseCode = "304", description = "Nije promijenjeno (If-None-Match)", content = @Content),
             @ApiResponse(responseCode = "401", description = "Neautorizirano", content = @Content),
             @ApiResponse(responseCode = "500", description = "Greška na serveru", content = @Content)
     })
-    public ResponseEntity<List<PostrojenjeSummaryDto>> listPostrojenja() {
-        return ResponseEntity.ok(postrojenjeService.listPostrojenjaWithStats());
+    public ResponseEntity<List<PostrojenjeSummaryDto>> listPostrojenja(WebRequest webRequest) {
+        if (nijePromijenjeno(webRequest, "p-" + verzijaPodatakaService.oznakaPopisa())) {
+            return null;
+        }
+        return odgovor(postrojenjeService.listPostrojenjaWithStats());
     }
 
     @GetMapping("/{id}/polja")
@@ -51,12 +76,16 @@ public class PostrojenjeController {
             @ApiResponse(responseCode = "200", description = "Uspjeh",
                     content = @Content(mediaType = "application/json",
                             array = @ArraySchema(schema = @Schema(implementation = PoljeDto.class)))),
+            @ApiResponse(responseCode = "304", description = "Nije promijenjeno (If-None-Match)", content = @Content),
             @ApiResponse(responseCode = "401", description = "Neautorizirano", content = @Content),
             @ApiResponse(responseCode = "404", description = "Postrojenje nije pronađeno", content = @Content),
             @ApiResponse(responseCode = "500", description = "Greška na serveru", content = @Content)
     })
-    public ResponseEntity<List<PoljeDto>> listPolja(@PathVariable("id") Integer idPostrojenja) {
-        return ResponseEntity.ok(postrojenjeService.listPolja(idPostrojenja));
+    public ResponseEntity<List<PoljeDto>> listPolja(@PathVariable("id") Integer idPostrojenja, WebRequest webRequest) {
+        if (nijePromijenjeno(webRequest, "f" + idPostrojenja + "-" + verzijaPodatakaService.oznakaPolja())) {
+            return null;
+        }
+        return odgovor(postrojenjeService.listPolja(idPostrojenja));
     }
 
     @GetMapping("/{id}/checklist")
@@ -67,6 +96,7 @@ public class PostrojenjeController {
             @ApiResponse(responseCode = "200", description = "Uspjeh",
                     content = @Content(mediaType = "application/json",
                             array = @ArraySchema(schema = @Schema(implementation = ChecklistDeviceDto.class)))),
+            @ApiResponse(responseCode = "304", description = "Nije promijenjeno (If-None-Match)", content = @Content),
             @ApiResponse(responseCode = "400", description = "Nedostaje parametar id_polje", content = @Content),
             @ApiResponse(responseCode = "401", description = "Neautorizirano", content = @Content),
             @ApiResponse(responseCode = "404", description = "Postrojenje nije pronađeno", content = @Content),
@@ -75,7 +105,74 @@ public class PostrojenjeController {
     public ResponseEntity<List<ChecklistDeviceDto>> getChecklist(
             @PathVariable("id") Integer idPostrojenja,
             @Parameter(description = "ID polja (obavezno; koristi 0 za uređaje bez polja)", required = true)
-            @RequestParam("id_polje") Integer idPolje) {
-        return ResponseEntity.ok(postrojenjeService.getChecklist(idPostrojenja, idPolje));
+            @RequestParam("id_polje") Integer idPolje,
+            WebRequest webRequest) {
+        String oznaka = "c" + idPostrojenja + "." + idPolje + "-" + verzijaPodatakaService.oznakaPostrojenja(idPostrojenja);
+        if (nijePromijenjeno(webRequest, oznaka)) {
+            return null;
+        }
+        return odgovor(postrojenjeService.getChecklist(idPostrojenja, idPolje));
+    }
+
+    @GetMapping(value = "/{id}/bundle", produces = {MediaType.APPLICATION_JSON_VALUE, CBOR})
+    @Operation(summary = "Paket cijelog postrojenja",
+            description = "Vraća sva polja i checklistu svih uređaja postrojenja (parametri i zadnje vrijednosti) u jednom odgovoru. " +
+                    "Podaci se učitaju u jednoj transakciji, a zatim pišu u tok uređaj po uređaj; ETag je isti kao za checklistu tog postrojenja.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Uspjeh",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = PostrojenjeBundleDto.class))),
+            @ApiResponse(responseCode = "304", description = "Nije promijenjeno (If-None-Match)", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Neautorizirano", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Postrojenje nije pronađeno", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Greška na serveru", content = @Content)
+    })
+    public ResponseEntity<StreamingResponseBody> getBundle(@PathVariable("id") Integer idPostrojenja, WebRequest webRequest) {
+        if (nijePromijenjeno(webRequest, "b" + idPostrojenja + "-" + verzijaPodatakaService.oznakaPostrojenja(idPostrojenja))) {
+            return null;
+        }
+        // 404 mora otići prije nego što tok počne, kasnije se status više ne može promijeniti
+        postrojenjeService.provjeriPostojanje(idPostrojenja);
+
+        // Podaci se učitaju ovdje, a transakcija i DB konekcija se zatvaraju prije pisanja u tok
+        PostrojenjeBundleDto paket = postrojenjeService.ucitajBundle(idPostrojenja);
+
+        boolean cbor = trazenCbor(webRequest);
+        ObjectMapper mapper = cbor ? cborMapper : jsonMapper;
+        StreamingResponseBody tijelo = out -> {
+            try (JsonGenerator gen = mapper.createGenerator(out)) {
+                // Izlazni tok zatvara servlet kontejner
+                gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                postrojenjeService.napisiBundle(paket, gen);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(cbor ? MediaType.parseMediaType(CBOR) : MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(tijelo);
+    }
+
+    /**
+     * Uspoređuje If-None-Match s ETag-om izvedenim iz verzija podataka i, ako se podudaraju,
+     * postavlja 304 prije bilo kakvog čitanja podataka. ETag je slab ({@code W/"..."}): isti
+     * sadržaj ide i nekomprimiran i gzipan, a Tomcat ne komprimira odgovore s jakim ETag-om.
+     * JSON i CBOR prikaz imaju različite ETag-ove jer nisu isti prikaz.
+     */
+    static boolean nijePromijenjeno(WebRequest webRequest, String oznaka) {
+        return webRequest.checkNotModified("W/\"" + oznaka + (trazenCbor(webRequest) ? "-cbor" : "") + "\"");
+    }
+
+    private static boolean trazenCbor(WebRequest webRequest) {
+        String accept = webRequest.getHeader(HttpHeaders.ACCEPT);
+        return accept != null && accept.contains(CBOR);
+    }
+
+    // no-cache: klijent smije čuvati odgovor, ali ga prije korištenja mora potvrditi ETag-om
+    static <T> ResponseEntity<T> odgovor(T tijelo) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(tijelo);
     }
 }
\ No newline at end of file
@@ -0,0 +1,62 @@
+package hr.elektropregled.controller;
+
+import hr.elektropregled.dto.ChecklistV2Response;
+import hr.elektropregled.service.PostrojenjeService;
+import hr.elektropregled.service.VerzijaPodatakaService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import static hr.elektropregled.controller.PostrojenjeController.nijePromijenjeno;
+import static hr.elektropregled.controller.PostrojenjeController.odgovor;
+
+@RestController
+@RequestMapping("/v2/postrojenja")
+@Tag(name = "Postrojenja", description = "Pregled postrojenja, polja i generiranje checklist-a")
+public class PostrojenjeV2Controller {
+    private final PostrojenjeService postrojenjeService;
+    private final VerzijaPodatakaService verzijaPodatakaService;
+
+    public PostrojenjeV2Controller(PostrojenjeService postrojenjeService,
+                                   VerzijaPodatakaService verzijaPodatakaService) {
+        this.postrojenjeService = postrojenjeService;
+        this.verzijaPodatakaService = verzijaPodatakaService;
+    }
+
+    @GetMapping("/{id}/checklist")
+    @Operation(summary = "Normalizirani checklist za polje u postrojenju",
+            description = "Isti podaci kao v1 checklist, ali se predložak parametara šalje jednom po vrsti uređaja, " +
+                    "a uređaji nose samo zadnje vrijednosti. Za uređaje bez polja koristi id_polje=0.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Uspjeh",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ChecklistV2Response.class))),
+            @ApiResponse(responseCode = "304", description = "Nije promijenjeno (If-None-Match)", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Nedostaje parametar id_polje", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Neautorizirano", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Postrojenje nije pronađeno", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Greška na serveru", content = @Content)
+    })
+    public ResponseEntity<ChecklistV2Response> getChecklist(
+            @PathVariable("id") Integer idPostrojenja,
+            @Parameter(description = "ID polja (obavezno; koristi 0 za uređaje bez polja)", required = true)
+            @RequestParam("id_polje") Integer idPolje,
+            WebRequest webRequest) {
+        String oznaka = "c2." + idPostrojenja + "." + idPolje + "-" + verzijaPodatakaService.oznakaPostrojenja(idPostrojenja);
+        if (nijePromijenjeno(webRequest, oznaka)) {
+            return null;
+        }
+        return odgovor(postrojenjeService.getChecklistV2(idPostrojenja, idPolje));
+    }
+}
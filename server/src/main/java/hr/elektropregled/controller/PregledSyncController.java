@@ -1,9 +1,14 @@
 package hr.elektropregled.controller;
 
+import hr.elektropregled.dto.PregledSyncBatchRequest;
 import hr.elektropregled.dto.PregledSyncRequest;
+import hr.elektropregled.dto.SyncBatchResponse;
 import hr.elektropregled.dto.SyncResponse;
+import hr.elektropregled.dto.SyncTicketResponse;
 import hr.elektropregled.exception.ValidationException;
+import hr.elektropregled.service.AuthService;
 import hr.elektropregled.service.PregledSyncService;
+import hr.elektropregled.service.SyncQueueService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -12,36 +17,55 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/v1/pregled")
 @Tag(name = "Pregled Sync", description = "Endpointi za sinkronizaciju pregleda")
 public class PregledSyncController {
     private final PregledSyncService pregledSyncService;
+    private final SyncQueueService syncQueueService;
+    private final AuthService authService;
 
-    public PregledSyncController(PregledSyncService pregledSyncService) {
+    public PregledSyncController(PregledSyncService pregledSyncService, SyncQueueService syncQueueService,
+                                 AuthService authService) {
         this.pregledSyncService = pregledSyncService;
+        this.syncQueueService = syncQueueService;
+        this.authService = authService;
     }
 
     @PostMapping("/sync")
     @Operation(summary = "Sinkronizira pregled sa stavkama",
             description = "Prima pregled i stavke iz mobilne aplikacije, validira podatke i sprema na server. " +
+                    "Ponovljeni zahtjev s istim pregled.lokalni_id vraća izvorni odgovor (idempotentno). " +
                     "Zahtijeva JWT token u Authorization header-u.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Pregled uspješno sinkroniziran",
+            @ApiResponse(responseCode = "200", description = "Pregled uspješno sinkroniziran ili već sinkroniziran (vraćaju se izvorna mapiranja)",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = SyncResponse.class))),
             @ApiResponse(responseCode = "400", description = "Neispravan zahtjev (validacijska greška, out-of-range vrijednost)",
                     content = @Content(mediaType = "application/json")),
             @ApiResponse(responseCode = "401", description = "Nedostaje ili neispravan JWT token",
                     content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "403", description = "id_korisnika pregleda ne odgovara korisniku iz tokena",
+                    content = @Content(mediaType = "application/json")),
             @ApiResponse(responseCode = "404", description = "Korisnik, postrojenje, uređaj ili parametar nije pronađen",
                     content = @Content(mediaType = "application/json")),
-            @ApiResponse(responseCode = "409", description = "Pregled ili stavka s istim lokalnim ID-om je već sinkronizirana",
+            @ApiResponse(responseCode = "409", description = "Stavka s istim lokalnim ID-om je već sinkronizirana u drugom pregledu",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "422", description = "Podaci krše ograničenje baze (npr. predugačka vrijednost)",
                     content = @Content(mediaType = "application/json")),
             @ApiResponse(responseCode = "500", description = "Greška na serveru",
                     content = @Content(mediaType = "application/json"))
@@ -52,7 +76,129 @@ public class PregledSyncController {
         if (username == null) {
             throw new ValidationException("Neispravan ili nedostaje JWT token");
         }
+        authService.provjeriVlasnika(username, request.getPregled().getIdKorisnika());
         SyncResponse response = pregledSyncService.sync(request);
         return ResponseEntity.ok(response);
     }
-}
\ No newline at end of file
+
+    @PostMapping("/sync/batch")
+    @Operation(summary = "Skupna sinkronizacija više pregleda",
+            description = "Prima do 500 pregleda u jednom zahtjevu i vraća rezultat za svaki pregled posebno " +
+                    "(SYNCED, DUPLICATE ili REJECTED s razlogom). Neispravan pregled ne blokira ostale. " +
+                    "Zahtijeva JWT token u Authorization header-u.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Zahtjev obrađen, rezultati po pregledu",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = SyncBatchResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Neispravan zahtjev (prazna lista ili previše pregleda)",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "401", description = "Nedostaje ili neispravan JWT token",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "403", description = "Barem jedan pregled ima id_korisnika drugog korisnika",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "500", description = "Greška na serveru",
+                    content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<SyncBatchResponse> syncBatch(@Valid @RequestBody PregledSyncBatchRequest request,
+                                                       HttpServletRequest httpRequest) {
+        String username = (String) httpRequest.getAttribute("username");
+        if (username == null) {
+            throw new ValidationException("Neispravan ili nedostaje JWT token");
+        }
+        // Cijeli zahtjev se odbija prije transakcije; neispravni pregledi bez id_korisnika
+        // i dalje se odbijaju pojedinačno u servisu
+        for (PregledSyncRequest pregled : request.getPregledi()) {
+            if (pregled != null && pregled.getPregled() != null) {
+                authService.provjeriVlasnika(username, pregled.getPregled().getIdKorisnika());
+            }
+        }
+        SyncBatchResponse response = pregledSyncService.syncBatch(request);
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping(value = "/sync/stream", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Strujna sinkronizacija velikog pregleda",
+            description = "Prima isti JSON kao /sync, ali ga čita strujno i upisuje stavke u komadima, pa potrošnja " +
+                    "memorije ne ovisi o broju stavki. Polje pregled mora biti navedeno prije polja stavke. " +
+                    "Zahtijeva JWT token u Authorization header-u.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Pregled uspješno sinkroniziran ili već sinkroniziran",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = SyncResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Neispravan JSON ili validacijska greška",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "401", description = "Nedostaje ili neispravan JWT token",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "403", description = "id_korisnika pregleda ne odgovara korisniku iz tokena",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "404", description = "Korisnik, postrojenje, uređaj ili parametar nije pronađen",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "409", description = "Stavka s istim lokalnim ID-om je već sinkronizirana",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "422", description = "Podaci krše ograničenje baze (npr. predugačka vrijednost)",
+                    content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<SyncResponse> syncStream(HttpServletRequest httpRequest) throws IOException {
+        String username = (String) httpRequest.getAttribute("username");
+        if (username == null) {
+            throw new ValidationException("Neispravan ili nedostaje JWT token");
+        }
+        Integer idKorisnika = authService.korisnikIzTokena(username).idKorisnika();
+        try (InputStream body = httpRequest.getInputStream()) {
+            return ResponseEntity.ok(pregledSyncService.syncStream(body, idKorisnika));
+        }
+    }
+
+    @PostMapping("/sync/async")
+    @Operation(summary = "Asinkrona sinkronizacija pregleda",
+            description = "Prima isti zahtjev kao /sync, ali ga samo sprema u red i odmah vraća 202 s ticketom. " +
+                    "Pregled se obrađuje u pozadini; konačni rezultat se dohvaća preko GET /sync/{ticket}. " +
+                    "Zahtijeva JWT token u Authorization header-u.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Zahtjev primljen u red",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = SyncTicketResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Neispravan zahtjev",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "401", description = "Nedostaje ili neispravan JWT token",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "403", description = "id_korisnika pregleda ne odgovara korisniku iz tokena",
+                    content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<SyncTicketResponse> syncAsync(@Valid @RequestBody PregledSyncRequest request,
+                                                        HttpServletRequest httpRequest) {
+        String username = (String) httpRequest.getAttribute("username");
+        if (username == null) {
+            throw new ValidationException("Neispravan ili nedostaje JWT token");
+        }
+        authService.provjeriVlasnika(username, request.getPregled().getIdKorisnika());
+        SyncTicketResponse response = syncQueueService.enqueue(request, username);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .location(ServletUriComponentsBuilder.fromCurrentContextPath()
+                        .path("/v1/pregled/sync/{ticket}")
+                        .buildAndExpand(response.getTicket())
+                        .toUri())
+                .body(response);
+    }
+
+    @GetMapping("/sync/{ticket}")
+    @Operation(summary = "Stanje asinkronog sync zahtjeva",
+            description = "Vraća 202 dok je zahtjev na čekanju ili u obradi, a 200 s konačnim SyncResponse-om " +
+                    "kad je obrada završena (DONE ili FAILED). Zahtijeva JWT token korisnika koji je poslao zahtjev.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Obrada završena",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = SyncTicketResponse.class))),
+            @ApiResponse(responseCode = "202", description = "Zahtjev je još na čekanju ili u obradi",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = SyncTicketResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Nedostaje ili neispravan JWT token",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "404", description = "Ticket nije pronađen",
+                    content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<SyncTicketResponse> syncStatus(@PathVariable UUID ticket, HttpServletRequest httpRequest) {
+        String username = (String) httpRequest.getAttribute("username");
+        if (username == null) {
+            throw new ValidationException("Neispravan ili nedostaje JWT token");
+        }
+        SyncTicketResponse response = syncQueueService.status(ticket, username);
+        HttpStatus status = response.getRezultat() != null ? HttpStatus.OK : HttpStatus.ACCEPTED;
+        return ResponseEntity.status(status).body(response);
+    }
+}
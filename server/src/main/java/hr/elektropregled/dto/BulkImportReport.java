@@ -0,0 +1,54 @@
+package hr.elektropregled.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(name = "BulkImportReport", description = "Izvještaj o skupnom unosu povijesnih pregleda")
+public class BulkImportReport {
+    @Schema(description = "Format ulaza (CSV ili NDJSON)", example = "CSV")
+    private String format;
+
+    @Schema(description = "Broj pročitanih redaka (stavki) iz ulaza", example = "1250000")
+    private Long ucitanoRedaka;
+
+    @Schema(description = "Broj novih pregleda", example = "4100")
+    private Long uneseniPregledi;
+
+    @Schema(description = "Broj novih stavki", example = "1249870")
+    private Long uneseneStavke;
+
+    @Schema(description = "Broj odbijenih redaka", example = "130")
+    private Long odbijeno;
+
+    @Schema(description = "Prvih nekoliko odbijenih redaka s razlogom")
+    private List<OdbijeniRed> odbijeniRedovi;
+
+    @Schema(description = "Ukupno trajanje u milisekundama", example = "48211")
+    private Long trajanjeMs;
+
+    @Schema(description = "Propusnost (pročitanih redaka u sekundi)", example = "25928.5")
+    private Double redakaUSekundi;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(name = "BulkImportOdbijeniRed", description = "Odbijeni redak ulaza")
+    public static class OdbijeniRed {
+        @Schema(description = "Redni broj retka u ulazu (bez zaglavlja)", example = "17")
+        private Long red;
+
+        @Schema(description = "Lokalni ID stavke iz retka (ako je čitljiv)")
+        private UUID stavkaLokalniId;
+
+        @Schema(description = "Razlog odbijanja", example = "Vrijednost je veća od maksimalne dozvoljene")
+        private String razlog;
+    }
+}
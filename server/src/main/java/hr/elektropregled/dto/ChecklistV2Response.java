@@ -0,0 +1,79 @@
+package hr.elektropregled.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Normalizirana checklista (v2): predložak parametara šalje se jednom po vrsti uređaja, a uređaj
+ * nosi samo svoje zadnje vrijednosti. Za razliku od v1, parametar bez zadnje vrijednosti nema
+ * zapis u {@code vrijednosti}; klijent tada sam primjenjuje zadanu vrijednost (ispravno za BOOLEAN).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Checklist polja s predlošcima po vrsti uređaja i vrijednostima po uređaju")
+public class ChecklistV2Response {
+    @Schema(description = "Vrste uređaja koje se pojavljuju u checklisti, s predloškom parametara")
+    private List<VrstaZapis> vrste = new ArrayList<>();
+
+    @Schema(description = "Uređaji polja")
+    private List<UredajZapis> uredaji = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class VrstaZapis {
+        private Integer idVrUred;
+        private String oznVrUred;
+        private String nazVrUred;
+        @Schema(description = "Parametri provjere sortirani po redoslijedu")
+        private List<ParametarZapis> parametri;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ParametarZapis {
+        private Integer idParametra;
+        private String nazParametra;
+        private String tipPodataka;
+        private Double minVrijednost;
+        private Double maxVrijednost;
+        private String mjernaJedinica;
+        private Boolean obavezan;
+        private Integer redoslijed;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class UredajZapis {
+        private Integer idUred;
+        private String natpPlocica;
+        private String tvBroj;
+        @Schema(description = "Ključ u listu vrste")
+        private Integer idVrUred;
+        private Integer idPolje;
+        private String nazPolje;
+        private Double napRazina;
+        @Schema(description = "Zadnje vrijednosti; samo parametri koji su već pregledani")
+        private List<VrijednostZapis> vrijednosti;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class VrijednostZapis {
+        private Integer idParametra;
+        private Boolean bool;
+        private Double num;
+        private String txt;
+        private LocalDateTime zadnjiPregledAt;
+    }
+}
@@ -0,0 +1,110 @@
+package hr.elektropregled.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Promjene referentnih podataka od zadane verzije kataloga")
+public class KatalogPromjeneResponse {
+    @Schema(description = "Verzija kataloga do koje su promjene uključene; klijent je šalje kao sljedeći since", example = "1284")
+    private long verzija;
+
+    @Schema(description = "Ako je true, odgovor sadrži cijeli katalog i klijent mora obrisati lokalne retke kojih u odgovoru nema",
+            example = "false")
+    private boolean potpuno;
+
+    @Schema(description = "Dodana ili izmijenjena postrojenja")
+    private List<PostrojenjeZapis> postrojenja = new ArrayList<>();
+
+    @Schema(description = "Dodana ili izmijenjena polja")
+    private List<PoljeZapis> polja = new ArrayList<>();
+
+    @Schema(description = "Dodane ili izmijenjene vrste uređaja")
+    private List<VrstaUredajaZapis> vrsteUredaja = new ArrayList<>();
+
+    @Schema(description = "Dodani ili izmijenjeni uređaji")
+    private List<UredajZapis> uredaji = new ArrayList<>();
+
+    @Schema(description = "Dodani ili izmijenjeni parametri provjere")
+    private List<ParametarZapis> parametri = new ArrayList<>();
+
+    @Schema(description = "ID-evi obrisanih redaka po tablici")
+    private Obrisano obrisano = new Obrisano();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PostrojenjeZapis {
+        private Integer idPostr;
+        private String oznVrPostr;
+        private String nazPostr;
+        private String lokacija;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PoljeZapis {
+        private Integer idPolje;
+        private Double napRazina;
+        private String oznVrPolje;
+        private String nazPolje;
+        private Integer idPostr;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class VrstaUredajaZapis {
+        private Integer idVrUred;
+        private String oznVrUred;
+        private String nazVrUred;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class UredajZapis {
+        private Integer idUred;
+        private String natpPlocica;
+        private String tvBroj;
+        private Integer idPostr;
+        @Schema(description = "ID polja (null za uređaje izravno na postrojenju)")
+        private Integer idPolje;
+        private Integer idVrUred;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ParametarZapis {
+        private Integer idParametra;
+        private String nazParametra;
+        private String tipPodataka;
+        private Double minVrijednost;
+        private Double maxVrijednost;
+        private String mjernaJedinica;
+        private Boolean obavezan;
+        private Integer redoslijed;
+        private String opis;
+        private Integer idVrUred;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Obrisano {
+        private List<Integer> postrojenja = new ArrayList<>();
+        private List<Integer> polja = new ArrayList<>();
+        private List<Integer> vrsteUredaja = new ArrayList<>();
+        private List<Integer> uredaji = new ArrayList<>();
+        private List<Integer> parametri = new ArrayList<>();
+    }
+}
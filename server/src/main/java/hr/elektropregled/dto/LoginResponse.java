@@ -30,4 +30,12 @@ public class LoginResponse {
     @JsonProperty("user_id")
     @Schema(description = "ID korisnika", example = "1")
     private Integer userId;
+
+    @JsonProperty("refresh_token")
+    @Schema(description = "Refresh token za POST /v1/auth/refresh; vrijedi samo za jedno osvježavanje")
+    private String refreshToken;
+
+    @JsonProperty("refresh_expires_in")
+    @Schema(description = "Trajanje refresh tokena u sekundama", example = "2592000")
+    private long refreshExpiresIn;
 }
\ No newline at end of file
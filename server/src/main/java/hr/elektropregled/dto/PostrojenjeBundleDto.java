@@ -0,0 +1,29 @@
+package hr.elektropregled.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Paket {@code GET /v1/postrojenja/{id}/bundle}. Server ga učitava u transakciji
+ * ({@link hr.elektropregled.service.PostrojenjeService#ucitajBundle}), a zatim ga nakon njezina
+ * zatvaranja piše u izlazni tok uređaj po uređaj
+ * ({@link hr.elektropregled.service.PostrojenjeService#napisiBundle}).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(name = "PostrojenjeBundleDto", description = "Polja i checklista svih uređaja jednog postrojenja")
+public class PostrojenjeBundleDto {
+    @Schema(description = "ID postrojenja")
+    private Integer idPostr;
+
+    @Schema(description = "Polja postrojenja (uključujući virtualno polje za uređaje bez polja)")
+    private List<PoljeDto> polja;
+
+    @Schema(description = "Svi uređaji postrojenja s parametrima i zadnjim vrijednostima")
+    private List<ChecklistDeviceDto> uredaji;
+}
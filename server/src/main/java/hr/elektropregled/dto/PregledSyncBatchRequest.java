@@ -0,0 +1,25 @@
+package hr.elektropregled.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Zahtjev za skupnu sinkronizaciju više pregleda odjednom")
+public class PregledSyncBatchRequest {
+    // Namjerno bez @Valid na elementima: neispravan pregled se odbija pojedinačno,
+    // a ostali pregledi iz istog zahtjeva se i dalje sinkroniziraju
+    @NotEmpty
+    @Size(max = 500, message = "Najviše 500 pregleda po zahtjevu")
+    @JsonProperty("pregledi")
+    @Schema(description = "Lista pregleda sa stavkama (najmanje jedan, najviše 500)")
+    private List<PregledSyncRequest> pregledi;
+}
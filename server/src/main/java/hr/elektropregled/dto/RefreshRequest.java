@@ -0,0 +1,19 @@
+package hr.elektropregled.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Zahtjev za osvježavanje ili opoziv refresh tokena")
+public class RefreshRequest {
+    @NotBlank(message = "Refresh token je obavezan")
+    @JsonProperty("refresh_token")
+    @Schema(description = "Refresh token dobiven pri prijavi ili zadnjem osvježavanju")
+    private String refreshToken;
+}
@@ -0,0 +1,27 @@
+package hr.elektropregled.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(name = "StavkaLatestProvjera", description = "Usporedba tablice stavka_latest s poviješću stavki pregleda")
+public class StavkaLatestProvjera {
+    @Schema(description = "Broj parova (uređaj, parametar) koji imaju barem jednu stavku", example = "18240")
+    private Long ocekivano;
+
+    @Schema(description = "Parovi bez retka u stavka_latest", example = "0")
+    private Long nedostaje;
+
+    @Schema(description = "Parovi čiji redak ne pokazuje na zadnju stavku", example = "0")
+    private Long zastarjelo;
+
+    @Schema(description = "Redovi u stavka_latest čija stavka više ne postoji", example = "0")
+    private Long visak;
+
+    @Schema(description = "true ako je tablica u skladu s poviješću", example = "true")
+    private boolean konzistentno;
+}
@@ -0,0 +1,69 @@
+package hr.elektropregled.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Odgovor na skupnu sinkronizaciju s rezultatom za svaki pregled")
+public class SyncBatchResponse {
+    @Schema(description = "Je li zahtjev obrađen (pojedini pregledi mogu biti odbijeni)", example = "true")
+    private boolean success;
+
+    @Schema(description = "Sažetak rezultata", example = "Sinkronizirano: 3, duplikata: 1, odbijeno: 0")
+    private String message;
+
+    @Schema(description = "Broj uspješno sinkroniziranih pregleda", example = "3")
+    private int synced;
+
+    @Schema(description = "Broj pregleda koji su već bili sinkronizirani (vraćaju izvorna mapiranja)", example = "1")
+    private int duplicate;
+
+    @Schema(description = "Broj odbijenih pregleda", example = "0")
+    private int rejected;
+
+    @Schema(description = "Rezultati po pregledu, istim redoslijedom kao u zahtjevu")
+    private List<Rezultat> rezultati;
+
+    @Schema(description = "Vremenska oznaka odgovora")
+    private Instant timestamp;
+
+    public enum Status {
+        SYNCED, DUPLICATE, REJECTED
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Schema(description = "Rezultat sinkronizacije jednog pregleda")
+    public static class Rezultat {
+        @JsonProperty("lokalni_id")
+        @Schema(description = "UUID pregleda iz mobilne aplikacije", example = "550e8400-e29b-41d4-a716-446655440000")
+        private UUID lokalniId;
+
+        @Schema(description = "Ishod: SYNCED, DUPLICATE ili REJECTED", example = "SYNCED")
+        private Status status;
+
+        @Schema(description = "Poruka (razlog odbijanja ako je pregled odbijen)", example = "Pregled je uspješno sinkroniziran")
+        private String message;
+
+        @JsonProperty("server_pregled_id")
+        @Schema(description = "ID pregleda generiran na serveru", example = "123")
+        private Integer serverPregledId;
+
+        @JsonProperty("id_mappings")
+        @Schema(description = "Mapiranje lokalnih ID-eva na server ID-eve (za SYNCED i DUPLICATE)")
+        private SyncResponse.IdMappings idMappings;
+    }
+}
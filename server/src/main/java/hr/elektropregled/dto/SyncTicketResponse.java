@@ -0,0 +1,29 @@
+package hr.elektropregled.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Stanje asinkronog sync zahtjeva")
+public class SyncTicketResponse {
+    @Schema(description = "Ticket za praćenje zahtjeva", example = "0f8c2a9e-4b1d-4a57-9d43-6a1f7c2e9b10")
+    private UUID ticket;
+
+    @Schema(description = "Stanje obrade: PENDING, PROCESSING, DONE ili FAILED", example = "PENDING")
+    private String status;
+
+    @Schema(description = "Konačni odgovor sinkronizacije (samo za DONE i FAILED)")
+    private SyncResponse rezultat;
+
+    @Schema(description = "Vremenska oznaka odgovora")
+    private Instant timestamp;
+}
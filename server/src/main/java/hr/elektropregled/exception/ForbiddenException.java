@@ -0,0 +1,9 @@
+package hr.elektropregled.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class ForbiddenException extends BusinessException {
+    public ForbiddenException(String message) {
+        super(message, HttpStatus.FORBIDDEN);
+    }
+}
\ No newline at end of file
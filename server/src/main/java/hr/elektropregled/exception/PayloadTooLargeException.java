@@ -0,0 +1,9 @@
+package hr.elektropregled.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class PayloadTooLargeException extends BusinessException {
+    public PayloadTooLargeException(String message) {
+        super(message, HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+}
@@ -0,0 +1,16 @@
+package hr.elektropregled.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class ServiceUnavailableException extends BusinessException {
+    private final long retryAfterSekundi;
+
+    public ServiceUnavailableException(String message, long retryAfterSekundi) {
+        super(message, HttpStatus.SERVICE_UNAVAILABLE);
+        this.retryAfterSekundi = retryAfterSekundi;
+    }
+
+    public long getRetryAfterSekundi() {
+        return retryAfterSekundi;
+    }
+}
@@ -0,0 +1,171 @@
+package hr.elektropregled.filter;
+
+import hr.elektropregled.exception.PayloadTooLargeException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Raspakirava tijela zahtjeva poslana s {@code Content-Encoding: gzip} (mobilna aplikacija komprimira
+ * sync zahtjeve). Raspakiravanje je strujno, a ukupna raspakirana veličina je ograničena kako
+ * mala komprimirana poruka ne bi mogla zauzeti neograničeno memorije (zip bomb) - prekoračenje vraća 413.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class GzipRequestFilter extends OncePerRequestFilter {
+    private final long maxInflatedBytes;
+
+    public GzipRequestFilter(@Value("${request.gzip.max-inflated-bytes:52428800}") long maxInflatedBytes) {
+        this.maxInflatedBytes = maxInflatedBytes;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String encoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+        return encoding == null || !encoding.trim().equalsIgnoreCase("gzip");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        filterChain.doFilter(new GzipRequestWrapper(request, maxInflatedBytes), response);
+    }
+
+    private static final class GzipRequestWrapper extends HttpServletRequestWrapper {
+        private final long maxInflatedBytes;
+        private ServletInputStream inputStream;
+
+        private GzipRequestWrapper(HttpServletRequest request, long maxInflatedBytes) {
+            super(request);
+            this.maxInflatedBytes = maxInflatedBytes;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (inputStream == null) {
+                inputStream = new LimitedGzipInputStream(super.getInputStream(), maxInflatedBytes);
+            }
+            return inputStream;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+
+        // Nakon raspakiravanja tijelo više nije gzip i duljina nije poznata unaprijed
+        @Override
+        public String getHeader(String name) {
+            if (HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name)) {
+                return null;
+            }
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                return null;
+            }
+            return super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            if (HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name) || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                return Collections.emptyEnumeration();
+            }
+            return super.getHeaders(name);
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+    }
+
+    private static final class LimitedGzipInputStream extends ServletInputStream {
+        private final ServletInputStream source;
+        private final InputStream inflated;
+        private final long maxBytes;
+        private long procitano;
+        private boolean finished;
+
+        private LimitedGzipInputStream(ServletInputStream source, long maxBytes) throws IOException {
+            this.source = source;
+            this.inflated = new GZIPInputStream(source, 8192);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = inflated.read();
+            if (b == -1) {
+                finished = true;
+            } else {
+                provjeri(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = inflated.read(b, off, len);
+            if (n == -1) {
+                finished = true;
+            } else {
+                provjeri(n);
+            }
+            return n;
+        }
+
+        private void provjeri(int n) {
+            procitano += n;
+            if (procitano > maxBytes) {
+                throw new PayloadTooLargeException("Raspakirano tijelo zahtjeva je veće od dozvoljenih " + maxBytes + " bajtova");
+            }
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return source.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            source.setReadListener(readListener);
+        }
+
+        @Override
+        public void close() throws IOException {
+            inflated.close();
+        }
+    }
+}
@@ -4,23 +4,46 @@ import hr.elektropregled.dto.SyncResponse;
 import hr.elektropregled.exception.BusinessException;
 import hr.elektropregled.exception.DuplicateSyncException;
 import hr.elektropregled.exception.NotFoundException;
+import hr.elektropregled.exception.PayloadTooLargeException;
+import hr.elektropregled.exception.ServiceUnavailableException;
 import hr.elektropregled.exception.ValidationException;
+import org.hibernate.JDBCException;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.exception.DataException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.sql.SQLException;
 import java.time.Instant;
+import java.util.Locale;
+import java.util.Set;
 
 @RestControllerAdvice
 public class RestExceptionHandler {
+    private static final String UNIQUE_VIOLATION = "23505";
+    // Jedinstveni ključevi po kojima je sinkronizacija idempotentna
+    private static final Set<String> SYNC_KLJUCEVI = Set.of(
+            "uq_pregled_lokalni_id", "uq_stavka_pregleda_lokalni_id", "pk_sync_zapis");
+
     @ExceptionHandler(BusinessException.class)
     public ResponseEntity<SyncResponse> handleBusiness(BusinessException ex) {
         return buildError(ex.getStatus(), ex.getMessage());
     }
 
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<SyncResponse> handleServiceUnavailable(ServiceUnavailableException ex) {
+        return ResponseEntity.status(ex.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSekundi()))
+                .body(buildError(ex.getStatus(), ex.getMessage()).getBody());
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<SyncResponse> handleValidation(MethodArgumentNotValidException ex) {
         String message = ex.getBindingResult().getFieldErrors().stream()
@@ -30,11 +53,69 @@ public class RestExceptionHandler {
         return buildError(HttpStatus.BAD_REQUEST, message);
     }
 
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<SyncResponse> handleNotReadable(HttpMessageNotReadableException ex) {
+        // Jackson omata iznimku iz toka tijela (npr. prekoračena granica raspakiravanja u GzipRequestFilteru)
+        for (Throwable t = ex.getCause(); t != null && t.getCause() != t; t = t.getCause()) {
+            if (t instanceof PayloadTooLargeException preveliko) {
+                return handleBusiness(preveliko);
+            }
+        }
+        // Npr. neispravan JSON ili oštećeno gzip tijelo
+        return buildError(HttpStatus.BAD_REQUEST, "Tijelo zahtjeva nije moguće pročitati");
+    }
+
+    /**
+     * Sukob na jedinstvenom lokalnom ID-u pregleda ili stavke (npr. ista stavka istovremeno poslana u
+     * dva različita pregleda) vraća 409, jer ponovljeni zahtjev dobiva idempotentan odgovor. Ostala
+     * kršenja ograničenja baze (strani ključ, predugačka vrijednost, check) ne prolaze ni ponovno,
+     * pa vraćaju 422 kako ih klijent ne bi slao u nedogled.
+     */
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<SyncResponse> handleDataIntegrity(DataIntegrityViolationException ex) {
+        if (sukobSyncKljuca(ex)) {
+            return buildError(HttpStatus.CONFLICT, "Podaci su u sukobu s već spremljenim podacima, pokušajte ponovno");
+        }
+        return buildError(HttpStatus.UNPROCESSABLE_ENTITY, "Podaci nisu u skladu s ograničenjima baze");
+    }
+
+    /**
+     * Servisi koji sami rade flush preko EntityManagera dobivaju Hibernateovu iznimku bez Springova
+     * prevođenja; razvrstava se jednako kao {@link DataIntegrityViolationException}.
+     */
+    @ExceptionHandler({ConstraintViolationException.class, DataException.class})
+    public ResponseEntity<SyncResponse> handleHibernateIntegrity(JDBCException ex) {
+        return handleDataIntegrity(new DataIntegrityViolationException(ex.getMessage(), ex));
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<SyncResponse> handleOther(Exception ex) {
         return buildError(HttpStatus.INTERNAL_SERVER_ERROR, "Neočekivana pogreška: " + ex.getMessage());
     }
 
+    private static boolean sukobSyncKljuca(DataIntegrityViolationException ex) {
+        String ogranicenje = null;
+        String sqlState = null;
+        for (Throwable t = ex; t != null && t.getCause() != t; t = t.getCause()) {
+            if (t instanceof ConstraintViolationException cve && cve.getConstraintName() != null) {
+                ogranicenje = cve.getConstraintName().toLowerCase(Locale.ROOT);
+            }
+            if (t instanceof SQLException sql && sql.getSQLState() != null) {
+                sqlState = sql.getSQLState();
+                break;
+            }
+        }
+        if (!UNIQUE_VIOLATION.equals(sqlState)) {
+            return false;
+        }
+        if (ogranicenje != null && SYNC_KLJUCEVI.stream().anyMatch(ogranicenje::contains)) {
+            return true;
+        }
+        // H2 i imena koja generira Hibernate: stupac je naveden u poruci baze
+        String poruka = ex.getMostSpecificCause().getMessage();
+        return poruka != null && poruka.toLowerCase(Locale.ROOT).contains("lokalni_id");
+    }
+
     private ResponseEntity<SyncResponse> buildError(HttpStatus status, String message) {
         SyncResponse error = new SyncResponse();
         error.setSuccess(false);
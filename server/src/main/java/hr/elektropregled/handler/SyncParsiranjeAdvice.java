@@ -0,0 +1,80 @@
+package hr.elektropregled.handler;
+
+import hr.elektropregled.dto.PregledSyncBatchRequest;
+import hr.elektropregled.dto.PregledSyncRequest;
+import hr.elektropregled.service.SyncMetrike;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+
+/**
+ * Bilježi fazu {@code parse} za {@code /sync}, {@code /sync/async} i {@code /sync/batch}: vrijeme
+ * od početka čitanja tijela zahtjeva do gotovog DTO-a (uključujući gzip i CBOR), prije validacije.
+ * <p>
+ * Početak se čuva kao atribut zahtjeva, pa ne ostaje na dretvi ako deserijalizacija baci iznimku.
+ */
+@ControllerAdvice
+public class SyncParsiranjeAdvice extends RequestBodyAdviceAdapter {
+    private static final String POCETAK = SyncParsiranjeAdvice.class.getName() + ".pocetak";
+    private static final String ASYNC_PUTANJA = "/sync/async";
+
+    private final SyncMetrike metrike;
+
+    public SyncParsiranjeAdvice(SyncMetrike metrike) {
+        this.metrike = metrike;
+    }
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType,
+                            Class<? extends HttpMessageConverter<?>> converterType) {
+        return targetType == PregledSyncRequest.class || targetType == PregledSyncBatchRequest.class;
+    }
+
+    @Override
+    public HttpInputMessage beforeBodyRead(HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                           Class<? extends HttpMessageConverter<?>> converterType) {
+        RequestContextHolder.currentRequestAttributes()
+                .setAttribute(POCETAK, System.nanoTime(), RequestAttributes.SCOPE_REQUEST);
+        return inputMessage;
+    }
+
+    @Override
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                Class<? extends HttpMessageConverter<?>> converterType) {
+        RequestAttributes atributi = RequestContextHolder.currentRequestAttributes();
+        Object pocetak = atributi.getAttribute(POCETAK, RequestAttributes.SCOPE_REQUEST);
+        atributi.removeAttribute(POCETAK, RequestAttributes.SCOPE_REQUEST);
+        if (pocetak instanceof Long nanos) {
+            metrike.zabiljezi(nacin(parameter, targetType), SyncMetrike.Faza.PARSE, nanos);
+        }
+        return body;
+    }
+
+    @Override
+    public Object handleEmptyBody(Object body, HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                  Class<? extends HttpMessageConverter<?>> converterType) {
+        RequestContextHolder.currentRequestAttributes().removeAttribute(POCETAK, RequestAttributes.SCOPE_REQUEST);
+        return body;
+    }
+
+    // /sync i /sync/async primaju isti DTO, pa se razlikuju po putanji metode kontrolera
+    private static SyncMetrike.Nacin nacin(MethodParameter parameter, Type targetType) {
+        if (targetType == PregledSyncBatchRequest.class) {
+            return SyncMetrike.Nacin.BATCH;
+        }
+        PostMapping mapping = AnnotatedElementUtils.findMergedAnnotation(parameter.getExecutable(), PostMapping.class);
+        if (mapping != null && Arrays.asList(mapping.path()).contains(ASYNC_PUTANJA)) {
+            return SyncMetrike.Nacin.ASYNC;
+        }
+        return SyncMetrike.Nacin.SYNC;
+    }
+}
@@ -0,0 +1,50 @@
+package hr.elektropregled.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Zapis dnevnika promjena referentnih podataka. Na PostgreSQL-u ga pune okidači iz migracije
+ * V8 (instalira ih Flyway); bez okidača upisuje ga {@link hr.elektropregled.service.VerzijaPodatakaService}
+ * na poziv JPA listenera referentnih entiteta.
+ * Operacija {@code T} (TRUNCATE) znači da klijent mora ponovno preuzeti cijeli katalog.
+ */
+@Entity
+@Table(name = "katalog_promjena", indexes = {
+        @Index(name = "idx_katalog_promjena_vrijeme", columnList = "promijenjeno_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KatalogPromjena {
+    public static final String INSERT = "I";
+    public static final String UPDATE = "U";
+    public static final String DELETE = "D";
+    public static final String TRUNCATE = "T";
+
+    @Id
+    @Column(name = "verzija")
+    private Long verzija;
+
+    @NotNull(message = "Tablica je obavezna")
+    @Column(name = "tablica", nullable = false, length = 30)
+    private String tablica;
+
+    @NotNull(message = "ID zapisa je obavezan")
+    @Column(name = "id_zapisa", nullable = false)
+    private Integer idZapisa;
+
+    @NotNull(message = "Operacija je obavezna")
+    @Column(name = "operacija", nullable = false, length = 1)
+    private String operacija;
+
+    @CreationTimestamp
+    @Column(name = "promijenjeno_at", nullable = false, updatable = false)
+    private LocalDateTime promijenjenoAt;
+}
@@ -1,5 +1,6 @@
 package hr.elektropregled.model;
 
+import hr.elektropregled.service.ImenikListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -11,6 +12,7 @@ import lombok.NoArgsConstructor;
 @Table(name = "korisnik", uniqueConstraints = {
     @UniqueConstraint(columnNames = "korisnicko_ime", name = "uq_korisnik_korisnicko_ime")
 })
+@EntityListeners(ImenikListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
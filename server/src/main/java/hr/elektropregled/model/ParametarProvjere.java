@@ -1,14 +1,22 @@
 package hr.elektropregled.model;
 
+import hr.elektropregled.service.ParametarProvjereListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name = "parametar_provjere")
+@EntityListeners(ParametarProvjereListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "parametar_provjere")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -47,7 +55,9 @@ public class ParametarProvjere {
     private String opis;
 
     @NotNull(message = "Vrsta uređaja je obavezna")
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "id_vr_ured", nullable = false)
     private VrstaUredaja vrstaUredaja;
 }
\ No newline at end of file
@@ -1,14 +1,22 @@
 package hr.elektropregled.model;
 
+import hr.elektropregled.service.KatalogListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name = "polje")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "polje")
+@EntityListeners(KatalogListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -30,7 +38,9 @@ public class Polje {
     private String nazPolje;
 
     @NotNull(message = "Postrojenje je obavezno")
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "id_postr", nullable = false)
     private Postrojenje postrojenje;
 }
\ No newline at end of file
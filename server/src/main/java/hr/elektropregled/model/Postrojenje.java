@@ -1,16 +1,23 @@
 package hr.elektropregled.model;
 
+import hr.elektropregled.service.ImenikListener;
+import hr.elektropregled.service.KatalogListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name = "postrojenje", uniqueConstraints = {
     @UniqueConstraint(columnNames = "naz_postr", name = "uq_postrojenje_naz_postr")
 })
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "postrojenje")
+@EntityListeners({ImenikListener.class, KatalogListener.class})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,48 @@
+package hr.elektropregled.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Statistika pregleda po postrojenju za početni ekran. Održava se pri svakoj uspješnoj
+ * sinkronizaciji; zadnji pregled je onaj s najkasnijim COALESCE(kraj, pocetak), a kod
+ * jednakog vremena onaj s većim id_preg.
+ */
+@Entity
+@Table(name = "postrojenje_stats")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostrojenjeStats {
+    @Id
+    @Column(name = "id_postr")
+    private Integer idPostr;
+
+    @NotNull(message = "Broj pregleda je obavezan")
+    @Column(name = "ukupno_pregleda", nullable = false)
+    private Long ukupnoPregleda;
+
+    @Column(name = "zadnji_pregled_at")
+    private LocalDateTime zadnjiPregledAt;
+
+    @Column(name = "zadnji_id_preg")
+    private Integer zadnjiIdPreg;
+
+    @Column(name = "zadnji_korisnik", length = 30)
+    private String zadnjiKorisnik;
+
+    // Raste pri svakoj promjeni retka; zajedno s verzijom kataloga čini ETag checkliste postrojenja
+    @NotNull(message = "Verzija je obavezna")
+    @Column(name = "verzija", nullable = false)
+    private Long verzija;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -5,7 +5,9 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDateTime;
@@ -19,8 +21,10 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 public class Pregled {
+    // SEQUENCE umjesto IDENTITY kako bi Hibernate mogao batchati INSERT-e (pooled optimizer, 50 ID-eva po pozivu)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pregled_seq")
+    @SequenceGenerator(name = "pregled_seq", sequenceName = "pregled_id_preg_seq", allocationSize = 50)
     @Column(name = "id_preg")
     private Integer idPreg;
 
@@ -49,12 +53,16 @@ public class Pregled {
     private String syncError;
 
     @NotNull(message = "Korisnik je obavezan")
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "id_korisnika", nullable = false)
     private Korisnik korisnik;
 
     @NotNull(message = "Postrojenje je obavezno")
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "id_postr", nullable = false)
     private Postrojenje postrojenje;
 
@@ -0,0 +1,78 @@
+package hr.elektropregled.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Refresh token korisnika. Sam token se ne sprema, samo njegov SHA-256 sažetak (hex).
+ * Tokeni nastali rotacijom iz iste prijave dijele {@code obitelj}, pa se odjavom ili
+ * otkrivenom ponovnom upotrebom opozivaju zajedno.
+ */
+@Entity
+@Table(name = "refresh_token")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshToken implements Persistable<String> {
+    @Id
+    @Column(name = "sazetak", length = 64, columnDefinition = "CHAR(64)")
+    private String sazetak;
+
+    @NotNull(message = "ID korisnika je obavezan")
+    @Column(name = "id_korisnika", nullable = false)
+    private Integer idKorisnika;
+
+    @NotNull(message = "Obitelj tokena je obavezna")
+    @Column(name = "obitelj", nullable = false, columnDefinition = "UUID")
+    private UUID obitelj;
+
+    @NotNull(message = "Vrijeme isteka je obavezno")
+    @Column(name = "istjece_at", nullable = false)
+    private LocalDateTime istjeceAt;
+
+    @Column(name = "opozvan_at")
+    private LocalDateTime opozvanAt;
+
+    // Sažetak tokena izdanog rotacijom ovoga; null dok token nije rotiran
+    @Column(name = "nasljednik", length = 64, columnDefinition = "CHAR(64)")
+    private String nasljednik;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    // ID je dodijeljen (sazetak), pa bez ovoga save() radi merge s dodatnim SELECT-om
+    @Transient
+    private boolean novi = true;
+
+    public RefreshToken(String sazetak, Integer idKorisnika, UUID obitelj, LocalDateTime istjeceAt) {
+        this.sazetak = sazetak;
+        this.idKorisnika = idKorisnika;
+        this.obitelj = obitelj;
+        this.istjeceAt = istjeceAt;
+    }
+
+    @Override
+    public String getId() {
+        return sazetak;
+    }
+
+    @Override
+    public boolean isNew() {
+        return novi;
+    }
+
+    @PostLoad
+    @PostPersist
+    void oznaciPostojeci() {
+        this.novi = false;
+    }
+}
@@ -0,0 +1,71 @@
+package hr.elektropregled.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Zadnja očitana vrijednost po paru (uređaj, parametar). Održava se u istoj transakciji kao
+ * sinkronizacija pregleda, pa checklist čita jedan red po paru umjesto cijele povijesti stavki.
+ * Prednost ima stavka pregleda s najkasnijim krajem, zatim početkom, zatim najvećim id_stavke.
+ */
+@Entity
+@Table(name = "stavka_latest")
+@IdClass(StavkaLatest.Kljuc.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StavkaLatest {
+    @Id
+    @Column(name = "id_ured")
+    private Integer idUred;
+
+    @Id
+    @Column(name = "id_parametra")
+    private Integer idParametra;
+
+    @NotNull(message = "ID stavke je obavezan")
+    @Column(name = "id_stavke", nullable = false)
+    private Integer idStavke;
+
+    @NotNull(message = "ID pregleda je obavezan")
+    @Column(name = "id_preg", nullable = false)
+    private Integer idPreg;
+
+    @Column(name = "vrijednost_bool")
+    private Boolean vrijednostBool;
+
+    @Column(name = "vrijednost_num")
+    private Double vrijednostNum;
+
+    @Column(name = "vrijednost_txt", length = 255)
+    private String vrijednostTxt;
+
+    @Column(name = "pregled_kraj")
+    private LocalDateTime pregledKraj;
+
+    @NotNull(message = "Početak pregleda je obavezan")
+    @Column(name = "pregled_pocetak", nullable = false)
+    private LocalDateTime pregledPocetak;
+
+    @Column(name = "zadnji_pregled_at")
+    private LocalDateTime zadnjiPregledAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Kljuc implements Serializable {
+        private Integer idUred;
+        private Integer idParametra;
+    }
+}
@@ -4,7 +4,9 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
@@ -18,8 +20,10 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 public class StavkaPregleda {
+    // SEQUENCE umjesto IDENTITY kako bi Hibernate mogao batchati INSERT-e (pooled optimizer, 50 ID-eva po pozivu)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stavka_pregleda_seq")
+    @SequenceGenerator(name = "stavka_pregleda_seq", sequenceName = "stavka_pregleda_id_stavke_seq", allocationSize = 50)
     @Column(name = "id_stavke")
     private Integer idStavke;
 
@@ -47,17 +51,23 @@ public class StavkaPregleda {
     private LocalDateTime vrijemeUnosa;
 
     @NotNull(message = "Pregled je obavezan")
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "id_preg", nullable = false)
     private Pregled pregled;
 
     @NotNull(message = "Uređaj je obavezan")
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "id_ured", nullable = false)
     private Uredaj uredaj;
 
     @NotNull(message = "Parametar provjere je obavezan")
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "id_parametra", nullable = false)
     private ParametarProvjere parametarProvjere;
 }
\ No newline at end of file
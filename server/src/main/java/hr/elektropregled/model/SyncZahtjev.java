@@ -0,0 +1,72 @@
+package hr.elektropregled.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Sync zahtjev primljen u asinkronom načinu rada. Sirovi zahtjev se sprema odmah (klijent dobiva 202
+ * s ticketom), a pozadinski worker ga kasnije obrađuje i sprema konačni odgovor.
+ */
+@Entity
+@Table(name = "sync_zahtjev")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncZahtjev {
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_PROCESSING = "PROCESSING";
+    public static final String STATUS_DONE = "DONE";
+    public static final String STATUS_FAILED = "FAILED";
+
+    @Id
+    @Column(name = "ticket", columnDefinition = "UUID")
+    private UUID ticket;
+
+    @NotNull(message = "Lokalni ID pregleda je obavezan")
+    @Column(name = "lokalni_id", nullable = false, columnDefinition = "UUID")
+    private UUID lokalniId;
+
+    @NotBlank(message = "Korisničko ime je obavezno")
+    @Column(name = "korisnicko_ime", nullable = false, length = 30)
+    private String korisnickoIme;
+
+    @NotBlank(message = "Status je obavezan")
+    @Column(name = "status", nullable = false, length = 20)
+    private String status; // PENDING, PROCESSING, DONE, FAILED
+
+    // JSON serijalizirani PregledSyncRequest
+    @NotNull(message = "Sadržaj zahtjeva je obavezan")
+    @Column(name = "sadrzaj", nullable = false, columnDefinition = "TEXT")
+    private String sadrzaj;
+
+    // JSON serijalizirani SyncResponse, popunjen kad je obrada završena
+    @Column(name = "odgovor", columnDefinition = "TEXT")
+    private String odgovor;
+
+    @Column(name = "pokusaji", nullable = false)
+    private int pokusaji;
+
+    // Token zadnjeg preuzimanja; worker završava samo zahtjeve sa svojim tokenom
+    @Column(name = "vlasnik", columnDefinition = "UUID")
+    private UUID vlasnik;
+
+    @Column(name = "preuzeto_at")
+    private LocalDateTime preuzetoAt;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
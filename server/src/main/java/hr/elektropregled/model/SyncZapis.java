@@ -0,0 +1,67 @@
+package hr.elektropregled.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Zapis o uspješnoj sinkronizaciji pregleda. Čuva mapiranje lokalnih na server ID-eve
+ * kako bi se ponovljeni zahtjev (retry nakon timeouta) odgovorio istim odgovorom jednim
+ * dohvatom po primarnom ključu, bez ponovnog učitavanja stavki.
+ */
+@Entity
+@Table(name = "sync_zapis")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncZapis implements Persistable<UUID> {
+    @Id
+    @Column(name = "lokalni_id", columnDefinition = "UUID")
+    private UUID lokalniId;
+
+    @NotNull(message = "ID pregleda je obavezan")
+    @Column(name = "id_preg", nullable = false)
+    private Integer idPreg;
+
+    // JSON serijalizirani SyncResponse.IdMappings
+    @NotNull(message = "Mapiranja su obavezna")
+    @Column(name = "mapiranja", nullable = false, columnDefinition = "TEXT")
+    private String mapiranja;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    // ID je dodijeljen (lokalni_id), pa bez ovoga save() radi merge s dodatnim SELECT-om
+    @Transient
+    private boolean novi = true;
+
+    public SyncZapis(UUID lokalniId, Integer idPreg, String mapiranja) {
+        this.lokalniId = lokalniId;
+        this.idPreg = idPreg;
+        this.mapiranja = mapiranja;
+    }
+
+    @Override
+    public UUID getId() {
+        return lokalniId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return novi;
+    }
+
+    @PostLoad
+    @PostPersist
+    void oznaciPostojeci() {
+        this.novi = false;
+    }
+}
@@ -1,20 +1,35 @@
 package hr.elektropregled.model;
 
+import hr.elektropregled.service.KatalogListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name = "uredaj", uniqueConstraints = {
     @UniqueConstraint(columnNames = "tv_broj", name = "uq_uredaj_tv_broj")
 })
+@NamedEntityGraph(name = Uredaj.GRAF_CHECKLIST, attributeNodes = {
+    @NamedAttributeNode("vrstaUredaja"),
+    @NamedAttributeNode("polje")
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "uredaj")
+@EntityListeners(KatalogListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Uredaj {
+    // Asocijacije su LAZY; checklist ih učitava istim upitom kroz ovaj graf
+    public static final String GRAF_CHECKLIST = "Uredaj.checklist";
+
     @Id
     @Column(name = "id_ured")
     private Integer idUred;
@@ -28,16 +43,22 @@ public class Uredaj {
     private String tvBroj;
 
     @NotNull(message = "Postrojenje je obavezno")
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "id_postr", nullable = false)
     private Postrojenje postrojenje;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "id_polje")
     private Polje polje;
 
     @NotNull(message = "Vrsta uređaja je obavezna")
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "id_vr_ured", nullable = false)
     private VrstaUredaja vrstaUredaja;
 }
\ No newline at end of file
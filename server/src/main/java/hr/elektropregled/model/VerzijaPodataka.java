@@ -0,0 +1,34 @@
+package hr.elektropregled.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Brojač verzije skupa podataka. Redak {@code katalog} raste pri svakoj promjeni referentnih
+ * podataka (postrojenja, polja, uređaji, vrste uređaja, parametri provjere) i služi kao dio
+ * ETag-a za GET /v1/postrojenja/**.
+ */
+@Entity
+@Table(name = "verzija_podataka")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VerzijaPodataka {
+    public static final String KATALOG = "katalog";
+    // Najveća verzija obrisana iz katalog_promjena pri čišćenju dnevnika
+    public static final String KATALOG_OBREZANO = "katalog_obrezano";
+
+    @Id
+    @Column(name = "kljuc", length = 30)
+    private String kljuc;
+
+    @NotNull(message = "Verzija je obavezna")
+    @Column(name = "verzija", nullable = false)
+    private Long verzija;
+}
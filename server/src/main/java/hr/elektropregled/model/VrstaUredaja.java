@@ -1,17 +1,23 @@
 package hr.elektropregled.model;
 
+import hr.elektropregled.service.KatalogListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name = "vrsta_uredaja", uniqueConstraints = {
     @UniqueConstraint(columnNames = "ozn_vr_ured", name = "uq_vrsta_uredaja_ozn_vr_ured"),
     @UniqueConstraint(columnNames = "naz_vr_ured", name = "uq_vrsta_uredaja_naz_vr_ured")
 })
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "vrsta_uredaja")
+@EntityListeners(KatalogListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -2,9 +2,18 @@ package hr.elektropregled.repository;
 
 import hr.elektropregled.model.ParametarProvjere;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface ParametarProvjereRepository extends JpaRepository<ParametarProvjere, Integer> {
 	java.util.List<ParametarProvjere> findByVrstaUredaja_IdVrUredOrderByRedoslijedAsc(Integer idVrUred);
+
+	@Query("SELECT DISTINCT p.vrstaUredaja.idVrUred FROM ParametarProvjere p WHERE p.idParametra IN :ids")
+	java.util.List<Integer> findVrstaIdsByParametarIds(@Param("ids") java.util.Collection<Integer> ids);
+
+	@Query("SELECT p FROM ParametarProvjere p JOIN FETCH p.vrstaUredaja v WHERE v.idVrUred IN :vrstaIds " +
+			"ORDER BY v.idVrUred, p.redoslijed")
+	java.util.List<ParametarProvjere> findAllByVrstaIdsOrdered(@Param("vrstaIds") java.util.Collection<Integer> vrstaIds);
 }
\ No newline at end of file
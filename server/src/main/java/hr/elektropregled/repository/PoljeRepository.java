@@ -3,6 +3,9 @@ package hr.elektropregled.repository;
 import hr.elektropregled.model.Polje;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -16,6 +19,7 @@ public interface PoljeRepository extends JpaRepository<Polje, Integer> {
         Long getBrojUredaja();
     }
     
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     @Query("""
         SELECT p.idPolje as idPolje, p.nazPolje as nazPolje, p.napRazina as napRazina,
                p.oznVrPolje as oznVrPolje, COUNT(u.idUred) as brojUredaja
@@ -2,8 +2,11 @@ package hr.elektropregled.repository;
 
 import hr.elektropregled.model.Postrojenje;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface PostrojenjeRepository extends JpaRepository<Postrojenje, Integer> {
+    @Query("SELECT p.idPostr FROM Postrojenje p")
+    java.util.List<Integer> findAllIds();
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package hr.elektropregled.repository;
+
+import hr.elektropregled.model.PostrojenjeStats;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface PostrojenjeStatsRepository extends JpaRepository<PostrojenjeStats, Integer> {
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM PostrojenjeStats s WHERE s.idPostr = :idPostr")
+    Optional<PostrojenjeStats> findForUpdate(@Param("idPostr") Integer idPostr);
+}
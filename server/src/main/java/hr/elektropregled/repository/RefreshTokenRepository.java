@@ -0,0 +1,33 @@
+package hr.elektropregled.repository;
+
+import hr.elektropregled.model.RefreshToken;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, String> {
+    /**
+     * Zaključava token do kraja transakcije, pa dva istovremena osvježavanja istim tokenom
+     * ne mogu oba uspjeti.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM RefreshToken t WHERE t.sazetak = :sazetak")
+    Optional<RefreshToken> findForUpdate(@Param("sazetak") String sazetak);
+
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.opozvanAt = :sada WHERE t.obitelj = :obitelj AND t.opozvanAt IS NULL")
+    int opozoviObitelj(@Param("obitelj") UUID obitelj, @Param("sada") LocalDateTime sada);
+
+    @Modifying
+    @Query("DELETE FROM RefreshToken t WHERE t.istjeceAt < :prije")
+    int deleteExpiredBefore(@Param("prije") LocalDateTime prije);
+}
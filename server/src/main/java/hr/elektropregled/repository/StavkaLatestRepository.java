@@ -0,0 +1,19 @@
+package hr.elektropregled.repository;
+
+import hr.elektropregled.model.StavkaLatest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StavkaLatestRepository extends JpaRepository<StavkaLatest, StavkaLatest.Kljuc> {
+    List<StavkaLatest> findByIdUredIn(Collection<Integer> uredajIds);
+
+    @Query("SELECT l FROM StavkaLatest l WHERE l.idUred IN " +
+            "(SELECT u.idUred FROM Uredaj u WHERE u.postrojenje.idPostr = :idPostr)")
+    List<StavkaLatest> findByPostrojenje(@Param("idPostr") Integer idPostr);
+}
@@ -1,11 +1,13 @@
 package hr.elektropregled.repository;
 
+import hr.elektropregled.dto.SyncResponse;
 import hr.elektropregled.model.StavkaPregleda;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -15,20 +17,15 @@ public interface StavkaPregledaRepository extends JpaRepository<StavkaPregleda,
     List<StavkaPregleda> findByPregled_IdPreg(Integer idPreg);
     Optional<StavkaPregleda> findByLokalniId(UUID lokalniId);
 
+    @Query("SELECT s.lokalniId FROM StavkaPregleda s WHERE s.lokalniId IN :lokalniIds")
+    List<UUID> findLokalniIdsIn(@Param("lokalniIds") Collection<UUID> lokalniIds);
+
+    @Query("SELECT new hr.elektropregled.dto.SyncResponse$StavkaMapping(s.lokalniId, s.idStavke) " +
+            "FROM StavkaPregleda s WHERE s.pregled.idPreg = :idPreg ORDER BY s.idStavke")
+    List<SyncResponse.StavkaMapping> findMappingsByPregled(@Param("idPreg") Integer idPreg);
+
     Optional<StavkaPregleda> findTopByUredaj_IdUredAndParametarProvjere_IdParametraOrderByPregled_KrajDescPregled_PocetakDescIdStavkeDesc(
             Integer idUred,
             Integer idParametra
     );
-
-    @Query(value = """
-        SELECT DISTINCT ON (s.id_ured, s.id_parametra) s.*
-        FROM stavka_pregleda s
-        JOIN pregled p ON s.id_preg = p.id_preg
-        WHERE s.id_ured IN :uredajIds
-        ORDER BY s.id_ured, s.id_parametra,
-                 p.kraj DESC NULLS LAST,
-                 p.pocetak DESC NULLS LAST,
-                 s.id_stavke DESC
-        """, nativeQuery = true)
-    List<StavkaPregleda> findLatestByUredajIds(@Param("uredajIds") List<Integer> uredajIds);
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package hr.elektropregled.repository;
+
+import hr.elektropregled.model.SyncZahtjev;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface SyncZahtjevRepository extends JpaRepository<SyncZahtjev, UUID> {
+    Optional<SyncZahtjev> findByTicketAndKorisnickoIme(UUID ticket, String korisnickoIme);
+
+    @Query("SELECT z.ticket FROM SyncZahtjev z WHERE z.status = 'PENDING' ORDER BY z.createdAt")
+    List<UUID> findPendingTickets(Pageable pageable);
+
+    /**
+     * Preuzima zahtjeve za obradu i označava ih tokenom {@code vlasnik}; uvjet na status osigurava
+     * da isti zahtjev ne preuzmu dva workera.
+     */
+    @Modifying
+    @Query("UPDATE SyncZahtjev z SET z.status = 'PROCESSING', z.vlasnik = :vlasnik, z.preuzetoAt = :sada, " +
+            "z.pokusaji = z.pokusaji + 1, z.updatedAt = :sada WHERE z.ticket IN :tickets AND z.status = 'PENDING'")
+    int claim(@Param("tickets") Collection<UUID> tickets, @Param("vlasnik") UUID vlasnik,
+              @Param("sada") LocalDateTime sada);
+
+    @Query("SELECT z FROM SyncZahtjev z WHERE z.vlasnik = :vlasnik AND z.status = 'PROCESSING' ORDER BY z.createdAt")
+    List<SyncZahtjev> findProcessingByVlasnik(@Param("vlasnik") UUID vlasnik);
+
+    /**
+     * Sprema ishod obrade, ali samo ako je zahtjev još uvijek u obradi kod istog vlasnika.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE SyncZahtjev z SET z.status = :status, z.odgovor = :odgovor, z.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE z.ticket = :ticket AND z.vlasnik = :vlasnik AND z.status = 'PROCESSING'")
+    int zavrsi(@Param("ticket") UUID ticket, @Param("vlasnik") UUID vlasnik,
+               @Param("status") String status, @Param("odgovor") String odgovor);
+
+    /**
+     * Vraća na čekanje zahtjeve koje je preuzeo {@code vlasnik}, a još nisu završeni.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE SyncZahtjev z SET z.status = 'PENDING', z.vlasnik = NULL, z.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE z.ticket IN :tickets AND z.vlasnik = :vlasnik AND z.status = 'PROCESSING'")
+    int otpusti(@Param("tickets") Collection<UUID> tickets, @Param("vlasnik") UUID vlasnik);
+
+    /**
+     * Vraća na čekanje zahtjeve preuzete prije {@code granica} (worker koji ih je preuzeo je pao).
+     */
+    @Modifying
+    @Query("UPDATE SyncZahtjev z SET z.status = 'PENDING', z.vlasnik = NULL, z.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE z.status = 'PROCESSING' AND (z.preuzetoAt IS NULL OR z.preuzetoAt < :granica)")
+    int resetStale(@Param("granica") LocalDateTime granica);
+
+    @Modifying
+    @Query("DELETE FROM SyncZahtjev z WHERE z.status IN ('DONE', 'FAILED') AND z.updatedAt < :prije")
+    int deleteFinishedBefore(@Param("prije") LocalDateTime prije);
+}
@@ -0,0 +1,11 @@
+package hr.elektropregled.repository;
+
+import hr.elektropregled.model.SyncZapis;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface SyncZapisRepository extends JpaRepository<SyncZapis, UUID> {
+}
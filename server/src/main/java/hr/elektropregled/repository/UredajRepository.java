@@ -1,8 +1,12 @@
 package hr.elektropregled.repository;
 
 import hr.elektropregled.model.Uredaj;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -14,6 +18,27 @@ public interface UredajRepository extends JpaRepository<Uredaj, Integer> {
     
     java.util.List<Uredaj> findByPostrojenje_IdPostrAndPoljeIsNullOrderByIdUredAsc(Integer idPostr);
     
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     @Query("SELECT COUNT(u) FROM Uredaj u WHERE u.postrojenje.idPostr = :idPostr AND u.polje IS NULL")
     Long countByPostrojenjeAndPoljeIsNull(@Param("idPostr") Integer idPostr);
+
+    // Checklist čita vrstu i polje svakog uređaja, a postrojenje samo preko id_postr (bez JOIN-a).
+    // Rezultat je u query cacheu dok se tablice uredaj, polje ili vrsta_uredaja ne promijene.
+    @EntityGraph(Uredaj.GRAF_CHECKLIST)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT u FROM Uredaj u " +
+            "WHERE u.postrojenje.idPostr = :idPostr AND u.polje.idPolje = :idPolje ORDER BY u.idUred")
+    java.util.List<Uredaj> findChecklistUredaji(@Param("idPostr") Integer idPostr, @Param("idPolje") Integer idPolje);
+
+    @EntityGraph(Uredaj.GRAF_CHECKLIST)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT u FROM Uredaj u " +
+            "WHERE u.postrojenje.idPostr = :idPostr AND u.polje IS NULL ORDER BY u.idUred")
+    java.util.List<Uredaj> findChecklistUredajiBezPolja(@Param("idPostr") Integer idPostr);
+
+    @EntityGraph(Uredaj.GRAF_CHECKLIST)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT u FROM Uredaj u LEFT JOIN u.polje pl " +
+            "WHERE u.postrojenje.idPostr = :idPostr ORDER BY pl.idPolje NULLS LAST, u.idUred")
+    java.util.List<Uredaj> findBundleUredaji(@Param("idPostr") Integer idPostr);
 }
\ No newline at end of file
@@ -3,39 +3,124 @@ package hr.elektropregled.service;
 import hr.elektropregled.config.JwtProvider;
 import hr.elektropregled.dto.LoginRequest;
 import hr.elektropregled.dto.LoginResponse;
+import hr.elektropregled.dto.RefreshRequest;
+import hr.elektropregled.exception.ForbiddenException;
 import hr.elektropregled.exception.NotFoundException;
+import hr.elektropregled.exception.UnauthorizedException;
 import hr.elektropregled.model.Korisnik;
 import hr.elektropregled.repository.KorisnikRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+
 @Service
 public class AuthService {
     private final KorisnikRepository korisnikRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final ProvjeraLozinkeService provjeraLozinkeService;
     private final JwtProvider jwtProvider;
+    private final RefreshTokenService refreshTokenService;
+    private final Imenik imenik;
+    private final ThreadPoolTaskExecutor mvcAsyncExecutor;
 
     @Value("${jwt.expiration}")
     private long jwtExpiration;
 
     public AuthService(KorisnikRepository korisnikRepository,
-                       PasswordEncoder passwordEncoder,
-                       JwtProvider jwtProvider) {
+                       ProvjeraLozinkeService provjeraLozinkeService,
+                       JwtProvider jwtProvider,
+                       RefreshTokenService refreshTokenService,
+                       Imenik imenik,
+                       @Qualifier("mvcAsyncExecutor") ThreadPoolTaskExecutor mvcAsyncExecutor) {
         this.korisnikRepository = korisnikRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.provjeraLozinkeService = provjeraLozinkeService;
         this.jwtProvider = jwtProvider;
+        this.refreshTokenService = refreshTokenService;
+        this.imenik = imenik;
+        this.mvcAsyncExecutor = mvcAsyncExecutor;
     }
 
-    public LoginResponse login(LoginRequest request) {
+    /**
+     * Lozinka se provjerava na poolu {@link ProvjeraLozinkeService}, pa dretva zahtjeva ne čeka BCrypt.
+     * Refresh token se izdaje na {@code mvcAsyncExecutor}-u, da upis u bazu ne zauzima BCrypt dretve.
+     *
+     * @throws hr.elektropregled.exception.ServiceUnavailableException ako je red provjera pun
+     */
+    public CompletableFuture<LoginResponse> login(LoginRequest request) {
         Korisnik korisnik = korisnikRepository.findByKorisnickoIme(request.getKorisnickoIme())
                 .orElseThrow(() -> new NotFoundException("Korisničko ime ili lozinka nisu ispravni"));
 
-        if (!passwordEncoder.matches(request.getLozinka(), korisnik.getLozinka())) {
-            throw new NotFoundException("Korisničko ime ili lozinka nisu ispravni");
+        return provjeraLozinkeService.provjeri(request.getLozinka(), korisnik.getLozinka())
+                .thenApplyAsync(ispravna -> {
+                    if (!ispravna) {
+                        throw new NotFoundException("Korisničko ime ili lozinka nisu ispravni");
+                    }
+                    return odgovor(korisnik.getKorisnickoIme(), refreshTokenService.izdaj(korisnik.getIdKorisnika()));
+                }, mvcAsyncExecutor);
+    }
+
+    /**
+     * Novi access token za važeći refresh token, bez provjere lozinke. Korišteni refresh token
+     * se opoziva, a odgovor nosi novi.
+     */
+    public LoginResponse osvjezi(RefreshRequest request) {
+        RefreshTokenService.Izdan izdan = refreshTokenService.rotiraj(request.getRefreshToken());
+        // Iz baze, a ne iz imenika: obrisani korisnik ne smije dobiti novi token do isteka snimke
+        Korisnik korisnik = korisnikRepository.findById(izdan.idKorisnika())
+                .orElseThrow(() -> new UnauthorizedException("Korisnik iz tokena ne postoji"));
+        return odgovor(korisnik.getKorisnickoIme(), izdan);
+    }
+
+    public void odjava(RefreshRequest request) {
+        refreshTokenService.opozovi(request.getRefreshToken());
+    }
+
+    private LoginResponse odgovor(String korisnickoIme, RefreshTokenService.Izdan refresh) {
+        String token = jwtProvider.generateToken(korisnickoIme);
+        return new LoginResponse(token, "Bearer", jwtExpiration / 1000, korisnickoIme,
+                refresh.idKorisnika(), refresh.token(), refresh.istjeceZaSekundi());
+    }
+
+    /**
+     * Provjerava da prijavljeni korisnik postoji i ima ulogu ADMIN. Uloga se čita iz baze, a ne iz
+     * {@link Imenik}-a, pa oduzimanje uloge ili brisanje korisnika vrijedi odmah. Admin operacije
+     * su rijetke, pa dodatni upit ne opterećuje bazu.
+     */
+    public Imenik.KorisnikZapis requireAdmin(String username) {
+        if (username == null) {
+            throw new UnauthorizedException("Neispravan ili nedostaje JWT token");
+        }
+        Imenik.KorisnikZapis korisnik = korisnikRepository.findByKorisnickoIme(username)
+                .map(Imenik.KorisnikZapis::od)
+                .orElseThrow(() -> new UnauthorizedException("Korisnik iz tokena ne postoji"));
+        if (!korisnik.isAdmin()) {
+            throw new ForbiddenException("Za ovu operaciju potrebna je uloga ADMIN");
         }
+        return korisnik;
+    }
 
-        String token = jwtProvider.generateToken(korisnik.getKorisnickoIme());
-        return new LoginResponse(token, "Bearer", jwtExpiration / 1000, korisnik.getKorisnickoIme(), korisnik.getIdKorisnika());
+    /**
+     * Provjerava da pregled šalje korisnik kojem pripada: {@code idKorisnika} iz tijela zahtjeva
+     * mora biti ID korisnika iz tokena. Ne ide u bazu, pa se poziva prije otvaranja transakcije.
+     * Pregled bez {@code idKorisnika} odbija validacija zahtjeva.
+     */
+    public void provjeriVlasnika(String username, Integer idKorisnika) {
+        Imenik.KorisnikZapis korisnik = korisnikIzTokena(username);
+        if (idKorisnika != null && !idKorisnika.equals(korisnik.idKorisnika())) {
+            throw new ForbiddenException("Pregled pripada drugom korisniku (id_korisnika ne odgovara prijavljenom korisniku)");
+        }
+    }
+
+    /**
+     * Korisnik iz tokena razriješen preko {@link Imenik}-a, bez upita u bazu.
+     */
+    public Imenik.KorisnikZapis korisnikIzTokena(String username) {
+        if (username == null) {
+            throw new UnauthorizedException("Neispravan ili nedostaje JWT token");
+        }
+        return imenik.korisnik(username)
+                .orElseThrow(() -> new UnauthorizedException("Korisnik iz tokena ne postoji"));
     }
 }
\ No newline at end of file
@@ -0,0 +1,402 @@
+package hr.elektropregled.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hr.elektropregled.dto.BulkImportReport;
+import hr.elektropregled.exception.ValidationException;
+import hr.elektropregled.util.NdjsonCsvReader;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Skupni unos povijesnih pregleda (papirnati i Excel zapisi) izravno u PostgreSQL.
+ * <p>
+ * Ulaz se kroz {@link CopyManager} strujno kopira u privremenu staging tablicu sa TEXT stupcima,
+ * pa potrošnja memorije ne ovisi o veličini ulaza. Validacija (format, strani ključevi, duplikati
+ * i vrijednosti kao u {@code PregledSyncService.validateVrijednosti}) se zatim radi skupnim
+ * UPDATE naredbama, a ispravni redovi se jednim INSERT ... SELECT prebacuju u pregled i stavka_pregleda
+ * (te osvježavaju stavka_latest i postrojenje_stats).
+ * Sve se izvršava u jednoj transakciji; staging tablice se brišu na commit.
+ */
+@Service
+public class BulkImportService {
+    private static final Logger log = LoggerFactory.getLogger(BulkImportService.class);
+
+    private static final int MAX_ODBIJENIH_U_IZVJESTAJU = 100;
+
+    public static final String STUPAC_GRESKA = "greska_ulaza";
+
+    /**
+     * Redoslijed stupaca u CSV ulazu (prvi redak je zaglavlje i preskače se).
+     * NDJSON ulaz koristi iste nazive kao ključeve objekta.
+     */
+    public static final List<String> STUPCI = List.of(
+            "pregled_lokalni_id", "id_korisnika", "id_postr", "pocetak", "kraj", "pregled_napomena",
+            "stavka_lokalni_id", "id_ured", "id_parametra",
+            "vrijednost_bool", "vrijednost_num", "vrijednost_txt", "napomena", "vrijeme_unosa"
+    );
+
+    private static final String UUID_REGEX = "^[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}$";
+    private static final String INT_REGEX = "^-?[0-9]{1,9}$";
+    // DECIMAL(10,2): najviše 8 znamenki prije decimalne točke
+    private static final String NUM_REGEX = "^-?[0-9]{1,8}(\\.[0-9]+)?$";
+    private static final String BOOL_REGEX = "^(true|false|t|f|1|0)$";
+    private static final String TS_REGEX = "^[0-9]{4}-[0-9]{2}-[0-9]{2}[T ][0-9]{2}:[0-9]{2}(:[0-9]{2}(\\.[0-9]{1,6})?)?$";
+
+    private record FormatProvjera(String stupac, String regex, boolean obavezan) {
+    }
+
+    private static final List<FormatProvjera> FORMAT_PROVJERE = List.of(
+            new FormatProvjera("pregled_lokalni_id", UUID_REGEX, true),
+            new FormatProvjera("id_korisnika", INT_REGEX, true),
+            new FormatProvjera("id_postr", INT_REGEX, true),
+            new FormatProvjera("pocetak", TS_REGEX, true),
+            new FormatProvjera("kraj", TS_REGEX, false),
+            new FormatProvjera("stavka_lokalni_id", UUID_REGEX, true),
+            new FormatProvjera("id_ured", INT_REGEX, true),
+            new FormatProvjera("id_parametra", INT_REGEX, true),
+            new FormatProvjera("vrijednost_bool", BOOL_REGEX, false),
+            new FormatProvjera("vrijednost_num", NUM_REGEX, false),
+            new FormatProvjera("vrijeme_unosa", TS_REGEX, false)
+    );
+
+    // Tekstualni stupci koji se u bazi spremaju kao VARCHAR(255)
+    private static final int NAJVECA_DULJINA_TEKSTA = 255;
+    private static final List<String> TEKSTUALNI_STUPCI = List.of("pregled_napomena", "vrijednost_txt", "napomena");
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final PostrojenjeStatsService postrojenjeStatsService;
+
+    public BulkImportService(DataSource dataSource, JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                             PostrojenjeStatsService postrojenjeStatsService) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.postrojenjeStatsService = postrojenjeStatsService;
+    }
+
+    @Transactional
+    public BulkImportReport importStavke(Reader input, Format format) {
+        long start = System.nanoTime();
+
+        kreirajStaging();
+        long ucitano = kopiraj(input, format);
+        validirajFormat();
+        pretvoriUTipove();
+        validirajReference();
+        validirajVrijednosti();
+
+        long uneseniPregledi = jdbcTemplate.update("""
+                INSERT INTO pregled (lokalni_id, status_sync, pocetak, kraj, napomena, id_korisnika, id_postr, created_at)
+                SELECT DISTINCT ON (t.pregled_lokalni_id)
+                       t.pregled_lokalni_id, 'SYNCED', t.pocetak, t.kraj, t.pregled_napomena, t.id_korisnika, t.id_postr, now()
+                FROM import_tip t
+                WHERE t.razlog IS NULL
+                ORDER BY t.pregled_lokalni_id, t.red
+                """);
+
+        long uneseneStavke = jdbcTemplate.update("""
+                INSERT INTO stavka_pregleda (lokalni_id, vrijednost_bool, vrijednost_num, vrijednost_txt, napomena,
+                                             vrijeme_unosa, id_preg, id_ured, id_parametra)
+                SELECT t.stavka_lokalni_id, t.vrijednost_bool, t.vrijednost_num, t.vrijednost_txt, t.napomena,
+                       COALESCE(t.vrijeme_unosa, COALESCE(t.kraj, t.pocetak)), p.id_preg, t.id_ured, t.id_parametra
+                FROM import_tip t
+                JOIN pregled p ON p.lokalni_id = t.pregled_lokalni_id
+                WHERE t.razlog IS NULL
+                ON CONFLICT DO NOTHING
+                """);
+
+        osvjeziZadnjeVrijednosti();
+        if (uneseniPregledi > 0) {
+            postrojenjeStatsService.obnovi(jdbcTemplate.queryForList(
+                    "SELECT DISTINCT id_postr FROM import_tip WHERE razlog IS NULL", Integer.class));
+        }
+
+        Long odbijeno = jdbcTemplate.queryForObject("""
+                SELECT (SELECT COUNT(*) FROM import_stavka WHERE razlog IS NOT NULL)
+                     + (SELECT COUNT(*) FROM import_tip WHERE razlog IS NOT NULL)
+                """, Long.class);
+
+        List<BulkImportReport.OdbijeniRed> odbijeniRedovi = jdbcTemplate.query("""
+                SELECT red, stavka_lokalni_id, razlog FROM (
+                    SELECT red,
+                           CASE WHEN stavka_lokalni_id ~* ? THEN stavka_lokalni_id::uuid END AS stavka_lokalni_id,
+                           razlog
+                    FROM import_stavka WHERE razlog IS NOT NULL
+                    UNION ALL
+                    SELECT red, stavka_lokalni_id, razlog FROM import_tip WHERE razlog IS NOT NULL
+                ) o
+                ORDER BY red
+                LIMIT ?
+                """,
+                (rs, rowNum) -> new BulkImportReport.OdbijeniRed(
+                        rs.getLong("red"),
+                        rs.getObject("stavka_lokalni_id", UUID.class),
+                        rs.getString("razlog")),
+                UUID_REGEX, MAX_ODBIJENIH_U_IZVJESTAJU);
+
+        long trajanjeMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        double redakaUSekundi = Math.round(ucitano * 10_000.0 / trajanjeMs) / 10.0;
+
+        log.info("Bulk import ({}): učitano {}, pregleda {}, stavki {}, odbijeno {}, {} ms ({} redaka/s)",
+                format, ucitano, uneseniPregledi, uneseneStavke, odbijeno, trajanjeMs, redakaUSekundi);
+
+        return new BulkImportReport(format.name(), ucitano, uneseniPregledi, uneseneStavke,
+                odbijeno, odbijeniRedovi, trajanjeMs, redakaUSekundi);
+    }
+
+    private void kreirajStaging() {
+        StringBuilder ddl = new StringBuilder("CREATE TEMP TABLE import_stavka (red BIGINT GENERATED ALWAYS AS IDENTITY");
+        for (String stupac : STUPCI) {
+            ddl.append(", ").append(stupac).append(" TEXT");
+        }
+        ddl.append(", ").append(STUPAC_GRESKA).append(" TEXT, razlog TEXT) ON COMMIT DROP");
+        jdbcTemplate.execute(ddl.toString());
+    }
+
+    private long kopiraj(Reader input, Format format) {
+        String stupci = String.join(", ", STUPCI);
+        String sql;
+        Reader reader;
+        if (format == Format.NDJSON) {
+            List<String> sviStupci = new ArrayList<>(STUPCI);
+            sviStupci.add(STUPAC_GRESKA);
+            sql = "COPY import_stavka (" + stupci + ", " + STUPAC_GRESKA + ") FROM STDIN WITH (FORMAT csv)";
+            reader = new NdjsonCsvReader(input, objectMapper, sviStupci, STUPAC_GRESKA);
+        } else {
+            sql = "COPY import_stavka (" + stupci + ") FROM STDIN WITH (FORMAT csv, HEADER true)";
+            reader = input;
+        }
+
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            return copyManager.copyIn(sql, reader);
+        } catch (SQLException ex) {
+            throw new ValidationException("Neispravan ulaz za skupni unos: " + ex.getMessage());
+        } catch (IOException ex) {
+            throw new ValidationException("Greška pri čitanju ulaza: " + ex.getMessage());
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private void validirajFormat() {
+        jdbcTemplate.update("UPDATE import_stavka SET razlog = " + STUPAC_GRESKA
+                + " WHERE " + STUPAC_GRESKA + " IS NOT NULL");
+        for (FormatProvjera provjera : FORMAT_PROVJERE) {
+            String vrijednost = "NULLIF(" + provjera.stupac() + ", '')";
+            String uvjet = provjera.obavezan()
+                    ? "(" + vrijednost + " IS NULL OR " + vrijednost + " !~* ?)"
+                    : vrijednost + " !~* ?";
+            String poruka = provjera.obavezan()
+                    ? "Nedostaje ili neispravan stupac " + provjera.stupac()
+                    : "Neispravan stupac " + provjera.stupac();
+            jdbcTemplate.update("UPDATE import_stavka SET razlog = ? WHERE razlog IS NULL AND " + uvjet,
+                    poruka, provjera.regex());
+        }
+        // Regex propušta nepostojeće datume (2026-02-30, 25:00) na kojima bi ::timestamp prekinuo cijelu
+        // transakciju, pa se dijelovi provjeravaju cjelobrojnom aritmetikom koja ne može baciti grešku
+        for (FormatProvjera provjera : FORMAT_PROVJERE) {
+            if (provjera.regex().equals(TS_REGEX)) {
+                jdbcTemplate.update("UPDATE import_stavka SET razlog = ? WHERE razlog IS NULL AND "
+                                + nepostojeceVrijeme(provjera.stupac()),
+                        "Nepostojeći datum ili vrijeme u stupcu " + provjera.stupac(), TS_REGEX);
+            }
+        }
+        // Predugačak tekst bi pri INSERT-u prekinuo cijelu transakciju, pa se takav redak odbija ovdje
+        for (String stupac : TEKSTUALNI_STUPCI) {
+            jdbcTemplate.update("UPDATE import_stavka SET razlog = ? WHERE razlog IS NULL AND char_length(" + stupac + ") > ?",
+                    "Stupac " + stupac + " je dulji od " + NAJVECA_DULJINA_TEKSTA + " znakova", NAJVECA_DULJINA_TEKSTA);
+        }
+    }
+
+    /**
+     * Uvjet koji je istinit za vrijednost ispravnog formata (TS_REGEX, parametar upita) s nepostojećim
+     * mjesecom, danom, satom, minutom ili sekundom. CASE jamči da se dijelovi pretvaraju u int tek nakon
+     * regexa, jer PostgreSQL inače ne jamči redoslijed uvjeta u WHERE.
+     */
+    private static String nepostojeceVrijeme(String stupac) {
+        String godina = "substr(" + stupac + ", 1, 4)::int";
+        String mjesec = "substr(" + stupac + ", 6, 2)::int";
+        String danaUMjesecu = "CASE " + mjesec
+                + " WHEN 2 THEN CASE WHEN (" + godina + " % 4 = 0 AND " + godina + " % 100 <> 0) OR "
+                + godina + " % 400 = 0 THEN 29 ELSE 28 END"
+                + " WHEN 4 THEN 30 WHEN 6 THEN 30 WHEN 9 THEN 30 WHEN 11 THEN 30 ELSE 31 END";
+        return "CASE WHEN NULLIF(" + stupac + ", '') ~* ? THEN NOT ("
+                + godina + " >= 1"
+                + " AND " + mjesec + " BETWEEN 1 AND 12"
+                + " AND substr(" + stupac + ", 9, 2)::int BETWEEN 1 AND " + danaUMjesecu
+                + " AND substr(" + stupac + ", 12, 2)::int <= 23"
+                + " AND substr(" + stupac + ", 15, 2)::int <= 59"
+                + " AND COALESCE(NULLIF(substr(" + stupac + ", 18, 2), '')::int, 0) <= 59"
+                + ") ELSE false END";
+    }
+
+    /**
+     * Prebacuje redove koji su prošli provjeru formata u tipiziranu tablicu; cast-ovi se izvršavaju
+     * samo nad redovima koji prođu WHERE, pa neispravan redak ne može prekinuti transakciju.
+     */
+    private void pretvoriUTipove() {
+        jdbcTemplate.execute("""
+                CREATE TEMP TABLE import_tip ON COMMIT DROP AS
+                SELECT red,
+                       pregled_lokalni_id::uuid AS pregled_lokalni_id,
+                       id_korisnika::int AS id_korisnika,
+                       id_postr::int AS id_postr,
+                       pocetak::timestamp AS pocetak,
+                       NULLIF(kraj, '')::timestamp AS kraj,
+                       NULLIF(pregled_napomena, '') AS pregled_napomena,
+                       stavka_lokalni_id::uuid AS stavka_lokalni_id,
+                       id_ured::int AS id_ured,
+                       id_parametra::int AS id_parametra,
+                       NULLIF(vrijednost_bool, '')::boolean AS vrijednost_bool,
+                       NULLIF(vrijednost_num, '')::numeric(10,2) AS vrijednost_num,
+                       vrijednost_txt,
+                       NULLIF(napomena, '') AS napomena,
+                       NULLIF(vrijeme_unosa, '')::timestamp AS vrijeme_unosa,
+                       NULL::text AS razlog
+                FROM import_stavka
+                WHERE razlog IS NULL
+                """);
+        jdbcTemplate.execute("CREATE INDEX ON import_tip (stavka_lokalni_id)");
+        jdbcTemplate.execute("CREATE INDEX ON import_tip (pregled_lokalni_id)");
+        jdbcTemplate.execute("ANALYZE import_tip");
+    }
+
+    private void validirajReference() {
+        odbij("NOT EXISTS (SELECT 1 FROM korisnik k WHERE k.id_korisnika = t.id_korisnika)",
+                "Korisnik nije pronađen");
+        odbij("NOT EXISTS (SELECT 1 FROM postrojenje p WHERE p.id_postr = t.id_postr)",
+                "Postrojenje nije pronađeno");
+        odbij("NOT EXISTS (SELECT 1 FROM uredaj u WHERE u.id_ured = t.id_ured)",
+                "Uređaj nije pronađen");
+        odbij("NOT EXISTS (SELECT 1 FROM parametar_provjere pp WHERE pp.id_parametra = t.id_parametra)",
+                "Parametar nije pronađen");
+        odbij("t.kraj IS NOT NULL AND t.kraj < t.pocetak",
+                "Kraj pregleda je prije početka");
+        odbij("t.pocetak > now()",
+                "Početak pregleda je u budućnosti");
+        odbij("EXISTS (SELECT 1 FROM stavka_pregleda s WHERE s.lokalni_id = t.stavka_lokalni_id)",
+                "Stavka s ovim lokalnim ID-om je već unesena");
+        // Skupni unos samo stvara nove preglede: dopisivanje u postojeći bi zaobišlo provjeru vlasnika,
+        // postrojenja i sync_zapis koje radi sinkronizacija
+        odbij("EXISTS (SELECT 1 FROM pregled p WHERE p.lokalni_id = t.pregled_lokalni_id)",
+                "Pregled s ovim lokalnim ID-om je već unesen");
+
+        // Ponavljanja unutar samog ulaza: zadržava se prvi redak
+        jdbcTemplate.update("""
+                UPDATE import_tip t SET razlog = 'Stavka s ovim lokalnim ID-om se ponavlja u ulazu'
+                FROM (SELECT red, row_number() OVER (PARTITION BY stavka_lokalni_id ORDER BY red) AS rn
+                      FROM import_tip WHERE razlog IS NULL) d
+                WHERE t.red = d.red AND d.rn > 1
+                """);
+        jdbcTemplate.update("""
+                UPDATE import_tip t SET razlog = 'Parametar za ovaj uređaj se ponavlja u pregledu'
+                FROM (SELECT red, row_number() OVER (PARTITION BY pregled_lokalni_id, id_parametra, id_ured ORDER BY red) AS rn
+                      FROM import_tip WHERE razlog IS NULL) d
+                WHERE t.red = d.red AND d.rn > 1
+                """);
+        // Pregled se upisuje iz prvog ispravnog retka, pa redak s drugačijim zaglavljem istog pregleda
+        // ne smije tiho završiti pod tuđim korisnikom, postrojenjem ili vremenom (prazna napomena je dopuštena)
+        jdbcTemplate.update("""
+                UPDATE import_tip t SET razlog = 'Podaci pregleda se razlikuju od prvog retka tog pregleda'
+                FROM (SELECT DISTINCT ON (pregled_lokalni_id)
+                             pregled_lokalni_id, id_korisnika, id_postr, pocetak, kraj, pregled_napomena
+                      FROM import_tip WHERE razlog IS NULL
+                      ORDER BY pregled_lokalni_id, red) prvi
+                WHERE t.razlog IS NULL AND t.pregled_lokalni_id = prvi.pregled_lokalni_id
+                  AND ((t.id_korisnika, t.id_postr, t.pocetak, t.kraj)
+                          IS DISTINCT FROM (prvi.id_korisnika, prvi.id_postr, prvi.pocetak, prvi.kraj)
+                       OR t.pregled_napomena IS NOT NULL AND t.pregled_napomena IS DISTINCT FROM prvi.pregled_napomena)
+                """);
+    }
+
+    /**
+     * Ista pravila kao {@code PregledSyncService.validateVrijednosti}, izražena kao jedan skupni UPDATE.
+     */
+    private void validirajVrijednosti() {
+        jdbcTemplate.update("""
+                UPDATE import_tip t SET razlog = v.razlog
+                FROM (
+                    SELECT t2.red,
+                           CASE
+                               WHEN (t2.vrijednost_bool IS NOT NULL)::int + (t2.vrijednost_num IS NOT NULL)::int
+                                    + (t2.vrijednost_txt IS NOT NULL)::int > 1
+                                   THEN 'Dozvoljena je samo jedna vrijednost po stavci'
+                               WHEN upper(p.tip_podataka) = 'NUMERIC' AND t2.vrijednost_num IS NULL
+                                   THEN 'Vrijednost brojčana je obavezna za NUMERIC parametar'
+                               WHEN upper(p.tip_podataka) = 'NUMERIC' AND p.min_vrijednost IS NOT NULL
+                                    AND t2.vrijednost_num < p.min_vrijednost
+                                   THEN 'Vrijednost je manja od minimalne dozvoljene'
+                               WHEN upper(p.tip_podataka) = 'NUMERIC' AND p.max_vrijednost IS NOT NULL
+                                    AND t2.vrijednost_num > p.max_vrijednost
+                                   THEN 'Vrijednost je veća od maksimalne dozvoljene'
+                               WHEN upper(p.tip_podataka) = 'BOOLEAN' AND t2.vrijednost_bool IS NULL
+                                   THEN 'Vrijednost bool je obavezna za BOOLEAN parametar'
+                               WHEN upper(p.tip_podataka) = 'TEXT' AND (t2.vrijednost_txt IS NULL OR btrim(t2.vrijednost_txt) = '')
+                                   THEN 'Vrijednost tekst je obavezna za TEXT parametar'
+                           END AS razlog
+                    FROM import_tip t2
+                    JOIN parametar_provjere p ON p.id_parametra = t2.id_parametra
+                    WHERE t2.razlog IS NULL
+                ) v
+                WHERE t.red = v.red AND v.razlog IS NOT NULL
+                """);
+    }
+
+    /**
+     * Ponovno računa stavka_latest za parove (uređaj, parametar) iz ovog unosa. Povijesni zapisi mogu
+     * biti i stariji i noviji od postojećih, pa se par računa iz cijele povijesti, kao u
+     * {@link StavkaLatestService#obnovi()}.
+     */
+    private void osvjeziZadnjeVrijednosti() {
+        jdbcTemplate.update("""
+                INSERT INTO stavka_latest (id_ured, id_parametra, id_stavke, id_preg, vrijednost_bool, vrijednost_num,
+                                           vrijednost_txt, pregled_kraj, pregled_pocetak, zadnji_pregled_at, updated_at)
+                SELECT DISTINCT ON (s.id_ured, s.id_parametra)
+                       s.id_ured, s.id_parametra, s.id_stavke, s.id_preg, s.vrijednost_bool, s.vrijednost_num,
+                       s.vrijednost_txt, p.kraj, p.pocetak, COALESCE(p.kraj, p.pocetak, p.created_at), now()
+                FROM stavka_pregleda s
+                JOIN pregled p ON p.id_preg = s.id_preg
+                WHERE (s.id_ured, s.id_parametra) IN (
+                    SELECT DISTINCT id_ured, id_parametra FROM import_tip WHERE razlog IS NULL
+                )
+                ORDER BY s.id_ured, s.id_parametra, p.kraj DESC NULLS LAST, p.pocetak DESC NULLS LAST, s.id_stavke DESC
+                ON CONFLICT (id_ured, id_parametra) DO UPDATE SET
+                    id_stavke = EXCLUDED.id_stavke,
+                    id_preg = EXCLUDED.id_preg,
+                    vrijednost_bool = EXCLUDED.vrijednost_bool,
+                    vrijednost_num = EXCLUDED.vrijednost_num,
+                    vrijednost_txt = EXCLUDED.vrijednost_txt,
+                    pregled_kraj = EXCLUDED.pregled_kraj,
+                    pregled_pocetak = EXCLUDED.pregled_pocetak,
+                    zadnji_pregled_at = EXCLUDED.zadnji_pregled_at,
+                    updated_at = EXCLUDED.updated_at
+                """);
+    }
+
+    private void odbij(String uvjet, String razlog) {
+        jdbcTemplate.update("UPDATE import_tip t SET razlog = ? WHERE t.razlog IS NULL AND " + uvjet, razlog);
+    }
+}
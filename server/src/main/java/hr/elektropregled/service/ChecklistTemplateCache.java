@@ -0,0 +1,221 @@
+package hr.elektropregled.service;
+
+import hr.elektropregled.model.ParametarProvjere;
+import hr.elektropregled.repository.ParametarProvjereRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Predmemorija predložaka checkliste po vrsti uređaja: nepromjenjivi, po {@code redoslijed}
+ * sortirani opisi parametara. Koriste je {@link PostrojenjeService#getChecklist} i validacija
+ * vrijednosti u {@link PregledSyncService}.
+ * <p>
+ * Veličina je ograničena (LRU izbacivanje), unosi istječu nakon {@code cache.checklist.ttl}, a
+ * promjena bilo kojeg parametra (vidi {@link ParametarProvjereListener}) poništava njegovu vrstu.
+ * Učitavanje iz baze radi se izvan locka; generacija sprječava da učitavanje koje je počelo prije
+ * poništavanja vrati stare podatke u predmemoriju.
+ */
+@Component
+public class ChecklistTemplateCache {
+    private final ParametarProvjereRepository parametarProvjereRepository;
+    private final int maxVrsta;
+    private final long ttlNanos;
+
+    private final LinkedHashMap<Integer, Unos> poVrsti = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Integer, Integer> vrstaPoParametru = new HashMap<>();
+    private long generacija;
+
+    private final AtomicLong pogodaka = new AtomicLong();
+    private final AtomicLong promasaja = new AtomicLong();
+    private final AtomicLong izbacenih = new AtomicLong();
+
+    public ChecklistTemplateCache(ParametarProvjereRepository parametarProvjereRepository,
+                                  @Value("${cache.checklist.max-vrsta:256}") int maxVrsta,
+                                  @Value("${cache.checklist.ttl:PT10M}") Duration ttl) {
+        this.parametarProvjereRepository = parametarProvjereRepository;
+        this.maxVrsta = maxVrsta;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Opis parametra provjere; ne ovisi o JPA sesiji i sigurno se dijeli između dretvi.
+     */
+    public record ParametarPredlozak(Integer idParametra,
+                                     String nazParametra,
+                                     String tipPodataka,
+                                     Double minVrijednost,
+                                     Double maxVrijednost,
+                                     String mjernaJedinica,
+                                     Boolean obavezan,
+                                     Integer redoslijed,
+                                     Integer idVrUred) {
+        static ParametarPredlozak of(ParametarProvjere p) {
+            return new ParametarPredlozak(p.getIdParametra(), p.getNazParametra(), p.getTipPodataka(),
+                    p.getMinVrijednost(), p.getMaxVrijednost(), p.getMjernaJedinica(), p.getObavezan(),
+                    p.getRedoslijed(), p.getVrstaUredaja().getIdVrUred());
+        }
+    }
+
+    public record Statistika(int vrsta, long pogodaka, long promasaja, long izbacenih) {
+    }
+
+    private record Unos(List<ParametarPredlozak> parametri, long ucitanoNanos) {
+    }
+
+    /**
+     * Vraća predloške za zadane vrste; vrste kojih nema u predmemoriji učitavaju se jednim upitom.
+     * Vrsta bez parametara preslikava se u praznu listu.
+     */
+    public Map<Integer, List<ParametarPredlozak>> zaVrste(Collection<Integer> vrstaIds) {
+        Map<Integer, List<ParametarPredlozak>> rezultat = new HashMap<>();
+        Set<Integer> nedostaju = new HashSet<>();
+        long pocetnaGeneracija;
+        synchronized (this) {
+            pocetnaGeneracija = generacija;
+            long sada = System.nanoTime();
+            for (Integer vrstaId : vrstaIds) {
+                Unos unos = poVrsti.get(vrstaId);
+                if (unos != null && sada - unos.ucitanoNanos() < ttlNanos) {
+                    rezultat.put(vrstaId, unos.parametri());
+                } else {
+                    nedostaju.add(vrstaId);
+                }
+            }
+        }
+        pogodaka.addAndGet(rezultat.size());
+        if (nedostaju.isEmpty()) {
+            return rezultat;
+        }
+        promasaja.addAndGet(nedostaju.size());
+
+        Map<Integer, List<ParametarPredlozak>> ucitano = new HashMap<>();
+        nedostaju.forEach(id -> ucitano.put(id, new ArrayList<>()));
+        for (ParametarProvjere p : parametarProvjereRepository.findAllByVrstaIdsOrdered(nedostaju)) {
+            ucitano.get(p.getVrstaUredaja().getIdVrUred()).add(ParametarPredlozak.of(p));
+        }
+        ucitano.replaceAll((id, lista) -> List.copyOf(lista));
+
+        synchronized (this) {
+            if (generacija == pocetnaGeneracija) {
+                long sada = System.nanoTime();
+                ucitano.forEach((vrstaId, parametri) -> spremi(vrstaId, new Unos(parametri, sada)));
+            }
+        }
+        rezultat.putAll(ucitano);
+        return rezultat;
+    }
+
+    /**
+     * Vraća predloške za zadane parametre (ključ je id parametra). Nepoznati parametri se
+     * prvo razrješuju na vrstu uređaja; parametri koji ne postoje nisu u rezultatu.
+     */
+    public Map<Integer, ParametarPredlozak> zaParametre(Collection<Integer> parametarIds) {
+        Set<Integer> vrstaIds = new HashSet<>();
+        Set<Integer> nepoznati = new HashSet<>();
+        synchronized (this) {
+            for (Integer parametarId : parametarIds) {
+                Integer vrstaId = vrstaPoParametru.get(parametarId);
+                if (vrstaId != null) {
+                    vrstaIds.add(vrstaId);
+                } else {
+                    nepoznati.add(parametarId);
+                }
+            }
+        }
+        if (!nepoznati.isEmpty()) {
+            vrstaIds.addAll(parametarProvjereRepository.findVrstaIdsByParametarIds(nepoznati));
+        }
+
+        Map<Integer, ParametarPredlozak> rezultat = new HashMap<>();
+        Set<Integer> trazeni = new HashSet<>(parametarIds);
+        for (List<ParametarPredlozak> parametri : zaVrste(vrstaIds).values()) {
+            for (ParametarPredlozak p : parametri) {
+                if (trazeni.contains(p.idParametra())) {
+                    rezultat.put(p.idParametra(), p);
+                }
+            }
+        }
+        return rezultat;
+    }
+
+    /**
+     * Poništava predložak vrste odmah i ponovno nakon commita trenutne transakcije, kako ga
+     * istovremeni zahtjev ne bi između toga ponovno učitao sa starim podacima.
+     */
+    public void invalidiraj(Integer vrstaId) {
+        ukloni(vrstaId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ukloni(vrstaId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Poništava vrstu kojoj parametar sada pripada i vrstu pod kojom je bio u predmemoriji
+     * (razlikuju se ako je parametar premješten na drugu vrstu uređaja).
+     */
+    public void invalidirajParametar(Integer parametarId, Integer vrstaId) {
+        Integer prethodnaVrsta;
+        synchronized (this) {
+            prethodnaVrsta = vrstaPoParametru.get(parametarId);
+        }
+        if (vrstaId != null) {
+            invalidiraj(vrstaId);
+        }
+        if (prethodnaVrsta != null && !prethodnaVrsta.equals(vrstaId)) {
+            invalidiraj(prethodnaVrsta);
+        }
+    }
+
+    public synchronized void invalidirajSve() {
+        generacija++;
+        poVrsti.clear();
+        vrstaPoParametru.clear();
+    }
+
+    public synchronized Statistika statistika() {
+        return new Statistika(poVrsti.size(), pogodaka.get(), promasaja.get(), izbacenih.get());
+    }
+
+    private synchronized void ukloni(Integer vrstaId) {
+        generacija++;
+        Unos unos = poVrsti.remove(vrstaId);
+        if (unos != null) {
+            unos.parametri().forEach(p -> vrstaPoParametru.remove(p.idParametra()));
+        }
+    }
+
+    private void spremi(Integer vrstaId, Unos unos) {
+        Unos stari = poVrsti.put(vrstaId, unos);
+        if (stari != null) {
+            stari.parametri().forEach(p -> vrstaPoParametru.remove(p.idParametra()));
+        }
+        unos.parametri().forEach(p -> vrstaPoParametru.put(p.idParametra(), vrstaId));
+
+        Iterator<Map.Entry<Integer, Unos>> it = poVrsti.entrySet().iterator();
+        while (poVrsti.size() > maxVrsta && it.hasNext()) {
+            Map.Entry<Integer, Unos> najstariji = it.next();
+            najstariji.getValue().parametri().forEach(p -> vrstaPoParametru.remove(p.idParametra()));
+            it.remove();
+            izbacenih.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package hr.elektropregled.service;
+
+import hr.elektropregled.model.Korisnik;
+import hr.elektropregled.repository.KorisnikRepository;
+import hr.elektropregled.repository.PostrojenjeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Imenik korisnika (po ID-u i korisničkom imenu) i postrojenja u memoriji. Obje tablice su male i
+ * gotovo se ne mijenjaju, pa sinkronizacija i autorizacija ne idu u bazu po njih.
+ * <p>
+ * Imenik se učitava pri pokretanju i ponovno nakon commita svake promjene korisnika ili postrojenja
+ * kroz aplikaciju (vidi {@link ImenikListener}) te pri rastu verzije kataloga. Izmjene korisnika
+ * izravno u bazi nisu praćene, pa snimka vrijedi najdulje {@code imenik.ttl}: nakon toga se prvi
+ * pristup učitava ponovno, čime se bez restarta vide obrisani korisnici i postrojenja. Promašaj
+ * također učitava imenik ponovno (read-through), najčešće jednom u {@code imenik.min-ponovno-ucitavanje},
+ * kako nepostojeći ID-evi ne bi svaki put išli u bazu. Odluke koje ne smiju čekati istek snimke
+ * (uloga ADMIN, osvježavanje tokena) čitaju korisnika iz baze u {@link AuthService}-u.
+ */
+@Component
+public class Imenik {
+    private static final Logger log = LoggerFactory.getLogger(Imenik.class);
+
+    private final KorisnikRepository korisnikRepository;
+    private final PostrojenjeRepository postrojenjeRepository;
+    private final long minPonovnoNanos;
+    private final long ttlNanos;
+
+    private volatile Snimka snimka;
+    // Učitavanje koje je počelo prije promjene ne smije vratiti staru snimku u imenik
+    private final AtomicLong generacija = new AtomicLong();
+    private long zadnjeUcitanoNanos;
+
+    public Imenik(KorisnikRepository korisnikRepository,
+                  PostrojenjeRepository postrojenjeRepository,
+                  @Value("${imenik.min-ponovno-ucitavanje:PT5S}") Duration minPonovno,
+                  @Value("${imenik.ttl:PT1M}") Duration ttl) {
+        this.korisnikRepository = korisnikRepository;
+        this.postrojenjeRepository = postrojenjeRepository;
+        this.minPonovnoNanos = minPonovno.toNanos();
+        this.ttlNanos = ttl.toNanos();
+        this.zadnjeUcitanoNanos = System.nanoTime() - minPonovnoNanos;
+    }
+
+    /**
+     * Podaci korisnika potrebni za autorizaciju; bez lozinke.
+     */
+    public record KorisnikZapis(Integer idKorisnika, String korisnickoIme, String uloga) {
+        public static KorisnikZapis od(Korisnik korisnik) {
+            return new KorisnikZapis(korisnik.getIdKorisnika(), korisnik.getKorisnickoIme(), korisnik.getUloga());
+        }
+
+        public boolean isAdmin() {
+            return "ADMIN".equalsIgnoreCase(uloga);
+        }
+    }
+
+    private record Snimka(Map<Integer, KorisnikZapis> poId, Map<String, KorisnikZapis> poImenu, Set<Integer> postrojenja,
+                          long ucitanoNanos) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ucitajPriPokretanju() {
+        Snimka s = ucitaj();
+        log.info("Imenik učitan: {} korisnika, {} postrojenja", s.poId().size(), s.postrojenja().size());
+    }
+
+    public Optional<KorisnikZapis> korisnik(Integer idKorisnika) {
+        if (idKorisnika == null) {
+            return Optional.empty();
+        }
+        KorisnikZapis zapis = snimka().poId().get(idKorisnika);
+        if (zapis == null && ponovnoUcitaj()) {
+            zapis = snimka().poId().get(idKorisnika);
+        }
+        return Optional.ofNullable(zapis);
+    }
+
+    public Optional<KorisnikZapis> korisnik(String korisnickoIme) {
+        if (korisnickoIme == null) {
+            return Optional.empty();
+        }
+        KorisnikZapis zapis = snimka().poImenu().get(korisnickoIme);
+        if (zapis == null && ponovnoUcitaj()) {
+            zapis = snimka().poImenu().get(korisnickoIme);
+        }
+        return Optional.ofNullable(zapis);
+    }
+
+    public boolean postojiPostrojenje(Integer idPostr) {
+        if (idPostr == null) {
+            return false;
+        }
+        return snimka().postrojenja().contains(idPostr) || (ponovnoUcitaj() && snimka().postrojenja().contains(idPostr));
+    }
+
+    /**
+     * Odbacuje imenik odmah i ponovno nakon commita trenutne transakcije, kako ga istovremeni
+     * zahtjev ne bi između toga učitao sa starim podacima.
+     */
+    public void zastarjelo() {
+        odbaci();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    odbaci();
+                }
+            });
+        }
+    }
+
+    private void odbaci() {
+        generacija.incrementAndGet();
+        snimka = null;
+    }
+
+    private Snimka snimka() {
+        Snimka s = snimka;
+        return s != null && System.nanoTime() - s.ucitanoNanos() < ttlNanos ? s : ucitajIstekao();
+    }
+
+    // Više dretvi može istovremeno naići na istekao imenik; učitava ga samo prva
+    private synchronized Snimka ucitajIstekao() {
+        Snimka s = snimka;
+        return s != null && System.nanoTime() - s.ucitanoNanos() < ttlNanos ? s : ucitaj();
+    }
+
+    private synchronized boolean ponovnoUcitaj() {
+        if (System.nanoTime() - zadnjeUcitanoNanos < minPonovnoNanos) {
+            return false;
+        }
+        ucitaj();
+        return true;
+    }
+
+    private synchronized Snimka ucitaj() {
+        long pocetnaGeneracija = generacija.get();
+        Map<Integer, KorisnikZapis> poId = new HashMap<>();
+        Map<String, KorisnikZapis> poImenu = new HashMap<>();
+        long pocetak = System.nanoTime();
+        for (Korisnik k : korisnikRepository.findAll()) {
+            KorisnikZapis zapis = KorisnikZapis.od(k);
+            poId.put(zapis.idKorisnika(), zapis);
+            poImenu.put(zapis.korisnickoIme(), zapis);
+        }
+        Snimka s = new Snimka(Map.copyOf(poId), Map.copyOf(poImenu), Set.copyOf(postrojenjeRepository.findAllIds()),
+                pocetak);
+        if (generacija.get() == pocetnaGeneracija) {
+            snimka = s;
+        }
+        zadnjeUcitanoNanos = System.nanoTime();
+        return s;
+    }
+}
@@ -0,0 +1,28 @@
+package hr.elektropregled.service;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener na korisniku i postrojenju: svaka promjena kroz aplikaciju odbacuje {@link Imenik},
+ * koji se ponovno učitava pri sljedećem čitanju nakon commita. Imenik ovisi o repozitorijima, a
+ * Hibernate traži listener dok gradi EntityManagerFactory, pa se dohvaća tek u callbacku.
+ */
+@Component
+public class ImenikListener {
+    private final ObjectProvider<Imenik> imenik;
+
+    public ImenikListener(ObjectProvider<Imenik> imenik) {
+        this.imenik = imenik;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void promijenjen(Object entitet) {
+        imenik.getObject().zastarjelo();
+    }
+}
@@ -0,0 +1,57 @@
+package hr.elektropregled.service;
+
+import hr.elektropregled.model.KatalogPromjena;
+import hr.elektropregled.model.Polje;
+import hr.elektropregled.model.Postrojenje;
+import hr.elektropregled.model.Uredaj;
+import hr.elektropregled.model.VrstaUredaja;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener na postrojenju, polju, uređaju i vrsti uređaja: promjenu kroz aplikaciju bilježi
+ * u dnevnik kataloga i povećava verziju kataloga, pa se mijenja ETag i delta sinkronizacija je
+ * vidi. Parametre provjere bilježi {@link ParametarProvjereListener}. Kad su na PostgreSQL-u
+ * instalirani okidači iz V8, oni bilježe promjenu (i onu napravljenu izravno u bazi), a
+ * {@link VerzijaPodatakaService#zabiljeziPromjenu} ne radi ništa. Servis se dohvaća tek u
+ * callbacku jer Hibernate traži listener dok se EntityManagerFactory još gradi.
+ */
+@Component
+public class KatalogListener {
+    private final ObjectProvider<VerzijaPodatakaService> verzijaPodatakaService;
+
+    public KatalogListener(ObjectProvider<VerzijaPodatakaService> verzijaPodatakaService) {
+        this.verzijaPodatakaService = verzijaPodatakaService;
+    }
+
+    @PostPersist
+    public void dodan(Object entitet) {
+        promijenjen(entitet, KatalogPromjena.INSERT);
+    }
+
+    @PostUpdate
+    public void izmijenjen(Object entitet) {
+        promijenjen(entitet, KatalogPromjena.UPDATE);
+    }
+
+    @PostRemove
+    public void obrisan(Object entitet) {
+        promijenjen(entitet, KatalogPromjena.DELETE);
+    }
+
+    private void promijenjen(Object entitet, String operacija) {
+        VerzijaPodatakaService verzijaPodatakaService = this.verzijaPodatakaService.getObject();
+        if (entitet instanceof Postrojenje postrojenje) {
+            verzijaPodatakaService.zabiljeziPromjenu("postrojenje", postrojenje.getIdPostr(), operacija);
+        } else if (entitet instanceof Polje polje) {
+            verzijaPodatakaService.zabiljeziPromjenu("polje", polje.getIdPolje(), operacija);
+        } else if (entitet instanceof Uredaj uredaj) {
+            verzijaPodatakaService.zabiljeziPromjenu("uredaj", uredaj.getIdUred(), operacija);
+        } else if (entitet instanceof VrstaUredaja vrsta) {
+            verzijaPodatakaService.zabiljeziPromjenu("vrsta_uredaja", vrsta.getIdVrUred(), operacija);
+        }
+    }
+}
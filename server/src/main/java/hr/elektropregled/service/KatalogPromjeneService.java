@@ -0,0 +1,167 @@
+package hr.elektropregled.service;
+
+import hr.elektropregled.dto.KatalogPromjeneResponse;
+import hr.elektropregled.dto.KatalogPromjeneResponse.ParametarZapis;
+import hr.elektropregled.dto.KatalogPromjeneResponse.PoljeZapis;
+import hr.elektropregled.dto.KatalogPromjeneResponse.PostrojenjeZapis;
+import hr.elektropregled.dto.KatalogPromjeneResponse.UredajZapis;
+import hr.elektropregled.dto.KatalogPromjeneResponse.VrstaUredajaZapis;
+import hr.elektropregled.model.KatalogPromjena;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * Delta sinkronizacija referentnih podataka: vraća retke postrojenja, polja, vrsta uređaja,
+ * uređaja i parametara provjere promijenjene nakon verzije kataloga koju klijent već ima.
+ * Dnevnik {@code katalog_promjena} određuje koji su retci promijenjeni, a njihov sadržaj se
+ * čita iz trenutnog stanja tablica; redak kojeg više nema vraća se kao obrisan.
+ */
+@Service
+public class KatalogPromjeneService {
+    private static final int VELICINA_KOMADA = 1000;
+
+    private static final String POSTROJENJA = "SELECT id_postr, ozn_vr_postr, naz_postr, lokacija FROM postrojenje";
+    private static final String POLJA = "SELECT id_polje, nap_razina, ozn_vr_polje, naz_polje, id_postr FROM polje";
+    private static final String VRSTE = "SELECT id_vr_ured, ozn_vr_ured, naz_vr_ured FROM vrsta_uredaja";
+    private static final String UREDAJI = "SELECT id_ured, natp_plocica, tv_broj, id_postr, id_polje, id_vr_ured FROM uredaj";
+    private static final String PARAMETRI = "SELECT id_parametra, naz_parametra, tip_podataka, min_vrijednost, max_vrijednost, " +
+            "mjerna_jedinica, obavezan, redoslijed, opis, id_vr_ured FROM parametar_provjere";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final VerzijaPodatakaService verzijaPodatakaService;
+
+    public KatalogPromjeneService(NamedParameterJdbcTemplate jdbcTemplate,
+                                  VerzijaPodatakaService verzijaPodatakaService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.verzijaPodatakaService = verzijaPodatakaService;
+    }
+
+    /**
+     * Promjene nakon verzije {@code since}. Za {@code since <= 0}, verziju stariju od očišćenog
+     * dijela dnevnika, nepoznatu (veću od trenutne) verziju ili TRUNCATE neke tablice vraća se
+     * cijeli katalog s oznakom {@code potpuno}.
+     */
+    @Transactional(readOnly = true)
+    public KatalogPromjeneResponse promjeneOd(long since) {
+        KatalogPromjeneResponse odgovor = new KatalogPromjeneResponse();
+        long verzija = verzijaPodatakaService.katalog();
+        odgovor.setVerzija(verzija);
+        if (since == verzija) {
+            return odgovor;
+        }
+
+        Map<String, Set<Integer>> promijenjeno = since > 0 && since < verzija && since >= verzijaPodatakaService.obrezanoDo()
+                ? promijenjeniRetci(since, verzija)
+                : null;
+        if (promijenjeno == null) {
+            odgovor.setPotpuno(true);
+            odgovor.setPostrojenja(jdbcTemplate.query(POSTROJENJA + " ORDER BY id_postr", POSTROJENJE));
+            odgovor.setPolja(jdbcTemplate.query(POLJA + " ORDER BY id_polje", POLJE));
+            odgovor.setVrsteUredaja(jdbcTemplate.query(VRSTE + " ORDER BY id_vr_ured", VRSTA));
+            odgovor.setUredaji(jdbcTemplate.query(UREDAJI + " ORDER BY id_ured", UREDAJ));
+            odgovor.setParametri(jdbcTemplate.query(PARAMETRI + " ORDER BY id_parametra", PARAMETAR));
+            return odgovor;
+        }
+
+        KatalogPromjeneResponse.Obrisano obrisano = odgovor.getObrisano();
+        odgovor.setPostrojenja(ucitaj(POSTROJENJA, "id_postr", promijenjeno.get("postrojenje"), POSTROJENJE,
+                PostrojenjeZapis::getIdPostr, obrisano.getPostrojenja()));
+        odgovor.setPolja(ucitaj(POLJA, "id_polje", promijenjeno.get("polje"), POLJE,
+                PoljeZapis::getIdPolje, obrisano.getPolja()));
+        odgovor.setVrsteUredaja(ucitaj(VRSTE, "id_vr_ured", promijenjeno.get("vrsta_uredaja"), VRSTA,
+                VrstaUredajaZapis::getIdVrUred, obrisano.getVrsteUredaja()));
+        odgovor.setUredaji(ucitaj(UREDAJI, "id_ured", promijenjeno.get("uredaj"), UREDAJ,
+                UredajZapis::getIdUred, obrisano.getUredaji()));
+        odgovor.setParametri(ucitaj(PARAMETRI, "id_parametra", promijenjeno.get("parametar_provjere"), PARAMETAR,
+                ParametarZapis::getIdParametra, obrisano.getParametri()));
+        return odgovor;
+    }
+
+    /**
+     * Briše zapise dnevnika starije od zadanog trenutka i pamti najveću obrisanu verziju.
+     * Vraća broj obrisanih zapisa.
+     */
+    @Transactional
+    public int obrisiStarije(LocalDateTime granica) {
+        MapSqlParameterSource parametri = new MapSqlParameterSource("granica", Timestamp.valueOf(granica));
+        Long najveca = jdbcTemplate.queryForObject(
+                "SELECT MAX(verzija) FROM katalog_promjena WHERE promijenjeno_at < :granica", parametri, Long.class);
+        if (najveca == null) {
+            return 0;
+        }
+        verzijaPodatakaService.postaviObrezanoDo(najveca);
+        return jdbcTemplate.update("DELETE FROM katalog_promjena WHERE verzija <= :verzija", Map.of("verzija", najveca));
+    }
+
+    // null znači da delta nije moguća (TRUNCATE u međuvremenu)
+    private Map<String, Set<Integer>> promijenjeniRetci(long since, long verzija) {
+        Map<String, Set<Integer>> promijenjeno = new HashMap<>();
+        boolean[] truncate = {false};
+        jdbcTemplate.query("""
+                SELECT tablica, id_zapisa, operacija FROM katalog_promjena
+                WHERE verzija > :since AND verzija <= :verzija
+                """, Map.of("since", since, "verzija", verzija), rs -> {
+            if (KatalogPromjena.TRUNCATE.equals(rs.getString("operacija"))) {
+                truncate[0] = true;
+            }
+            promijenjeno.computeIfAbsent(rs.getString("tablica"), t -> new TreeSet<>()).add(rs.getInt("id_zapisa"));
+        });
+        return truncate[0] ? null : promijenjeno;
+    }
+
+    private <T> List<T> ucitaj(String sql, String stupacId, Set<Integer> ids, RowMapper<T> mapper,
+                               Function<T, Integer> id, List<Integer> obrisano) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Integer> sviIds = new ArrayList<>(ids);
+        List<T> retci = new ArrayList<>();
+        for (int i = 0; i < sviIds.size(); i += VELICINA_KOMADA) {
+            Collection<Integer> komad = sviIds.subList(i, Math.min(i + VELICINA_KOMADA, sviIds.size()));
+            retci.addAll(jdbcTemplate.query(sql + " WHERE " + stupacId + " IN (:ids) ORDER BY " + stupacId,
+                    Map.of("ids", komad), mapper));
+        }
+        Set<Integer> pronadeni = new TreeSet<>();
+        retci.forEach(r -> pronadeni.add(id.apply(r)));
+        for (Integer trazeni : sviIds) {
+            if (!pronadeni.contains(trazeni)) {
+                obrisano.add(trazeni);
+            }
+        }
+        return retci;
+    }
+
+    private static final RowMapper<PostrojenjeZapis> POSTROJENJE = (rs, i) -> new PostrojenjeZapis(
+            rs.getInt("id_postr"), rs.getString("ozn_vr_postr"), rs.getString("naz_postr"), rs.getString("lokacija"));
+
+    private static final RowMapper<PoljeZapis> POLJE = (rs, i) -> new PoljeZapis(
+            rs.getInt("id_polje"), rs.getDouble("nap_razina"), rs.getString("ozn_vr_polje"), rs.getString("naz_polje"),
+            rs.getInt("id_postr"));
+
+    private static final RowMapper<VrstaUredajaZapis> VRSTA = (rs, i) -> new VrstaUredajaZapis(
+            rs.getInt("id_vr_ured"), rs.getString("ozn_vr_ured"), rs.getString("naz_vr_ured"));
+
+    private static final RowMapper<UredajZapis> UREDAJ = (rs, i) -> new UredajZapis(
+            rs.getInt("id_ured"), rs.getString("natp_plocica"), rs.getString("tv_broj"), rs.getInt("id_postr"),
+            rs.getObject("id_polje", Integer.class), rs.getInt("id_vr_ured"));
+
+    private static final RowMapper<ParametarZapis> PARAMETAR = (rs, i) -> new ParametarZapis(
+            rs.getInt("id_parametra"), rs.getString("naz_parametra"), rs.getString("tip_podataka"),
+            rs.getObject("min_vrijednost", Double.class), rs.getObject("max_vrijednost", Double.class),
+            rs.getString("mjerna_jedinica"), rs.getBoolean("obavezan"), rs.getInt("redoslijed"), rs.getString("opis"),
+            rs.getInt("id_vr_ured"));
+}
@@ -0,0 +1,51 @@
+package hr.elektropregled.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Noćno čišćenje dnevnika promjena kataloga. Klijent čija je zadnja verzija starija od
+ * obrisanog dijela dobiva cijeli katalog umjesto delte. Uz to periodički čita verziju kataloga,
+ * tako da se izmjene izravno u bazi odraze na predmemorije i kad nitko ne traži ETag.
+ */
+@Component
+public class KatalogPromjeneWorker {
+    private static final Logger log = LoggerFactory.getLogger(KatalogPromjeneWorker.class);
+
+    private final KatalogPromjeneService katalogPromjeneService;
+    private final VerzijaPodatakaService verzijaPodatakaService;
+
+    @Value("${katalog.promjene.zadrzavanje:P90D}")
+    private Duration zadrzavanje;
+
+    public KatalogPromjeneWorker(KatalogPromjeneService katalogPromjeneService,
+                                 VerzijaPodatakaService verzijaPodatakaService) {
+        this.katalogPromjeneService = katalogPromjeneService;
+        this.verzijaPodatakaService = verzijaPodatakaService;
+    }
+
+    /**
+     * Izmjena izravno u bazi (okidači iz migracija V7/V8 povećavaju verziju kataloga) vidi se u
+     * L2 predmemoriji i predlošcima najkasnije jedan {@code katalog.pracenje-ms} nakon commita,
+     * osim ako ju ranije otkrije neki ETag zahtjev. Ako ovo praćenje ne radi (npr. zaustavljen
+     * scheduler), jedina granica je TTL regija iz ehcache.xml (30 min).
+     */
+    @Scheduled(fixedDelayString = "${katalog.pracenje-ms:15000}")
+    public void pratiKatalog() {
+        verzijaPodatakaService.katalog();
+    }
+
+    @Scheduled(cron = "${katalog.promjene.ciscenje-cron:0 30 4 * * *}")
+    public void ocisti() {
+        int obrisano = katalogPromjeneService.obrisiStarije(LocalDateTime.now().minus(zadrzavanje));
+        if (obrisano > 0) {
+            log.info("Iz dnevnika promjena kataloga obrisano {} zapisa", obrisano);
+        }
+    }
+}
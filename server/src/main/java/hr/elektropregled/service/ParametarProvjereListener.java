@@ -0,0 +1,52 @@
+package hr.elektropregled.service;
+
+import hr.elektropregled.model.KatalogPromjena;
+import hr.elektropregled.model.ParametarProvjere;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener koji nakon svake promjene parametra provjere poništava predložak njegove
+ * vrste uređaja u {@link ChecklistTemplateCache} i bilježi promjenu u dnevnik kataloga.
+ * Hibernate ga dohvaća kao Spring bean. Izmjene izravno u bazi (SQL skripte) ne prolaze kroz
+ * listener; za njih na PostgreSQL-u dnevnik pune okidači, a predložak se poništava kad
+ * {@link VerzijaPodatakaService} primijeti noviju verziju kataloga.
+ * <p>
+ * Hibernate traži listener dok se EntityManagerFactory još gradi, a obje ovisnosti trebaju
+ * repozitorije (dakle tu istu EMF), pa se dohvaćaju tek u callbacku preko {@link ObjectProvider}-a.
+ */
+@Component
+public class ParametarProvjereListener {
+    private final ObjectProvider<ChecklistTemplateCache> checklistTemplateCache;
+    private final ObjectProvider<VerzijaPodatakaService> verzijaPodatakaService;
+
+    public ParametarProvjereListener(ObjectProvider<ChecklistTemplateCache> checklistTemplateCache,
+                                     ObjectProvider<VerzijaPodatakaService> verzijaPodatakaService) {
+        this.checklistTemplateCache = checklistTemplateCache;
+        this.verzijaPodatakaService = verzijaPodatakaService;
+    }
+
+    @PostPersist
+    public void dodan(ParametarProvjere parametar) {
+        promijenjen(parametar, KatalogPromjena.INSERT);
+    }
+
+    @PostUpdate
+    public void izmijenjen(ParametarProvjere parametar) {
+        promijenjen(parametar, KatalogPromjena.UPDATE);
+    }
+
+    @PostRemove
+    public void obrisan(ParametarProvjere parametar) {
+        promijenjen(parametar, KatalogPromjena.DELETE);
+    }
+
+    private void promijenjen(ParametarProvjere parametar, String operacija) {
+        Integer vrstaId = parametar.getVrstaUredaja() != null ? parametar.getVrstaUredaja().getIdVrUred() : null;
+        checklistTemplateCache.getObject().invalidirajParametar(parametar.getIdParametra(), vrstaId);
+        verzijaPodatakaService.getObject().zabiljeziPromjenu("parametar_provjere", parametar.getIdParametra(), operacija);
+    }
+}
@@ -1,64 +1,82 @@
 package hr.elektropregled.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import hr.elektropregled.dto.ChecklistDeviceDto;
 import hr.elektropregled.dto.ChecklistParametarDto;
+import hr.elektropregled.dto.ChecklistV2Response;
 import hr.elektropregled.dto.PoljeDto;
+import hr.elektropregled.dto.PostrojenjeBundleDto;
 import hr.elektropregled.dto.PostrojenjeSummaryDto;
 import hr.elektropregled.exception.NotFoundException;
 import hr.elektropregled.exception.ValidationException;
-import hr.elektropregled.model.ParametarProvjere;
-import hr.elektropregled.model.StavkaPregleda;
+import hr.elektropregled.model.Polje;
+import hr.elektropregled.model.PostrojenjeStats;
+import hr.elektropregled.model.StavkaLatest;
 import hr.elektropregled.model.Uredaj;
-import hr.elektropregled.repository.ParametarProvjereRepository;
+import hr.elektropregled.model.VrstaUredaja;
 import hr.elektropregled.repository.PoljeRepository;
 import hr.elektropregled.repository.PostrojenjeRepository;
-import hr.elektropregled.repository.PregledRepository;
-import hr.elektropregled.repository.StavkaPregledaRepository;
+import hr.elektropregled.repository.PostrojenjeStatsRepository;
+import hr.elektropregled.repository.StavkaLatestRepository;
 import hr.elektropregled.repository.UredajRepository;
+import hr.elektropregled.service.ChecklistTemplateCache.ParametarPredlozak;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class PostrojenjeService {
+    /** Nakon koliko uređaja paketa se izlazni tok prazni prema klijentu. */
+    private static final int BUNDLE_FLUSH_SVAKIH = 50;
+
     private final PostrojenjeRepository postrojenjeRepository;
-    private final PregledRepository pregledRepository;
+    private final PostrojenjeStatsRepository postrojenjeStatsRepository;
     private final UredajRepository uredajRepository;
-    private final ParametarProvjereRepository parametarProvjereRepository;
-    private final StavkaPregledaRepository stavkaPregledaRepository;
+    private final ChecklistTemplateCache checklistTemplateCache;
+    private final StavkaLatestRepository stavkaLatestRepository;
     private final PoljeRepository poljeRepository;
 
     public PostrojenjeService(PostrojenjeRepository postrojenjeRepository,
-                              PregledRepository pregledRepository,
+                              PostrojenjeStatsRepository postrojenjeStatsRepository,
                               UredajRepository uredajRepository,
-                              ParametarProvjereRepository parametarProvjereRepository,
-                              StavkaPregledaRepository stavkaPregledaRepository,
+                              ChecklistTemplateCache checklistTemplateCache,
+                              StavkaLatestRepository stavkaLatestRepository,
                               PoljeRepository poljeRepository) {
         this.postrojenjeRepository = postrojenjeRepository;
-        this.pregledRepository = pregledRepository;
+        this.postrojenjeStatsRepository = postrojenjeStatsRepository;
         this.uredajRepository = uredajRepository;
-        this.parametarProvjereRepository = parametarProvjereRepository;
-        this.stavkaPregledaRepository = stavkaPregledaRepository;
+        this.checklistTemplateCache = checklistTemplateCache;
+        this.stavkaLatestRepository = stavkaLatestRepository;
         this.poljeRepository = poljeRepository;
     }
 
+    /**
+     * Lista za početni ekran: postrojenja i njihova statistika iz postrojenje_stats (jedan red po
+     * postrojenju), bez agregacije nad tablicom pregled.
+     */
+    @Transactional(readOnly = true)
+    @Timed("elektropregled.postrojenja.popis")
     public List<PostrojenjeSummaryDto> listPostrojenjaWithStats() {
-        Map<Integer, PregledRepository.PostrojenjePregledAgg> aggByPostrojenje = pregledRepository.aggregateByPostrojenje()
+        Map<Integer, PostrojenjeStats> statsByPostrojenje = postrojenjeStatsRepository.findAll()
                 .stream()
-                .collect(Collectors.toMap(PregledRepository.PostrojenjePregledAgg::getIdPostr, a -> a));
+                .collect(Collectors.toMap(PostrojenjeStats::getIdPostr, s -> s));
 
         return postrojenjeRepository.findAll(Sort.by("idPostr")).stream()
                 .map(p -> {
-                    PregledRepository.PostrojenjePregledAgg agg = aggByPostrojenje.get(p.getIdPostr());
-                    Long total = agg != null ? agg.getTotal() : 0L;
-                    LocalDateTime lastDate = agg != null ? agg.getLastDate() : null;
-                    String lastUser = agg != null ? agg.getZadnjiKorisnik() : null;
+                    PostrojenjeStats stats = statsByPostrojenje.get(p.getIdPostr());
+                    Long total = stats != null ? stats.getUkupnoPregleda() : 0L;
+                    LocalDateTime lastDate = stats != null ? stats.getZadnjiPregledAt() : null;
+                    String lastUser = stats != null ? stats.getZadnjiKorisnik() : null;
                     return new PostrojenjeSummaryDto(
                             p.getIdPostr(),
                             p.getNazPostr(),
@@ -72,10 +90,19 @@ public class PostrojenjeService {
                 .toList();
     }
 
+    @Timed("elektropregled.postrojenja.polja")
     public List<PoljeDto> listPolja(Integer postrojenjeId) {
-        postrojenjeRepository.findById(postrojenjeId)
-                .orElseThrow(() -> new NotFoundException("Postrojenje nije pronađeno"));
+        provjeriPostojanje(postrojenjeId);
+        return poljaPostrojenja(postrojenjeId);
+    }
+
+    public void provjeriPostojanje(Integer postrojenjeId) {
+        if (!postrojenjeRepository.existsById(postrojenjeId)) {
+            throw new NotFoundException("Postrojenje nije pronađeno");
+        }
+    }
 
+    private List<PoljeDto> poljaPostrojenja(Integer postrojenjeId) {
         List<PoljeDto> result = new ArrayList<>();
 
         // Dohvati polja s brojem uređaja
@@ -99,108 +126,229 @@ public class PostrojenjeService {
         return result;
     }
 
+    /**
+     * Gradi checklistu iz fiksnog broja upita, neovisno o broju uređaja: provjera postrojenja,
+     * uređaji s vrstom i poljem (JOIN FETCH), predlošci parametara za sve vrste odjednom i zadnje
+     * vrijednosti iz tablice stavka_latest (jedan red po paru uređaj/parametar, neovisno o duljini povijesti). Predlošci se čitaju iz {@link ChecklistTemplateCache}, pa se
+     * njihov upit izvršava samo za vrste koje još nisu u predmemoriji. Sastavljanje se radi u memoriji.
+     */
+    @Transactional(readOnly = true)
+    @Timed(value = "elektropregled.postrojenja.checklist", extraTags = {"verzija", "v1"})
     public List<ChecklistDeviceDto> getChecklist(Integer postrojenjeId, Integer idPolje) {
-        postrojenjeRepository.findById(postrojenjeId)
-                .orElseThrow(() -> new NotFoundException("Postrojenje nije pronađeno"));
-
-        if (idPolje == null) {
-            throw new ValidationException("Parametar id_polje je obavezan");
-        }
-
-        // Dohvati uređaje za odabrano polje (ili null za direktno na postrojenju)
-        List<Uredaj> uredaji;
-        if (idPolje == 0) {
-            // Virtualno polje: uređaji bez polja
-            uredaji = uredajRepository.findByPostrojenje_IdPostrAndPoljeIsNullOrderByIdUredAsc(postrojenjeId);
-        } else {
-            uredaji = uredajRepository.findByPostrojenje_IdPostrAndPolje_IdPoljeOrderByIdUredAsc(postrojenjeId, idPolje);
-        }
-
+        List<Uredaj> uredaji = uredajiPolja(postrojenjeId, idPolje);
         if (uredaji.isEmpty()) {
             return List.of();
         }
 
-        // Batch query: dohvati sve zadnje stavke za sve uređaje odjednom
-        List<Integer> uredajIds = uredaji.stream().map(Uredaj::getIdUred).toList();
-        List<StavkaPregleda> latestStavke = stavkaPregledaRepository.findLatestByUredajIds(uredajIds);
+        Map<Integer, List<ParametarPredlozak>> parametriPoVrsti = predlosci(uredaji);
 
-        // Mapa: (idUred, idParametra) -> StavkaPregleda
-        Map<String, StavkaPregleda> stavkaMap = latestStavke.stream()
-                .collect(Collectors.toMap(
-                        s -> s.getUredaj().getIdUred() + "_" + s.getParametarProvjere().getIdParametra(),
-                        s -> s
-                ));
+        // Batch query: dohvati sve zadnje vrijednosti za sve uređaje odjednom
+        List<Integer> uredajIds = uredaji.stream().map(Uredaj::getIdUred).toList();
+        Map<String, StavkaLatest> zadnjeVrijednosti = poKljucu(stavkaLatestRepository.findByIdUredIn(uredajIds));
 
         List<ChecklistDeviceDto> deviceDtos = new ArrayList<>();
-
         for (Uredaj uredaj : uredaji) {
-            List<ParametarProvjere> parametri = parametarProvjereRepository
-                    .findByVrstaUredaja_IdVrUredOrderByRedoslijedAsc(uredaj.getVrstaUredaja().getIdVrUred());
-
-            List<ChecklistParametarDto> paramDtoList = new ArrayList<>();
-            for (ParametarProvjere parametar : parametri) {
-                String key = uredaj.getIdUred() + "_" + parametar.getIdParametra();
-                StavkaPregleda last = stavkaMap.get(key);
+            deviceDtos.add(uredajDto(uredaj, parametriPoVrsti, zadnjeVrijednosti));
+        }
+        return deviceDtos;
+    }
 
-                Boolean defaultBool = null;
-                Double defaultNum = null;
-                String defaultTxt = null;
-                LocalDateTime lastAt = null;
+    /**
+     * Ista checklista kao {@link #getChecklist}, iz istih upita, ali normalizirana: predložak
+     * parametara ide jednom po vrsti uređaja, a uređaj nosi samo zadnje vrijednosti parametara
+     * koji ih imaju.
+     */
+    @Transactional(readOnly = true)
+    @Timed(value = "elektropregled.postrojenja.checklist", extraTags = {"verzija", "v2"})
+    public ChecklistV2Response getChecklistV2(Integer postrojenjeId, Integer idPolje) {
+        List<Uredaj> uredaji = uredajiPolja(postrojenjeId, idPolje);
+        ChecklistV2Response odgovor = new ChecklistV2Response();
+        if (uredaji.isEmpty()) {
+            return odgovor;
+        }
 
-                if (last != null) {
-                    defaultBool = last.getVrijednostBool();
-                    defaultNum = last.getVrijednostNum();
-                    defaultTxt = last.getVrijednostTxt();
-                    lastAt = resolvePregledTime(last);
-                } else if ("BOOLEAN".equalsIgnoreCase(parametar.getTipPodataka())) {
-                    defaultBool = Boolean.TRUE; // preselect ispravno
-                }
+        Map<Integer, List<ParametarPredlozak>> parametriPoVrsti = predlosci(uredaji);
+        List<Integer> uredajIds = uredaji.stream().map(Uredaj::getIdUred).toList();
+        Map<String, StavkaLatest> zadnjeVrijednosti = poKljucu(stavkaLatestRepository.findByIdUredIn(uredajIds));
 
-                paramDtoList.add(new ChecklistParametarDto(
-                        parametar.getIdParametra(),
-                        parametar.getNazParametra(),
-                        parametar.getTipPodataka(),
-                        parametar.getMinVrijednost(),
-                        parametar.getMaxVrijednost(),
-                        parametar.getMjernaJedinica(),
-                        parametar.getObavezan(),
-                        parametar.getRedoslijed(),
-                        defaultBool,
-                        defaultNum,
-                        defaultTxt,
-                        lastAt
+        Set<Integer> dodaneVrste = new HashSet<>();
+        for (Uredaj uredaj : uredaji) {
+            VrstaUredaja vrsta = uredaj.getVrstaUredaja();
+            List<ParametarPredlozak> parametri = parametriPoVrsti.getOrDefault(vrsta.getIdVrUred(), List.of());
+            if (dodaneVrste.add(vrsta.getIdVrUred())) {
+                odgovor.getVrste().add(new ChecklistV2Response.VrstaZapis(
+                        vrsta.getIdVrUred(),
+                        vrsta.getOznVrUred(),
+                        vrsta.getNazVrUred(),
+                        parametri.stream()
+                                .map(p -> new ChecklistV2Response.ParametarZapis(p.idParametra(), p.nazParametra(),
+                                        p.tipPodataka(), p.minVrijednost(), p.maxVrijednost(), p.mjernaJedinica(),
+                                        p.obavezan(), p.redoslijed()))
+                                .toList()
                 ));
             }
 
-            Integer poljeId = uredaj.getPolje() != null ? uredaj.getPolje().getIdPolje() : null;
-            String poljeNaz = uredaj.getPolje() != null ? uredaj.getPolje().getNazPolje() : null;
-            Double napRazina = uredaj.getPolje() != null ? uredaj.getPolje().getNapRazina() : null;
+            List<ChecklistV2Response.VrijednostZapis> vrijednosti = new ArrayList<>();
+            for (ParametarPredlozak parametar : parametri) {
+                StavkaLatest last = zadnjeVrijednosti.get(uredaj.getIdUred() + "_" + parametar.idParametra());
+                if (last != null) {
+                    vrijednosti.add(new ChecklistV2Response.VrijednostZapis(parametar.idParametra(),
+                            last.getVrijednostBool(), last.getVrijednostNum(), last.getVrijednostTxt(),
+                            last.getZadnjiPregledAt()));
+                }
+            }
 
-            deviceDtos.add(new ChecklistDeviceDto(
+            Polje polje = uredaj.getPolje();
+            odgovor.getUredaji().add(new ChecklistV2Response.UredajZapis(
                     uredaj.getIdUred(),
                     uredaj.getNatpPlocica(),
                     uredaj.getTvBroj(),
-                    uredaj.getVrstaUredaja().getOznVrUred(),
-                    uredaj.getVrstaUredaja().getNazVrUred(),
-                    poljeId,
-                    poljeNaz,
-                    napRazina,
-                    paramDtoList
+                    vrsta.getIdVrUred(),
+                    polje != null ? polje.getIdPolje() : null,
+                    polje != null ? polje.getNazPolje() : null,
+                    polje != null ? polje.getNapRazina() : null,
+                    vrijednosti
             ));
         }
+        return odgovor;
+    }
 
-        return deviceDtos;
+    // Uređaji odabranog polja; id_polje=0 je virtualno polje s uređajima bez polja
+    private List<Uredaj> uredajiPolja(Integer postrojenjeId, Integer idPolje) {
+        provjeriPostojanje(postrojenjeId);
+
+        if (idPolje == null) {
+            throw new ValidationException("Parametar id_polje je obavezan");
+        }
+
+        if (idPolje == 0) {
+            return uredajRepository.findChecklistUredajiBezPolja(postrojenjeId);
+        }
+        return uredajRepository.findChecklistUredaji(postrojenjeId, idPolje);
     }
 
-    private LocalDateTime resolvePregledTime(StavkaPregleda stavka) {
-        LocalDateTime kraj = stavka.getPregled().getKraj();
-        if (kraj != null) {
-            return kraj;
+    /**
+     * Učitava paket cijelog postrojenja (polja i checklista svih njegovih uređaja) u jednoj read-only
+     * transakciji. Podaci se učitavaju istim upitima kao {@link #getChecklist}, ali jednom za cijelo
+     * postrojenje umjesto po polju. Paket se u tok piše tek nakon što se transakcija zatvori
+     * ({@link #napisiBundle}), pa spor klijent ne drži DB konekciju. Postojanje postrojenja
+     * provjerava pozivatelj.
+     */
+    @Transactional(readOnly = true)
+    @Timed("elektropregled.postrojenja.bundle")
+    public PostrojenjeBundleDto ucitajBundle(Integer postrojenjeId) {
+        List<PoljeDto> polja = poljaPostrojenja(postrojenjeId);
+        List<Uredaj> uredaji = uredajRepository.findBundleUredaji(postrojenjeId);
+        Map<Integer, List<ParametarPredlozak>> parametriPoVrsti = predlosci(uredaji);
+        Map<String, StavkaLatest> zadnjeVrijednosti = poKljucu(stavkaLatestRepository.findByPostrojenje(postrojenjeId));
+
+        List<ChecklistDeviceDto> uredajiDto = new ArrayList<>(uredaji.size());
+        for (Uredaj uredaj : uredaji) {
+            uredajiDto.add(uredajDto(uredaj, parametriPoVrsti, zadnjeVrijednosti));
         }
-        LocalDateTime pocetak = stavka.getPregled().getPocetak();
-        if (pocetak != null) {
-            return pocetak;
+        return new PostrojenjeBundleDto(postrojenjeId, polja, uredajiDto);
+    }
+
+    /**
+     * Piše učitani paket u {@code gen} uređaj po uređaj i šalje ga klijentu svakih
+     * {@value #BUNDLE_FLUSH_SVAKIH} uređaja. Paket je već u memoriji kao DTO, ali se serijalizirani
+     * odgovor ne gradi u međuspremniku i klijent počinje primati podatke odmah. Ne koristi bazu.
+     */
+    public void napisiBundle(PostrojenjeBundleDto paket, JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        gen.writeNumberField("idPostr", paket.getIdPostr());
+        gen.writeArrayFieldStart("polja");
+        for (PoljeDto polje : paket.getPolja()) {
+            gen.writeObject(polje);
+        }
+        gen.writeEndArray();
+
+        gen.writeArrayFieldStart("uredaji");
+        List<ChecklistDeviceDto> uredaji = paket.getUredaji();
+        for (int i = 0; i < uredaji.size(); i++) {
+            gen.writeObject(uredaji.get(i));
+            if ((i + 1) % BUNDLE_FLUSH_SVAKIH == 0) {
+                gen.flush();
+            }
         }
-        return stavka.getPregled().getCreatedAt();
+        gen.writeEndArray();
+        gen.writeEndObject();
+        gen.flush();
+    }
+
+    // Predlošci parametara po vrsti uređaja (sortirani po redoslijedu)
+    private Map<Integer, List<ParametarPredlozak>> predlosci(List<Uredaj> uredaji) {
+        if (uredaji.isEmpty()) {
+            return Map.of();
+        }
+        Set<Integer> vrstaIds = uredaji.stream()
+                .map(u -> u.getVrstaUredaja().getIdVrUred())
+                .collect(Collectors.toSet());
+        return checklistTemplateCache.zaVrste(vrstaIds);
+    }
+
+    private static Map<String, StavkaLatest> poKljucu(List<StavkaLatest> zadnje) {
+        return zadnje.stream()
+                .collect(Collectors.toMap(
+                        v -> v.getIdUred() + "_" + v.getIdParametra(),
+                        v -> v
+                ));
+    }
+
+    private static ChecklistDeviceDto uredajDto(Uredaj uredaj,
+                                                Map<Integer, List<ParametarPredlozak>> parametriPoVrsti,
+                                                Map<String, StavkaLatest> zadnjeVrijednosti) {
+        List<ParametarPredlozak> parametri = parametriPoVrsti.getOrDefault(uredaj.getVrstaUredaja().getIdVrUred(), List.of());
+
+        List<ChecklistParametarDto> paramDtoList = new ArrayList<>();
+        for (ParametarPredlozak parametar : parametri) {
+            String key = uredaj.getIdUred() + "_" + parametar.idParametra();
+            StavkaLatest last = zadnjeVrijednosti.get(key);
+
+            Boolean defaultBool = null;
+            Double defaultNum = null;
+            String defaultTxt = null;
+            LocalDateTime lastAt = null;
+
+            if (last != null) {
+                defaultBool = last.getVrijednostBool();
+                defaultNum = last.getVrijednostNum();
+                defaultTxt = last.getVrijednostTxt();
+                lastAt = last.getZadnjiPregledAt();
+            } else if ("BOOLEAN".equalsIgnoreCase(parametar.tipPodataka())) {
+                defaultBool = Boolean.TRUE; // preselect ispravno
+            }
+
+            paramDtoList.add(new ChecklistParametarDto(
+                    parametar.idParametra(),
+                    parametar.nazParametra(),
+                    parametar.tipPodataka(),
+                    parametar.minVrijednost(),
+                    parametar.maxVrijednost(),
+                    parametar.mjernaJedinica(),
+                    parametar.obavezan(),
+                    parametar.redoslijed(),
+                    defaultBool,
+                    defaultNum,
+                    defaultTxt,
+                    lastAt
+            ));
+        }
+
+        Integer poljeId = uredaj.getPolje() != null ? uredaj.getPolje().getIdPolje() : null;
+        String poljeNaz = uredaj.getPolje() != null ? uredaj.getPolje().getNazPolje() : null;
+        Double napRazina = uredaj.getPolje() != null ? uredaj.getPolje().getNapRazina() : null;
+
+        return new ChecklistDeviceDto(
+                uredaj.getIdUred(),
+                uredaj.getNatpPlocica(),
+                uredaj.getTvBroj(),
+                uredaj.getVrstaUredaja().getOznVrUred(),
+                uredaj.getVrstaUredaja().getNazVrUred(),
+                poljeId,
+                poljeNaz,
+                napRazina,
+                paramDtoList
+        );
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,172 @@
+package hr.elektropregled.service;
+
+import hr.elektropregled.model.Pregled;
+import hr.elektropregled.model.PostrojenjeStats;
+import hr.elektropregled.repository.PostrojenjeStatsRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Održava tablicu {@code postrojenje_stats}: broj pregleda, vrijeme i korisnika zadnjeg pregleda
+ * po postrojenju. Svaki spremljeni pregled povećava brojač i, ako je noviji, zamjenjuje zadnji
+ * pregled. Na PostgreSQL-u je to jedan {@code INSERT ... ON CONFLICT DO UPDATE}, pa istovremene
+ * sinkronizacije za isto postrojenje ne gube inkremente; na ostalim bazama red se zaključava
+ * ({@code SELECT ... FOR UPDATE}) i mijenja kroz JPA.
+ */
+@Service
+public class PostrojenjeStatsService {
+    private static final Logger log = LoggerFactory.getLogger(PostrojenjeStatsService.class);
+
+    private static final Comparator<PostrojenjeStats> NOVIJI = Comparator
+            .comparing(PostrojenjeStats::getZadnjiPregledAt, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(PostrojenjeStats::getZadnjiIdPreg, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private static final String NOVIJI_SQL = "(EXCLUDED.zadnji_pregled_at, EXCLUDED.zadnji_id_preg) > " +
+            "(COALESCE(postrojenje_stats.zadnji_pregled_at, '-infinity'::timestamp), COALESCE(postrojenje_stats.zadnji_id_preg, 0))";
+
+    private static final String UPSERT = """
+            INSERT INTO postrojenje_stats (id_postr, ukupno_pregleda, zadnji_pregled_at, zadnji_id_preg, zadnji_korisnik, verzija, updated_at)
+            VALUES (:idPostr, 1, :zadnjiPregledAt, :idPreg, :korisnik, 1, now())
+            ON CONFLICT (id_postr) DO UPDATE SET
+                ukupno_pregleda = postrojenje_stats.ukupno_pregleda + 1,
+                verzija = postrojenje_stats.verzija + 1,
+                zadnji_pregled_at = CASE WHEN %1$s THEN EXCLUDED.zadnji_pregled_at ELSE postrojenje_stats.zadnji_pregled_at END,
+                zadnji_id_preg = CASE WHEN %1$s THEN EXCLUDED.zadnji_id_preg ELSE postrojenje_stats.zadnji_id_preg END,
+                zadnji_korisnik = CASE WHEN %1$s THEN EXCLUDED.zadnji_korisnik ELSE postrojenje_stats.zadnji_korisnik END,
+                updated_at = now()
+            """.formatted(NOVIJI_SQL);
+
+    // Statistika izračunata iz cijele tablice pregled; :svi = true zanemaruje popis postrojenja
+    private static final String IZ_POVIJESTI = """
+            INSERT INTO postrojenje_stats (id_postr, ukupno_pregleda, zadnji_pregled_at, zadnji_id_preg, zadnji_korisnik, verzija, updated_at)
+            SELECT a.id_postr, a.ukupno, z.zadnji_pregled_at, z.id_preg, z.korisnicko_ime, 1, CURRENT_TIMESTAMP
+            FROM (SELECT id_postr, COUNT(*) AS ukupno FROM pregled
+                  WHERE :svi = TRUE OR id_postr IN (:postrojenja)
+                  GROUP BY id_postr) a
+            JOIN (
+                SELECT DISTINCT ON (p.id_postr)
+                       p.id_postr, COALESCE(p.kraj, p.pocetak, p.created_at) AS zadnji_pregled_at, p.id_preg, k.korisnicko_ime
+                FROM pregled p
+                JOIN korisnik k ON k.id_korisnika = p.id_korisnika
+                WHERE :svi = TRUE OR p.id_postr IN (:postrojenja)
+                ORDER BY p.id_postr, COALESCE(p.kraj, p.pocetak, p.created_at) DESC NULLS LAST, p.id_preg DESC
+            ) z ON z.id_postr = a.id_postr
+            """;
+
+    private final PostrojenjeStatsRepository postrojenjeStatsRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+    private final VerzijaPodatakaService verzijaPodatakaService;
+    private final boolean postgres;
+
+    public PostrojenjeStatsService(PostrojenjeStatsRepository postrojenjeStatsRepository,
+                                   NamedParameterJdbcTemplate jdbcTemplate,
+                                   EntityManager entityManager,
+                                   VerzijaPodatakaService verzijaPodatakaService,
+                                   DataSource dataSource) {
+        this.postrojenjeStatsRepository = postrojenjeStatsRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+        this.verzijaPodatakaService = verzijaPodatakaService;
+        this.postgres = SyncLockService.isPostgres(dataSource);
+    }
+
+    /**
+     * Bilježi upravo spremljeni pregled (mora imati ID i postrojenje) i korisničko ime njegova
+     * korisnika. Poziva se unutar transakcije sinkronizacije.
+     */
+    public void zabiljezi(Pregled pregled, String korisnik) {
+        LocalDateTime vrijeme = pregled.getKraj() != null ? pregled.getKraj()
+                : pregled.getPocetak() != null ? pregled.getPocetak() : pregled.getCreatedAt();
+        Integer idPostr = pregled.getPostrojenje().getIdPostr();
+
+        if (postgres) {
+            jdbcTemplate.update(UPSERT, new MapSqlParameterSource()
+                    .addValue("idPostr", idPostr)
+                    .addValue("zadnjiPregledAt", vrijeme != null ? Timestamp.valueOf(vrijeme) : null)
+                    .addValue("idPreg", pregled.getIdPreg())
+                    .addValue("korisnik", korisnik));
+            return;
+        }
+
+        PostrojenjeStats novi = new PostrojenjeStats(idPostr, 1L, vrijeme, pregled.getIdPreg(), korisnik, 1L, null);
+        PostrojenjeStats stats = postrojenjeStatsRepository.findForUpdate(idPostr).orElse(null);
+        if (stats == null) {
+            entityManager.persist(novi);
+            return;
+        }
+        stats.setUkupnoPregleda(stats.getUkupnoPregleda() + 1);
+        stats.setVerzija(stats.getVerzija() + 1);
+        if (NOVIJI.compare(novi, stats) > 0) {
+            stats.setZadnjiPregledAt(novi.getZadnjiPregledAt());
+            stats.setZadnjiIdPreg(novi.getZadnjiIdPreg());
+            stats.setZadnjiKorisnik(novi.getZadnjiKorisnik());
+        }
+    }
+
+    /**
+     * Gradi cijelu tablicu ispočetka iz tablice pregled. Vraća broj postrojenja s pregledima.
+     * Obnovljeni redovi kreću od verzije 1, pa se povećava verzija kataloga kako se ETag-ovi
+     * ne bi ponovili.
+     */
+    @Transactional
+    public int obnovi() {
+        jdbcTemplate.update("DELETE FROM postrojenje_stats", Map.of());
+        int upisano = jdbcTemplate.update(IZ_POVIJESTI, parametri(true, null));
+        verzijaPodatakaService.povecajKatalog();
+        entityManager.clear();
+        return upisano;
+    }
+
+    /**
+     * Ponovno računa statistiku samo za zadana postrojenja (npr. nakon skupnog unosa).
+     */
+    @Transactional
+    public int obnovi(Collection<Integer> postrojenjeIds) {
+        if (postrojenjeIds.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.update("DELETE FROM postrojenje_stats WHERE id_postr IN (:postrojenja)",
+                Map.of("postrojenja", postrojenjeIds));
+        int upisano = jdbcTemplate.update(IZ_POVIJESTI, parametri(false, postrojenjeIds));
+        verzijaPodatakaService.povecajKatalog();
+        entityManager.clear();
+        return upisano;
+    }
+
+    /**
+     * Baza nadograđena bez migracije V6 (ili razvojna baza s ddl-auto=update) ima praznu tablicu.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillAkoPrazna() {
+        if (postrojenjeStatsRepository.count() == 0) {
+            int upisano = obnovi();
+            if (upisano > 0) {
+                log.info("Tablica postrojenje_stats popunjena za {} postrojenja", upisano);
+            }
+        }
+    }
+
+    private static MapSqlParameterSource parametri(boolean svi, Collection<Integer> postrojenjeIds) {
+        return new MapSqlParameterSource()
+                .addValue("svi", svi)
+                // IN () nije ispravan SQL, pa se za punu obnovu šalje lista s jednim nepostojećim ID-em
+                .addValue("postrojenja", svi ? List.of(-1) : postrojenjeIds);
+    }
+}
@@ -1,46 +1,470 @@
 package hr.elektropregled.service;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hr.elektropregled.dto.PregledSyncBatchRequest;
 import hr.elektropregled.dto.PregledSyncRequest;
+import hr.elektropregled.dto.SyncBatchResponse;
 import hr.elektropregled.dto.SyncResponse;
+import hr.elektropregled.exception.BusinessException;
 import hr.elektropregled.exception.DuplicateSyncException;
+import hr.elektropregled.exception.ForbiddenException;
 import hr.elektropregled.exception.NotFoundException;
 import hr.elektropregled.exception.ValidationException;
 import hr.elektropregled.model.*;
 import hr.elektropregled.repository.*;
+import hr.elektropregled.service.ChecklistTemplateCache.ParametarPredlozak;
+import hr.elektropregled.service.SyncMetrike.Faza;
+import hr.elektropregled.service.SyncMetrike.Nacin;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 
 @Service
 public class PregledSyncService {
+    // PostgreSQL dopušta najviše 32767 bind parametara po upitu
+    private static final int IN_CHUNK_SIZE = 10_000;
+    // Broj stavki koje se kod strujne sinkronizacije drže u memoriji prije upisa (višekratnik jdbc.batch_size)
+    private static final int STREAM_CHUNK_SIZE = 500;
+
     private final PregledRepository pregledRepository;
     private final StavkaPregledaRepository stavkaPregledaRepository;
-    private final KorisnikRepository korisnikRepository;
-    private final PostrojenjeRepository postrojenjeRepository;
+    private final Imenik imenik;
     private final UredajRepository uredajRepository;
     private final ParametarProvjereRepository parametarProvjereRepository;
+    private final SyncZapisRepository syncZapisRepository;
+    private final SyncLockService syncLockService;
+    private final ChecklistTemplateCache checklistTemplateCache;
+    private final StavkaLatestService stavkaLatestService;
+    private final PostrojenjeStatsService postrojenjeStatsService;
+    private final SyncMetrike metrike;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
 
     public PregledSyncService(PregledRepository pregledRepository,
                               StavkaPregledaRepository stavkaPregledaRepository,
-                              KorisnikRepository korisnikRepository,
-                              PostrojenjeRepository postrojenjeRepository,
+                              Imenik imenik,
                               UredajRepository uredajRepository,
-                              ParametarProvjereRepository parametarProvjereRepository) {
+                              ParametarProvjereRepository parametarProvjereRepository,
+                              SyncZapisRepository syncZapisRepository,
+                              SyncLockService syncLockService,
+                              ChecklistTemplateCache checklistTemplateCache,
+                              StavkaLatestService stavkaLatestService,
+                              PostrojenjeStatsService postrojenjeStatsService,
+                              SyncMetrike metrike,
+                              Validator validator,
+                              ObjectMapper objectMapper,
+                              EntityManager entityManager) {
         this.pregledRepository = pregledRepository;
         this.stavkaPregledaRepository = stavkaPregledaRepository;
-        this.korisnikRepository = korisnikRepository;
-        this.postrojenjeRepository = postrojenjeRepository;
+        this.imenik = imenik;
         this.uredajRepository = uredajRepository;
         this.parametarProvjereRepository = parametarProvjereRepository;
+        this.syncZapisRepository = syncZapisRepository;
+        this.syncLockService = syncLockService;
+        this.checklistTemplateCache = checklistTemplateCache;
+        this.stavkaLatestService = stavkaLatestService;
+        this.postrojenjeStatsService = postrojenjeStatsService;
+        this.metrike = metrike;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
     }
 
+    /**
+     * Sinkronizira pregled. Ako je pregled s istim lokalnim ID-om već sinkroniziran (npr. klijent
+     * ponavlja zahtjev nakon timeouta), vraća izvorna mapiranja ID-eva umjesto greške.
+     * Istovremeni zahtjevi za isti pregled se serijaliziraju lockom po lokalnom ID-u, pa drugi
+     * zahtjev nakon commita prvoga dobiva isti odgovor umjesto unique constraint greške.
+     */
     @Transactional
+    @Timed(value = "elektropregled.sync", extraTags = {"nacin", "sync"})
     public SyncResponse sync(PregledSyncRequest request) {
+        long pocetak = System.nanoTime();
+        UUID lokalniId = lokalniIdOf(request);
+        if (lokalniId != null) {
+            syncLockService.zakljucaj(List.of(lokalniId));
+            Optional<SyncZapis> zapis = syncZapisRepository.findById(lokalniId);
+            if (zapis.isPresent()) {
+                return odgovorIzZapisa(zapis.get());
+            }
+        }
+
+        Reference reference = dohvatiReference(request != null ? List.of(request) : List.of());
+        if (reference.postojeciPregledi.contains(lokalniId)) {
+            return odgovorIzZapisa(obnoviZapis(lokalniId));
+        }
+        metrike.zabiljezi(Nacin.SYNC, Faza.RESOLVE, pocetak);
+
+        pocetak = System.nanoTime();
+        PripremljeniPregled pripremljeni = pripremi(request, reference);
+        metrike.zabiljezi(Nacin.SYNC, Faza.VALIDATE, pocetak);
+
+        pocetak = System.nanoTime();
+        metrike.mjeriCommit(Nacin.SYNC);
+        Pregled savedPregled = spremi(pripremljeni);
+
+        SyncResponse response = new SyncResponse();
+        response.setSuccess(true);
+        response.setMessage("Pregled je uspješno sinkroniziran");
+        response.setServerPregledId(savedPregled.getIdPreg());
+        response.setIdMappings(buildIdMappings(savedPregled, pripremljeni.stavke()));
+        response.setTimestamp(Instant.now());
+        spremiZapis(response.getIdMappings());
+        // Flush ovdje, a ne pri commitu, da faza insert obuhvati same INSERT-e
+        entityManager.flush();
+        zabiljeziStatistiku(List.of(savedPregled));
+        metrike.zabiljezi(Nacin.SYNC, Faza.INSERT, pocetak);
+        metrike.zabiljeziStavke(Nacin.SYNC, pripremljeni.stavke().size());
+        return response;
+    }
+
+    /**
+     * Sinkronizira više pregleda u jednoj transakciji. Svaki pregled se najprije validira
+     * i razriješi bez pisanja u bazu; neispravni pregledi se odbijaju pojedinačno,
+     * a ispravni se zatim spremaju zajedno.
+     */
+    @Transactional
+    @Timed(value = "elektropregled.sync", extraTags = {"nacin", "batch"})
+    public SyncBatchResponse syncBatch(PregledSyncBatchRequest request) {
+        if (request == null || request.getPregledi() == null || request.getPregledi().isEmpty()) {
+            throw new ValidationException("Lista pregleda je obavezna");
+        }
+
+        List<PregledSyncRequest> pregledi = request.getPregledi();
+        SyncBatchResponse.Rezultat[] rezultati = new SyncBatchResponse.Rezultat[pregledi.size()];
+        PripremljeniPregled[] pripremljeni = new PripremljeniPregled[pregledi.size()];
+        Set<UUID> pregledIdsUZahtjevu = new HashSet<>();
+        Set<UUID> stavkaIdsUZahtjevu = new HashSet<>();
+
+        long pocetak = System.nanoTime();
+        for (int i = 0; i < pregledi.size(); i++) {
+            try {
+                validateBean(pregledi.get(i));
+            } catch (ValidationException ex) {
+                rezultati[i] = new SyncBatchResponse.Rezultat(lokalniIdOf(pregledi.get(i)), SyncBatchResponse.Status.REJECTED,
+                        ex.getMessage(), null, null);
+            }
+        }
+
+        long validacija = System.nanoTime() - pocetak;
+
+        pocetak = System.nanoTime();
+        List<PregledSyncRequest> ispravni = new ArrayList<>();
+        for (int i = 0; i < pregledi.size(); i++) {
+            if (rezultati[i] == null) {
+                ispravni.add(pregledi.get(i));
+            }
+        }
+        syncLockService.zakljucaj(ispravni.stream().map(this::lokalniIdOf).toList());
+        Reference reference = dohvatiReference(ispravni);
+        Map<UUID, SyncZapis> zapisi = new HashMap<>();
+        uKomadima(reference.postojeciPregledi, syncZapisRepository::findAllById)
+                .forEach(z -> zapisi.put(z.getLokalniId(), z));
+        metrike.zabiljezi(Nacin.BATCH, Faza.RESOLVE, pocetak);
+
+        pocetak = System.nanoTime();
+        for (int i = 0; i < pregledi.size(); i++) {
+            if (rezultati[i] != null) {
+                continue;
+            }
+            PregledSyncRequest item = pregledi.get(i);
+            UUID lokalniId = lokalniIdOf(item);
+            try {
+                if (!pregledIdsUZahtjevu.add(lokalniId)) {
+                    throw new DuplicateSyncException("Pregled s ovim lokalnim ID-om se ponavlja u zahtjevu");
+                }
+                if (reference.postojeciPregledi.contains(lokalniId)) {
+                    SyncZapis zapis = zapisi.get(lokalniId);
+                    SyncResponse.IdMappings mapiranja = citajMapiranja(zapis != null ? zapis : obnoviZapis(lokalniId));
+                    rezultati[i] = new SyncBatchResponse.Rezultat(lokalniId, SyncBatchResponse.Status.DUPLICATE,
+                            "Pregled je već sinkroniziran", mapiranja.getPregled().getServerId(), mapiranja);
+                    continue;
+                }
+                PripremljeniPregled p = pripremi(item, reference);
+                for (StavkaPregleda stavka : p.stavke()) {
+                    if (stavkaIdsUZahtjevu.contains(stavka.getLokalniId())) {
+                        throw new ValidationException("Stavka s ovim lokalnim ID-om se ponavlja u više pregleda");
+                    }
+                }
+                p.stavke().forEach(s -> stavkaIdsUZahtjevu.add(s.getLokalniId()));
+                pripremljeni[i] = p;
+            } catch (DuplicateSyncException ex) {
+                rezultati[i] = new SyncBatchResponse.Rezultat(lokalniId, SyncBatchResponse.Status.DUPLICATE,
+                        ex.getMessage(), null, null);
+            } catch (BusinessException ex) {
+                rezultati[i] = new SyncBatchResponse.Rezultat(lokalniId, SyncBatchResponse.Status.REJECTED,
+                        ex.getMessage(), null, null);
+            }
+        }
+
+        metrike.zabiljeziTrajanje(Nacin.BATCH, Faza.VALIDATE, validacija + System.nanoTime() - pocetak);
+
+        pocetak = System.nanoTime();
+        metrike.mjeriCommit(Nacin.BATCH);
+        int synced = 0;
+        int duplicate = 0;
+        int rejected = 0;
+        List<Pregled> spremljeni = new ArrayList<>();
+        for (int i = 0; i < pregledi.size(); i++) {
+            if (pripremljeni[i] != null) {
+                Pregled savedPregled = spremi(pripremljeni[i]);
+                spremljeni.add(savedPregled);
+                SyncResponse.IdMappings mapiranja = buildIdMappings(savedPregled, pripremljeni[i].stavke());
+                spremiZapis(mapiranja);
+                metrike.zabiljeziStavke(Nacin.BATCH, pripremljeni[i].stavke().size());
+                rezultati[i] = new SyncBatchResponse.Rezultat(savedPregled.getLokalniId(), SyncBatchResponse.Status.SYNCED,
+                        "Pregled je uspješno sinkroniziran", savedPregled.getIdPreg(), mapiranja);
+            }
+            switch (rezultati[i].getStatus()) {
+                case SYNCED -> synced++;
+                case DUPLICATE -> duplicate++;
+                case REJECTED -> rejected++;
+            }
+        }
+        entityManager.flush();
+        zabiljeziStatistiku(spremljeni);
+        metrike.zabiljezi(Nacin.BATCH, Faza.INSERT, pocetak);
+
+        SyncBatchResponse response = new SyncBatchResponse();
+        response.setSuccess(true);
+        response.setMessage("Sinkronizirano: " + synced + ", duplikata: " + duplicate + ", odbijeno: " + rejected);
+        response.setSynced(synced);
+        response.setDuplicate(duplicate);
+        response.setRejected(rejected);
+        response.setRezultati(List.of(rezultati));
+        response.setTimestamp(Instant.now());
+        return response;
+    }
+
+    /**
+     * Sinkronizira pregled čitajući tijelo zahtjeva Jacksonovim streaming API-jem, bez vezanja cijelog
+     * {@link PregledSyncRequest}-a u memoriju. Stavke se validiraju i upisuju u komadima od
+     * {@value #STREAM_CHUNK_SIZE}, nakon čega se persistence context prazni, pa potrošnja memorije
+     * ne raste s brojem stavki (osim mapiranja ID-eva u odgovoru). Polje {@code pregled} mora doći
+     * prije polja {@code stavke}. Sve se izvršava u jednoj transakciji, kao i kod {@link #sync}.
+     * Pregled mora pripadati korisniku {@code idKorisnika}; provjerava se odmah nakon čitanja
+     * polja {@code pregled}, prije prvog upita u bazu.
+     */
+    @Transactional
+    @Timed(value = "elektropregled.sync", extraTags = {"nacin", "stream"})
+    public SyncResponse syncStream(InputStream body, Integer idKorisnika) {
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            return syncStream(parser, idKorisnika);
+        } catch (JsonProcessingException ex) {
+            throw new ValidationException("Neispravan JSON: " + ex.getOriginalMessage());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private SyncResponse syncStream(JsonParser parser, Integer idKorisnika) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new ValidationException("Tijelo zahtjeva mora biti JSON objekt");
+        }
+
+        Pregled pregled = null;
+        UUID pregledLokalniId = null;
+        Reference reference = null;
+        List<SyncResponse.StavkaMapping> mapiranja = new ArrayList<>();
+        // Parsiranje i upis komada se izmjenjuju, pa se trajanja zbrajaju i bilježe jednom
+        long parsiranje = 0;
+        long upis = 0;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String polje = parser.currentName();
+            parser.nextToken();
+            if ("pregled".equals(polje)) {
+                long pocetak = System.nanoTime();
+                PregledSyncRequest.PregledDto pregledDto = objectMapper.readValue(parser, PregledSyncRequest.PregledDto.class);
+                parsiranje += System.nanoTime() - pocetak;
+                validateBean(pregledDto, "pregled");
+                if (!pregledDto.getIdKorisnika().equals(idKorisnika)) {
+                    throw new ForbiddenException("Pregled pripada drugom korisniku (id_korisnika ne odgovara prijavljenom korisniku)");
+                }
+                pregledLokalniId = pregledDto.getLokalniId();
+
+                pocetak = System.nanoTime();
+                syncLockService.zakljucaj(List.of(pregledLokalniId));
+                Optional<SyncZapis> zapis = syncZapisRepository.findById(pregledLokalniId);
+                if (zapis.isPresent()) {
+                    return odgovorIzZapisa(zapis.get());
+                }
+                reference = dohvatiReference(List.of(new PregledSyncRequest(pregledDto, List.of())));
+                if (reference.postojeciPregledi.contains(pregledLokalniId)) {
+                    return odgovorIzZapisa(obnoviZapis(pregledLokalniId));
+                }
+                metrike.zabiljezi(Nacin.STREAM, Faza.RESOLVE, pocetak);
+                metrike.mjeriCommit(Nacin.STREAM);
+                pocetak = System.nanoTime();
+                pregled = pregledRepository.save(pripremiPregled(pregledDto, reference));
+                upis += System.nanoTime() - pocetak;
+            } else if ("stavke".equals(polje)) {
+                if (pregled == null) {
+                    throw new ValidationException("Polje pregled mora biti navedeno prije stavki");
+                }
+                if (parser.currentToken() != JsonToken.START_ARRAY) {
+                    throw new ValidationException("stavke: mora biti lista");
+                }
+                Set<UUID> stavkaIds = new HashSet<>();
+                List<PregledSyncRequest.StavkaDto> komad = new ArrayList<>(STREAM_CHUNK_SIZE);
+                int index = 0;
+                long pocetak = System.nanoTime();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    PregledSyncRequest.StavkaDto stavkaDto = objectMapper.readValue(parser, PregledSyncRequest.StavkaDto.class);
+                    validateBean(stavkaDto, "stavke[" + index++ + "]");
+                    komad.add(stavkaDto);
+                    if (komad.size() == STREAM_CHUNK_SIZE) {
+                        parsiranje += System.nanoTime() - pocetak;
+                        pocetak = System.nanoTime();
+                        spremiKomad(komad, pregled, reference, stavkaIds, mapiranja);
+                        komad.clear();
+                        upis += System.nanoTime() - pocetak;
+                        pocetak = System.nanoTime();
+                    }
+                }
+                parsiranje += System.nanoTime() - pocetak;
+                if (!komad.isEmpty()) {
+                    pocetak = System.nanoTime();
+                    spremiKomad(komad, pregled, reference, stavkaIds, mapiranja);
+                    upis += System.nanoTime() - pocetak;
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        if (pregled == null) {
+            throw new ValidationException("Pregled je obavezan");
+        }
+        if (mapiranja.isEmpty()) {
+            throw new ValidationException("stavke: lista stavki ne smije biti prazna");
+        }
+
+        SyncResponse response = new SyncResponse();
+        response.setSuccess(true);
+        response.setMessage("Pregled je uspješno sinkroniziran");
+        response.setServerPregledId(pregled.getIdPreg());
+        response.setIdMappings(new SyncResponse.IdMappings(
+                new SyncResponse.PregledMapping(pregledLokalniId, pregled.getIdPreg()), mapiranja));
+        response.setTimestamp(Instant.now());
+        long pocetak = System.nanoTime();
+        spremiZapis(response.getIdMappings());
+        entityManager.flush();
+        zabiljeziStatistiku(List.of(pregled));
+        upis += System.nanoTime() - pocetak;
+        metrike.zabiljeziTrajanje(Nacin.STREAM, Faza.PARSE, parsiranje);
+        metrike.zabiljeziTrajanje(Nacin.STREAM, Faza.INSERT, upis);
+        metrike.zabiljeziStavke(Nacin.STREAM, mapiranja.size());
+        return response;
+    }
+
+    /**
+     * Validira i upisuje jedan komad stavki, zatim prazni persistence context. Uređaji i parametri
+     * ostaju u {@code reference} između komada jer ih je ograničen broj. Spremljeni {@code pregled}
+     * je nakon prvog komada odvojen od persistence contexta i koristi se samo za ID i vremena.
+     */
+    private void spremiKomad(List<PregledSyncRequest.StavkaDto> komad, Pregled spremljeniPregled, Reference reference,
+                             Set<UUID> stavkaIds, List<SyncResponse.StavkaMapping> mapiranja) {
+        reference.postojeceStavke.clear();
+        dohvatiReferenceStavki(komad, reference);
+
+        Pregled pregled = pregledRepository.getReferenceById(spremljeniPregled.getIdPreg());
+        List<StavkaPregleda> stavke = new ArrayList<>(komad.size());
+        for (PregledSyncRequest.StavkaDto stavkaDto : komad) {
+            StavkaPregleda stavka = pripremiStavku(stavkaDto, reference, stavkaIds);
+            stavka.setPregled(pregled);
+            stavke.add(stavka);
+        }
+        stavkaPregledaRepository.saveAll(stavke);
+        stavkaLatestService.azuriraj(spremljeniPregled, stavke);
+        stavke.forEach(st -> mapiranja.add(new SyncResponse.StavkaMapping(st.getLokalniId(), st.getIdStavke())));
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    /**
+     * Dohvaća sve reference potrebne za zadane zahtjeve skupnim IN upitima, tako da broj upita
+     * ne ovisi o broju stavki: postojeći lokalni ID-evi pregleda i stavki, uređaji i parametri.
+     * Korisnici i postrojenja dolaze iz {@link Imenik}-a.
+     */
+    private Reference dohvatiReference(List<PregledSyncRequest> requests) {
+        Set<UUID> pregledIds = new HashSet<>();
+        List<PregledSyncRequest.StavkaDto> stavke = new ArrayList<>();
+
+        for (PregledSyncRequest request : requests) {
+            if (request == null || request.getPregled() == null) {
+                continue;
+            }
+            addIfNotNull(pregledIds, request.getPregled().getLokalniId());
+            if (request.getStavke() != null) {
+                stavke.addAll(request.getStavke());
+            }
+        }
+
+        Reference reference = new Reference();
+        reference.postojeciPregledi.addAll(uKomadima(pregledIds, pregledRepository::findLokalniIdsIn));
+        dohvatiReferenceStavki(stavke, reference);
+        return reference;
+    }
+
+    /**
+     * Dopunjuje reference za zadane stavke: postojeći lokalni ID-evi stavki, uređaji i parametri.
+     */
+    private void dohvatiReferenceStavki(Collection<PregledSyncRequest.StavkaDto> stavke, Reference reference) {
+        Set<UUID> stavkaIds = new HashSet<>();
+        Set<Integer> uredajIds = new HashSet<>();
+        Set<Integer> parametarIds = new HashSet<>();
+        for (PregledSyncRequest.StavkaDto stavkaDto : stavke) {
+            if (stavkaDto == null) {
+                continue;
+            }
+            addIfNotNull(stavkaIds, stavkaDto.getLokalniId());
+            addIfNotNull(uredajIds, stavkaDto.getIdUred());
+            addIfNotNull(parametarIds, stavkaDto.getIdParametra());
+        }
+        uredajIds.removeAll(reference.uredaji);
+        parametarIds.removeAll(reference.parametri.keySet());
+
+        reference.postojeceStavke.addAll(uKomadima(stavkaIds, stavkaPregledaRepository::findLokalniIdsIn));
+        uKomadima(uredajIds, ids -> ucitajReferentne(Uredaj.class, ids))
+                .forEach(u -> reference.uredaji.add(u.getIdUred()));
+        // Predlošci parametara dolaze iz predmemorije; baza se čita samo za vrste koje u njoj nisu
+        uKomadima(parametarIds, ids -> checklistTemplateCache.zaParametre(ids).values())
+                .forEach(p -> reference.parametri.put(p.idParametra(), p));
+    }
+
+    /**
+     * Validira zahtjev prema unaprijed dohvaćenim referencama, bez ikakvog pristupa bazi.
+     */
+    private PripremljeniPregled pripremi(PregledSyncRequest request, Reference reference) {
         if (request == null || request.getPregled() == null) {
             throw new ValidationException("Pregled je obavezan");
         }
@@ -51,76 +475,230 @@ public class PregledSyncService {
             throw new ValidationException("pregled.lokalni_id je obavezan");
         }
 
-        pregledRepository.findByLokalniId(pregledLokalniId).ifPresent(p -> {
+        if (reference.postojeciPregledi.contains(pregledLokalniId)) {
             throw new DuplicateSyncException("Pregled s ovim lokalnim ID-om je već sinkroniziran");
-        });
+        }
+
+        Pregled pregled = pripremiPregled(pregledDto, reference);
 
-        Korisnik korisnik = korisnikRepository.findById(pregledDto.getIdKorisnika())
-                .orElseThrow(() -> new NotFoundException("Korisnik nije pronađen"));
+        List<StavkaPregleda> stavke = new ArrayList<>();
+        Set<UUID> stavkaIds = new HashSet<>();
 
-        Postrojenje postrojenje = postrojenjeRepository.findById(pregledDto.getIdPostr())
-                .orElseThrow(() -> new NotFoundException("Postrojenje nije pronađeno"));
+        for (PregledSyncRequest.StavkaDto stavkaDto : request.getStavke()) {
+            stavke.add(pripremiStavku(stavkaDto, reference, stavkaIds));
+        }
+
+        return new PripremljeniPregled(pregled, stavke);
+    }
+
+    private Pregled pripremiPregled(PregledSyncRequest.PregledDto pregledDto, Reference reference) {
+        if (imenik.korisnik(pregledDto.getIdKorisnika()).isEmpty()) {
+            throw new NotFoundException("Korisnik nije pronađen");
+        }
+        if (!imenik.postojiPostrojenje(pregledDto.getIdPostr())) {
+            throw new NotFoundException("Postrojenje nije pronađeno");
+        }
 
         Pregled pregled = new Pregled();
-        pregled.setLokalniId(pregledLokalniId);
+        pregled.setLokalniId(pregledDto.getLokalniId());
         pregled.setStatusSync("SYNCED");
         pregled.setPocetak(pregledDto.getPocetak());
         pregled.setKraj(pregledDto.getKraj());
         pregled.setNapomena(pregledDto.getNapomena());
-        pregled.setKorisnik(korisnik);
-        pregled.setPostrojenje(postrojenje);
-
-        Pregled savedPregled = pregledRepository.save(pregled);
+        // Postojanje je potvrđeno u imeniku; reference ne izvršavaju SELECT
+        pregled.setKorisnik(entityManager.getReference(Korisnik.class, pregledDto.getIdKorisnika()));
+        pregled.setPostrojenje(entityManager.getReference(Postrojenje.class, pregledDto.getIdPostr()));
+        return pregled;
+    }
 
-        List<SyncResponse.StavkaMapping> stavkaMappings = new ArrayList<>();
+    /**
+     * Validira jednu stavku prema referencama i gradi entitet (bez pregleda).
+     */
+    private StavkaPregleda pripremiStavku(PregledSyncRequest.StavkaDto stavkaDto, Reference reference, Set<UUID> stavkaIds) {
+        if (stavkaDto.getLokalniId() == null) {
+            throw new ValidationException("stavka.lokalni_id je obavezan");
+        }
+        if (!stavkaIds.add(stavkaDto.getLokalniId())) {
+            throw new ValidationException("Stavka s ovim lokalnim ID-om se ponavlja u pregledu");
+        }
 
-        for (PregledSyncRequest.StavkaDto stavkaDto : request.getStavke()) {
-            if (stavkaDto.getLokalniId() == null) {
-                throw new ValidationException("stavka.lokalni_id je obavezan");
-            }
+        if (reference.postojeceStavke.contains(stavkaDto.getLokalniId())) {
+            throw new DuplicateSyncException("Stavka s ovim lokalnim ID-om je već sinkronizirana");
+        }
 
-            stavkaPregledaRepository.findByLokalniId(stavkaDto.getLokalniId()).ifPresent(sp -> {
-                throw new DuplicateSyncException("Stavka s ovim lokalnim ID-om je već sinkronizirana");
-            });
+        if (!reference.uredaji.contains(stavkaDto.getIdUred())) {
+            throw new NotFoundException("Uređaj nije pronađen");
+        }
+        // Uređaj je potvrđen skupnim upitom; referenca ne izvršava dodatni SELECT
+        Uredaj uredaj = uredajRepository.getReferenceById(stavkaDto.getIdUred());
 
-            Uredaj uredaj = uredajRepository.findById(stavkaDto.getIdUred())
-                    .orElseThrow(() -> new NotFoundException("Uređaj nije pronađen"));
+        ParametarPredlozak parametar = reference.parametri.get(stavkaDto.getIdParametra());
+        if (parametar == null) {
+            throw new NotFoundException("Parametar nije pronađen");
+        }
 
-            ParametarProvjere parametar = parametarProvjereRepository.findById(stavkaDto.getIdParametra())
-                    .orElseThrow(() -> new NotFoundException("Parametar nije pronađen"));
+        validateVrijednosti(stavkaDto, parametar);
 
-            validateVrijednosti(stavkaDto, parametar);
+        StavkaPregleda stavka = new StavkaPregleda();
+        stavka.setLokalniId(stavkaDto.getLokalniId());
+        stavka.setVrijednostBool(stavkaDto.getVrijednostBool());
+        stavka.setVrijednostNum(stavkaDto.getVrijednostNum());
+        stavka.setVrijednostTxt(stavkaDto.getVrijednostTxt());
+        stavka.setNapomena(stavkaDto.getNapomena());
+        stavka.setVrijemeUnosa(stavkaDto.getVrijemeUnosa() != null ? stavkaDto.getVrijemeUnosa() : LocalDateTime.now());
+        stavka.setUredaj(uredaj);
+        stavka.setParametarProvjere(parametarProvjereRepository.getReferenceById(parametar.idParametra()));
+        return stavka;
+    }
 
-            StavkaPregleda stavka = new StavkaPregleda();
-            stavka.setLokalniId(stavkaDto.getLokalniId());
-            stavka.setVrijednostBool(stavkaDto.getVrijednostBool());
-            stavka.setVrijednostNum(stavkaDto.getVrijednostNum());
-            stavka.setVrijednostTxt(stavkaDto.getVrijednostTxt());
-            stavka.setNapomena(stavkaDto.getNapomena());
-            stavka.setVrijemeUnosa(stavkaDto.getVrijemeUnosa() != null ? stavkaDto.getVrijemeUnosa() : LocalDateTime.now());
+    /**
+     * Sprema pregled i stavke. ID-evi se dodjeljuju iz sekvence već pri persist-u (pa su odmah
+     * dostupni za IdMappings), a sami INSERT-i se šalju u JDBC batchevima pri flush-u.
+     * Stavke se u istoj transakciji upisuju i u stavka_latest; postrojenje_stats se ažurira tek
+     * na kraju transakcije ({@link #zabiljeziStatistiku}).
+     */
+    private Pregled spremi(PripremljeniPregled pripremljeni) {
+        Pregled savedPregled = pregledRepository.save(pripremljeni.pregled());
+        for (StavkaPregleda stavka : pripremljeni.stavke()) {
             stavka.setPregled(savedPregled);
-            stavka.setUredaj(uredaj);
-            stavka.setParametarProvjere(parametar);
+        }
+        stavkaPregledaRepository.saveAll(pripremljeni.stavke());
+        stavkaLatestService.azuriraj(savedPregled, pripremljeni.stavke());
+        return savedPregled;
+    }
 
-            StavkaPregleda savedStavka = stavkaPregledaRepository.save(stavka);
-            stavkaMappings.add(new SyncResponse.StavkaMapping(stavkaDto.getLokalniId(), savedStavka.getIdStavke()));
+    /**
+     * Upisuje spremljene preglede u postrojenje_stats. Poziva se kao zadnji upis prije commita
+     * (nakon flush-a pregleda i stavki), jer zaključava redak postrojenja koji dijele svi
+     * istovremeni syncovi za isto postrojenje; tako se lock drži samo do commita. Postrojenja
+     * se zaključavaju uzlaznim redoslijedom ID-a da se skupni syncovi međusobno ne zaglave.
+     * Korisničko ime dolazi iz imenika, pa se referenca na korisnika ne učitava.
+     */
+    private void zabiljeziStatistiku(List<Pregled> pregledi) {
+        List<Pregled> poPostrojenju = new ArrayList<>(pregledi);
+        poPostrojenju.sort(Comparator.comparing((Pregled p) -> p.getPostrojenje().getIdPostr())
+                .thenComparing(Pregled::getIdPreg));
+        for (Pregled pregled : poPostrojenju) {
+            String korisnickoIme = imenik.korisnik(pregled.getKorisnik().getIdKorisnika())
+                    .map(Imenik.KorisnikZapis::korisnickoIme)
+                    .orElse(null);
+            postrojenjeStatsService.zabiljezi(pregled, korisnickoIme);
         }
+    }
 
-        SyncResponse.IdMappings idMappings = new SyncResponse.IdMappings(
+    private SyncResponse.IdMappings buildIdMappings(Pregled savedPregled, List<StavkaPregleda> stavke) {
+        List<SyncResponse.StavkaMapping> stavkaMappings = stavke.stream()
+                .map(s -> new SyncResponse.StavkaMapping(s.getLokalniId(), s.getIdStavke()))
+                .toList();
+        return new SyncResponse.IdMappings(
                 new SyncResponse.PregledMapping(savedPregled.getLokalniId(), savedPregled.getIdPreg()),
                 stavkaMappings
         );
+    }
 
+    private SyncZapis spremiZapis(SyncResponse.IdMappings mapiranja) {
+        try {
+            return syncZapisRepository.save(new SyncZapis(mapiranja.getPregled().getLokalniId(),
+                    mapiranja.getPregled().getServerId(), objectMapper.writeValueAsString(mapiranja)));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Mapiranja se ne mogu serijalizirati", ex);
+        }
+    }
+
+    /**
+     * Gradi zapis za pregled koji je spremljen bez njega (prije uvođenja sync_zapis ili skupnim unosom).
+     */
+    private SyncZapis obnoviZapis(UUID lokalniId) {
+        Pregled pregled = pregledRepository.findByLokalniId(lokalniId)
+                .orElseThrow(() -> new NotFoundException("Pregled nije pronađen"));
+        SyncResponse.IdMappings mapiranja = new SyncResponse.IdMappings(
+                new SyncResponse.PregledMapping(lokalniId, pregled.getIdPreg()),
+                stavkaPregledaRepository.findMappingsByPregled(pregled.getIdPreg())
+        );
+        return spremiZapis(mapiranja);
+    }
+
+    private SyncResponse.IdMappings citajMapiranja(SyncZapis zapis) {
+        try {
+            return objectMapper.readValue(zapis.getMapiranja(), SyncResponse.IdMappings.class);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Zapis sinkronizacije je neispravan: " + zapis.getLokalniId(), ex);
+        }
+    }
+
+    private SyncResponse odgovorIzZapisa(SyncZapis zapis) {
         SyncResponse response = new SyncResponse();
         response.setSuccess(true);
-        response.setMessage("Pregled je uspješno sinkroniziran");
-        response.setServerPregledId(savedPregled.getIdPreg());
-        response.setIdMappings(idMappings);
+        response.setMessage("Pregled je već sinkroniziran");
+        response.setServerPregledId(zapis.getIdPreg());
+        response.setIdMappings(citajMapiranja(zapis));
         response.setTimestamp(Instant.now());
         return response;
     }
 
-    private void validateVrijednosti(PregledSyncRequest.StavkaDto stavkaDto, ParametarProvjere parametar) {
+    private UUID lokalniIdOf(PregledSyncRequest request) {
+        return request != null && request.getPregled() != null ? request.getPregled().getLokalniId() : null;
+    }
+
+    private static <T> void addIfNotNull(Set<T> set, T value) {
+        if (value != null) {
+            set.add(value);
+        }
+    }
+
+    /**
+     * Učitava referentne entitete po ID-u preko L2 cachea; bazu čita jednim IN upitom samo za
+     * ID-eve kojih u cacheu nema. ID-evi koji ne postoje nisu u rezultatu. Cache mode se
+     * navodi izričito jer multiLoad bez njega samo puni L2, a ne čita iz njega.
+     */
+    private <T> List<T> ucitajReferentne(Class<T> tip, List<Integer> ids) {
+        return entityManager.unwrap(Session.class)
+                .byMultipleIds(tip)
+                .with(CacheMode.NORMAL)
+                .multiLoad(ids)
+                .stream()
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private static <T, R> List<R> uKomadima(Collection<T> ids, Function<List<T>, ? extends Collection<R>> upit) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<T> sviIds = new ArrayList<>(ids);
+        if (sviIds.size() <= IN_CHUNK_SIZE) {
+            return new ArrayList<>(upit.apply(sviIds));
+        }
+        List<R> rezultat = new ArrayList<>();
+        for (int from = 0; from < sviIds.size(); from += IN_CHUNK_SIZE) {
+            rezultat.addAll(upit.apply(sviIds.subList(from, Math.min(from + IN_CHUNK_SIZE, sviIds.size()))));
+        }
+        return rezultat;
+    }
+
+    private void validateBean(Object value, String putanja) {
+        if (value == null) {
+            throw new ValidationException(putanja + ": ne smije biti null");
+        }
+        Set<ConstraintViolation<Object>> violations = validator.validate(value);
+        if (!violations.isEmpty()) {
+            ConstraintViolation<Object> violation = violations.iterator().next();
+            throw new ValidationException(putanja + "." + violation.getPropertyPath() + ": " + violation.getMessage());
+        }
+    }
+
+    private void validateBean(PregledSyncRequest request) {
+        if (request == null) {
+            throw new ValidationException("Pregled je obavezan");
+        }
+        Set<ConstraintViolation<PregledSyncRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            ConstraintViolation<PregledSyncRequest> violation = violations.iterator().next();
+            throw new ValidationException(violation.getPropertyPath() + ": " + violation.getMessage());
+        }
+    }
+
+    private void validateVrijednosti(PregledSyncRequest.StavkaDto stavkaDto, ParametarPredlozak parametar) {
         int countNonNull = 0;
         if (stavkaDto.getVrijednostBool() != null) countNonNull++;
         if (stavkaDto.getVrijednostNum() != null) countNonNull++;
@@ -129,15 +707,15 @@ public class PregledSyncService {
             throw new ValidationException("Dozvoljena je samo jedna vrijednost po stavci");
         }
 
-        String tip = parametar.getTipPodataka();
+        String tip = parametar.tipPodataka();
         if ("NUMERIC".equalsIgnoreCase(tip)) {
             if (stavkaDto.getVrijednostNum() == null) {
                 throw new ValidationException("Vrijednost brojčana je obavezna za NUMERIC parametar");
             }
-            if (parametar.getMinVrijednost() != null && stavkaDto.getVrijednostNum() < parametar.getMinVrijednost()) {
+            if (parametar.minVrijednost() != null && stavkaDto.getVrijednostNum() < parametar.minVrijednost()) {
                 throw new ValidationException("Vrijednost je manja od minimalne dozvoljene");
             }
-            if (parametar.getMaxVrijednost() != null && stavkaDto.getVrijednostNum() > parametar.getMaxVrijednost()) {
+            if (parametar.maxVrijednost() != null && stavkaDto.getVrijednostNum() > parametar.maxVrijednost()) {
                 throw new ValidationException("Vrijednost je veća od maksimalne dozvoljene");
             }
         } else if ("BOOLEAN".equalsIgnoreCase(tip)) {
@@ -150,4 +728,20 @@ public class PregledSyncService {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Reference razriješene skupnim upitima za jedan sync zahtjev (ili cijeli batch).
+     */
+    private static final class Reference {
+        private final Set<UUID> postojeciPregledi = new HashSet<>();
+        private final Set<UUID> postojeceStavke = new HashSet<>();
+        private final Set<Integer> uredaji = new HashSet<>();
+        private final Map<Integer, ParametarPredlozak> parametri = new HashMap<>();
+    }
+
+    /**
+     * Validiran pregled sa stavkama koji još nije spremljen.
+     */
+    private record PripremljeniPregled(Pregled pregled, List<StavkaPregleda> stavke) {
+    }
+}
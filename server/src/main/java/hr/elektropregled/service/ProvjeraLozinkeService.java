@@ -0,0 +1,79 @@
+package hr.elektropregled.service;
+
+import hr.elektropregled.exception.ServiceUnavailableException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Provjera lozinke na zasebnom, ograničenom poolu ({@code provjeraLozinkeExecutor}). Zahtjev
+ * koji ne stane u red odmah se odbija s 503 i {@code Retry-After}, umjesto da čeka na CPU.
+ * Bilježi broj provjera i odbijanja te vrijeme čekanja u redu i trajanje same provjere.
+ */
+@Service
+public class ProvjeraLozinkeService {
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolTaskExecutor executor;
+    private final long retryAfterSekundi;
+
+    private final AtomicLong provjera = new AtomicLong();
+    private final AtomicLong odbijenih = new AtomicLong();
+    private final AtomicLong cekanjeNanos = new AtomicLong();
+    private final AtomicLong provjeraNanos = new AtomicLong();
+    private final AtomicLong najduljaProvjeraNanos = new AtomicLong();
+
+    public ProvjeraLozinkeService(PasswordEncoder passwordEncoder,
+                                  @Qualifier("provjeraLozinkeExecutor") ThreadPoolTaskExecutor executor,
+                                  @Value("${auth.login.retry-after-s:5}") long retryAfterSekundi) {
+        this.passwordEncoder = passwordEncoder;
+        this.executor = executor;
+        this.retryAfterSekundi = retryAfterSekundi;
+    }
+
+    public record Statistika(int dretvi, int aktivnih, int uRedu, int kapacitetReda,
+                             long provjera, long odbijenih,
+                             double prosjekCekanjaMs, double prosjekProvjereMs, double najduljaProvjeraMs) {
+    }
+
+    /**
+     * Zakazuje provjeru lozinke; rezultat je {@code true} ako lozinka odgovara hashu.
+     *
+     * @throws ServiceUnavailableException ako je red provjera pun
+     */
+    public CompletableFuture<Boolean> provjeri(String lozinka, String hash) {
+        long zaprimljeno = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long pocetak = System.nanoTime();
+                boolean ispravna = passwordEncoder.matches(lozinka, hash);
+                long trajanje = System.nanoTime() - pocetak;
+                provjera.incrementAndGet();
+                cekanjeNanos.addAndGet(pocetak - zaprimljeno);
+                provjeraNanos.addAndGet(trajanje);
+                najduljaProvjeraNanos.accumulateAndGet(trajanje, Math::max);
+                return ispravna;
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            odbijenih.incrementAndGet();
+            throw new ServiceUnavailableException(
+                    "Server trenutno obrađuje previše prijava, pokušajte ponovno za nekoliko sekundi", retryAfterSekundi);
+        }
+    }
+
+    public Statistika statistika() {
+        ThreadPoolExecutor pool = executor.getThreadPoolExecutor();
+        long n = provjera.get();
+        return new Statistika(pool.getMaximumPoolSize(), pool.getActiveCount(), pool.getQueue().size(),
+                executor.getQueueCapacity(), n, odbijenih.get(),
+                n == 0 ? 0 : cekanjeNanos.get() / 1e6 / n,
+                n == 0 ? 0 : provjeraNanos.get() / 1e6 / n,
+                najduljaProvjeraNanos.get() / 1e6);
+    }
+}
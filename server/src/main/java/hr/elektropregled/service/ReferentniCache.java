@@ -0,0 +1,61 @@
+package hr.elektropregled.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hibernate L2 cache referentnih entiteta (regije iz ehcache.xml). Izmjene kroz Hibernate same
+ * poništavaju unose; izmjene izravno u bazi (SQL, triggeri kataloga) vidljive su samo kroz verziju
+ * kataloga, pa {@link VerzijaPodatakaService} pri njezinu rastu poziva {@link #isprazni()}.
+ */
+@Component
+public class ReferentniCache {
+    public static final String REGIJA_UPITA = "default-query-results-region";
+    public static final List<String> REGIJE_ENTITETA =
+            List.of("postrojenje", "polje", "vrsta_uredaja", "uredaj", "parametar_provjere");
+
+    private final SessionFactory sessionFactory;
+
+    public ReferentniCache(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    public record Regija(String naziv, long unosa, long pogodaka, long promasaja, long upisa) {
+    }
+
+    /**
+     * Brojači su nule kad je {@code hibernate.generate_statistics} isključen ({@code brojaciUkljuceni = false}).
+     */
+    public record Statistika(List<Regija> regije, long pogodakaUpita, long promasajaUpita, long upisaUpita,
+                             boolean brojaciUkljuceni) {
+    }
+
+    public void isprazni() {
+        sessionFactory.getCache().evictAllRegions();
+    }
+
+    public Statistika statistika() {
+        Statistics statistics = sessionFactory.getStatistics();
+        List<Regija> regije = new ArrayList<>();
+        for (String naziv : REGIJE_ENTITETA) {
+            regije.add(regija(statistics, naziv));
+        }
+        regije.add(regija(statistics, REGIJA_UPITA));
+        return new Statistika(regije, statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount(),
+                statistics.getQueryCachePutCount(), statistics.isStatisticsEnabled());
+    }
+
+    private static Regija regija(Statistics statistics, String naziv) {
+        CacheRegionStatistics s = statistics.getCacheRegionStatistics(naziv);
+        if (s == null) {
+            return new Regija(naziv, 0, 0, 0, 0);
+        }
+        return new Regija(naziv, s.getElementCountInMemory(), s.getHitCount(), s.getMissCount(), s.getPutCount());
+    }
+}
@@ -0,0 +1,155 @@
+package hr.elektropregled.service;
+
+import hr.elektropregled.exception.UnauthorizedException;
+import hr.elektropregled.model.RefreshToken;
+import hr.elektropregled.repository.RefreshTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Izdavanje, rotacija i opoziv refresh tokena. Token je 256 bita iz {@link SecureRandom}-a;
+ * u bazi je samo njegov SHA-256 sažetak, pa je provjera jedan dohvat po primarnom ključu,
+ * bez BCrypta.
+ * <p>
+ * Svako osvježavanje opoziva korišteni token i izdaje novi iz iste obitelji. Nasljednik je
+ * HMAC starog tokena (ključ {@code jwt.secret}), pa ga server može ponovno izračunati bez
+ * spremanja samog tokena: klijent koji nije primio odgovor rotacije (timeout, prekinuta veza)
+ * i ponovi zahtjev starim tokenom unutar {@code jwt.refresh.milost} dobiva isti nasljednik, sve
+ * dok ga ne upotrijebi. Ako netko predoči opozvani token izvan toga (ukradena kopija ili
+ * zastarjela kopija na drugom uređaju), opoziva se cijela obitelj i korisnik se mora ponovno
+ * prijaviti lozinkom.
+ */
+@Service
+public class RefreshTokenService {
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+    private static final int BAJTOVA_TOKENA = 32;
+    private static final String HMAC = "HmacSHA256";
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final Duration trajanje;
+    private final Duration milost;
+    private final SecretKeySpec kljucNasljednika;
+    private final SecureRandom random = new SecureRandom();
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               @Value("${jwt.refresh.trajanje:P30D}") Duration trajanje,
+                               @Value("${jwt.refresh.milost:PT30S}") Duration milost,
+                               @Value("${jwt.secret}") String tajna) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.trajanje = trajanje;
+        this.milost = milost;
+        this.kljucNasljednika = new SecretKeySpec(tajna.getBytes(StandardCharsets.UTF_8), HMAC);
+    }
+
+    /**
+     * Novi refresh token i korisnik kojem pripada; {@code token} se vraća klijentu samo jednom.
+     */
+    public record Izdan(String token, Integer idKorisnika, long istjeceZaSekundi) {
+    }
+
+    /**
+     * Izdaje prvi token nove obitelji (pri prijavi lozinkom).
+     */
+    @Transactional
+    public Izdan izdaj(Integer idKorisnika) {
+        byte[] bajtovi = new byte[BAJTOVA_TOKENA];
+        random.nextBytes(bajtovi);
+        return spremi(Base64.getUrlEncoder().withoutPadding().encodeToString(bajtovi), idKorisnika, UUID.randomUUID());
+    }
+
+    /**
+     * Mijenja važeći token za novi iz iste obitelji. Ponovljeni zahtjev istim tokenom unutar
+     * {@code jwt.refresh.milost} vraća već izdani nasljednik, ako još nije upotrijebljen.
+     *
+     * @throws UnauthorizedException ako token ne postoji, istekao je ili je već opozvan
+     */
+    @Transactional(noRollbackFor = UnauthorizedException.class)
+    public Izdan rotiraj(String token) {
+        RefreshToken postojeci = refreshTokenRepository.findForUpdate(sazetak(token))
+                .orElseThrow(() -> new UnauthorizedException("Refresh token nije valjan"));
+        LocalDateTime sada = LocalDateTime.now();
+        if (postojeci.getOpozvanAt() != null) {
+            Optional<Izdan> ponovljeno = ponovljenaRotacija(token, postojeci, sada);
+            if (ponovljeno.isPresent()) {
+                return ponovljeno.get();
+            }
+            int opozvano = refreshTokenRepository.opozoviObitelj(postojeci.getObitelj(), sada);
+            log.warn("Ponovna upotreba opozvanog refresh tokena korisnika {}; opozvano {} tokena obitelji {}",
+                    postojeci.getIdKorisnika(), opozvano, postojeci.getObitelj());
+            throw new UnauthorizedException("Refresh token je opozvan, potrebna je ponovna prijava");
+        }
+        if (!postojeci.getIstjeceAt().isAfter(sada)) {
+            throw new UnauthorizedException("Refresh token je istekao, potrebna je ponovna prijava");
+        }
+        String nasljednik = nasljednik(token);
+        postojeci.setOpozvanAt(sada);
+        postojeci.setNasljednik(sazetak(nasljednik));
+        return spremi(nasljednik, postojeci.getIdKorisnika(), postojeci.getObitelj());
+    }
+
+    /**
+     * Opoziva token i sve tokene iz iste obitelji (odjava). Nepoznati token se tiho zanemaruje.
+     */
+    @Transactional
+    public void opozovi(String token) {
+        refreshTokenRepository.findById(sazetak(token))
+                .ifPresent(t -> refreshTokenRepository.opozoviObitelj(t.getObitelj(), LocalDateTime.now()));
+    }
+
+    @Transactional
+    public int obrisiIstekle(LocalDateTime prije) {
+        return refreshTokenRepository.deleteExpiredBefore(prije);
+    }
+
+    // Nasljednik unutar milosti: samo ako je token opozvan rotacijom, a nasljednik još nije ni upotrijebljen ni opozvan
+    private Optional<Izdan> ponovljenaRotacija(String token, RefreshToken postojeci, LocalDateTime sada) {
+        if (postojeci.getNasljednik() == null || postojeci.getOpozvanAt().plus(milost).isBefore(sada)) {
+            return Optional.empty();
+        }
+        return refreshTokenRepository.findForUpdate(postojeci.getNasljednik())
+                .filter(n -> n.getOpozvanAt() == null && n.getIstjeceAt().isAfter(sada))
+                .map(n -> new Izdan(nasljednik(token), n.getIdKorisnika(), Duration.between(sada, n.getIstjeceAt()).toSeconds()));
+    }
+
+    private Izdan spremi(String token, Integer idKorisnika, UUID obitelj) {
+        refreshTokenRepository.save(new RefreshToken(sazetak(token), idKorisnika, obitelj, LocalDateTime.now().plus(trajanje)));
+        return new Izdan(token, idKorisnika, trajanje.toSeconds());
+    }
+
+    private String nasljednik(String token) {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(kljucNasljednika);
+            byte[] bajtovi = mac.doFinal(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(bajtovi);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 nije dostupan", e);
+        }
+    }
+
+    static String sazetak(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 nije dostupan", e);
+        }
+    }
+}
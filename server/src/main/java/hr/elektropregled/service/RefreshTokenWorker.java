@@ -0,0 +1,31 @@
+package hr.elektropregled.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Briše istekle refresh tokene. Opozvani, a neistekli tokeni ostaju do isteka kako bi se
+ * njihova ponovna upotreba i dalje prepoznala.
+ */
+@Component
+public class RefreshTokenWorker {
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenWorker.class);
+
+    private final RefreshTokenService refreshTokenService;
+
+    public RefreshTokenWorker(RefreshTokenService refreshTokenService) {
+        this.refreshTokenService = refreshTokenService;
+    }
+
+    @Scheduled(cron = "${jwt.refresh.cleanup-cron:0 45 3 * * *}")
+    public void cleanup() {
+        int obrisano = refreshTokenService.obrisiIstekle(LocalDateTime.now());
+        if (obrisano > 0) {
+            log.info("Obrisano {} isteklih refresh tokena", obrisano);
+        }
+    }
+}
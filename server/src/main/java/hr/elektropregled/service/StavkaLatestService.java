@@ -0,0 +1,203 @@
+package hr.elektropregled.service;
+
+import hr.elektropregled.dto.StavkaLatestProvjera;
+import hr.elektropregled.model.Pregled;
+import hr.elektropregled.model.StavkaLatest;
+import hr.elektropregled.model.StavkaPregleda;
+import hr.elektropregled.repository.StavkaLatestRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Održava tablicu {@code stavka_latest} (zadnja vrijednost po paru uređaj/parametar).
+ * <p>
+ * Poredak je isti kao u nekadašnjem DISTINCT ON upitu nad stavka_pregleda: kraj pregleda silazno
+ * (bez kraja na kraju), zatim početak pregleda, zatim id_stavke. Na PostgreSQL-u se nova stavka
+ * upisuje jednim {@code INSERT ... ON CONFLICT DO UPDATE ... WHERE}, pa istovremene sinkronizacije
+ * različitih pregleda za isti uređaj ne mogu prepisati noviju vrijednost starijom. Na ostalim
+ * bazama (H2 u testovima) usporedba se radi u Javi.
+ */
+@Service
+public class StavkaLatestService {
+    private static final Comparator<StavkaLatest> PREDNOST = Comparator
+            .comparing(StavkaLatest::getPregledKraj, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(StavkaLatest::getPregledPocetak, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(StavkaLatest::getIdStavke);
+
+    private static final String UPSERT = """
+            INSERT INTO stavka_latest (id_ured, id_parametra, id_stavke, id_preg, vrijednost_bool, vrijednost_num,
+                                       vrijednost_txt, pregled_kraj, pregled_pocetak, zadnji_pregled_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, now())
+            ON CONFLICT (id_ured, id_parametra) DO UPDATE SET
+                id_stavke = EXCLUDED.id_stavke,
+                id_preg = EXCLUDED.id_preg,
+                vrijednost_bool = EXCLUDED.vrijednost_bool,
+                vrijednost_num = EXCLUDED.vrijednost_num,
+                vrijednost_txt = EXCLUDED.vrijednost_txt,
+                pregled_kraj = EXCLUDED.pregled_kraj,
+                pregled_pocetak = EXCLUDED.pregled_pocetak,
+                zadnji_pregled_at = EXCLUDED.zadnji_pregled_at,
+                updated_at = EXCLUDED.updated_at
+            WHERE (COALESCE(EXCLUDED.pregled_kraj, '-infinity'::timestamp), EXCLUDED.pregled_pocetak, EXCLUDED.id_stavke)
+                > (COALESCE(stavka_latest.pregled_kraj, '-infinity'::timestamp), stavka_latest.pregled_pocetak, stavka_latest.id_stavke)
+            """;
+
+    // Zadnja stavka po paru izračunata iz cijele povijesti; koriste je obnova i provjera. H2 uz
+    // DISTINCT ON prihvaća samo ORDER BY izraze koji su u popisu stupaca, pa se kraj i početak
+    // pregleda biraju i kad ih pozivatelj ne treba.
+    private static final String ZADNJE_IZ_POVIJESTI = """
+            SELECT DISTINCT ON (s.id_ured, s.id_parametra)
+                   s.id_ured, s.id_parametra, s.id_stavke, s.id_preg, s.vrijednost_bool, s.vrijednost_num,
+                   s.vrijednost_txt, p.kraj AS pregled_kraj, p.pocetak AS pregled_pocetak,
+                   COALESCE(p.kraj, p.pocetak, p.created_at) AS zadnji_pregled_at
+            FROM stavka_pregleda s
+            JOIN pregled p ON p.id_preg = s.id_preg
+            ORDER BY s.id_ured, s.id_parametra, p.kraj DESC NULLS LAST, p.pocetak DESC NULLS LAST, s.id_stavke DESC
+            """;
+
+    private final StavkaLatestRepository stavkaLatestRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+    private final VerzijaPodatakaService verzijaPodatakaService;
+    private final boolean postgres;
+
+    public StavkaLatestService(StavkaLatestRepository stavkaLatestRepository,
+                               JdbcTemplate jdbcTemplate,
+                               EntityManager entityManager,
+                               VerzijaPodatakaService verzijaPodatakaService,
+                               DataSource dataSource) {
+        this.stavkaLatestRepository = stavkaLatestRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+        this.verzijaPodatakaService = verzijaPodatakaService;
+        this.postgres = SyncLockService.isPostgres(dataSource);
+    }
+
+    /**
+     * Upisuje stavke upravo spremljenog pregleda kao zadnje vrijednosti ondje gdje imaju prednost
+     * pred postojećim redom. Stavke moraju imati dodijeljen id_stavke. Poziva se unutar transakcije
+     * sinkronizacije.
+     */
+    public void azuriraj(Pregled pregled, List<StavkaPregleda> stavke) {
+        if (stavke.isEmpty()) {
+            return;
+        }
+        List<StavkaLatest> nove = stavke.stream().map(s -> izStavke(pregled, s)).toList();
+        if (postgres) {
+            jdbcTemplate.batchUpdate(UPSERT, nove, nove.size(), (ps, l) -> {
+                ps.setInt(1, l.getIdUred());
+                ps.setInt(2, l.getIdParametra());
+                ps.setInt(3, l.getIdStavke());
+                ps.setInt(4, l.getIdPreg());
+                ps.setObject(5, l.getVrijednostBool(), Types.BOOLEAN);
+                ps.setObject(6, l.getVrijednostNum(), Types.DOUBLE);
+                ps.setObject(7, l.getVrijednostTxt(), Types.VARCHAR);
+                ps.setObject(8, timestamp(l.getPregledKraj()), Types.TIMESTAMP);
+                ps.setObject(9, timestamp(l.getPregledPocetak()), Types.TIMESTAMP);
+                ps.setObject(10, timestamp(l.getZadnjiPregledAt()), Types.TIMESTAMP);
+            });
+            return;
+        }
+
+        Set<Integer> uredajIds = nove.stream().map(StavkaLatest::getIdUred).collect(Collectors.toSet());
+        Map<StavkaLatest.Kljuc, StavkaLatest> postojece = new HashMap<>();
+        for (StavkaLatest l : stavkaLatestRepository.findByIdUredIn(uredajIds)) {
+            postojece.put(new StavkaLatest.Kljuc(l.getIdUred(), l.getIdParametra()), l);
+        }
+        for (StavkaLatest nova : nove) {
+            StavkaLatest postojeca = postojece.get(new StavkaLatest.Kljuc(nova.getIdUred(), nova.getIdParametra()));
+            if (postojeca == null) {
+                entityManager.persist(nova);
+            } else if (PREDNOST.compare(nova, postojeca) > 0) {
+                entityManager.merge(nova);
+            }
+        }
+    }
+
+    /**
+     * Ponovno gradi cijelu tablicu iz povijesti stavki. Vraća broj upisanih redova. Zadnje
+     * vrijednosti u checklistima se mogu promijeniti, pa se povećava i verzija kataloga.
+     */
+    @Transactional
+    public int obnovi() {
+        jdbcTemplate.update("DELETE FROM stavka_latest");
+        int upisano = jdbcTemplate.update("""
+                INSERT INTO stavka_latest (id_ured, id_parametra, id_stavke, id_preg, vrijednost_bool, vrijednost_num,
+                                           vrijednost_txt, pregled_kraj, pregled_pocetak, zadnji_pregled_at, updated_at)
+                SELECT z.id_ured, z.id_parametra, z.id_stavke, z.id_preg, z.vrijednost_bool, z.vrijednost_num,
+                       z.vrijednost_txt, z.pregled_kraj, z.pregled_pocetak, z.zadnji_pregled_at, CURRENT_TIMESTAMP
+                FROM (""" + ZADNJE_IZ_POVIJESTI + ") z");
+        verzijaPodatakaService.povecajKatalog();
+        // Redovi upisani mimo Hibernatea ne smiju ostati zastarjeli u persistence contextu
+        entityManager.clear();
+        return upisano;
+    }
+
+    /**
+     * Uspoređuje tablicu sa zadnjim stavkama izračunatim iz povijesti, bez izmjena.
+     */
+    @Transactional(readOnly = true)
+    public StavkaLatestProvjera provjeri() {
+        Map<String, Object> razlike = jdbcTemplate.queryForMap("""
+                SELECT COUNT(*) AS ocekivano,
+                       COALESCE(SUM(CASE WHEN l.id_ured IS NULL THEN 1 ELSE 0 END), 0) AS nedostaje,
+                       COALESCE(SUM(CASE WHEN l.id_ured IS NOT NULL
+                                          AND (l.id_stavke <> z.id_stavke
+                                               OR l.zadnji_pregled_at IS DISTINCT FROM z.zadnji_pregled_at)
+                                         THEN 1 ELSE 0 END), 0) AS zastarjelo
+                FROM (""" + ZADNJE_IZ_POVIJESTI + """
+                ) z
+                LEFT JOIN stavka_latest l ON l.id_ured = z.id_ured AND l.id_parametra = z.id_parametra
+                """);
+        Long visak = jdbcTemplate.queryForObject("""
+                SELECT COUNT(*) FROM stavka_latest l
+                WHERE NOT EXISTS (SELECT 1 FROM stavka_pregleda s
+                                  WHERE s.id_stavke = l.id_stavke AND s.id_ured = l.id_ured
+                                    AND s.id_parametra = l.id_parametra)
+                """, Long.class);
+
+        long ocekivano = ((Number) razlike.get("ocekivano")).longValue();
+        long nedostaje = ((Number) razlike.get("nedostaje")).longValue();
+        long zastarjelo = ((Number) razlike.get("zastarjelo")).longValue();
+        long visakRedova = visak != null ? visak : 0L;
+        return new StavkaLatestProvjera(ocekivano, nedostaje, zastarjelo, visakRedova,
+                nedostaje == 0 && zastarjelo == 0 && visakRedova == 0);
+    }
+
+    public boolean jePrazna() {
+        return stavkaLatestRepository.count() == 0;
+    }
+
+    private static StavkaLatest izStavke(Pregled pregled, StavkaPregleda stavka) {
+        StavkaLatest l = new StavkaLatest();
+        l.setIdUred(stavka.getUredaj().getIdUred());
+        l.setIdParametra(stavka.getParametarProvjere().getIdParametra());
+        l.setIdStavke(stavka.getIdStavke());
+        l.setIdPreg(pregled.getIdPreg());
+        l.setVrijednostBool(stavka.getVrijednostBool());
+        l.setVrijednostNum(stavka.getVrijednostNum());
+        l.setVrijednostTxt(stavka.getVrijednostTxt());
+        l.setPregledKraj(pregled.getKraj());
+        l.setPregledPocetak(pregled.getPocetak());
+        l.setZadnjiPregledAt(pregled.getKraj() != null ? pregled.getKraj()
+                : pregled.getPocetak() != null ? pregled.getPocetak() : pregled.getCreatedAt());
+        return l;
+    }
+
+    private static Timestamp timestamp(LocalDateTime vrijeme) {
+        return vrijeme != null ? Timestamp.valueOf(vrijeme) : null;
+    }
+}
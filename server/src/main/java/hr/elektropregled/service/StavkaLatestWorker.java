@@ -0,0 +1,52 @@
+package hr.elektropregled.service;
+
+import hr.elektropregled.dto.StavkaLatestProvjera;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Punjenje i noćna provjera tablice stavka_latest. Prazna tablica (npr. baza nadograđena bez
+ * migracije V5) puni se pri pokretanju; provjera po rasporedu uspoređuje tablicu s poviješću
+ * stavki i po potrebi je ponovno gradi.
+ */
+@Component
+public class StavkaLatestWorker {
+    private static final Logger log = LoggerFactory.getLogger(StavkaLatestWorker.class);
+
+    private final StavkaLatestService stavkaLatestService;
+
+    @Value("${stavka-latest.popravi-automatski:true}")
+    private boolean popraviAutomatski;
+
+    public StavkaLatestWorker(StavkaLatestService stavkaLatestService) {
+        this.stavkaLatestService = stavkaLatestService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillAkoPrazna() {
+        if (stavkaLatestService.jePrazna()) {
+            int upisano = stavkaLatestService.obnovi();
+            if (upisano > 0) {
+                log.info("Tablica stavka_latest popunjena s {} redova", upisano);
+            }
+        }
+    }
+
+    @Scheduled(cron = "${stavka-latest.provjera-cron:0 0 4 * * *}")
+    public void provjeri() {
+        StavkaLatestProvjera provjera = stavkaLatestService.provjeri();
+        if (provjera.isKonzistentno()) {
+            return;
+        }
+        log.warn("Tablica stavka_latest nije u skladu s poviješću: nedostaje {}, zastarjelo {}, višak {}",
+                provjera.getNedostaje(), provjera.getZastarjelo(), provjera.getVisak());
+        if (popraviAutomatski) {
+            log.info("Tablica stavka_latest ponovno izgrađena s {} redova", stavkaLatestService.obnovi());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package hr.elektropregled.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serijalizira istovremene sinkronizacije istog pregleda (npr. dva retry-a koja stignu u isto vrijeme).
+ * <p>
+ * Na PostgreSQL-u se koristi {@code pg_advisory_xact_lock} s ključem izvedenim iz lokalnog UUID-a:
+ * lock se otpušta automatski na commit/rollback i vrijedi između svih instanci servera.
+ * Na ostalim bazama (H2 u testovima) koristi se ekvivalentan lock unutar JVM-a koji se
+ * otpušta nakon završetka transakcije. Drugi zahtjev tako čeka da prvi commita i zatim
+ * vidi spremljeni pregled, bez iznimke na unique constraintu.
+ */
+@Service
+public class SyncLockService {
+    private static final Logger log = LoggerFactory.getLogger(SyncLockService.class);
+
+    private static final int BROJ_LOKALNIH_LOCKOVA = 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean postgres;
+    private final ReentrantLock[] lokalniLockovi = new ReentrantLock[BROJ_LOKALNIH_LOCKOVA];
+
+    public SyncLockService(JdbcTemplate jdbcTemplate, DataSource dataSource) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.postgres = isPostgres(dataSource);
+        for (int i = 0; i < lokalniLockovi.length; i++) {
+            lokalniLockovi[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Zaključava zadane lokalne ID-eve do kraja trenutne transakcije. Ključevi se zaključavaju
+     * uvijek istim redoslijedom kako se dva batcha s preklapajućim pregledima ne bi međusobno blokirala.
+     * Mora se pozvati unutar aktivne transakcije.
+     */
+    public void zakljucaj(Collection<UUID> lokalniIds) {
+        if (lokalniIds.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Sync lock zahtijeva aktivnu transakciju");
+        }
+
+        if (postgres) {
+            for (long kljuc : lokalniIds.stream().mapToLong(SyncLockService::kljuc).sorted().distinct().toArray()) {
+                jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?)", kljuc);
+            }
+            return;
+        }
+
+        List<ReentrantLock> zakljucani = lokalniIds.stream()
+                .mapToInt(id -> Math.floorMod(Long.hashCode(kljuc(id)), BROJ_LOKALNIH_LOCKOVA))
+                .sorted()
+                .distinct()
+                .mapToObj(i -> lokalniLockovi[i])
+                .toList();
+        zakljucani.forEach(ReentrantLock::lock);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                zakljucani.forEach(ReentrantLock::unlock);
+            }
+        });
+    }
+
+    static long kljuc(UUID lokalniId) {
+        return lokalniId.getMostSignificantBits() ^ lokalniId.getLeastSignificantBits();
+    }
+
+    static boolean isPostgres(DataSource dataSource) {
+        try {
+            String baza = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+            return "PostgreSQL".equalsIgnoreCase(baza);
+        } catch (MetaDataAccessException ex) {
+            log.warn("Vrsta baze nije prepoznata, sync lock radi samo unutar JVM-a: {}", ex.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package hr.elektropregled.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrike sinkronizacije pregleda: trajanje pojedinih faza ({@code elektropregled.sync.faza},
+ * oznake {@code faza} i {@code nacin}) i broj stavki po sinkroniziranom pregledu
+ * ({@code elektropregled.sync.stavke}). Histogrami se uključuju u application.properties.
+ * <p>
+ * Faze: {@code parse} (JSON u DTO), {@code resolve} (lock i dohvat referenci), {@code validate}
+ * (provjera stavki prema referencama, bez baze), {@code insert} (persist i flush) i {@code commit}.
+ * Strujna sinkronizacija obrađuje stavke u komadima, pa se kod nje provjera stavki i dohvat njihovih
+ * referenci broje u {@code insert}, a validacija anotacija u {@code parse}. Za {@code /sync},
+ * {@code /sync/batch} i {@code /sync/async} fazu {@code parse} bilježi
+ * {@link hr.elektropregled.handler.SyncParsiranjeAdvice}; {@code async} ima samo tu fazu, ostale
+ * faze asinkronih zahtjeva worker bilježi skupno kao {@code batch}.
+ */
+@Component
+public class SyncMetrike {
+    public enum Faza {
+        PARSE, RESOLVE, VALIDATE, INSERT, COMMIT
+    }
+
+    public enum Nacin {
+        SYNC, BATCH, STREAM, ASYNC
+    }
+
+    private final Map<Nacin, Map<Faza, Timer>> faze = new EnumMap<>(Nacin.class);
+    private final Map<Nacin, DistributionSummary> stavke = new EnumMap<>(Nacin.class);
+
+    public SyncMetrike(MeterRegistry registry) {
+        for (Nacin nacin : Nacin.values()) {
+            Map<Faza, Timer> poFazi = new EnumMap<>(Faza.class);
+            for (Faza faza : Faza.values()) {
+                poFazi.put(faza, Timer.builder("elektropregled.sync.faza")
+                        .description("Trajanje faze sinkronizacije pregleda")
+                        .tag("faza", oznaka(faza))
+                        .tag("nacin", oznaka(nacin))
+                        .register(registry));
+            }
+            faze.put(nacin, poFazi);
+            stavke.put(nacin, DistributionSummary.builder("elektropregled.sync.stavke")
+                    .description("Broj stavki po sinkroniziranom pregledu")
+                    .baseUnit("stavke")
+                    .tag("nacin", oznaka(nacin))
+                    .register(registry));
+        }
+    }
+
+    /**
+     * Bilježi fazu koja je počela u {@code pocetakNanos} ({@link System#nanoTime()}) i upravo završila.
+     */
+    public void zabiljezi(Nacin nacin, Faza faza, long pocetakNanos) {
+        zabiljeziTrajanje(nacin, faza, System.nanoTime() - pocetakNanos);
+    }
+
+    public void zabiljeziTrajanje(Nacin nacin, Faza faza, long trajanjeNanos) {
+        faze.get(nacin).get(faza).record(trajanjeNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void zabiljeziStavke(Nacin nacin, int brojStavki) {
+        stavke.get(nacin).record(brojStavki);
+    }
+
+    /**
+     * Mjeri commit trenutne transakcije (uključujući flush koji se dogodi tek pri commitu).
+     * Transakcija koja završi rollbackom se ne bilježi.
+     */
+    public void mjeriCommit(Nacin nacin) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private Long pocetak;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                pocetak = System.nanoTime();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED && pocetak != null) {
+                    zabiljezi(nacin, Faza.COMMIT, pocetak);
+                }
+            }
+        });
+    }
+
+    private static String oznaka(Enum<?> vrijednost) {
+        return vrijednost.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,237 @@
+package hr.elektropregled.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hr.elektropregled.dto.PregledSyncBatchRequest;
+import hr.elektropregled.dto.PregledSyncRequest;
+import hr.elektropregled.dto.SyncBatchResponse;
+import hr.elektropregled.dto.SyncResponse;
+import hr.elektropregled.dto.SyncTicketResponse;
+import hr.elektropregled.exception.NotFoundException;
+import hr.elektropregled.model.SyncZahtjev;
+import hr.elektropregled.repository.SyncZahtjevRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Trajni red za asinkronu sinkronizaciju. Zahtjev se u HTTP dretvi samo zapisuje u tablicu
+ * sync_zahtjev; validacija i upis pregleda odvijaju se kasnije u {@link SyncQueueWorker}-u.
+ */
+@Service
+public class SyncQueueService {
+    private static final Logger log = LoggerFactory.getLogger(SyncQueueService.class);
+
+    private final SyncZahtjevRepository syncZahtjevRepository;
+    private final PregledSyncService pregledSyncService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${sync.async.max-pokusaja:5}")
+    private int maxPokusaja;
+
+    public SyncQueueService(SyncZahtjevRepository syncZahtjevRepository,
+                            PregledSyncService pregledSyncService,
+                            ObjectMapper objectMapper) {
+        this.syncZahtjevRepository = syncZahtjevRepository;
+        this.pregledSyncService = pregledSyncService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional
+    public SyncTicketResponse enqueue(PregledSyncRequest request, String korisnickoIme) {
+        SyncZahtjev zahtjev = new SyncZahtjev();
+        zahtjev.setTicket(UUID.randomUUID());
+        zahtjev.setLokalniId(request.getPregled().getLokalniId());
+        zahtjev.setKorisnickoIme(korisnickoIme);
+        zahtjev.setStatus(SyncZahtjev.STATUS_PENDING);
+        zahtjev.setSadrzaj(toJson(request));
+        syncZahtjevRepository.save(zahtjev);
+        return new SyncTicketResponse(zahtjev.getTicket(), zahtjev.getStatus(), null, Instant.now());
+    }
+
+    @Transactional(readOnly = true)
+    public SyncTicketResponse status(UUID ticket, String korisnickoIme) {
+        SyncZahtjev zahtjev = syncZahtjevRepository.findByTicketAndKorisnickoIme(ticket, korisnickoIme)
+                .orElseThrow(() -> new NotFoundException("Sync zahtjev nije pronađen"));
+        SyncResponse rezultat = zahtjev.getOdgovor() != null ? fromJson(zahtjev.getOdgovor(), SyncResponse.class) : null;
+        return new SyncTicketResponse(zahtjev.getTicket(), zahtjev.getStatus(), rezultat, Instant.now());
+    }
+
+    /**
+     * Preuzima najviše {@code limit} zahtjeva na čekanju i označava ih kao PROCESSING s novim tokenom
+     * vlasnika. Vraćaju se samo retci s tim tokenom, pa zahtjevi koje je u međuvremenu preuzela
+     * druga instanca nisu uključeni.
+     */
+    @Transactional
+    public List<SyncZahtjev> claim(int limit) {
+        List<UUID> tickets = syncZahtjevRepository.findPendingTickets(PageRequest.of(0, limit));
+        if (tickets.isEmpty()) {
+            return List.of();
+        }
+        UUID vlasnik = UUID.randomUUID();
+        if (syncZahtjevRepository.claim(tickets, vlasnik, LocalDateTime.now()) == 0) {
+            return List.of();
+        }
+        return syncZahtjevRepository.findProcessingByVlasnik(vlasnik);
+    }
+
+    /**
+     * Obrađuje preuzete zahtjeve jednim pozivom {@link PregledSyncService#syncBatch} i sprema odgovor
+     * za svaki ticket. Ako cijeli batch padne, zahtjevi se obrađuju pojedinačno, svaki u svojoj
+     * transakciji, tako da jedan neispravan zahtjev ne blokira ostale. Zahtjev koji ni pojedinačno
+     * ne prođe vraća se na čekanje dok ne potroši {@code sync.async.max-pokusaja} pokušaja.
+     */
+    public void process(List<SyncZahtjev> zahtjevi) {
+        if (zahtjevi.isEmpty()) {
+            return;
+        }
+        List<SyncZahtjev> ispravni = new ArrayList<>(zahtjevi.size());
+        List<PregledSyncRequest> pregledi = new ArrayList<>(zahtjevi.size());
+        for (SyncZahtjev zahtjev : zahtjevi) {
+            try {
+                pregledi.add(fromJson(zahtjev.getSadrzaj(), PregledSyncRequest.class));
+                ispravni.add(zahtjev);
+            } catch (IllegalStateException ex) {
+                zavrsi(zahtjev, SyncZahtjev.STATUS_FAILED, odgovor(false, ex.getMessage(), null));
+            }
+        }
+        if (ispravni.isEmpty()) {
+            return;
+        }
+
+        SyncBatchResponse batch;
+        try {
+            batch = pregledSyncService.syncBatch(new PregledSyncBatchRequest(pregledi));
+        } catch (RuntimeException ex) {
+            if (ispravni.size() == 1) {
+                ponovi(ispravni.get(0), ex);
+                return;
+            }
+            log.warn("Obrada {} asinkronih sync zahtjeva u jednom batchu nije uspjela ({}), obrađuju se pojedinačno",
+                    ispravni.size(), ex.getMessage());
+            for (int i = 0; i < ispravni.size(); i++) {
+                obradiPojedinacno(ispravni.get(i), pregledi.get(i));
+            }
+            return;
+        }
+        spremiRezultate(ispravni, batch);
+    }
+
+    /**
+     * Vraća na čekanje zahtjeve koje je worker preuzeo, a nije završio (npr. neočekivana greška).
+     */
+    public int otpusti(List<SyncZahtjev> zahtjevi) {
+        Map<UUID, List<UUID>> poVlasniku = new HashMap<>();
+        for (SyncZahtjev zahtjev : zahtjevi) {
+            poVlasniku.computeIfAbsent(zahtjev.getVlasnik(), v -> new ArrayList<>()).add(zahtjev.getTicket());
+        }
+        int vraceno = 0;
+        for (Map.Entry<UUID, List<UUID>> e : poVlasniku.entrySet()) {
+            vraceno += syncZahtjevRepository.otpusti(e.getValue(), e.getKey());
+        }
+        return vraceno;
+    }
+
+    /**
+     * Vraća na čekanje zahtjeve koji su u obradi dulje od {@code timeout}; takve je preuzela
+     * instanca koja je u međuvremenu pala ili zapela.
+     */
+    @Transactional
+    public int resetStale(Duration timeout) {
+        return syncZahtjevRepository.resetStale(LocalDateTime.now().minus(timeout));
+    }
+
+    @Transactional
+    public int deleteFinishedBefore(LocalDateTime prije) {
+        return syncZahtjevRepository.deleteFinishedBefore(prije);
+    }
+
+    private void obradiPojedinacno(SyncZahtjev zahtjev, PregledSyncRequest pregled) {
+        try {
+            spremiRezultate(List.of(zahtjev), pregledSyncService.syncBatch(new PregledSyncBatchRequest(List.of(pregled))));
+        } catch (RuntimeException ex) {
+            ponovi(zahtjev, ex);
+        }
+    }
+
+    private void spremiRezultate(List<SyncZahtjev> zahtjevi, SyncBatchResponse batch) {
+        // Isti pregled dvaput u redu (klijent je ponovio async zahtjev): drugi dobiva mapiranja prvoga
+        Map<UUID, SyncBatchResponse.Rezultat> poPregledu = new HashMap<>();
+        for (SyncBatchResponse.Rezultat rezultat : batch.getRezultati()) {
+            if (rezultat.getIdMappings() != null) {
+                poPregledu.putIfAbsent(rezultat.getLokalniId(), rezultat);
+            }
+        }
+
+        for (int i = 0; i < zahtjevi.size(); i++) {
+            SyncBatchResponse.Rezultat rezultat = batch.getRezultati().get(i);
+            if (rezultat.getStatus() == SyncBatchResponse.Status.DUPLICATE && rezultat.getIdMappings() == null
+                    && poPregledu.containsKey(rezultat.getLokalniId())) {
+                SyncBatchResponse.Rezultat prvi = poPregledu.get(rezultat.getLokalniId());
+                rezultat.setServerPregledId(prvi.getServerPregledId());
+                rezultat.setIdMappings(prvi.getIdMappings());
+            }
+            boolean uspjeh = rezultat.getStatus() != SyncBatchResponse.Status.REJECTED;
+            zavrsi(zahtjevi.get(i), uspjeh ? SyncZahtjev.STATUS_DONE : SyncZahtjev.STATUS_FAILED,
+                    odgovor(uspjeh, rezultat.getMessage(), rezultat));
+        }
+    }
+
+    private void ponovi(SyncZahtjev zahtjev, RuntimeException ex) {
+        log.warn("Obrada asinkronog sync zahtjeva {} nije uspjela (pokušaj {}): {}",
+                zahtjev.getTicket(), zahtjev.getPokusaji(), ex.getMessage());
+        if (zahtjev.getPokusaji() >= maxPokusaja) {
+            zavrsi(zahtjev, SyncZahtjev.STATUS_FAILED, odgovor(false, "Sinkronizacija nije uspjela: " + ex.getMessage(), null));
+        } else {
+            syncZahtjevRepository.otpusti(List.of(zahtjev.getTicket()), zahtjev.getVlasnik());
+        }
+    }
+
+    private void zavrsi(SyncZahtjev zahtjev, String status, SyncResponse odgovor) {
+        int spremljeno = syncZahtjevRepository.zavrsi(zahtjev.getTicket(), zahtjev.getVlasnik(), status, toJson(odgovor));
+        if (spremljeno == 0) {
+            // Preuzimanje je u međuvremenu isteklo i zahtjev je vraćen na čekanje
+            log.warn("Asinkroni sync zahtjev {} više nije preuzet od ovog workera, ishod se ne sprema", zahtjev.getTicket());
+        }
+    }
+
+    private SyncResponse odgovor(boolean success, String message, SyncBatchResponse.Rezultat rezultat) {
+        SyncResponse response = new SyncResponse();
+        response.setSuccess(success);
+        response.setMessage(message);
+        if (rezultat != null) {
+            response.setServerPregledId(rezultat.getServerPregledId());
+            response.setIdMappings(rezultat.getIdMappings());
+        }
+        response.setTimestamp(Instant.now());
+        return response;
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Serijalizacija nije uspjela", ex);
+        }
+    }
+
+    private <T> T fromJson(String json, Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Spremljeni sync zahtjev je neispravan", ex);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package hr.elektropregled.service;
+
+import hr.elektropregled.model.SyncZahtjev;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Periodično prazni red asinkronih sync zahtjeva. Svaka slobodna dretva iz {@code syncQueueExecutor}
+ * preuzima batch od najviše {@code sync.async.batch-size} zahtjeva; kad su sve dretve zauzete,
+ * zahtjevi ostaju u tablici do sljedećeg ciklusa.
+ */
+@Component
+public class SyncQueueWorker {
+    private static final Logger log = LoggerFactory.getLogger(SyncQueueWorker.class);
+
+    private final SyncQueueService syncQueueService;
+    private final ThreadPoolTaskExecutor syncQueueExecutor;
+
+    @Value("${sync.async.batch-size:50}")
+    private int batchSize;
+
+    @Value("${sync.async.retention-days:7}")
+    private int retentionDays;
+
+    @Value("${sync.async.preuzimanje-timeout:PT10M}")
+    private Duration preuzimanjeTimeout;
+
+    public SyncQueueWorker(SyncQueueService syncQueueService,
+                           @Qualifier("syncQueueExecutor") ThreadPoolTaskExecutor syncQueueExecutor) {
+        this.syncQueueService = syncQueueService;
+        this.syncQueueExecutor = syncQueueExecutor;
+    }
+
+    /**
+     * Zahtjevi koji su u obradi dulje od {@code sync.async.preuzimanje-timeout} vraćaju se na čekanje.
+     * Tako se oporavljaju zahtjevi instance koja je pala, bez diranja onih koje druge instance
+     * upravo obrađuju.
+     */
+    @Scheduled(initialDelayString = "${sync.async.reset-ms:60000}", fixedDelayString = "${sync.async.reset-ms:60000}")
+    public void resetStale() {
+        int vraceno = syncQueueService.resetStale(preuzimanjeTimeout);
+        if (vraceno > 0) {
+            log.info("Vraćeno {} nedovršenih asinkronih sync zahtjeva na čekanje", vraceno);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${sync.async.poll-ms:500}")
+    public void drain() {
+        while (syncQueueExecutor.getActiveCount() < syncQueueExecutor.getMaxPoolSize()) {
+            List<SyncZahtjev> zahtjevi = syncQueueService.claim(batchSize);
+            if (zahtjevi.isEmpty()) {
+                return;
+            }
+            try {
+                syncQueueExecutor.execute(() -> obradi(zahtjevi));
+            } catch (TaskRejectedException ex) {
+                // Executor je zasićen ili se gasi; preuzeti zahtjevi odmah se vraćaju na čekanje
+                syncQueueService.otpusti(zahtjevi);
+                return;
+            }
+        }
+    }
+
+    @Scheduled(cron = "${sync.async.cleanup-cron:0 30 3 * * *}")
+    public void cleanup() {
+        int obrisano = syncQueueService.deleteFinishedBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (obrisano > 0) {
+            log.info("Obrisano {} završenih asinkronih sync zahtjeva", obrisano);
+        }
+    }
+
+    private void obradi(List<SyncZahtjev> zahtjevi) {
+        try {
+            syncQueueService.process(zahtjevi);
+        } catch (RuntimeException ex) {
+            log.error("Neočekivana greška pri obradi asinkronih sync zahtjeva", ex);
+            try {
+                syncQueueService.otpusti(zahtjevi);
+            } catch (RuntimeException otpustanje) {
+                // Ostaju PROCESSING dok ih ne vrati resetStale nakon isteka preuzimanja
+                log.warn("Nedovršeni sync zahtjevi nisu vraćeni na čekanje: {}", otpustanje.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package hr.elektropregled.service;
+
+import hr.elektropregled.model.VerzijaPodataka;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Jeftine oznake verzije za uvjetne GET zahtjeve nad /v1/postrojenja. ETag se sastavlja iz
+ * verzije kataloga ({@code verzija_podataka}) i verzije retka {@code postrojenje_stats}, pa
+ * provjera If-None-Match staje u jedan upit po primarnom ključu, bez učitavanja i hashiranja
+ * odgovora.
+ * <p>
+ * Na PostgreSQL-u katalog povećavaju okidači iz migracije V8 (Flyway je primjenjuje pri
+ * pokretanju), koji ujedno pune dnevnik {@code katalog_promjena} za delta sinkronizaciju i
+ * hvataju i izmjene napravljene izravno u bazi. Bez okidača (H2 u testovima) promjene koje radi
+ * sama aplikacija bilježi {@link #zabiljeziPromjenu}, koju pozivaju {@link KatalogListener} i
+ * {@link ParametarProvjereListener}.
+ */
+@Service
+public class VerzijaPodatakaService {
+    private static final String KATALOG_SQL =
+            "SELECT COALESCE(MAX(verzija), 0) FROM verzija_podataka WHERE kljuc = '" + VerzijaPodataka.KATALOG + "'";
+
+    private static final String POPIS = "SELECT (" + KATALOG_SQL + ") AS katalog, " +
+            "(SELECT COALESCE(SUM(verzija), 0) FROM postrojenje_stats) AS postrojenja";
+
+    private static final String POSTROJENJE = "SELECT (" + KATALOG_SQL + ") AS katalog, " +
+            "(SELECT COALESCE(MAX(verzija), 0) FROM postrojenje_stats WHERE id_postr = :idPostr) AS postrojenje";
+
+    private static final String POVECAJ_PG = """
+            INSERT INTO verzija_podataka (kljuc, verzija) VALUES (:kljuc, 1)
+            ON CONFLICT (kljuc) DO UPDATE SET verzija = verzija_podataka.verzija + 1
+            RETURNING verzija
+            """;
+
+    private static final String OKIDACI_PG =
+            "SELECT COUNT(*) FROM pg_trigger WHERE tgname = 'trg_parametar_provjere_promjena'";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ChecklistTemplateCache checklistTemplateCache;
+    private final ReferentniCache referentniCache;
+    private final Imenik imenik;
+    private final boolean postgres;
+    // Provjerava se pri prvoj promjeni, ne u konstruktoru, jer bean može nastati prije Flyway migracije
+    private volatile Boolean okidaci;
+
+    // Zadnja viđena verzija kataloga; rast znači da su se parametri možda promijenili mimo JPA
+    private final AtomicLong zadnjiKatalog = new AtomicLong(-1);
+
+    public VerzijaPodatakaService(NamedParameterJdbcTemplate jdbcTemplate,
+                                  ChecklistTemplateCache checklistTemplateCache,
+                                  ReferentniCache referentniCache,
+                                  Imenik imenik,
+                                  DataSource dataSource) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.checklistTemplateCache = checklistTemplateCache;
+        this.referentniCache = referentniCache;
+        this.imenik = imenik;
+        this.postgres = SyncLockService.isPostgres(dataSource);
+    }
+
+    /**
+     * Oznaka za popis postrojenja: katalog i zbroj verzija svih redaka statistike.
+     */
+    public String oznakaPopisa() {
+        return jdbcTemplate.queryForObject(POPIS, Map.of(),
+                (rs, i) -> oznaka(rs.getLong("katalog"), rs.getLong("postrojenja")));
+    }
+
+    /**
+     * Oznaka za polja jednog postrojenja; ovise samo o katalogu.
+     */
+    public String oznakaPolja() {
+        return "k" + katalog();
+    }
+
+    /**
+     * Oznaka za checklist postrojenja: katalog i verzija statistike postrojenja (svaki novi
+     * pregled mijenja zadnje vrijednosti).
+     */
+    public String oznakaPostrojenja(Integer idPostr) {
+        return jdbcTemplate.queryForObject(POSTROJENJE, Map.of("idPostr", idPostr),
+                (rs, i) -> oznaka(rs.getLong("katalog"), rs.getLong("postrojenje")));
+    }
+
+    /**
+     * Povećava verziju kataloga unutar trenutne transakcije i vraća novu verziju.
+     */
+    public long povecajKatalog() {
+        MapSqlParameterSource parametri = new MapSqlParameterSource("kljuc", VerzijaPodataka.KATALOG);
+        if (postgres) {
+            return jdbcTemplate.queryForObject(POVECAJ_PG, parametri, Long.class);
+        }
+        if (jdbcTemplate.update("UPDATE verzija_podataka SET verzija = verzija + 1 WHERE kljuc = :kljuc", parametri) == 0) {
+            jdbcTemplate.update("INSERT INTO verzija_podataka (kljuc, verzija) VALUES (:kljuc, 1)", parametri);
+        }
+        return jdbcTemplate.queryForObject("SELECT verzija FROM verzija_podataka WHERE kljuc = :kljuc", parametri, Long.class);
+    }
+
+    /**
+     * Bilježi promjenu retka referentne tablice koju je napravila aplikacija. Ako su okidači
+     * iz V8 instalirani, oni su promjenu već zabilježili pa se ne radi ništa.
+     */
+    public void zabiljeziPromjenu(String tablica, Integer idZapisa, String operacija) {
+        if (idZapisa == null || okidaci()) {
+            return;
+        }
+        long verzija = povecajKatalog();
+        jdbcTemplate.update("""
+                INSERT INTO katalog_promjena (verzija, tablica, id_zapisa, operacija, promijenjeno_at)
+                VALUES (:verzija, :tablica, :idZapisa, :operacija, CURRENT_TIMESTAMP)
+                """, new MapSqlParameterSource()
+                .addValue("verzija", verzija)
+                .addValue("tablica", tablica)
+                .addValue("idZapisa", idZapisa)
+                .addValue("operacija", operacija));
+    }
+
+    private boolean okidaci() {
+        Boolean instalirani = okidaci;
+        if (instalirani == null) {
+            instalirani = postgres && jdbcTemplate.queryForObject(OKIDACI_PG, Map.of(), Long.class) > 0;
+            okidaci = instalirani;
+        }
+        return instalirani;
+    }
+
+    /**
+     * Najveća verzija obrisana iz dnevnika promjena (0 ako dnevnik nikad nije čišćen).
+     * Klijent sa starijom verzijom mora ponovno preuzeti cijeli katalog.
+     */
+    public long obrezanoDo() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(verzija), 0) FROM verzija_podataka WHERE kljuc = :kljuc",
+                Map.of("kljuc", VerzijaPodataka.KATALOG_OBREZANO), Long.class);
+    }
+
+    public void postaviObrezanoDo(long verzija) {
+        MapSqlParameterSource parametri = new MapSqlParameterSource()
+                .addValue("kljuc", VerzijaPodataka.KATALOG_OBREZANO)
+                .addValue("verzija", verzija);
+        if (jdbcTemplate.update("UPDATE verzija_podataka SET verzija = GREATEST(verzija, :verzija) WHERE kljuc = :kljuc", parametri) == 0) {
+            jdbcTemplate.update("INSERT INTO verzija_podataka (kljuc, verzija) VALUES (:kljuc, :verzija)", parametri);
+        }
+    }
+
+    public long katalog() {
+        long katalog = jdbcTemplate.queryForObject(KATALOG_SQL, Map.of(), Long.class);
+        pratiKatalog(katalog);
+        return katalog;
+    }
+
+    private String oznaka(long katalog, long verzija) {
+        pratiKatalog(katalog);
+        return "k" + katalog + "-v" + verzija;
+    }
+
+    // Predložak, L2 unos ili imenik izgrađen prije promjene kataloga ne smije završiti u odgovoru s novim ETag-om
+    private void pratiKatalog(long katalog) {
+        long prethodni = zadnjiKatalog.getAndAccumulate(katalog, Math::max);
+        if (prethodni >= 0 && katalog > prethodni) {
+            checklistTemplateCache.invalidirajSve();
+            referentniCache.isprazni();
+            imenik.zastarjelo();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package hr.elektropregled.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * Pretvara NDJSON ulaz (jedan JSON objekt po retku) u CSV redak po redak, tako da se može
+ * proslijediti PostgreSQL COPY naredbi bez učitavanja cijelog ulaza u memoriju.
+ * <p>
+ * Stupci se zapisuju redoslijedom iz {@code stupci}; nepostojeća ili null polja postaju NULL.
+ * Redak koji nije ispravan JSON objekt zapisuje se s popunjenim stupcem {@code greskaStupac},
+ * kako bi ga validacija u bazi odbila umjesto da prekine cijeli COPY.
+ */
+public class NdjsonCsvReader extends Reader {
+    private final BufferedReader source;
+    private final ObjectMapper objectMapper;
+    private final List<String> stupci;
+    private final String greskaStupac;
+    private final StringBuilder buffer = new StringBuilder();
+    private int position;
+    private boolean eof;
+
+    public NdjsonCsvReader(Reader source, ObjectMapper objectMapper, List<String> stupci, String greskaStupac) {
+        this.source = source instanceof BufferedReader br ? br : new BufferedReader(source);
+        this.objectMapper = objectMapper;
+        this.stupci = stupci;
+        this.greskaStupac = greskaStupac;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (position >= buffer.length()) {
+            if (eof || !fillBuffer()) {
+                return -1;
+            }
+        }
+        int count = Math.min(len, buffer.length() - position);
+        buffer.getChars(position, position + count, cbuf, off);
+        position += count;
+        return count;
+    }
+
+    private boolean fillBuffer() throws IOException {
+        buffer.setLength(0);
+        position = 0;
+        String line;
+        do {
+            line = source.readLine();
+            if (line == null) {
+                eof = true;
+                return false;
+            }
+        } while (line.isBlank());
+
+        JsonNode node = null;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (JsonProcessingException ignored) {
+            // obrađuje se ispod kao neispravan redak
+        }
+
+        for (int i = 0; i < stupci.size(); i++) {
+            if (i > 0) {
+                buffer.append(',');
+            }
+            String stupac = stupci.get(i);
+            if (node == null || !node.isObject()) {
+                if (stupac.equals(greskaStupac)) {
+                    appendQuoted("Neispravan JSON redak");
+                }
+                continue;
+            }
+            JsonNode value = node.get(stupac);
+            if (value != null && !value.isNull()) {
+                appendQuoted(value.isValueNode() ? value.asText() : value.toString());
+            }
+        }
+        buffer.append('\n');
+        return true;
+    }
+
+    private void appendQuoted(String value) {
+        buffer.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+}
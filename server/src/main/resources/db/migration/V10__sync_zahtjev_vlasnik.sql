@@ -0,0 +1,7 @@
+-- Vlasnik preuzimanja asinkronog sync zahtjeva. Svako preuzimanje dobiva novi token, pa worker
+-- učitava i završava samo retke koje je sam preuzeo, čak i kad više instanci dijeli istu tablicu.
+-- Zahtjev koji predugo ostane PROCESSING (instanca je pala) vraća se na čekanje prema preuzeto_at.
+ALTER TABLE sync_zahtjev ADD COLUMN IF NOT EXISTS vlasnik UUID;
+ALTER TABLE sync_zahtjev ADD COLUMN IF NOT EXISTS preuzeto_at TIMESTAMP;
+
+CREATE INDEX IF NOT EXISTS idx_sync_zahtjev_vlasnik ON sync_zahtjev(vlasnik);
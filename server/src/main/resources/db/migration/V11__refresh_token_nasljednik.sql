@@ -0,0 +1,4 @@
+-- Sažetak tokena koji je nastao rotacijom ovoga. Klijent koji nije primio odgovor rotacije
+-- (timeout) smije unutar jwt.refresh.milost ponoviti zahtjev starim tokenom i dobiva isti
+-- nasljednik, dok ga ne upotrijebi; nakon toga je ponovna upotreba starog tokena krađa.
+ALTER TABLE refresh_token ADD COLUMN IF NOT EXISTS nasljednik CHAR(64);
@@ -0,0 +1,10 @@
+-- Pregled i StavkaPregleda koriste @SequenceGenerator(allocationSize = 50) s pooled optimizerom,
+-- čime Hibernate može batchati INSERT-e (IDENTITY to onemogućuje).
+-- Pooled optimizer zahtijeva da sekvenca raste za allocationSize; svaka vrijednost sekvence v
+-- rezervira raspon (v - 49, v], pa su i INSERT-i koji koriste DEFAULT nextval(...) i dalje sigurni.
+ALTER SEQUENCE pregled_id_preg_seq INCREMENT BY 50;
+ALTER SEQUENCE stavka_pregleda_id_stavke_seq INCREMENT BY 50;
+
+-- Pomakni sekvence iza trenutnog maksimuma kako prvi rezervirani raspon ne bi preklopio postojeće ID-eve
+SELECT setval('pregled_id_preg_seq', COALESCE((SELECT MAX(id_preg) FROM pregled), 0) + 50, true);
+SELECT setval('stavka_pregleda_id_stavke_seq', COALESCE((SELECT MAX(id_stavke) FROM stavka_pregleda), 0) + 50, true);
@@ -0,0 +1,13 @@
+-- Zapis uspješnih sinkronizacija za idempotentan replay: ponovljeni POST /v1/pregled/sync
+-- s istim pregled.lokalni_id vraća izvorna mapiranja ID-eva umjesto 409.
+CREATE TABLE IF NOT EXISTS sync_zapis (
+    lokalni_id UUID NOT NULL,
+    id_preg INT NOT NULL,
+    mapiranja TEXT NOT NULL,
+    created_at TIMESTAMP,
+    CONSTRAINT pk_sync_zapis PRIMARY KEY (lokalni_id),
+    CONSTRAINT fk_sync_zapis_pregled FOREIGN KEY (id_preg) REFERENCES pregled(id_preg) ON DELETE CASCADE
+);
+
+-- Pregledi sinkronizirani prije ove migracije nemaju zapis; servis ga izgradi
+-- iz stavki pri prvom ponovljenom zahtjevu.
@@ -0,0 +1,17 @@
+-- Red za asinkronu sinkronizaciju (POST /v1/pregled/sync/async -> 202 + ticket).
+-- Worker preuzima PENDING zapise, obrađuje ih kroz PregledSyncService i sprema odgovor.
+CREATE TABLE IF NOT EXISTS sync_zahtjev (
+    ticket UUID NOT NULL,
+    lokalni_id UUID NOT NULL,
+    korisnicko_ime VARCHAR(30) NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    sadrzaj TEXT NOT NULL,
+    odgovor TEXT,
+    pokusaji INT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP,
+    updated_at TIMESTAMP,
+    CONSTRAINT pk_sync_zahtjev PRIMARY KEY (ticket),
+    CONSTRAINT chk_sync_zahtjev_status CHECK (status IN ('PENDING', 'PROCESSING', 'DONE', 'FAILED'))
+);
+
+CREATE INDEX IF NOT EXISTS idx_sync_zahtjev_status ON sync_zahtjev(status, created_at);
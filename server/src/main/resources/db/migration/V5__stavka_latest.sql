@@ -0,0 +1,30 @@
+-- Zadnja vrijednost po paru (uređaj, parametar) za checklist, umjesto DISTINCT ON
+-- preko cijele povijesti stavki. Održava je PregledSyncService u istoj transakciji kao
+-- sinkronizaciju; skupni unos osvježava parove koje je unio.
+CREATE TABLE IF NOT EXISTS stavka_latest (
+    id_ured INT NOT NULL,
+    id_parametra INT NOT NULL,
+    id_stavke INT NOT NULL,
+    id_preg INT NOT NULL,
+    vrijednost_bool BOOLEAN,
+    vrijednost_num DECIMAL(10, 2),
+    vrijednost_txt VARCHAR(255),
+    pregled_kraj TIMESTAMP,
+    pregled_pocetak TIMESTAMP NOT NULL,
+    zadnji_pregled_at TIMESTAMP,
+    updated_at TIMESTAMP,
+    CONSTRAINT pk_stavka_latest PRIMARY KEY (id_ured, id_parametra),
+    CONSTRAINT fk_stavka_latest_uredaj FOREIGN KEY (id_ured) REFERENCES uredaj(id_ured) ON DELETE CASCADE,
+    CONSTRAINT fk_stavka_latest_parametar FOREIGN KEY (id_parametra) REFERENCES parametar_provjere(id_parametra) ON DELETE CASCADE
+);
+
+-- Početno punjenje iz postojeće povijesti (isto radi POST /v1/admin/stavka-latest/obnovi)
+INSERT INTO stavka_latest (id_ured, id_parametra, id_stavke, id_preg, vrijednost_bool, vrijednost_num,
+                           vrijednost_txt, pregled_kraj, pregled_pocetak, zadnji_pregled_at, updated_at)
+SELECT DISTINCT ON (s.id_ured, s.id_parametra)
+       s.id_ured, s.id_parametra, s.id_stavke, s.id_preg, s.vrijednost_bool, s.vrijednost_num,
+       s.vrijednost_txt, p.kraj, p.pocetak, COALESCE(p.kraj, p.pocetak, p.created_at), now()
+FROM stavka_pregleda s
+JOIN pregled p ON p.id_preg = s.id_preg
+ORDER BY s.id_ured, s.id_parametra, p.kraj DESC NULLS LAST, p.pocetak DESC NULLS LAST, s.id_stavke DESC
+ON CONFLICT DO NOTHING;
@@ -0,0 +1,25 @@
+-- Statistika pregleda po postrojenju (GET /v1/postrojenja) umjesto GROUP BY nad cijelom
+-- tablicom pregled i koreliranog podupita za zadnjeg korisnika. Održava je PregledSyncService
+-- pri svakoj sinkronizaciji; POST /v1/admin/postrojenje-stats/obnovi je gradi ispočetka.
+CREATE TABLE IF NOT EXISTS postrojenje_stats (
+    id_postr INT NOT NULL,
+    ukupno_pregleda BIGINT NOT NULL DEFAULT 0,
+    zadnji_pregled_at TIMESTAMP,
+    zadnji_id_preg INT,
+    zadnji_korisnik VARCHAR(30),
+    updated_at TIMESTAMP,
+    CONSTRAINT pk_postrojenje_stats PRIMARY KEY (id_postr),
+    CONSTRAINT fk_postrojenje_stats_postrojenje FOREIGN KEY (id_postr) REFERENCES postrojenje(id_postr) ON DELETE CASCADE
+);
+
+INSERT INTO postrojenje_stats (id_postr, ukupno_pregleda, zadnji_pregled_at, zadnji_id_preg, zadnji_korisnik, updated_at)
+SELECT a.id_postr, a.ukupno, z.zadnji_pregled_at, z.id_preg, z.korisnicko_ime, now()
+FROM (SELECT id_postr, COUNT(*) AS ukupno FROM pregled GROUP BY id_postr) a
+JOIN (
+    SELECT DISTINCT ON (p.id_postr)
+           p.id_postr, COALESCE(p.kraj, p.pocetak, p.created_at) AS zadnji_pregled_at, p.id_preg, k.korisnicko_ime
+    FROM pregled p
+    JOIN korisnik k ON k.id_korisnika = p.id_korisnika
+    ORDER BY p.id_postr, COALESCE(p.kraj, p.pocetak, p.created_at) DESC NULLS LAST, p.id_preg DESC
+) z ON z.id_postr = a.id_postr
+ON CONFLICT DO NOTHING;
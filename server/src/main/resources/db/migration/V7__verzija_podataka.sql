@@ -0,0 +1,37 @@
+-- Oznake verzije za ETag na GET /v1/postrojenja/**: verzija kataloga (referentni podaci)
+-- i verzija retka postrojenje_stats (novi pregledi). Provjera If-None-Match tada čita samo
+-- ove brojače umjesto cijelog odgovora.
+CREATE TABLE IF NOT EXISTS verzija_podataka (
+    kljuc VARCHAR(30) NOT NULL,
+    verzija BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT pk_verzija_podataka PRIMARY KEY (kljuc)
+);
+
+INSERT INTO verzija_podataka (kljuc, verzija) VALUES ('katalog', 1) ON CONFLICT DO NOTHING;
+
+ALTER TABLE postrojenje_stats ADD COLUMN IF NOT EXISTS verzija BIGINT NOT NULL DEFAULT 1;
+
+-- Izmjene referentnih podataka izravno u bazi (skripte, import šifrarnika) također mijenjaju ETag
+CREATE OR REPLACE FUNCTION povecaj_verziju_kataloga() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO verzija_podataka (kljuc, verzija) VALUES ('katalog', 1)
+    ON CONFLICT (kljuc) DO UPDATE SET verzija = verzija_podataka.verzija + 1;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_postrojenje_katalog ON postrojenje;
+CREATE TRIGGER trg_postrojenje_katalog AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON postrojenje
+    FOR EACH STATEMENT EXECUTE FUNCTION povecaj_verziju_kataloga();
+DROP TRIGGER IF EXISTS trg_polje_katalog ON polje;
+CREATE TRIGGER trg_polje_katalog AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON polje
+    FOR EACH STATEMENT EXECUTE FUNCTION povecaj_verziju_kataloga();
+DROP TRIGGER IF EXISTS trg_uredaj_katalog ON uredaj;
+CREATE TRIGGER trg_uredaj_katalog AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON uredaj
+    FOR EACH STATEMENT EXECUTE FUNCTION povecaj_verziju_kataloga();
+DROP TRIGGER IF EXISTS trg_vrsta_uredaja_katalog ON vrsta_uredaja;
+CREATE TRIGGER trg_vrsta_uredaja_katalog AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON vrsta_uredaja
+    FOR EACH STATEMENT EXECUTE FUNCTION povecaj_verziju_kataloga();
+DROP TRIGGER IF EXISTS trg_parametar_provjere_katalog ON parametar_provjere;
+CREATE TRIGGER trg_parametar_provjere_katalog AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON parametar_provjere
+    FOR EACH STATEMENT EXECUTE FUNCTION povecaj_verziju_kataloga();
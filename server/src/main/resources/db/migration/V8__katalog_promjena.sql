@@ -0,0 +1,90 @@
+-- Dnevnik promjena referentnih podataka za GET /v1/sync/changes?since={verzija}. Svaki
+-- promijenjeni redak dobiva novu verziju kataloga (verzija_podataka.katalog); klijent
+-- pamti zadnju primljenu verziju i dohvaća samo retke promijenjene nakon nje.
+CREATE TABLE IF NOT EXISTS katalog_promjena (
+    verzija BIGINT NOT NULL,
+    tablica VARCHAR(30) NOT NULL,
+    id_zapisa INT NOT NULL,
+    operacija CHAR(1) NOT NULL,
+    promijenjeno_at TIMESTAMP NOT NULL DEFAULT now(),
+    CONSTRAINT pk_katalog_promjena PRIMARY KEY (verzija),
+    CONSTRAINT chk_katalog_promjena_operacija CHECK (operacija IN ('I', 'U', 'D', 'T'))
+);
+
+CREATE INDEX IF NOT EXISTS idx_katalog_promjena_vrijeme ON katalog_promjena (promijenjeno_at);
+
+-- Okidači po naredbi iz V7 zamjenjuju se okidačima po retku koji uz povećanje verzije
+-- bilježe i koji je redak promijenjen. Zaključani redak 'katalog' u verzija_podataka
+-- serijalizira pisce, pa verzije postaju vidljive redoslijedom kojim su dodijeljene.
+DROP TRIGGER IF EXISTS trg_postrojenje_katalog ON postrojenje;
+DROP TRIGGER IF EXISTS trg_polje_katalog ON polje;
+DROP TRIGGER IF EXISTS trg_uredaj_katalog ON uredaj;
+DROP TRIGGER IF EXISTS trg_vrsta_uredaja_katalog ON vrsta_uredaja;
+DROP TRIGGER IF EXISTS trg_parametar_provjere_katalog ON parametar_provjere;
+DROP FUNCTION IF EXISTS povecaj_verziju_kataloga();
+
+CREATE OR REPLACE FUNCTION zabiljezi_promjenu_kataloga() RETURNS trigger AS $$
+DECLARE
+    nova BIGINT;
+    novi_id INT;
+    stari_id INT;
+BEGIN
+    INSERT INTO verzija_podataka (kljuc, verzija) VALUES ('katalog', 1)
+    ON CONFLICT (kljuc) DO UPDATE SET verzija = verzija_podataka.verzija + 1
+    RETURNING verzija INTO nova;
+
+    IF TG_OP = 'TRUNCATE' THEN
+        INSERT INTO katalog_promjena (verzija, tablica, id_zapisa, operacija) VALUES (nova, TG_TABLE_NAME, 0, 'T');
+        RETURN NULL;
+    END IF;
+
+    IF TG_OP <> 'INSERT' THEN
+        stari_id := (to_jsonb(OLD) ->> TG_ARGV[0])::int;
+    END IF;
+    IF TG_OP <> 'DELETE' THEN
+        novi_id := (to_jsonb(NEW) ->> TG_ARGV[0])::int;
+    END IF;
+
+    INSERT INTO katalog_promjena (verzija, tablica, id_zapisa, operacija)
+    VALUES (nova, TG_TABLE_NAME, COALESCE(novi_id, stari_id), left(TG_OP, 1));
+
+    -- Promjena primarnog ključa: stari redak za klijenta više ne postoji
+    IF TG_OP = 'UPDATE' AND stari_id IS DISTINCT FROM novi_id THEN
+        UPDATE verzija_podataka SET verzija = verzija + 1 WHERE kljuc = 'katalog' RETURNING verzija INTO nova;
+        INSERT INTO katalog_promjena (verzija, tablica, id_zapisa, operacija) VALUES (nova, TG_TABLE_NAME, stari_id, 'D');
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_postrojenje_promjena ON postrojenje;
+CREATE TRIGGER trg_postrojenje_promjena AFTER INSERT OR UPDATE OR DELETE ON postrojenje
+    FOR EACH ROW EXECUTE FUNCTION zabiljezi_promjenu_kataloga('id_postr');
+DROP TRIGGER IF EXISTS trg_polje_promjena ON polje;
+CREATE TRIGGER trg_polje_promjena AFTER INSERT OR UPDATE OR DELETE ON polje
+    FOR EACH ROW EXECUTE FUNCTION zabiljezi_promjenu_kataloga('id_polje');
+DROP TRIGGER IF EXISTS trg_uredaj_promjena ON uredaj;
+CREATE TRIGGER trg_uredaj_promjena AFTER INSERT OR UPDATE OR DELETE ON uredaj
+    FOR EACH ROW EXECUTE FUNCTION zabiljezi_promjenu_kataloga('id_ured');
+DROP TRIGGER IF EXISTS trg_vrsta_uredaja_promjena ON vrsta_uredaja;
+CREATE TRIGGER trg_vrsta_uredaja_promjena AFTER INSERT OR UPDATE OR DELETE ON vrsta_uredaja
+    FOR EACH ROW EXECUTE FUNCTION zabiljezi_promjenu_kataloga('id_vr_ured');
+DROP TRIGGER IF EXISTS trg_parametar_provjere_promjena ON parametar_provjere;
+CREATE TRIGGER trg_parametar_provjere_promjena AFTER INSERT OR UPDATE OR DELETE ON parametar_provjere
+    FOR EACH ROW EXECUTE FUNCTION zabiljezi_promjenu_kataloga('id_parametra');
+
+DROP TRIGGER IF EXISTS trg_postrojenje_truncate ON postrojenje;
+CREATE TRIGGER trg_postrojenje_truncate AFTER TRUNCATE ON postrojenje
+    FOR EACH STATEMENT EXECUTE FUNCTION zabiljezi_promjenu_kataloga();
+DROP TRIGGER IF EXISTS trg_polje_truncate ON polje;
+CREATE TRIGGER trg_polje_truncate AFTER TRUNCATE ON polje
+    FOR EACH STATEMENT EXECUTE FUNCTION zabiljezi_promjenu_kataloga();
+DROP TRIGGER IF EXISTS trg_uredaj_truncate ON uredaj;
+CREATE TRIGGER trg_uredaj_truncate AFTER TRUNCATE ON uredaj
+    FOR EACH STATEMENT EXECUTE FUNCTION zabiljezi_promjenu_kataloga();
+DROP TRIGGER IF EXISTS trg_vrsta_uredaja_truncate ON vrsta_uredaja;
+CREATE TRIGGER trg_vrsta_uredaja_truncate AFTER TRUNCATE ON vrsta_uredaja
+    FOR EACH STATEMENT EXECUTE FUNCTION zabiljezi_promjenu_kataloga();
+DROP TRIGGER IF EXISTS trg_parametar_provjere_truncate ON parametar_provjere;
+CREATE TRIGGER trg_parametar_provjere_truncate AFTER TRUNCATE ON parametar_provjere
+    FOR EACH STATEMENT EXECUTE FUNCTION zabiljezi_promjenu_kataloga();
@@ -0,0 +1,17 @@
+-- Refresh tokeni za POST /v1/auth/refresh: novi access token bez ponovne BCrypt prijave.
+-- Sprema se samo SHA-256 sažetak tokena (token ima 256 bita slučajnosti, pa brzi sažetak
+-- dovoljan), a pretraga je po primarnom ključu. Svako osvježavanje opoziva korišteni token i
+-- izdaje novi iz iste obitelji; ponovna upotreba opozvanog tokena opoziva cijelu obitelj.
+CREATE TABLE IF NOT EXISTS refresh_token (
+    sazetak CHAR(64) NOT NULL,
+    id_korisnika INT NOT NULL,
+    obitelj UUID NOT NULL,
+    istjece_at TIMESTAMP NOT NULL,
+    opozvan_at TIMESTAMP,
+    created_at TIMESTAMP,
+    CONSTRAINT pk_refresh_token PRIMARY KEY (sazetak),
+    CONSTRAINT fk_refresh_token_korisnik FOREIGN KEY (id_korisnika) REFERENCES korisnik(id_korisnika) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_refresh_token_obitelj ON refresh_token (obitelj);
+CREATE INDEX IF NOT EXISTS idx_refresh_token_istjece ON refresh_token (istjece_at);
@@ -0,0 +1,22 @@
+package hr.elektropregled;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.MockMvcBuilderCustomizer;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * MockMvc ne primjenjuje {@code server.servlet.context-path}; bez ovoga zahtjev na {@code /api/v1/...}
+ * ne pronalazi kontroler. Testovi pišu pune putanje kao klijent, a ovdje se {@code /api} proglašava
+ * kontekstom svakog zahtjeva. Test ga uključuje s {@code @Import(ApiKontekst.class)}.
+ */
+@TestConfiguration
+public class ApiKontekst {
+
+    @Bean
+    MockMvcBuilderCustomizer apiKontekst(@Value("${server.servlet.context-path}") String contextPath) {
+        return builder -> builder.defaultRequest(get(contextPath).contextPath(contextPath));
+    }
+}
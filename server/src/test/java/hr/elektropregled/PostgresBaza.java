@@ -0,0 +1,32 @@
+package hr.elektropregled;
+
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/**
+ * PostgreSQL u Dockeru za testove koji moraju proći kroz PostgreSQL grane servisa (ON CONFLICT
+ * upsert, advisory lock, okidači iz migracija) umjesto H2 zamjena. Kontejner se pokreće jednom za sve takve
+ * testove. Test klasa se označi s {@code @Testcontainers(disabledWithoutDocker = true)} (bez
+ * Dockera se preskače) i u svojoj {@code @DynamicPropertySource} metodi pozove {@link #postavi}.
+ */
+public final class PostgresBaza {
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    private PostgresBaza() {
+    }
+
+    /**
+     * Pokreće kontejner (ako već nije pokrenut) i preusmjerava izvor podataka profila {@code test} na njega.
+     */
+    public static void postavi(DynamicPropertyRegistry registry) {
+        POSTGRES.start();
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        // Shemu s okidačima gradi Flyway kao u produkciji; Hibernate je samo dopunjuje
+        registry.add("spring.flyway.enabled", () -> "true");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "update");
+    }
+}
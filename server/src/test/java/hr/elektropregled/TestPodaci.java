@@ -0,0 +1,149 @@
+package hr.elektropregled;
+
+import hr.elektropregled.model.*;
+import hr.elektropregled.repository.*;
+import org.springframework.boot.test.context.TestComponent;
+
+/**
+ * Zajednički podaci za integracijske testove: brisanje svih tablica redoslijedom stranih ključeva
+ * i kratki konstruktori za korisnike, postrojenja, polja, vrste uređaja, uređaje i parametre.
+ * Test ga uključuje s {@code @Import(TestPodaci.class)}.
+ */
+@TestComponent
+public class TestPodaci {
+    private final SyncZahtjevRepository syncZahtjevRepository;
+    private final SyncZapisRepository syncZapisRepository;
+    private final StavkaLatestRepository stavkaLatestRepository;
+    private final PostrojenjeStatsRepository postrojenjeStatsRepository;
+    private final StavkaPregledaRepository stavkaPregledaRepository;
+    private final PregledRepository pregledRepository;
+    private final UredajRepository uredajRepository;
+    private final ParametarProvjereRepository parametarProvjereRepository;
+    private final VrstaUredajaRepository vrstaUredajaRepository;
+    private final PoljeRepository poljeRepository;
+    private final PostrojenjeRepository postrojenjeRepository;
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final KorisnikRepository korisnikRepository;
+
+    public TestPodaci(SyncZahtjevRepository syncZahtjevRepository,
+                      SyncZapisRepository syncZapisRepository,
+                      StavkaLatestRepository stavkaLatestRepository,
+                      PostrojenjeStatsRepository postrojenjeStatsRepository,
+                      StavkaPregledaRepository stavkaPregledaRepository,
+                      PregledRepository pregledRepository,
+                      UredajRepository uredajRepository,
+                      ParametarProvjereRepository parametarProvjereRepository,
+                      VrstaUredajaRepository vrstaUredajaRepository,
+                      PoljeRepository poljeRepository,
+                      PostrojenjeRepository postrojenjeRepository,
+                      RefreshTokenRepository refreshTokenRepository,
+                      KorisnikRepository korisnikRepository) {
+        this.syncZahtjevRepository = syncZahtjevRepository;
+        this.syncZapisRepository = syncZapisRepository;
+        this.stavkaLatestRepository = stavkaLatestRepository;
+        this.postrojenjeStatsRepository = postrojenjeStatsRepository;
+        this.stavkaPregledaRepository = stavkaPregledaRepository;
+        this.pregledRepository = pregledRepository;
+        this.uredajRepository = uredajRepository;
+        this.parametarProvjereRepository = parametarProvjereRepository;
+        this.vrstaUredajaRepository = vrstaUredajaRepository;
+        this.poljeRepository = poljeRepository;
+        this.postrojenjeRepository = postrojenjeRepository;
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.korisnikRepository = korisnikRepository;
+    }
+
+    /**
+     * Briše sve podatke redoslijedom stranih ključeva.
+     */
+    public void ocisti() {
+        syncZahtjevRepository.deleteAll();
+        syncZapisRepository.deleteAll();
+        stavkaLatestRepository.deleteAll();
+        postrojenjeStatsRepository.deleteAll();
+        stavkaPregledaRepository.deleteAll();
+        pregledRepository.deleteAll();
+        uredajRepository.deleteAll();
+        parametarProvjereRepository.deleteAll();
+        vrstaUredajaRepository.deleteAll();
+        poljeRepository.deleteAll();
+        postrojenjeRepository.deleteAll();
+        refreshTokenRepository.deleteAll();
+        korisnikRepository.deleteAll();
+    }
+
+    public Korisnik korisnik(String korisnickoIme) {
+        return korisnik(korisnickoIme, "pass123", "RADNIK");
+    }
+
+    /**
+     * @param lozinka spremljena vrijednost lozinke (za prijavu mora biti BCrypt hash)
+     */
+    public Korisnik korisnik(String korisnickoIme, String lozinka, String uloga) {
+        Korisnik korisnik = new Korisnik();
+        korisnik.setIme("Test");
+        korisnik.setPrezime("Korisnik");
+        korisnik.setKorisnickoIme(korisnickoIme);
+        korisnik.setLozinka(lozinka);
+        korisnik.setUloga(uloga);
+        return korisnikRepository.save(korisnik);
+    }
+
+    public Postrojenje postrojenje(int id, String naziv) {
+        Postrojenje postrojenje = new Postrojenje();
+        postrojenje.setIdPostr(id);
+        postrojenje.setOznVrPostr("TS");
+        postrojenje.setNazPostr(naziv);
+        postrojenje.setLokacija("Lokacija " + id);
+        return postrojenjeRepository.save(postrojenje);
+    }
+
+    public Polje polje(int id, Postrojenje postrojenje) {
+        Polje polje = new Polje();
+        polje.setIdPolje(id);
+        polje.setNapRazina(110.0);
+        polje.setOznVrPolje("DV");
+        polje.setNazPolje("DV 110 kV " + id);
+        polje.setPostrojenje(postrojenje);
+        return poljeRepository.save(polje);
+    }
+
+    public VrstaUredaja vrsta(String oznaka, String naziv) {
+        VrstaUredaja vrsta = new VrstaUredaja();
+        vrsta.setOznVrUred(oznaka);
+        vrsta.setNazVrUred(naziv);
+        return vrstaUredajaRepository.save(vrsta);
+    }
+
+    /**
+     * Uređaj s natpisnom pločicom {@code U<id>} i TV brojem {@code TV-<id>}; {@code polje} smije biti null.
+     */
+    public Uredaj uredaj(int id, Postrojenje postrojenje, Polje polje, VrstaUredaja vrsta) {
+        Uredaj uredaj = new Uredaj();
+        uredaj.setIdUred(id);
+        uredaj.setNatpPlocica("U" + id);
+        uredaj.setTvBroj("TV-" + id);
+        uredaj.setPostrojenje(postrojenje);
+        uredaj.setPolje(polje);
+        uredaj.setVrstaUredaja(vrsta);
+        return uredajRepository.save(uredaj);
+    }
+
+    /**
+     * Obavezni parametar; NUMERIC dobiva mjernu jedinicu jer je baza traži (chk_mjerna_jedinica).
+     */
+    public ParametarProvjere parametar(VrstaUredaja vrsta, String naziv, String tip, int redoslijed) {
+        return parametarProvjereRepository.save(noviParametar(vrsta, naziv, tip, redoslijed));
+    }
+
+    public ParametarProvjere noviParametar(VrstaUredaja vrsta, String naziv, String tip, int redoslijed) {
+        ParametarProvjere parametar = new ParametarProvjere();
+        parametar.setNazParametra(naziv);
+        parametar.setTipPodataka(tip);
+        parametar.setMjernaJedinica("NUMERIC".equals(tip) ? "C" : null);
+        parametar.setObavezan(true);
+        parametar.setRedoslijed(redoslijed);
+        parametar.setVrstaUredaja(vrsta);
+        return parametar;
+    }
+}
@@ -0,0 +1,98 @@
+package hr.elektropregled.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class JwtProviderTest {
+    private static final String TAJNA = "test-secret-key-that-is-long-enough-for-hs512-signing-0123456789abcdef";
+    private static final String DRUGA_TAJNA = "other-secret-key-that-is-long-enough-for-hs512-signing-0123456789abcdef";
+
+    @Test
+    void provjeriTokenShouldReturnUsernameForValidToken() {
+        JwtProvider provider = new JwtProvider(TAJNA, 60_000, 100);
+        String token = provider.generateToken("iivic");
+
+        assertEquals("iivic", provider.provjeriToken(token));
+        // Drugi poziv dolazi iz predmemorije provjerenih tokena
+        assertEquals("iivic", provider.provjeriToken(token));
+    }
+
+    @Test
+    void provjeriTokenShouldRejectForeignAndTamperedTokens() {
+        JwtProvider provider = new JwtProvider(TAJNA, 60_000, 100);
+        String tudi = new JwtProvider(DRUGA_TAJNA, 60_000, 100).generateToken("iivic");
+        String token = provider.generateToken("iivic");
+        String izmijenjen = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertNull(provider.provjeriToken(tudi));
+        assertNull(provider.provjeriToken(izmijenjen));
+        assertNull(provider.provjeriToken("nije.jwt.token"));
+        // Odbijeni token se ne pamti; ponovna provjera ga opet odbija
+        assertNull(provider.provjeriToken(tudi));
+    }
+
+    @Test
+    void cachedTokenShouldExpireAtExp() {
+        PomicniSat sat = new PomicniSat(Instant.parse("2026-01-10T09:00:00Z"));
+        JwtProvider provider = new JwtProvider(TAJNA, 60_000, 100, sat);
+        String token = provider.generateToken("iivic");
+        assertEquals("iivic", provider.provjeriToken(token));
+
+        sat.pomakni(Duration.ofSeconds(59));
+        assertEquals("iivic", provider.provjeriToken(token));
+
+        sat.pomakni(Duration.ofSeconds(2));
+        assertNull(provider.provjeriToken(token), "Token iz predmemorije ne smije vrijediti nakon exp");
+        // Ni puna provjera (parser) ga više ne prihvaća
+        assertNull(provider.provjeriToken(token));
+    }
+
+    @Test
+    void cacheShouldStayBounded() {
+        JwtProvider provider = new JwtProvider(TAJNA, 60_000, 2);
+        String prvi = provider.generateToken("prvi");
+        String drugi = provider.generateToken("drugi");
+        String treci = provider.generateToken("treci");
+
+        assertEquals("prvi", provider.provjeriToken(prvi));
+        assertEquals("drugi", provider.provjeriToken(drugi));
+        assertEquals("treci", provider.provjeriToken(treci));
+        // Izbačeni token ponovno prolazi punu provjeru
+        assertEquals("prvi", provider.provjeriToken(prvi));
+    }
+
+    private static final class PomicniSat extends Clock {
+        private Instant sada;
+
+        PomicniSat(Instant sada) {
+            this.sada = sada;
+        }
+
+        void pomakni(Duration koliko) {
+            sada = sada.plus(koliko);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return sada;
+        }
+    }
+}
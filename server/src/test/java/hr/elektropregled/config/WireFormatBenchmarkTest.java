@@ -0,0 +1,101 @@
+package hr.elektropregled.config;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import hr.elektropregled.dto.ChecklistDeviceDto;
+import hr.elektropregled.dto.ChecklistParametarDto;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Usporedba veličine i CPU vremena serijalizacije checkliste u JSON i CBOR formatu
+ * na veličinama tipičnih postrojenja (TS 10/0.4 kV do TS 110/x kV). Izvodi se samo s
+ * {@code mvn test -P benchmark}; rezultati idu u log.
+ */
+@Tag("benchmark")
+class WireFormatBenchmarkTest {
+    private static final Logger log = LoggerFactory.getLogger(WireFormatBenchmarkTest.class);
+    private static final int WARMUP = 200;
+    private static final int ITERACIJA = 500;
+
+    private final ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper cbor = Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+
+    @Test
+    void cborShouldBeSmallerThanJsonForRealisticChecklists() throws Exception {
+        int[][] velicine = {
+                {12, 6},   // manja trafostanica
+                {60, 8},   // polje s 60 uređaja
+                {240, 10}  // cijelo veće postrojenje
+        };
+
+        for (int[] velicina : velicine) {
+            List<ChecklistDeviceDto> checklist = checklist(velicina[0], velicina[1]);
+
+            byte[] jsonBytes = json.writeValueAsBytes(checklist);
+            byte[] cborBytes = cbor.writeValueAsBytes(checklist);
+
+            // CBOR mora nositi iste podatke
+            List<ChecklistDeviceDto> procitano = cbor.readValue(cborBytes, new TypeReference<>() {
+            });
+            assertEquals(checklist, procitano);
+            assertTrue(cborBytes.length < jsonBytes.length,
+                    "CBOR (" + cborBytes.length + " B) nije manji od JSON-a (" + jsonBytes.length + " B)");
+
+            double jsonUs = mikrosekundiPoSerijalizaciji(json, checklist);
+            double cborUs = mikrosekundiPoSerijalizaciji(cbor, checklist);
+            log.info("{}x{}: JSON {} B, CBOR {} B (omjer {}), serijalizacija JSON {} us, CBOR {} us",
+                    velicina[0], velicina[1], jsonBytes.length, cborBytes.length,
+                    String.format("%.2f", (double) cborBytes.length / jsonBytes.length),
+                    String.format("%.1f", jsonUs), String.format("%.1f", cborUs));
+        }
+    }
+
+    private static double mikrosekundiPoSerijalizaciji(ObjectMapper mapper, Object value) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            mapper.writeValueAsBytes(value);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERACIJA; i++) {
+            mapper.writeValueAsBytes(value);
+        }
+        return (System.nanoTime() - start) / 1_000.0 / ITERACIJA;
+    }
+
+    private static List<ChecklistDeviceDto> checklist(int brojUredaja, int parametaraPoUredaju) {
+        String[][] vrste = {{"PK", "Prekidač"}, {"RS", "Rastavljač"}, {"MT", "Mjerni transformator"},
+                {"OD", "Odvodnik prenapona"}, {"ET", "Energetski transformator"}};
+        LocalDateTime zadnjiPregled = LocalDateTime.of(2026, 1, 20, 9, 15);
+
+        List<ChecklistDeviceDto> uredaji = new ArrayList<>(brojUredaja);
+        for (int u = 0; u < brojUredaja; u++) {
+            String[] vrsta = vrste[u % vrste.length];
+            List<ChecklistParametarDto> parametri = new ArrayList<>(parametaraPoUredaju);
+            for (int p = 0; p < parametaraPoUredaju; p++) {
+                int idParametra = (u % vrste.length) * 100 + p + 1;
+                switch (p % 3) {
+                    case 0 -> parametri.add(new ChecklistParametarDto(idParametra, "Vidna ispravnost " + p, "BOOLEAN",
+                            null, null, null, true, p + 1, Boolean.TRUE, null, null, zadnjiPregled));
+                    case 1 -> parametri.add(new ChecklistParametarDto(idParametra, "Temperatura kontakata " + p, "NUMERIC",
+                            10.0, 80.0, "°C", true, p + 1, null, 42.5 + p, null, zadnjiPregled));
+                    default -> parametri.add(new ChecklistParametarDto(idParametra, "Napomena o stanju " + p, "TEXT",
+                            null, null, null, false, p + 1, null, null, "Bez primjedbi", null));
+                }
+            }
+            uredaji.add(new ChecklistDeviceDto(u + 1, vrsta[0] + "-" + (u + 1), "TV-" + (10000 + u),
+                    vrsta[0], vrsta[1], u / 12 + 1, "Polje " + (u / 12 + 1), 110.0, parametri));
+        }
+        return uredaji;
+    }
+}
@@ -0,0 +1,70 @@
+package hr.elektropregled.controller;
+
+import hr.elektropregled.ApiKontekst;
+import hr.elektropregled.TestPodaci;
+import hr.elektropregled.config.JwtProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Prometheus metrike dostupne su samo sa scrape tokenom; JWT običnog korisnika ih ne otvara,
+ * a health ostaje javan.
+ */
+@SpringBootTest(properties = "management.scrape.token=test-scrape-token")
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+@ActiveProfiles("test")
+@Import({TestPodaci.class, ApiKontekst.class})
+class ActuatorSecurityIT {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private JwtProvider jwtProvider;
+    @Autowired
+    private TestPodaci podaci;
+
+    @BeforeEach
+    void setUp() {
+        podaci.ocisti();
+        podaci.korisnik("iivic");
+    }
+
+    @AfterEach
+    void ocisti() {
+        podaci.ocisti();
+    }
+
+    @Test
+    void prometheusShouldRequireScrapeToken() throws Exception {
+        mockMvc.perform(get("/api/actuator/prometheus"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/actuator/prometheus")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwtProvider.generateToken("iivic")))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/actuator/prometheus")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer pogresan-token"))
+                .andExpect(status().isForbidden());
+
+        mockMvc.perform(get("/api/actuator/prometheus")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer test-scrape-token"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void healthShouldStayPublic() throws Exception {
+        mockMvc.perform(get("/api/actuator/health"))
+                .andExpect(status().isOk());
+    }
+}
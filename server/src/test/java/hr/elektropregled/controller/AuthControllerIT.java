@@ -0,0 +1,149 @@
+package hr.elektropregled.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hr.elektropregled.ApiKontekst;
+import hr.elektropregled.TestPodaci;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import({TestPodaci.class, ApiKontekst.class})
+class AuthControllerIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private TestPodaci podaci;
+
+    @BeforeEach
+    void setUp() {
+        podaci.ocisti();
+        podaci.korisnik("mmarkovic", passwordEncoder.encode("pass123"), "RADNIK");
+    }
+
+    @Test
+    void loginShouldVerifyPasswordOffRequestThread() throws Exception {
+        JsonNode prijava = prijava("pass123");
+
+        mockMvc.perform(get("/api/v1/postrojenja")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + prijava.get("access_token").asText()))
+                .andExpect(status().isOk());
+
+        MvcResult pocetak = mockMvc.perform(post("/api/v1/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("korisnicko_ime", "mmarkovic", "lozinka", "kriva"))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(pocetak))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void refreshShouldRotateTokenWithoutPassword() throws Exception {
+        JsonNode prijava = prijava("pass123");
+        String prviRefresh = prijava.get("refresh_token").asText();
+
+        JsonNode osvjezeno = osvjezi(prviRefresh, 200);
+        String drugiRefresh = osvjezeno.get("refresh_token").asText();
+        assertNotEquals(prviRefresh, drugiRefresh);
+
+        mockMvc.perform(get("/api/v1/postrojenja")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + osvjezeno.get("access_token").asText()))
+                .andExpect(status().isOk());
+
+        // Novi token vrijedi za sljedeće osvježavanje
+        osvjezi(drugiRefresh, 200);
+    }
+
+    @Test
+    void reusedRefreshTokenShouldRevokeWholeFamily() throws Exception {
+        String prviRefresh = prijava("pass123").get("refresh_token").asText();
+        String drugiRefresh = osvjezi(prviRefresh, 200).get("refresh_token").asText();
+        String treciRefresh = osvjezi(drugiRefresh, 200).get("refresh_token").asText();
+
+        // Nasljednik je upotrijebljen, pa je ponovna upotreba prvog tokena krađa: opoziva se i zadnji
+        osvjezi(prviRefresh, 401);
+        osvjezi(treciRefresh, 401);
+    }
+
+    @Test
+    void retriedRefreshWithinGraceShouldReturnSameSuccessor() throws Exception {
+        String prviRefresh = prijava("pass123").get("refresh_token").asText();
+        String drugiRefresh = osvjezi(prviRefresh, 200).get("refresh_token").asText();
+
+        // Klijent nije primio odgovor i ponavlja zahtjev starim tokenom
+        JsonNode ponovljeno = osvjezi(prviRefresh, 200);
+        assertEquals(drugiRefresh, ponovljeno.get("refresh_token").asText());
+        assertTrue(ponovljeno.get("refresh_expires_in").asLong() > 0);
+
+        osvjezi(drugiRefresh, 200);
+    }
+
+    @Test
+    void logoutShouldRevokeRefreshToken() throws Exception {
+        String refresh = prijava("pass123").get("refresh_token").asText();
+
+        mockMvc.perform(post("/api/v1/auth/logout")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("refresh_token", refresh))))
+                .andExpect(status().isNoContent());
+
+        osvjezi(refresh, 401);
+        osvjezi("nepoznati-token", 401);
+    }
+
+    private JsonNode prijava(String lozinka) throws Exception {
+        MvcResult pocetak = mockMvc.perform(post("/api/v1/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("korisnicko_ime", "mmarkovic", "lozinka", lozinka))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(pocetak))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value("mmarkovic"))
+                .andExpect(jsonPath("$.refresh_token").isNotEmpty())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+
+    private JsonNode osvjezi(String refreshToken, int ocekivaniStatus) throws Exception {
+        String body = mockMvc.perform(post("/api/v1/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("refresh_token", refreshToken))))
+                .andExpect(status().is(ocekivaniStatus))
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+}
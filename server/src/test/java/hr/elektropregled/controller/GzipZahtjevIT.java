@@ -0,0 +1,150 @@
+package hr.elektropregled.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hr.elektropregled.ApiKontekst;
+import hr.elektropregled.TestPodaci;
+import hr.elektropregled.config.JwtProvider;
+import hr.elektropregled.dto.PregledSyncRequest;
+import hr.elektropregled.model.Postrojenje;
+import hr.elektropregled.model.VrstaUredaja;
+import hr.elektropregled.repository.PregledRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Gzip tijela zahtjeva: raspakirano tijelo stiže do kontrolera, prekoračenje
+ * {@code request.gzip.max-inflated-bytes} vraća 413, a oštećeni gzip 400.
+ */
+@SpringBootTest(properties = "request.gzip.max-inflated-bytes=" + GzipZahtjevIT.MAX_RASPAKIRANO)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import({TestPodaci.class, ApiKontekst.class})
+class GzipZahtjevIT {
+    static final int MAX_RASPAKIRANO = 8192;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private JwtProvider jwtProvider;
+    @Autowired
+    private PregledRepository pregledRepository;
+    @Autowired
+    private TestPodaci podaci;
+
+    private String token;
+    private Integer korisnikId;
+    private Integer postrojenjeId;
+    private Integer uredajId;
+    private Integer paramTxtId;
+
+    @BeforeEach
+    void setUp() {
+        podaci.ocisti();
+        korisnikId = podaci.korisnik("iivic").getIdKorisnika();
+        token = "Bearer " + jwtProvider.generateToken("iivic");
+        Postrojenje postrojenje = podaci.postrojenje(1, "TS Zapad");
+        postrojenjeId = postrojenje.getIdPostr();
+        VrstaUredaja vrsta = podaci.vrsta("PR", "Prekidac");
+        uredajId = podaci.uredaj(1, postrojenje, null, vrsta).getIdUred();
+        paramTxtId = podaci.parametar(vrsta, "Stanje izolatora", "TEXT", 1).getIdParametra();
+    }
+
+    @AfterEach
+    void ocisti() {
+        podaci.ocisti();
+    }
+
+    @Test
+    void gzipBodyShouldReachControllerInflated() throws Exception {
+        PregledSyncRequest zahtjev = zahtjev("Bez ostecenja");
+
+        mockMvc.perform(sync(gzip(objectMapper.writeValueAsBytes(zahtjev))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true));
+
+        assertEquals(1, pregledRepository.count());
+    }
+
+    @Test
+    void bodyInflatingPastLimitShouldReturn413() throws Exception {
+        // Niz istih znakova se komprimira na djelić granice, ali raspakiran je prelazi
+        char[] dugacko = new char[MAX_RASPAKIRANO * 4];
+        Arrays.fill(dugacko, 'x');
+        byte[] komprimirano = gzip(objectMapper.writeValueAsBytes(zahtjev(new String(dugacko))));
+
+        mockMvc.perform(sync(komprimirano))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(jsonPath("$.success").value(false));
+
+        assertEquals(0, pregledRepository.count());
+    }
+
+    @Test
+    void malformedGzipShouldReturn400() throws Exception {
+        byte[] obicanJson = objectMapper.writeValueAsBytes(zahtjev("Bez ostecenja"));
+
+        mockMvc.perform(sync(obicanJson))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success").value(false));
+
+        assertEquals(0, pregledRepository.count());
+    }
+
+    private RequestBuilder sync(byte[] tijelo) {
+        return post("/api/v1/pregled/sync")
+                .header(HttpHeaders.AUTHORIZATION, token)
+                .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(tijelo);
+    }
+
+    private static byte[] gzip(byte[] tijelo) throws IOException {
+        ByteArrayOutputStream izlaz = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(izlaz)) {
+            gzip.write(tijelo);
+        }
+        return izlaz.toByteArray();
+    }
+
+    private PregledSyncRequest zahtjev(String vrijednost) {
+        PregledSyncRequest.PregledDto pregled = new PregledSyncRequest.PregledDto();
+        pregled.setLokalniId(UUID.randomUUID());
+        pregled.setPocetak(LocalDateTime.of(2026, 2, 5, 9, 0));
+        pregled.setKraj(LocalDateTime.of(2026, 2, 5, 10, 0));
+        pregled.setIdKorisnika(korisnikId);
+        pregled.setIdPostr(postrojenjeId);
+
+        PregledSyncRequest.StavkaDto stavka = new PregledSyncRequest.StavkaDto();
+        stavka.setLokalniId(UUID.randomUUID());
+        stavka.setIdUred(uredajId);
+        stavka.setIdParametra(paramTxtId);
+        stavka.setVrijednostTxt(vrijednost);
+
+        return new PregledSyncRequest(pregled, List.of(stavka));
+    }
+}
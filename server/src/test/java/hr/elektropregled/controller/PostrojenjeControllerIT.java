@@ -0,0 +1,281 @@
+package hr.elektropregled.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hr.elektropregled.ApiKontekst;
+import hr.elektropregled.TestPodaci;
+import hr.elektropregled.config.JwtProvider;
+import hr.elektropregled.dto.ChecklistDeviceDto;
+import hr.elektropregled.dto.ChecklistV2Response;
+import hr.elektropregled.dto.PostrojenjeBundleDto;
+import hr.elektropregled.dto.PregledSyncRequest;
+import hr.elektropregled.model.ParametarProvjere;
+import hr.elektropregled.model.Polje;
+import hr.elektropregled.model.Postrojenje;
+import hr.elektropregled.model.Uredaj;
+import hr.elektropregled.model.VrstaUredaja;
+import hr.elektropregled.repository.ParametarProvjereRepository;
+import hr.elektropregled.repository.PoljeRepository;
+import hr.elektropregled.repository.UredajRepository;
+import hr.elektropregled.service.PregledSyncService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Uvjetni GET: ETag se ne mijenja dok se podaci ne promijene, If-None-Match s istim ETag-om
+ * daje 304 bez tijela, a novi pregled ili izmjena parametra, uređaja ili polja daju novi ETag.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import({TestPodaci.class, ApiKontekst.class})
+class PostrojenjeControllerIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private JwtProvider jwtProvider;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private PregledSyncService pregledSyncService;
+
+    @Autowired
+    private ParametarProvjereRepository parametarProvjereRepository;
+    @Autowired
+    private UredajRepository uredajRepository;
+    @Autowired
+    private PoljeRepository poljeRepository;
+    @Autowired
+    private TestPodaci podaci;
+
+    private String token;
+    private Integer korisnikId;
+    private Postrojenje postrojenje;
+    private VrstaUredaja vrsta;
+    private Integer postrojenjeId;
+    private Integer uredajId;
+    private Integer paramNumId;
+
+    @BeforeEach
+    void setUp() {
+        podaci.ocisti();
+        korisnikId = podaci.korisnik("iivic").getIdKorisnika();
+        token = "Bearer " + jwtProvider.generateToken("iivic");
+        postrojenje = podaci.postrojenje(1, "TS Jug");
+        postrojenjeId = postrojenje.getIdPostr();
+        vrsta = podaci.vrsta("RS", "Rastavljac");
+        uredajId = podaci.uredaj(1, postrojenje, null, vrsta).getIdUred();
+        paramNumId = podaci.parametar(vrsta, "Temperatura kontakta", "NUMERIC", 1).getIdParametra();
+    }
+
+    @Test
+    void listShouldReturn304UntilNewPregledIsSynced() throws Exception {
+        String etag = etag("/api/v1/postrojenja");
+
+        mockMvc.perform(get("/api/v1/postrojenja")
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        syncPregled();
+
+        String novi = etag("/api/v1/postrojenja");
+        assertNotEquals(etag, novi);
+        mockMvc.perform(get("/api/v1/postrojenja")
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void checklistEtagShouldChangeWithParametersAndLastValues() throws Exception {
+        String url = "/api/v1/postrojenja/" + postrojenjeId + "/checklist?id_polje=0";
+        String etag = etag(url);
+        mockMvc.perform(get(url)
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        syncPregled();
+        String nakonPregleda = etag(url);
+        assertNotEquals(etag, nakonPregleda);
+
+        ParametarProvjere parametar = parametarProvjereRepository.findById(paramNumId).orElseThrow();
+        parametar.setMjernaJedinica("°C");
+        parametarProvjereRepository.save(parametar);
+        assertNotEquals(nakonPregleda, etag(url));
+
+        // CBOR prikaz ima vlastiti ETag
+        String cbor = mockMvc.perform(get(url)
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .header(HttpHeaders.ACCEPT, "application/cbor"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag(url), cbor);
+    }
+
+    @Test
+    void uredajAndPoljeEditsShouldChangeEtag() throws Exception {
+        Polje polje = podaci.polje(1, postrojenje);
+        String poljaUrl = "/api/v1/postrojenja/" + postrojenjeId + "/polja";
+        String checklistUrl = "/api/v1/postrojenja/" + postrojenjeId + "/checklist?id_polje=0";
+        String polja = etag(poljaUrl);
+        String checklist = etag(checklistUrl);
+        assertTrue(polja.startsWith("W/\""), "ETag mora biti slab da bi odgovor smio biti gzipan");
+
+        Uredaj uredaj = uredajRepository.findById(uredajId).orElseThrow();
+        uredaj.setNatpPlocica("RS1-N");
+        uredajRepository.save(uredaj);
+        String poljaNakonUredaja = etag(poljaUrl);
+        assertNotEquals(polja, poljaNakonUredaja);
+        assertNotEquals(checklist, etag(checklistUrl));
+
+        polje.setNazPolje("DV 110 kV Sjever");
+        poljeRepository.save(polje);
+        assertNotEquals(poljaNakonUredaja, etag(poljaUrl));
+    }
+
+    @Test
+    void bundleShouldStreamWholeFacilityAndHonourEtag() throws Exception {
+        syncPregled();
+        String url = "/api/v1/postrojenja/" + postrojenjeId + "/bundle";
+
+        MvcResult pocetak = mockMvc.perform(get(url).header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult rezultat = mockMvc.perform(asyncDispatch(pocetak))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        PostrojenjeBundleDto bundle = objectMapper.readValue(
+                rezultat.getResponse().getContentAsByteArray(), PostrojenjeBundleDto.class);
+        assertEquals(postrojenjeId, bundle.getIdPostr());
+        assertEquals(1, bundle.getPolja().size());
+        assertEquals(1, bundle.getUredaji().size());
+        ChecklistDeviceDto uredaj = bundle.getUredaji().get(0);
+        assertEquals(uredajId, uredaj.getIdUred());
+        assertEquals(41.0, uredaj.getParametri().get(0).getDefaultNum());
+
+        String etag = pocetak.getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        mockMvc.perform(get(url)
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(get("/api/v1/postrojenja/999/bundle").header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void bundleShouldCoverAllPoljaAndChangeEtagAfterSync() throws Exception {
+        Polje polje = podaci.polje(7, postrojenje);
+        Integer uredajUPolju = podaci.uredaj(2, postrojenje, polje, vrsta).getIdUred();
+        String url = "/api/v1/postrojenja/" + postrojenjeId + "/bundle";
+
+        MvcResult pocetak = mockMvc.perform(get(url).header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        PostrojenjeBundleDto bundle = objectMapper.readValue(mockMvc.perform(asyncDispatch(pocetak))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray(), PostrojenjeBundleDto.class);
+
+        // Polje 7 i uređaji bez polja; svaki uređaj nosi svoj id_polje
+        assertEquals(2, bundle.getPolja().size());
+        assertEquals(2, bundle.getUredaji().size());
+        assertTrue(bundle.getUredaji().stream().anyMatch(u -> uredajUPolju.equals(u.getIdUred())
+                && polje.getIdPolje().equals(u.getIdPolje())));
+        assertNull(bundle.getUredaji().get(0).getParametri().get(0).getDefaultNum());
+
+        // Novi pregled mijenja zadnje vrijednosti, pa stari ETag ne daje 304 nego novi stream
+        String etag = pocetak.getResponse().getHeader(HttpHeaders.ETAG);
+        syncPregled();
+        mockMvc.perform(get(url)
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(request().asyncStarted());
+    }
+
+    @Test
+    void checklistV2ShouldSendTemplateOncePerVrsta() throws Exception {
+        podaci.uredaj(2, postrojenje, null, vrsta);
+        syncPregled();
+
+        String url = "/api/v2/postrojenja/" + postrojenjeId + "/checklist?id_polje=0";
+        byte[] tijelo = mockMvc.perform(get(url).header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        ChecklistV2Response checklist = objectMapper.readValue(tijelo, ChecklistV2Response.class);
+
+        assertEquals(1, checklist.getVrste().size());
+        assertEquals(1, checklist.getVrste().get(0).getParametri().size());
+        assertEquals(2, checklist.getUredaji().size());
+        ChecklistV2Response.UredajZapis pregledani = checklist.getUredaji().get(0);
+        assertEquals(uredajId, pregledani.getIdUred());
+        assertEquals(1, pregledani.getVrijednosti().size());
+        assertEquals(41.0, pregledani.getVrijednosti().get(0).getNum());
+        // Uređaj bez povijesti nema vrijednosti; klijent primjenjuje zadanu
+        assertEquals(0, checklist.getUredaji().get(1).getVrijednosti().size());
+
+        String v1 = etag("/api/v1/postrojenja/" + postrojenjeId + "/checklist?id_polje=0");
+        String v2 = etag(url);
+        assertNotEquals(v1, v2);
+        mockMvc.perform(get(url)
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .header(HttpHeaders.IF_NONE_MATCH, v2))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(get("/api/v2/postrojenja/999/checklist?id_polje=0").header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isNotFound());
+    }
+
+    private String etag(String url) throws Exception {
+        String etag = mockMvc.perform(get(url).header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        return etag;
+    }
+
+    private void syncPregled() {
+        PregledSyncRequest.PregledDto pregled = new PregledSyncRequest.PregledDto();
+        pregled.setLokalniId(UUID.randomUUID());
+        pregled.setPocetak(LocalDateTime.of(2026, 2, 3, 9, 0));
+        pregled.setKraj(LocalDateTime.of(2026, 2, 3, 10, 0));
+        pregled.setIdKorisnika(korisnikId);
+        pregled.setIdPostr(postrojenjeId);
+
+        PregledSyncRequest.StavkaDto stavka = new PregledSyncRequest.StavkaDto();
+        stavka.setLokalniId(UUID.randomUUID());
+        stavka.setIdUred(uredajId);
+        stavka.setIdParametra(paramNumId);
+        stavka.setVrijednostNum(41.0);
+
+        pregledSyncService.sync(new PregledSyncRequest(pregled, List.of(stavka)));
+    }
+}
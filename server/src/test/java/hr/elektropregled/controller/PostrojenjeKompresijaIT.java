@@ -0,0 +1,87 @@
+package hr.elektropregled.controller;
+
+import hr.elektropregled.TestPodaci;
+import hr.elektropregled.config.JwtProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Uvjetni GET i kompresija moraju raditi zajedno: Tomcat ne komprimira odgovor s jakim ETag-om,
+ * pa se provjerava na pravom serveru (MockMvc ne prolazi kroz kompresiju) da odgovor nosi i
+ * slabi ETag i {@code Content-Encoding: gzip}, te da isti ETag daje 304.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@Import(TestPodaci.class)
+class PostrojenjeKompresijaIT {
+    private static final int BROJ_POSTROJENJA = 40;
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private JwtProvider jwtProvider;
+    @Autowired
+    private TestPodaci podaci;
+
+    private final HttpClient http = HttpClient.newHttpClient();
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        podaci.ocisti();
+        podaci.korisnik("iivic");
+        token = "Bearer " + jwtProvider.generateToken("iivic");
+        // Popis mora biti veći od server.compression.min-response-size
+        for (int i = 1; i <= BROJ_POSTROJENJA; i++) {
+            podaci.postrojenje(i, "TS 110/20 kV Postrojenje broj " + i);
+        }
+    }
+
+    @AfterEach
+    void ocisti() {
+        podaci.ocisti();
+    }
+
+    @Test
+    void listShouldBeGzippedAndCarryWeakEtag() throws Exception {
+        HttpResponse<byte[]> odgovor = get(null);
+
+        assertEquals(200, odgovor.statusCode());
+        assertEquals("gzip", odgovor.headers().firstValue(HttpHeaders.CONTENT_ENCODING).orElse(null));
+        String etag = odgovor.headers().firstValue(HttpHeaders.ETAG).orElseThrow();
+        assertTrue(etag.startsWith("W/\""), etag);
+        String tijelo = new String(new GZIPInputStream(new ByteArrayInputStream(odgovor.body())).readAllBytes());
+        assertTrue(tijelo.contains("Postrojenje broj " + BROJ_POSTROJENJA));
+
+        HttpResponse<byte[]> ponovno = get(etag);
+        assertEquals(304, ponovno.statusCode());
+        assertEquals(0, ponovno.body().length);
+    }
+
+    private HttpResponse<byte[]> get(String ifNoneMatch) throws Exception {
+        HttpRequest.Builder zahtjev = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/postrojenja"))
+                .header(HttpHeaders.AUTHORIZATION, token)
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .GET();
+        if (ifNoneMatch != null) {
+            zahtjev.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return http.send(zahtjev.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
@@ -1,31 +1,55 @@
 package hr.elektropregled.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import hr.elektropregled.model.*;
-import hr.elektropregled.repository.*;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import hr.elektropregled.ApiKontekst;
+import hr.elektropregled.TestPodaci;
+import hr.elektropregled.config.JwtProvider;
+import hr.elektropregled.model.ParametarProvjere;
+import hr.elektropregled.model.Postrojenje;
+import hr.elektropregled.model.VrstaUredaja;
+import hr.elektropregled.repository.ParametarProvjereRepository;
+import hr.elektropregled.repository.PregledRepository;
+import hr.elektropregled.repository.StavkaPregledaRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+/**
+ * Sinkronizacija pregleda kroz HTTP: pojedinačni, skupni (rezultat po pregledu) i strujni
+ * endpoint, uključujući granice komada strujnog upisa.
+ */
 @SpringBootTest
 @AutoConfigureMockMvc
 @ActiveProfiles("test")
+@Import({TestPodaci.class, ApiKontekst.class})
 class PregledSyncControllerIT {
+    // Jednako PregledSyncService.STREAM_CHUNK_SIZE
+    private static final int STREAM_CHUNK_SIZE = 500;
 
     @Autowired
     private MockMvc mockMvc;
@@ -34,20 +58,21 @@ class PregledSyncControllerIT {
     private ObjectMapper objectMapper;
 
     @Autowired
-    private PregledRepository pregledRepository;
-    @Autowired
-    private StavkaPregledaRepository stavkaPregledaRepository;
+    private JwtProvider jwtProvider;
+
     @Autowired
-    private KorisnikRepository korisnikRepository;
+    private MeterRegistry meterRegistry;
+
     @Autowired
-    private PostrojenjeRepository postrojenjeRepository;
+    private ParametarProvjereRepository parametarProvjereRepository;
     @Autowired
-    private UredajRepository uredajRepository;
+    private PregledRepository pregledRepository;
     @Autowired
-    private ParametarProvjereRepository parametarProvjereRepository;
+    private StavkaPregledaRepository stavkaPregledaRepository;
     @Autowired
-    private VrstaUredajaRepository vrstaUredajaRepository;
+    private TestPodaci podaci;
 
+    private Postrojenje postrojenje;
     private Integer korisnikId;
     private Integer postrojenjeId;
     private Integer uredajId;
@@ -56,62 +81,17 @@ class PregledSyncControllerIT {
 
     @BeforeEach
     void setUp() {
-        // clean tables respecting FK order
-        stavkaPregledaRepository.deleteAll();
-        pregledRepository.deleteAll();
-        uredajRepository.deleteAll();
-        parametarProvjereRepository.deleteAll();
-        vrstaUredajaRepository.deleteAll();
-        postrojenjeRepository.deleteAll();
-        korisnikRepository.deleteAll();
-
-        Korisnik korisnik = new Korisnik();
-        korisnik.setIme("Marko");
-        korisnik.setPrezime("Markovic");
-        korisnik.setKorisnickoIme("mmarkovic");
-        korisnik.setLozinka("pass123");
-        korisnik.setUloga("RADNIK");
-        korisnikId = korisnikRepository.save(korisnik).getIdKorisnika();
-
-        Postrojenje postrojenje = new Postrojenje();
-        postrojenje.setIdPostr(1);
-        postrojenje.setOznVrPostr("TP");
-        postrojenje.setNazPostr("TP Centar");
-        postrojenje.setLokacija("Lokacija 1");
-        postrojenjeId = postrojenjeRepository.save(postrojenje).getIdPostr();
-
-        VrstaUredaja vrsta = new VrstaUredaja();
-        vrsta.setOznVrUred("PK");
-        vrsta.setNazVrUred("Prekidac");
-        vrsta = vrstaUredajaRepository.save(vrsta);
-
-        Uredaj uredaj = new Uredaj();
-        uredaj.setIdUred(1);
-        uredaj.setNatpPlocica("PK1");
-        uredaj.setTvBroj("TV-001");
-        uredaj.setPostrojenje(postrojenje);
-        uredaj.setVrstaUredaja(vrsta);
-        uredajId = uredajRepository.save(uredaj).getIdUred();
-
-        ParametarProvjere boolParam = new ParametarProvjere();
-        boolParam.setNazParametra("Vidna Ispravnost");
-        boolParam.setTipPodataka("BOOLEAN");
-        boolParam.setObavezan(true);
-        boolParam.setRedoslijed(1);
-        boolParam.setOpis("Vizualna provjera");
-        boolParam.setVrstaUredaja(vrsta);
-        paramBoolId = parametarProvjereRepository.save(boolParam).getIdParametra();
-
-        ParametarProvjere numParam = new ParametarProvjere();
-        numParam.setNazParametra("Temperatura Kontakata");
-        numParam.setTipPodataka("NUMERIC");
+        podaci.ocisti();
+        korisnikId = podaci.korisnik("mmarkovic").getIdKorisnika();
+        postrojenje = podaci.postrojenje(1, "TP Centar");
+        postrojenjeId = postrojenje.getIdPostr();
+        VrstaUredaja vrsta = podaci.vrsta("PK", "Prekidac");
+        uredajId = podaci.uredaj(1, postrojenje, null, vrsta).getIdUred();
+        paramBoolId = podaci.parametar(vrsta, "Vidna Ispravnost", "BOOLEAN", 1).getIdParametra();
+
+        ParametarProvjere numParam = podaci.noviParametar(vrsta, "Temperatura Kontakata", "NUMERIC", 2);
         numParam.setMinVrijednost(10.0);
         numParam.setMaxVrijednost(80.0);
-        numParam.setMjernaJedinica("C");
-        numParam.setObavezan(true);
-        numParam.setRedoslijed(2);
-        numParam.setOpis("Mjerenje temp");
-        numParam.setVrstaUredaja(vrsta);
         paramNumId = parametarProvjereRepository.save(numParam).getIdParametra();
     }
 
@@ -130,6 +110,7 @@ class PregledSyncControllerIT {
         );
 
         mockMvc.perform(post("/api/v1/pregled/sync")
+                        .header(HttpHeaders.AUTHORIZATION, token("mmarkovic"))
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(payload))
                 .andExpect(status().isOk())
@@ -140,11 +121,68 @@ class PregledSyncControllerIT {
     }
 
     @Test
-    void shouldReturnConflictOnDuplicatePregled() throws Exception {
+    void shouldRecordTimerForEverySyncStage() throws Exception {
+        List<String> faze = List.of("parse", "resolve", "validate", "insert", "commit");
+        List<Long> prije = faze.stream().map(this::brojMjerenja).toList();
+        long stavkiPrije = meterRegistry.get("elektropregled.sync.stavke").tag("nacin", "sync").summary().count();
+
+        String payload = validPayload(
+                UUID.randomUUID(),
+                UUID.randomUUID(),
+                UUID.randomUUID(),
+                korisnikId,
+                postrojenjeId,
+                uredajId,
+                paramBoolId,
+                paramNumId,
+                45.0
+        );
+        mockMvc.perform(post("/api/v1/pregled/sync")
+                        .header(HttpHeaders.AUTHORIZATION, token("mmarkovic"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(payload))
+                .andExpect(status().isOk());
+
+        for (int i = 0; i < faze.size(); i++) {
+            assertEquals(prije.get(i) + 1, brojMjerenja(faze.get(i)), "Faza " + faze.get(i));
+        }
+        assertEquals(stavkiPrije + 1,
+                meterRegistry.get("elektropregled.sync.stavke").tag("nacin", "sync").summary().count());
+    }
+
+    @Test
+    void asyncBodyParseShouldBeTaggedAsync() throws Exception {
+        long asyncPrije = brojMjerenja("parse", "async");
+        long syncPrije = brojMjerenja("parse");
+
+        String payload = validPayload(
+                UUID.randomUUID(),
+                UUID.randomUUID(),
+                UUID.randomUUID(),
+                korisnikId,
+                postrojenjeId,
+                uredajId,
+                paramBoolId,
+                paramNumId,
+                45.0
+        );
+        mockMvc.perform(post("/api/v1/pregled/sync/async")
+                        .header(HttpHeaders.AUTHORIZATION, token("mmarkovic"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(payload))
+                .andExpect(status().isAccepted());
+
+        assertEquals(asyncPrije + 1, brojMjerenja("parse", "async"));
+        assertEquals(syncPrije, brojMjerenja("parse"));
+    }
+
+    @Test
+    void shouldReplayDuplicatePregledWithOriginalMappings() throws Exception {
         UUID pregledId = UUID.randomUUID();
+        UUID stavkaBoolId = UUID.randomUUID();
         String payload = validPayload(
                 pregledId,
-                UUID.randomUUID(),
+                stavkaBoolId,
                 UUID.randomUUID(),
                 korisnikId,
                 postrojenjeId,
@@ -154,26 +192,56 @@ class PregledSyncControllerIT {
                 45.0
         );
 
+        String first = mockMvc.perform(post("/api/v1/pregled/sync")
+                        .header(HttpHeaders.AUTHORIZATION, token("mmarkovic"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(payload))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Integer serverPregledId = objectMapper.readTree(first).get("server_pregled_id").asInt();
+
         mockMvc.perform(post("/api/v1/pregled/sync")
+                        .header(HttpHeaders.AUTHORIZATION, token("mmarkovic"))
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(payload))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.message", containsString("već sinkroniziran")))
+                .andExpect(jsonPath("$.server_pregled_id").value(serverPregledId))
+                .andExpect(jsonPath("$.id_mappings.stavke", hasSize(2)))
+                .andExpect(jsonPath("$.id_mappings.stavke[*].lokalni_id", hasItem(stavkaBoolId.toString())));
+    }
+
+    @Test
+    void shouldRejectPregledOfAnotherKorisnik() throws Exception {
+        String payload = validPayload(
+                UUID.randomUUID(),
+                UUID.randomUUID(),
+                UUID.randomUUID(),
+                9999,
+                postrojenjeId,
+                uredajId,
+                paramBoolId,
+                paramNumId,
+                45.0
+        );
 
         mockMvc.perform(post("/api/v1/pregled/sync")
+                        .header(HttpHeaders.AUTHORIZATION, token("mmarkovic"))
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(payload))
-                .andExpect(status().isConflict())
+                .andExpect(status().isForbidden())
                 .andExpect(jsonPath("$.success").value(false))
-                .andExpect(jsonPath("$.message", containsString("sinkroniziran")));
+                .andExpect(jsonPath("$.message", containsString("drugom korisniku")));
     }
 
     @Test
-    void shouldReturnNotFoundWhenKorisnikMissing() throws Exception {
+    void shouldRejectUnknownTokenUserBeforeSync() throws Exception {
         String payload = validPayload(
                 UUID.randomUUID(),
                 UUID.randomUUID(),
                 UUID.randomUUID(),
-                9999,
+                korisnikId,
                 postrojenjeId,
                 uredajId,
                 paramBoolId,
@@ -182,11 +250,172 @@ class PregledSyncControllerIT {
         );
 
         mockMvc.perform(post("/api/v1/pregled/sync")
+                        .header(HttpHeaders.AUTHORIZATION, token("nepostojeci"))
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(payload))
-                .andExpect(status().isNotFound())
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
+    @Test
+    void streamShouldRejectPregledOfAnotherKorisnik() throws Exception {
+        String payload = validPayload(
+                UUID.randomUUID(),
+                UUID.randomUUID(),
+                UUID.randomUUID(),
+                9999,
+                postrojenjeId,
+                uredajId,
+                paramBoolId,
+                paramNumId,
+                45.0
+        );
+        // Strujni endpoint traži pregled prije stavki
+        JsonNode tijelo = objectMapper.readTree(payload);
+        ObjectNode poRedu = objectMapper.createObjectNode();
+        poRedu.set("pregled", tijelo.get("pregled"));
+        poRedu.set("stavke", tijelo.get("stavke"));
+
+        mockMvc.perform(post("/api/v1/pregled/sync/stream")
+                        .header(HttpHeaders.AUTHORIZATION, token("mmarkovic"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(poRedu)))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void batchShouldReportSyncedDuplicateAndRejectedPerPregled() throws Exception {
+        String vecSinkroniziran = validPayload(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(),
+                korisnikId, postrojenjeId, uredajId, paramBoolId, paramNumId, 45.0);
+        String prvi = mockMvc.perform(post("/api/v1/pregled/sync")
+                        .header(HttpHeaders.AUTHORIZATION, token("mmarkovic"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(vecSinkroniziran))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        int serverPregledId = objectMapper.readTree(prvi).get("server_pregled_id").asInt();
+
+        UUID novi = UUID.randomUUID();
+        UUID izvanRaspona = UUID.randomUUID();
+        ObjectNode zahtjev = objectMapper.createObjectNode();
+        zahtjev.putArray("pregledi")
+                .add(objectMapper.readTree(validPayload(novi, UUID.randomUUID(), UUID.randomUUID(),
+                        korisnikId, postrojenjeId, uredajId, paramBoolId, paramNumId, 45.0)))
+                .add(objectMapper.readTree(vecSinkroniziran))
+                .add(objectMapper.readTree(validPayload(izvanRaspona, UUID.randomUUID(), UUID.randomUUID(),
+                        korisnikId, postrojenjeId, uredajId, paramBoolId, paramNumId, 200.0)));
+
+        mockMvc.perform(post("/api/v1/pregled/sync/batch")
+                        .header(HttpHeaders.AUTHORIZATION, token("mmarkovic"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(zahtjev)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.synced").value(1))
+                .andExpect(jsonPath("$.duplicate").value(1))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.rezultati", hasSize(3)))
+                .andExpect(jsonPath("$.rezultati[0].lokalni_id").value(novi.toString()))
+                .andExpect(jsonPath("$.rezultati[0].status").value("SYNCED"))
+                .andExpect(jsonPath("$.rezultati[0].server_pregled_id").isNumber())
+                .andExpect(jsonPath("$.rezultati[0].id_mappings.stavke", hasSize(2)))
+                .andExpect(jsonPath("$.rezultati[1].status").value("DUPLICATE"))
+                .andExpect(jsonPath("$.rezultati[1].server_pregled_id").value(serverPregledId))
+                .andExpect(jsonPath("$.rezultati[1].id_mappings.stavke", hasSize(2)))
+                .andExpect(jsonPath("$.rezultati[2].lokalni_id").value(izvanRaspona.toString()))
+                .andExpect(jsonPath("$.rezultati[2].status").value("REJECTED"))
+                .andExpect(jsonPath("$.rezultati[2].message", containsString("veća")))
+                .andExpect(jsonPath("$.rezultati[2].server_pregled_id").doesNotExist());
+
+        // Odbijeni pregled nije spremljen, a duplikat nije spremljen ponovno
+        assertEquals(2, pregledRepository.count());
+        assertEquals(4, stavkaPregledaRepository.count());
+    }
+
+    @Test
+    void streamShouldSaveAllStavkeAcrossChunkBoundaries() throws Exception {
+        // 10 parametara x 101 uređaj daje dovoljno različitih parova (uređaj, parametar) za 1001 stavku
+        VrstaUredaja rastavljac = podaci.vrsta("RS", "Rastavljac");
+        List<Integer> parametri = new ArrayList<>();
+        for (int p = 1; p <= 10; p++) {
+            parametri.add(podaci.parametar(rastavljac, "Provjera " + p, "BOOLEAN", p).getIdParametra());
+        }
+        List<Integer> uredaji = new ArrayList<>();
+        for (int u = 0; u <= 100; u++) {
+            uredaji.add(podaci.uredaj(1000 + u, postrojenje, null, rastavljac).getIdUred());
+        }
+
+        int[] brojevi = {
+                STREAM_CHUNK_SIZE - 1, STREAM_CHUNK_SIZE, STREAM_CHUNK_SIZE + 1,
+                2 * STREAM_CHUNK_SIZE - 1, 2 * STREAM_CHUNK_SIZE, 2 * STREAM_CHUNK_SIZE + 1
+        };
+        long ukupno = stavkaPregledaRepository.count();
+        for (int broj : brojevi) {
+            ObjectNode tijelo = objectMapper.createObjectNode();
+            ObjectNode pregled = tijelo.putObject("pregled");
+            pregled.put("lokalni_id", UUID.randomUUID().toString());
+            pregled.put("pocetak", "2026-01-26T10:30:00");
+            pregled.put("id_korisnika", korisnikId);
+            pregled.put("id_postr", postrojenjeId);
+            ArrayNode stavke = tijelo.putArray("stavke");
+            Set<String> poslani = new HashSet<>();
+            for (int i = 0; i < broj; i++) {
+                String lokalniId = UUID.randomUUID().toString();
+                poslani.add(lokalniId);
+                stavke.addObject()
+                        .put("lokalni_id", lokalniId)
+                        .put("id_parametra", parametri.get(i % parametri.size()))
+                        .put("id_ured", uredaji.get(i / parametri.size()))
+                        .put("vrijednost_bool", true);
+            }
+
+            String odgovor = mockMvc.perform(post("/api/v1/pregled/sync/stream")
+                            .header(HttpHeaders.AUTHORIZATION, token("mmarkovic"))
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(tijelo)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.success").value(true))
+                    .andExpect(jsonPath("$.id_mappings.stavke", hasSize(broj)))
+                    .andReturn().getResponse().getContentAsString();
+
+            Set<String> mapirani = new HashSet<>();
+            Set<Integer> serverIds = new HashSet<>();
+            for (JsonNode mapiranje : objectMapper.readTree(odgovor).get("id_mappings").get("stavke")) {
+                mapirani.add(mapiranje.get("lokalni_id").asText());
+                serverIds.add(mapiranje.get("server_id").asInt());
+            }
+            assertEquals(poslani, mapirani, "Stavki: " + broj);
+            assertEquals(broj, serverIds.size(), "Stavki: " + broj);
+            ukupno += broj;
+            assertEquals(ukupno, stavkaPregledaRepository.count(), "Stavki: " + broj);
+        }
+    }
+
+    @Test
+    void streamShouldRejectStavkeBeforePregled() throws Exception {
+        JsonNode tijelo = objectMapper.readTree(validPayload(
+                UUID.randomUUID(),
+                UUID.randomUUID(),
+                UUID.randomUUID(),
+                korisnikId,
+                postrojenjeId,
+                uredajId,
+                paramBoolId,
+                paramNumId,
+                45.0
+        ));
+        ObjectNode obrnuto = objectMapper.createObjectNode();
+        obrnuto.set("stavke", tijelo.get("stavke"));
+        obrnuto.set("pregled", tijelo.get("pregled"));
+
+        mockMvc.perform(post("/api/v1/pregled/sync/stream")
+                        .header(HttpHeaders.AUTHORIZATION, token("mmarkovic"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(obrnuto)))
+                .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.success").value(false))
-                .andExpect(jsonPath("$.message", containsString("Korisnik")));
+                .andExpect(jsonPath("$.message").value("Polje pregled mora biti navedeno prije stavki"));
+        assertEquals(0, pregledRepository.count());
     }
 
     @Test
@@ -204,11 +433,47 @@ class PregledSyncControllerIT {
         );
 
         mockMvc.perform(post("/api/v1/pregled/sync")
+                        .header(HttpHeaders.AUTHORIZATION, token("mmarkovic"))
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(payload))
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.success").value(false))
-                .andExpect(jsonPath("$.message", containsString("Veća")));
+                .andExpect(jsonPath("$.message", containsString("veća")));
+    }
+
+    @Test
+    void tooLongNapomenaShouldReturnNonRetryable422() throws Exception {
+        ObjectNode payload = (ObjectNode) objectMapper.readTree(validPayload(
+                UUID.randomUUID(),
+                UUID.randomUUID(),
+                UUID.randomUUID(),
+                korisnikId,
+                postrojenjeId,
+                uredajId,
+                paramBoolId,
+                paramNumId,
+                45.0
+        ));
+        ((ObjectNode) payload.get("pregled")).put("napomena", "x".repeat(300));
+
+        mockMvc.perform(post("/api/v1/pregled/sync")
+                        .header(HttpHeaders.AUTHORIZATION, token("mmarkovic"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
+    private long brojMjerenja(String faza) {
+        return brojMjerenja(faza, "sync");
+    }
+
+    private long brojMjerenja(String faza, String nacin) {
+        return meterRegistry.get("elektropregled.sync.faza").tags("faza", faza, "nacin", nacin).timer().count();
+    }
+
+    private String token(String username) {
+        return "Bearer " + jwtProvider.generateToken(username);
     }
 
     private String validPayload(UUID pregledId,
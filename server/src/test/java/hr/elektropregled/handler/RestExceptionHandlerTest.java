@@ -0,0 +1,48 @@
+package hr.elektropregled.handler;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.exception.DataException;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Samo sukob na lokalnom ID-u pregleda ili stavke je ponovljiv (409); ostala kršenja ograničenja su 422.
+ */
+class RestExceptionHandlerTest {
+    private final RestExceptionHandler handler = new RestExceptionHandler();
+
+    @Test
+    void uniqueViolationOnLokalniIdShouldBeRetryableConflict() {
+        assertEquals(HttpStatus.CONFLICT, status("duplicate key value violates unique constraint \"uq_stavka_pregleda_lokalni_id\"", "23505"));
+        // H2 s imenom ograničenja koje generira Hibernate
+        assertEquals(HttpStatus.CONFLICT, status("Unique index or primary key violation: \"PUBLIC.UK_X ON PUBLIC.PREGLED(LOKALNI_ID NULLS FIRST)\"", "23505"));
+    }
+
+    @Test
+    void otherIntegrityViolationsShouldBeUnprocessable() {
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, status("duplicate key value violates unique constraint \"uq_stavka_unique_check\"", "23505"));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, status("insert or update on table \"pregled\" violates foreign key constraint \"fk_pregled_postrojenje\"", "23503"));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, status("value too long for type character varying(255)", "22001"));
+    }
+
+    @Test
+    void untranslatedHibernateExceptionsShouldBeClassifiedTheSameWay() {
+        SQLException predugacko = new SQLException("Value too long for column \"NAPOMENA CHARACTER VARYING(255)\"", "22001");
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, HttpStatus.valueOf(handler.handleHibernateIntegrity(
+                new DataException("could not execute batch", predugacko)).getStatusCode().value()));
+
+        SQLException duplikat = new SQLException("duplicate key value violates unique constraint \"uq_pregled_lokalni_id\"", "23505");
+        assertEquals(HttpStatus.CONFLICT, HttpStatus.valueOf(handler.handleHibernateIntegrity(
+                new ConstraintViolationException("could not execute statement", duplikat, "uq_pregled_lokalni_id")).getStatusCode().value()));
+    }
+
+    private HttpStatus status(String poruka, String sqlState) {
+        DataIntegrityViolationException ex = new DataIntegrityViolationException("test", new SQLException(poruka, sqlState));
+        return HttpStatus.valueOf(handler.handleDataIntegrity(ex).getStatusCode().value());
+    }
+}
@@ -0,0 +1,172 @@
+package hr.elektropregled.service;
+
+import hr.elektropregled.PostgresBaza;
+import hr.elektropregled.TestPodaci;
+import hr.elektropregled.dto.BulkImportReport;
+import hr.elektropregled.model.Postrojenje;
+import hr.elektropregled.model.VrstaUredaja;
+import hr.elektropregled.repository.PregledRepository;
+import hr.elektropregled.repository.StavkaPregledaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Skupni unos koristi COPY, pa se izvodi samo na PostgreSQL-u. Redak s predugačkim tekstom
+ * (VARCHAR(255)), nepostojećim datumom ili već unesenim pregledom odbija se s razlogom, a ostali
+ * redovi se unose.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestPodaci.class)
+@Testcontainers(disabledWithoutDocker = true)
+class BulkImportServicePostgresTest {
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        PostgresBaza.postavi(registry);
+    }
+
+    @Autowired
+    private BulkImportService bulkImportService;
+    @Autowired
+    private StavkaPregledaRepository stavkaPregledaRepository;
+    @Autowired
+    private PregledRepository pregledRepository;
+    @Autowired
+    private TestPodaci podaci;
+
+    private Integer korisnikId;
+    private Integer postrojenjeId;
+    private Integer uredajId;
+    private Integer drugiUredajId;
+    private Integer paramTxtId;
+
+    @BeforeEach
+    void setUp() {
+        podaci.ocisti();
+        korisnikId = podaci.korisnik("mmaric").getIdKorisnika();
+        Postrojenje postrojenje = podaci.postrojenje(1, "TS Sjever");
+        postrojenjeId = postrojenje.getIdPostr();
+        VrstaUredaja vrsta = podaci.vrsta("ET", "Energetski transformator");
+        uredajId = podaci.uredaj(100, postrojenje, null, vrsta).getIdUred();
+        drugiUredajId = podaci.uredaj(101, postrojenje, null, vrsta).getIdUred();
+        paramTxtId = podaci.parametar(vrsta, "Stanje brtvi", "TEXT", 1).getIdParametra();
+    }
+
+    @AfterEach
+    void ocisti() {
+        podaci.ocisti();
+    }
+
+    @Test
+    void tooLongTextShouldRejectOnlyThatRow() {
+        String dugo = "x".repeat(256);
+        String csv = String.join(",", BulkImportService.STUPCI) + "\n"
+                + redak("", "u redu", "") + "\n"
+                + redak(dugo, "u redu", "") + "\n"
+                + redak("", dugo, "") + "\n"
+                + redak("", "u redu", dugo) + "\n"
+                + redak("", "x".repeat(255), "") + "\n";
+
+        BulkImportReport izvjestaj = bulkImportService.importStavke(new StringReader(csv), BulkImportService.Format.CSV);
+
+        assertEquals(5L, izvjestaj.getUcitanoRedaka());
+        assertEquals(2L, izvjestaj.getUneseneStavke());
+        assertEquals(3L, izvjestaj.getOdbijeno());
+        List<String> razlozi = izvjestaj.getOdbijeniRedovi().stream().map(BulkImportReport.OdbijeniRed::getRazlog).toList();
+        assertEquals(List.of(
+                "Stupac pregled_napomena je dulji od 255 znakova",
+                "Stupac vrijednost_txt je dulji od 255 znakova",
+                "Stupac napomena je dulji od 255 znakova"), razlozi);
+        assertEquals(2, stavkaPregledaRepository.count());
+    }
+
+    @Test
+    void impossibleTimestampShouldRejectOnlyThatRow() {
+        String csv = String.join(",", BulkImportService.STUPCI) + "\n"
+                + redak(UUID.randomUUID(), "2026-02-30T09:00:00", "2026-03-01T12:00:00", "") + "\n"
+                + redak(UUID.randomUUID(), "2026-01-10T09:00:00", "2026-01-10T25:00:00", "") + "\n"
+                + redak(UUID.randomUUID(), "2026-01-10T09:00:00", "2026-01-10T12:00:00", "2026-13-01 10:00") + "\n"
+                + redak(UUID.randomUUID(), "2023-02-29T09:00:00", "", "") + "\n"
+                + redak(UUID.randomUUID(), "2024-02-29T09:00:00", "2024-02-29T09:59:59", "") + "\n";
+
+        BulkImportReport izvjestaj = bulkImportService.importStavke(new StringReader(csv), BulkImportService.Format.CSV);
+
+        assertEquals(1L, izvjestaj.getUneseneStavke());
+        assertEquals(4L, izvjestaj.getOdbijeno());
+        List<String> razlozi = izvjestaj.getOdbijeniRedovi().stream().map(BulkImportReport.OdbijeniRed::getRazlog).toList();
+        assertEquals(List.of(
+                "Nepostojeći datum ili vrijeme u stupcu pocetak",
+                "Nepostojeći datum ili vrijeme u stupcu kraj",
+                "Nepostojeći datum ili vrijeme u stupcu vrijeme_unosa",
+                "Nepostojeći datum ili vrijeme u stupcu pocetak"), razlozi);
+        assertEquals(1, stavkaPregledaRepository.count());
+    }
+
+    @Test
+    void rowsOfExistingPregledShouldBeRejected() {
+        UUID pregledId = UUID.randomUUID();
+        String prvi = String.join(",", BulkImportService.STUPCI) + "\n"
+                + redak(pregledId, "2026-01-10T09:00:00", "2026-01-10T12:00:00", "") + "\n";
+        assertEquals(1L, bulkImportService.importStavke(new StringReader(prvi), BulkImportService.Format.CSV)
+                .getUneseneStavke());
+
+        String drugi = String.join(",", BulkImportService.STUPCI) + "\n"
+                + redak(pregledId, "2026-01-10T09:00:00", "2026-01-10T12:00:00", "") + "\n";
+        BulkImportReport izvjestaj = bulkImportService.importStavke(new StringReader(drugi), BulkImportService.Format.CSV);
+
+        assertEquals(0L, izvjestaj.getUneseniPregledi());
+        assertEquals(0L, izvjestaj.getUneseneStavke());
+        assertEquals("Pregled s ovim lokalnim ID-om je već unesen", izvjestaj.getOdbijeniRedovi().get(0).getRazlog());
+        assertEquals(1, pregledRepository.count());
+        assertEquals(1, stavkaPregledaRepository.count());
+    }
+
+    @Test
+    void rowWithDifferentPregledHeaderShouldBeRejected() {
+        UUID pregledId = UUID.randomUUID();
+        String csv = String.join(",", BulkImportService.STUPCI) + "\n"
+                + redak(pregledId, "2026-01-10T09:00:00", "2026-01-10T12:00:00", "") + "\n"
+                + redak(pregledId, drugiUredajId, "2026-01-11T09:00:00", "2026-01-11T12:00:00", "") + "\n";
+
+        BulkImportReport izvjestaj = bulkImportService.importStavke(new StringReader(csv), BulkImportService.Format.CSV);
+
+        assertEquals(1L, izvjestaj.getUneseniPregledi());
+        assertEquals(1L, izvjestaj.getUneseneStavke());
+        assertEquals("Podaci pregleda se razlikuju od prvog retka tog pregleda",
+                izvjestaj.getOdbijeniRedovi().get(0).getRazlog());
+    }
+
+    private String redak(String pregledNapomena, String vrijednostTxt, String napomena) {
+        return String.join(",",
+                UUID.randomUUID().toString(), korisnikId.toString(), postrojenjeId.toString(),
+                "2026-01-10T09:00:00", "2026-01-10T12:00:00", pregledNapomena,
+                UUID.randomUUID().toString(), uredajId.toString(), paramTxtId.toString(),
+                "", "", vrijednostTxt, napomena, "");
+    }
+
+    private String redak(UUID pregledId, String pocetak, String kraj, String vrijemeUnosa) {
+        return redak(pregledId, uredajId, pocetak, kraj, vrijemeUnosa);
+    }
+
+    private String redak(UUID pregledId, Integer idUred, String pocetak, String kraj, String vrijemeUnosa) {
+        return String.join(",",
+                pregledId.toString(), korisnikId.toString(), postrojenjeId.toString(),
+                pocetak, kraj, "",
+                UUID.randomUUID().toString(), idUred.toString(), paramTxtId.toString(),
+                "", "", "u redu", "", vrijemeUnosa);
+    }
+}
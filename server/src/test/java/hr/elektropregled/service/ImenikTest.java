@@ -0,0 +1,77 @@
+package hr.elektropregled.service;
+
+import hr.elektropregled.TestPodaci;
+import hr.elektropregled.exception.ForbiddenException;
+import hr.elektropregled.repository.KorisnikRepository;
+import hr.elektropregled.repository.PostrojenjeRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Izmjene korisnika i postrojenja izravno u bazi (mimo {@link ImenikListener}-a): admin provjera ih
+ * vidi odmah, a imenik najkasnije nakon {@code imenik.ttl}.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestPodaci.class)
+class ImenikTest {
+    @Autowired
+    private AuthService authService;
+    @Autowired
+    private Imenik imenik;
+    @Autowired
+    private KorisnikRepository korisnikRepository;
+    @Autowired
+    private PostrojenjeRepository postrojenjeRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TestPodaci podaci;
+
+    @BeforeEach
+    void setUp() {
+        podaci.ocisti();
+        podaci.korisnik("admin", "pass123", "ADMIN");
+        podaci.postrojenje(1, "TS Sjever");
+    }
+
+    @AfterEach
+    void ocisti() {
+        podaci.ocisti();
+    }
+
+    @Test
+    void requireAdminShouldSeeRoleRemovedDirectlyInDb() {
+        assertTrue(authService.requireAdmin("admin").isAdmin());
+        // Imenik je učitan s ulogom ADMIN
+        assertTrue(imenik.korisnik("admin").orElseThrow().isAdmin());
+
+        jdbcTemplate.update("UPDATE korisnik SET uloga = 'RADNIK' WHERE korisnicko_ime = 'admin'");
+
+        assertThrows(ForbiddenException.class, () -> authService.requireAdmin("admin"));
+    }
+
+    @Test
+    void snapshotShouldBeReloadedAfterTtl() {
+        Imenik trajni = new Imenik(korisnikRepository, postrojenjeRepository, Duration.ofMinutes(5), Duration.ofHours(1));
+        Imenik istekli = new Imenik(korisnikRepository, postrojenjeRepository, Duration.ofMinutes(5), Duration.ZERO);
+        assertTrue(trajni.postojiPostrojenje(1));
+        assertTrue(istekli.postojiPostrojenje(1));
+
+        jdbcTemplate.update("DELETE FROM postrojenje WHERE id_postr = 1");
+
+        // Pogodak se vjeruje dok snimka ne istekne
+        assertTrue(trajni.postojiPostrojenje(1));
+        assertFalse(istekli.postojiPostrojenje(1));
+    }
+}
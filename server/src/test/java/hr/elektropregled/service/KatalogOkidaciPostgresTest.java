@@ -0,0 +1,98 @@
+package hr.elektropregled.service;
+
+import hr.elektropregled.PostgresBaza;
+import hr.elektropregled.TestPodaci;
+import hr.elektropregled.model.Polje;
+import hr.elektropregled.model.Postrojenje;
+import hr.elektropregled.model.Uredaj;
+import hr.elektropregled.model.VrstaUredaja;
+import hr.elektropregled.repository.UredajRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Na PostgreSQL-u Flyway instalira okidače iz V8, pa i izmjena uređaja ili polja izravno u bazi
+ * (SQL skripta, mimo aplikacije) mijenja ETag i upisuje se u dnevnik kataloga. Izmjena kroz
+ * aplikaciju se bilježi samo jednom (listener ne dodaje svoj zapis uz okidač).
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestPodaci.class)
+@Testcontainers(disabledWithoutDocker = true)
+class KatalogOkidaciPostgresTest {
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        PostgresBaza.postavi(registry);
+    }
+
+    @Autowired
+    private VerzijaPodatakaService verzijaPodatakaService;
+    @Autowired
+    private UredajRepository uredajRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TestPodaci podaci;
+
+    private Integer postrojenjeId;
+    private Integer poljeId;
+    private Integer uredajId;
+
+    @BeforeEach
+    void setUp() {
+        podaci.ocisti();
+        Postrojenje postrojenje = podaci.postrojenje(1, "TS Zapad");
+        postrojenjeId = postrojenje.getIdPostr();
+        Polje polje = podaci.polje(1, postrojenje);
+        poljeId = polje.getIdPolje();
+        VrstaUredaja vrsta = podaci.vrsta("SN", "Strujni transformator");
+        uredajId = podaci.uredaj(1, postrojenje, polje, vrsta).getIdUred();
+        jdbcTemplate.update("DELETE FROM katalog_promjena");
+    }
+
+    @AfterEach
+    void ocisti() {
+        podaci.ocisti();
+    }
+
+    @Test
+    void directSqlEditOfUredajAndPoljeShouldChangeEtag() {
+        String prije = verzijaPodatakaService.oznakaPostrojenja(postrojenjeId);
+
+        jdbcTemplate.update("UPDATE uredaj SET natp_plocica = 'SN1-N' WHERE id_ured = ?", uredajId);
+        String nakonUredaja = verzijaPodatakaService.oznakaPostrojenja(postrojenjeId);
+        assertNotEquals(prije, nakonUredaja);
+
+        jdbcTemplate.update("UPDATE polje SET naz_polje = 'DV 110 kV Zapad' WHERE id_polje = ?", poljeId);
+        assertNotEquals(nakonUredaja, verzijaPodatakaService.oznakaPostrojenja(postrojenjeId));
+
+        assertEquals(1, promjene("uredaj", uredajId, "U"));
+        assertEquals(1, promjene("polje", poljeId, "U"));
+    }
+
+    @Test
+    void applicationEditShouldBeLoggedOnce() {
+        Uredaj uredaj = uredajRepository.findById(uredajId).orElseThrow();
+        uredaj.setNatpPlocica("SN1-A");
+        uredajRepository.save(uredaj);
+
+        assertEquals(1, promjene("uredaj", uredajId, "U"));
+    }
+
+    private int promjene(String tablica, Integer id, String operacija) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM katalog_promjena WHERE tablica = ? AND id_zapisa = ? AND operacija = ?",
+                Integer.class, tablica, id, operacija);
+    }
+}
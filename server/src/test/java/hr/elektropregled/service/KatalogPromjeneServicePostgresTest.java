@@ -0,0 +1,18 @@
+package hr.elektropregled.service;
+
+import hr.elektropregled.PostgresBaza;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Isti scenariji kao {@link KatalogPromjeneServiceTest}, ali na PostgreSQL-u, gdje dnevnik
+ * promjena pune okidači iz migracije V8 umjesto JPA listenera.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class KatalogPromjeneServicePostgresTest extends KatalogPromjeneServiceTest {
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        PostgresBaza.postavi(registry);
+    }
+}
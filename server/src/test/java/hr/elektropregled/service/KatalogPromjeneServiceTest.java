@@ -0,0 +1,127 @@
+package hr.elektropregled.service;
+
+import hr.elektropregled.TestPodaci;
+import hr.elektropregled.dto.KatalogPromjeneResponse;
+import hr.elektropregled.model.ParametarProvjere;
+import hr.elektropregled.model.Polje;
+import hr.elektropregled.model.Postrojenje;
+import hr.elektropregled.model.Uredaj;
+import hr.elektropregled.model.VrstaUredaja;
+import hr.elektropregled.repository.ParametarProvjereRepository;
+import hr.elektropregled.repository.UredajRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Delta sinkronizacija kataloga: prvo preuzimanje vraća sve, sljedeće samo retke promijenjene
+ * nakon zapamćene verzije, a obrisani parametar dolazi kao ID u popisu obrisanih. Ovdje dnevnik
+ * pune JPA listeneri, a u {@link KatalogPromjeneServicePostgresTest} okidači iz V8.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestPodaci.class)
+class KatalogPromjeneServiceTest {
+    @Autowired
+    private KatalogPromjeneService katalogPromjeneService;
+
+    @Autowired
+    private ParametarProvjereRepository parametarProvjereRepository;
+    @Autowired
+    private UredajRepository uredajRepository;
+    @Autowired
+    private TestPodaci podaci;
+
+    private Postrojenje postrojenje;
+    private VrstaUredaja vrsta;
+    private Integer uredajId;
+    private Integer paramBoolId;
+    private Integer paramNumId;
+
+    @BeforeEach
+    void setUp() {
+        podaci.ocisti();
+        postrojenje = podaci.postrojenje(1, "TS Istok");
+        vrsta = podaci.vrsta("MT", "Mjerni transformator");
+        uredajId = podaci.uredaj(300, postrojenje, null, vrsta).getIdUred();
+        paramBoolId = podaci.parametar(vrsta, "Vidna ispravnost", "BOOLEAN", 1).getIdParametra();
+        paramNumId = podaci.parametar(vrsta, "Temperatura", "NUMERIC", 2).getIdParametra();
+    }
+
+    @Test
+    void shouldReturnFullCatalogFirstAndOnlyChangedRowsAfterwards() {
+        KatalogPromjeneResponse prvo = katalogPromjeneService.promjeneOd(0);
+        assertTrue(prvo.isPotpuno());
+        assertEquals(1, prvo.getPostrojenja().size());
+        assertEquals(1, prvo.getUredaji().size());
+        assertNull(prvo.getUredaji().get(0).getIdPolje());
+        assertEquals(2, prvo.getParametri().size());
+
+        // Bez promjena: prazna delta s istom verzijom
+        KatalogPromjeneResponse bezPromjena = katalogPromjeneService.promjeneOd(prvo.getVerzija());
+        assertFalse(bezPromjena.isPotpuno());
+        assertEquals(prvo.getVerzija(), bezPromjena.getVerzija());
+        assertTrue(bezPromjena.getParametri().isEmpty());
+
+        ParametarProvjere temperatura = parametarProvjereRepository.findById(paramNumId).orElseThrow();
+        temperatura.setMaxVrijednost(90.0);
+        parametarProvjereRepository.save(temperatura);
+        parametarProvjereRepository.deleteById(paramBoolId);
+        Integer novi = podaci.parametar(vrsta, "Napomena", "TEXT", 3).getIdParametra();
+
+        KatalogPromjeneResponse delta = katalogPromjeneService.promjeneOd(prvo.getVerzija());
+        assertFalse(delta.isPotpuno());
+        assertTrue(delta.getVerzija() > prvo.getVerzija());
+        assertTrue(delta.getPostrojenja().isEmpty());
+        assertTrue(delta.getUredaji().isEmpty());
+        assertEquals(List.of(paramNumId, novi),
+                delta.getParametri().stream().map(KatalogPromjeneResponse.ParametarZapis::getIdParametra).toList());
+        assertEquals(90.0, delta.getParametri().get(0).getMaxVrijednost());
+        assertEquals(List.of(paramBoolId), delta.getObrisano().getParametri());
+    }
+
+    @Test
+    void shouldReturnChangedPoljaAndUredaji() {
+        long verzija = katalogPromjeneService.promjeneOd(0).getVerzija();
+
+        Polje polje = podaci.polje(1, postrojenje);
+        Uredaj uredaj = uredajRepository.findById(uredajId).orElseThrow();
+        uredaj.setPolje(polje);
+        uredajRepository.save(uredaj);
+        Uredaj privremeni = podaci.uredaj(301, postrojenje, null, vrsta);
+        uredajRepository.delete(privremeni);
+
+        KatalogPromjeneResponse delta = katalogPromjeneService.promjeneOd(verzija);
+        assertFalse(delta.isPotpuno());
+        assertEquals(List.of(polje.getIdPolje()),
+                delta.getPolja().stream().map(KatalogPromjeneResponse.PoljeZapis::getIdPolje).toList());
+        assertEquals(List.of(uredajId),
+                delta.getUredaji().stream().map(KatalogPromjeneResponse.UredajZapis::getIdUred).toList());
+        assertEquals(polje.getIdPolje(), delta.getUredaji().get(0).getIdPolje());
+        assertEquals(List.of(301), delta.getObrisano().getUredaji());
+        assertTrue(delta.getPostrojenja().isEmpty());
+        assertTrue(delta.getParametri().isEmpty());
+    }
+
+    @Test
+    void shouldFallBackToFullCatalogWhenLogWasPruned() {
+        long verzija = katalogPromjeneService.promjeneOd(0).getVerzija();
+        ParametarProvjere temperatura = parametarProvjereRepository.findById(paramNumId).orElseThrow();
+        temperatura.setMjernaJedinica("°C");
+        parametarProvjereRepository.save(temperatura);
+
+        assertTrue(katalogPromjeneService.obrisiStarije(LocalDateTime.now().plusMinutes(1)) > 0);
+
+        KatalogPromjeneResponse odgovor = katalogPromjeneService.promjeneOd(verzija);
+        assertTrue(odgovor.isPotpuno());
+        assertEquals(2, odgovor.getParametri().size());
+    }
+}
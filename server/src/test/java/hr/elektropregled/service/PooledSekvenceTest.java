@@ -0,0 +1,158 @@
+package hr.elektropregled.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import hr.elektropregled.TestPodaci;
+import hr.elektropregled.dto.PregledSyncRequest;
+import hr.elektropregled.dto.SyncResponse;
+import hr.elektropregled.model.Postrojenje;
+import hr.elektropregled.model.VrstaUredaja;
+import hr.elektropregled.repository.StavkaPregledaRepository;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stavke dobivaju ID iz sekvence s pooled optimizerom (allocationSize 50), pa se upisuju u JDBC
+ * batchevima od {@code hibernate.jdbc.batch_size}, a sekvenca se čita jednom po rasponu od 50 ID-eva.
+ * Izvršeni batchevi broje se iz TRACE loga {@code org.hibernate.orm.jdbc.batch}, a čitanja sekvence
+ * kroz {@link StatementInspector} koji Hibernate poziva pri svakoj pripremi naredbe.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "hr.elektropregled.service.PooledSekvenceTest$BrojacNaredbi")
+@ActiveProfiles("test")
+@Import(TestPodaci.class)
+class PooledSekvenceTest {
+    private static final int ALLOCATION_SIZE = 50;
+    private static final int BROJ_STAVKI = 120;
+    private static final int BROJ_PARAMETARA = 4;
+    private static final String BATCH_LOGGER = "org.hibernate.orm.jdbc.batch";
+
+    @Autowired
+    private PregledSyncService pregledSyncService;
+    @Autowired
+    private StavkaPregledaRepository stavkaPregledaRepository;
+    @Autowired
+    private TestPodaci podaci;
+
+    private Integer korisnikId;
+    private Integer postrojenjeId;
+    private final List<Integer> uredaji = new ArrayList<>();
+    private final List<Integer> parametri = new ArrayList<>();
+
+    private final ListAppender<ILoggingEvent> batchLog = new ListAppender<>();
+    private Level prethodnaRazina;
+
+    public static class BrojacNaredbi implements StatementInspector {
+        static final AtomicInteger SEKVENCA_STAVKI = new AtomicInteger();
+
+        @Override
+        public String inspect(String sql) {
+            if (sql.toLowerCase().contains("stavka_pregleda_id_stavke_seq")) {
+                SEKVENCA_STAVKI.incrementAndGet();
+            }
+            return sql;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        podaci.ocisti();
+        uredaji.clear();
+        parametri.clear();
+        korisnikId = podaci.korisnik("iivic").getIdKorisnika();
+        Postrojenje postrojenje = podaci.postrojenje(1, "TS 35/10 kV");
+        postrojenjeId = postrojenje.getIdPostr();
+        VrstaUredaja vrsta = podaci.vrsta("OD", "Odvodnik prenapona");
+        for (int p = 0; p < BROJ_PARAMETARA; p++) {
+            parametri.add(podaci.parametar(vrsta, "Parametar " + p, "TEXT", p + 1).getIdParametra());
+        }
+        for (int u = 0; u < BROJ_STAVKI / BROJ_PARAMETARA; u++) {
+            uredaji.add(podaci.uredaj(u + 1, postrojenje, null, vrsta).getIdUred());
+        }
+
+        Logger logger = (Logger) LoggerFactory.getLogger(BATCH_LOGGER);
+        prethodnaRazina = logger.getLevel();
+        logger.setLevel(Level.TRACE);
+        batchLog.list.clear();
+        batchLog.start();
+        logger.addAppender(batchLog);
+    }
+
+    @AfterEach
+    void ocisti() {
+        Logger logger = (Logger) LoggerFactory.getLogger(BATCH_LOGGER);
+        logger.detachAppender(batchLog);
+        logger.setLevel(prethodnaRazina);
+        podaci.ocisti();
+    }
+
+    @Test
+    void stavkeShouldBeInsertedInBatchesWithPooledIds() {
+        BrojacNaredbi.SEKVENCA_STAVKI.set(0);
+        PregledSyncRequest zahtjev = zahtjev();
+        SyncResponse odgovor = pregledSyncService.sync(zahtjev);
+
+        int batcheva = (BROJ_STAVKI + ALLOCATION_SIZE - 1) / ALLOCATION_SIZE;
+        long izvrsenihBatcheva = batchLog.list.stream()
+                .map(ILoggingEvent::getFormattedMessage)
+                .filter(poruka -> poruka.startsWith("Executing JDBC batch"))
+                .filter(poruka -> poruka.contains("StavkaPregleda#INSERT"))
+                .count();
+        assertEquals(batcheva, izvrsenihBatcheva, "INSERT stavki mora ići u batchevima od 50");
+        // Pooled optimizer na svježoj sekvenci čita je dvaput za prvi raspon; inkrement 1 bi tražio 120 čitanja
+        assertTrue(BrojacNaredbi.SEKVENCA_STAVKI.get() <= batcheva + 1,
+                "Sekvenca se čita jednom po rasponu, a ne po stavci: " + BrojacNaredbi.SEKVENCA_STAVKI.get());
+
+        List<SyncResponse.StavkaMapping> mapiranja = odgovor.getIdMappings().getStavke();
+        assertEquals(BROJ_STAVKI, mapiranja.size());
+        Set<Integer> serverIds = new HashSet<>();
+        for (int i = 0; i < BROJ_STAVKI; i++) {
+            SyncResponse.StavkaMapping mapiranje = mapiranja.get(i);
+            assertEquals(zahtjev.getStavke().get(i).getLokalniId(), mapiranje.getLokalniId());
+            assertTrue(serverIds.add(mapiranje.getServerId()));
+            // ID dodijeljen prije INSERT-a mora biti ID spremljenog reda
+            assertEquals(mapiranje.getServerId(),
+                    stavkaPregledaRepository.findByLokalniId(mapiranje.getLokalniId()).orElseThrow().getIdStavke());
+        }
+    }
+
+    private PregledSyncRequest zahtjev() {
+        PregledSyncRequest.PregledDto pregled = new PregledSyncRequest.PregledDto();
+        pregled.setLokalniId(UUID.randomUUID());
+        pregled.setPocetak(LocalDateTime.of(2026, 2, 12, 8, 0));
+        pregled.setKraj(LocalDateTime.of(2026, 2, 12, 9, 30));
+        pregled.setIdKorisnika(korisnikId);
+        pregled.setIdPostr(postrojenjeId);
+
+        List<PregledSyncRequest.StavkaDto> stavke = new ArrayList<>();
+        for (int i = 0; i < BROJ_STAVKI; i++) {
+            PregledSyncRequest.StavkaDto stavka = new PregledSyncRequest.StavkaDto();
+            stavka.setLokalniId(UUID.randomUUID());
+            stavka.setIdUred(uredaji.get(i / BROJ_PARAMETARA));
+            stavka.setIdParametra(parametri.get(i % BROJ_PARAMETARA));
+            stavka.setVrijednostTxt("U redu");
+            stavke.add(stavka);
+        }
+        return new PregledSyncRequest(pregled, stavke);
+    }
+}
@@ -0,0 +1,349 @@
+package hr.elektropregled.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hr.elektropregled.TestPodaci;
+import hr.elektropregled.dto.ChecklistDeviceDto;
+import hr.elektropregled.dto.ChecklistV2Response;
+import hr.elektropregled.dto.PoljeDto;
+import hr.elektropregled.dto.PostrojenjeBundleDto;
+import hr.elektropregled.dto.PostrojenjeSummaryDto;
+import hr.elektropregled.dto.PregledSyncRequest;
+import hr.elektropregled.model.*;
+import hr.elektropregled.repository.ParametarProvjereRepository;
+import hr.elektropregled.repository.PregledRepository;
+import hr.elektropregled.repository.StavkaPregledaRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Broj SQL naredbi po endpointu ne smije ovisiti o broju uređaja, vrsta ni stavki. Asocijacije su
+ * LAZY, pa svaki put čitanja mora sam učitati ono što koristi: nijedna asocijacija se ne smije
+ * dohvatiti naknadnim upitom ({@code entityFetchCount == 0}). Brojevi vrijede za prazan L2 cache;
+ * topli cache smije samo smanjiti broj naredbi.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestPodaci.class)
+class PostrojenjeServiceQueryCountTest {
+    private static final int BROJ_UREDAJA = 60;
+    private static final int BROJ_VRSTA = 5;
+    private static final int PARAMETARA_PO_VRSTI = 3;
+
+    // postrojenje, uređaji, parametri, zadnje vrijednosti
+    private static final long OCEKIVANO_UPITA = 4;
+    // predlošci parametara su u predmemoriji
+    private static final long OCEKIVANO_UPITA_IZ_PREDMEMORIJE = 3;
+    // postrojenje, polja s brojem uređaja, broj uređaja bez polja
+    private static final long OCEKIVANO_UPITA_POLJA = 3;
+    // statistika, postrojenja
+    private static final long OCEKIVANO_UPITA_POPIS = 2;
+    // polja (2), uređaji, parametri, zadnje vrijednosti; postojanje provjerava kontroler
+    private static final long OCEKIVANO_UPITA_BUNDLE = 5;
+
+    @Autowired
+    private PostrojenjeService postrojenjeService;
+    @Autowired
+    private ChecklistTemplateCache checklistTemplateCache;
+    @Autowired
+    private StavkaLatestService stavkaLatestService;
+    @Autowired
+    private PregledSyncService pregledSyncService;
+    @Autowired
+    private ReferentniCache referentniCache;
+    @Autowired
+    private VerzijaPodatakaService verzijaPodatakaService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private StavkaPregledaRepository stavkaPregledaRepository;
+    @Autowired
+    private PregledRepository pregledRepository;
+    @Autowired
+    private ParametarProvjereRepository parametarProvjereRepository;
+    @Autowired
+    private TestPodaci podaci;
+
+    private Integer korisnikId;
+    private Integer postrojenjeId;
+    private Integer poljeId;
+    // Parametar bez zadnje vrijednosti po vrsti; sinkronizacija ga upisuje kao novi red stavka_latest
+    private final List<Integer> drugiParametri = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        podaci.ocisti();
+        Korisnik korisnik = podaci.korisnik("iivic");
+        korisnikId = korisnik.getIdKorisnika();
+        Postrojenje postrojenje = podaci.postrojenje(1, "TS 110/20 kV");
+        postrojenjeId = postrojenje.getIdPostr();
+        Polje polje = podaci.polje(1, postrojenje);
+        poljeId = polje.getIdPolje();
+
+        List<VrstaUredaja> vrste = new ArrayList<>();
+        List<ParametarProvjere> prviParametri = new ArrayList<>();
+        for (int v = 0; v < BROJ_VRSTA; v++) {
+            VrstaUredaja vrsta = podaci.vrsta("V" + v, "Vrsta " + v);
+            vrste.add(vrsta);
+            for (int p = 0; p < PARAMETARA_PO_VRSTI; p++) {
+                ParametarProvjere parametar = podaci.parametar(vrsta, "Parametar " + v + "." + p, "BOOLEAN", p + 1);
+                if (p == 0) {
+                    prviParametri.add(parametar);
+                } else if (p == 1) {
+                    drugiParametri.add(parametar.getIdParametra());
+                }
+            }
+        }
+
+        Pregled pregled = new Pregled();
+        pregled.setLokalniId(UUID.randomUUID());
+        pregled.setStatusSync("SYNCED");
+        pregled.setPocetak(LocalDateTime.of(2026, 1, 20, 9, 0));
+        pregled.setKraj(LocalDateTime.of(2026, 1, 20, 11, 0));
+        pregled.setKorisnik(korisnik);
+        pregled.setPostrojenje(postrojenje);
+        pregled = pregledRepository.save(pregled);
+
+        List<StavkaPregleda> stavke = new ArrayList<>();
+        for (int u = 0; u < BROJ_UREDAJA; u++) {
+            Uredaj uredaj = podaci.uredaj(u + 1, postrojenje, polje, vrste.get(u % BROJ_VRSTA));
+
+            StavkaPregleda stavka = new StavkaPregleda();
+            stavka.setLokalniId(UUID.randomUUID());
+            stavka.setVrijednostBool(false);
+            stavka.setVrijemeUnosa(LocalDateTime.of(2026, 1, 20, 10, 0));
+            stavka.setPregled(pregled);
+            stavka.setUredaj(uredaj);
+            stavka.setParametarProvjere(prviParametri.get(u % BROJ_VRSTA));
+            stavke.add(stavka);
+        }
+        stavkaPregledaRepository.saveAll(stavke);
+        // Stavke su upisane mimo sinkronizacije, pa se zadnje vrijednosti grade kao pri backfillu
+        stavkaLatestService.obnovi();
+        // Raste li katalog kasnije, KatalogPromjeneWorker ne smije isprazniti cache usred mjerenja
+        verzijaPodatakaService.katalog();
+        referentniCache.isprazni();
+    }
+
+    @AfterEach
+    void ocisti() {
+        podaci.ocisti();
+    }
+
+    @Test
+    void getChecklistShouldUseFixedNumberOfQueries() {
+        checklistTemplateCache.invalidirajSve();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<ChecklistDeviceDto> checklist = postrojenjeService.getChecklist(postrojenjeId, poljeId);
+
+        assertEquals(OCEKIVANO_UPITA, statistics.getPrepareStatementCount(),
+                "Broj upita za checklist ne smije ovisiti o broju uređaja");
+        assertEquals(0, statistics.getEntityFetchCount());
+        assertEquals(BROJ_UREDAJA, checklist.size());
+        for (ChecklistDeviceDto uredaj : checklist) {
+            assertEquals(PARAMETARA_PO_VRSTI, uredaj.getParametri().size());
+            assertEquals(poljeId, uredaj.getIdPolje());
+            // Zadnja vrijednost prvog parametra dolazi iz pregleda, ostali imaju zadano "ispravno"
+            assertEquals(Boolean.FALSE, uredaj.getParametri().get(0).getDefaultBool());
+            assertEquals(LocalDateTime.of(2026, 1, 20, 11, 0), uredaj.getParametri().get(0).getZadnjiPregledAt());
+            assertEquals(Boolean.TRUE, uredaj.getParametri().get(1).getDefaultBool());
+            assertNull(uredaj.getParametri().get(1).getZadnjiPregledAt());
+        }
+    }
+
+    @Test
+    void getChecklistShouldReadTemplatesFromCacheUntilParameterChanges() {
+        checklistTemplateCache.invalidirajSve();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        postrojenjeService.getChecklist(postrojenjeId, poljeId);
+        referentniCache.isprazni();
+        statistics.clear();
+        List<ChecklistDeviceDto> checklist = postrojenjeService.getChecklist(postrojenjeId, poljeId);
+        assertEquals(OCEKIVANO_UPITA_IZ_PREDMEMORIJE, statistics.getPrepareStatementCount());
+        assertEquals(BROJ_UREDAJA, checklist.size());
+
+        // Izmjena parametra poništava predložak njegove vrste
+        Integer idParametra = checklist.get(0).getParametri().get(1).getIdParametra();
+        ParametarProvjere parametar = parametarProvjereRepository.findById(idParametra).orElseThrow();
+        parametar.setNazParametra("Preimenovani parametar");
+        parametarProvjereRepository.save(parametar);
+
+        referentniCache.isprazni();
+        statistics.clear();
+        checklist = postrojenjeService.getChecklist(postrojenjeId, poljeId);
+        assertEquals(OCEKIVANO_UPITA, statistics.getPrepareStatementCount());
+        assertEquals("Preimenovani parametar", checklist.get(0).getParametri().get(1).getNazParametra());
+    }
+
+    @Test
+    void getChecklistV2ShouldUseSameQueriesAsV1() {
+        checklistTemplateCache.invalidirajSve();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        ChecklistV2Response checklist = postrojenjeService.getChecklistV2(postrojenjeId, poljeId);
+
+        assertEquals(OCEKIVANO_UPITA, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityFetchCount());
+        assertEquals(BROJ_VRSTA, checklist.getVrste().size());
+        assertEquals(BROJ_UREDAJA, checklist.getUredaji().size());
+    }
+
+    @Test
+    void listPoljaShouldUseFixedNumberOfQueries() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<PoljeDto> polja = postrojenjeService.listPolja(postrojenjeId);
+
+        assertEquals(OCEKIVANO_UPITA_POLJA, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityFetchCount());
+        assertEquals(1, polja.size());
+        assertEquals((long) BROJ_UREDAJA, polja.get(0).getBrojUredaja());
+    }
+
+    @Test
+    void listPostrojenjaShouldUseFixedNumberOfQueries() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<PostrojenjeSummaryDto> postrojenja = postrojenjeService.listPostrojenjaWithStats();
+
+        assertEquals(OCEKIVANO_UPITA_POPIS, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityFetchCount());
+        assertEquals(1, postrojenja.size());
+    }
+
+    @Test
+    void bundleShouldUseFixedNumberOfQueries() throws Exception {
+        checklistTemplateCache.invalidirajSve();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        PostrojenjeBundleDto paket = postrojenjeService.ucitajBundle(postrojenjeId);
+        assertEquals(OCEKIVANO_UPITA_BUNDLE, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityFetchCount());
+
+        // Pisanje u tok nakon zatvaranja transakcije ne smije ići u bazu
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator gen = objectMapper.createGenerator(out)) {
+            postrojenjeService.napisiBundle(paket, gen);
+        }
+        assertEquals(OCEKIVANO_UPITA_BUNDLE, statistics.getPrepareStatementCount());
+        PostrojenjeBundleDto bundle = objectMapper.readValue(out.toByteArray(), PostrojenjeBundleDto.class);
+        assertEquals(BROJ_UREDAJA, bundle.getUredaji().size());
+    }
+
+    @Test
+    void syncShouldNotDependOnNumberOfStavki() {
+        // Prva sinkronizacija (po uređaj svake vrste) puni predmemoriju predložaka, statistiku
+        // postrojenja i blokove sekvenci
+        pregledSyncService.sync(request(BROJ_UREDAJA - BROJ_VRSTA + 1, BROJ_VRSTA));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        referentniCache.isprazni();
+        statistics.clear();
+        pregledSyncService.sync(request(1, 5));
+        long zaPet = statistics.getPrepareStatementCount();
+        assertEquals(0, statistics.getEntityFetchCount());
+
+        referentniCache.isprazni();
+        statistics.clear();
+        pregledSyncService.sync(request(6, 10));
+        assertEquals(zaPet, statistics.getPrepareStatementCount(),
+                "Stavke se upisuju skupno, broj naredbi ne smije rasti s brojem stavki");
+        assertEquals(0, statistics.getEntityFetchCount());
+    }
+
+    @Test
+    void warmChecklistShouldComeFromQueryCache() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        postrojenjeService.getChecklist(postrojenjeId, poljeId);
+
+        statistics.clear();
+        List<ChecklistDeviceDto> checklist = postrojenjeService.getChecklist(postrojenjeId, poljeId);
+
+        assertTrue(statistics.getQueryCacheHitCount() > 0, "Uređaji polja moraju doći iz query cachea");
+        assertTrue(statistics.getPrepareStatementCount() < OCEKIVANO_UPITA_IZ_PREDMEMORIJE);
+        assertEquals(BROJ_UREDAJA, checklist.size());
+        assertEquals(poljeId, checklist.get(0).getIdPolje());
+        assertEquals(PARAMETARA_PO_VRSTI, checklist.get(0).getParametri().size());
+    }
+
+    @Test
+    void syncShouldReadReferencesFromSecondLevelCache() {
+        pregledSyncService.sync(request(1, 5));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        pregledSyncService.sync(request(1, 5));
+        long topli = statistics.getPrepareStatementCount();
+        assertTrue(statistics.getSecondLevelCacheHitCount() >= 5, "Uređaji moraju doći iz L2 cachea (postrojenje dolazi iz imenika)");
+
+        referentniCache.isprazni();
+        statistics.clear();
+        pregledSyncService.sync(request(1, 5));
+        assertTrue(topli < statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void katalogChangeShouldEmptySecondLevelCache() {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        em.find(Postrojenje.class, postrojenjeId);
+        em.close();
+        // JCache regije ne izlažu broj elemenata u statistici, pa se provjerava sam unos
+        Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        assertTrue(cache.containsEntity(Postrojenje.class, postrojenjeId));
+
+        // Izmjena kataloga mimo Hibernatea (u produkciji trigger) vidi se samo kroz verziju kataloga
+        verzijaPodatakaService.povecajKatalog();
+        verzijaPodatakaService.katalog();
+
+        assertFalse(cache.containsEntity(Postrojenje.class, postrojenjeId));
+    }
+
+    // Pregled sa stavkama za uređaje od prviUredaj nadalje, svaka za drugi parametar vrste uređaja
+    private PregledSyncRequest request(int prviUredaj, int brojStavki) {
+        PregledSyncRequest.PregledDto pregled = new PregledSyncRequest.PregledDto();
+        pregled.setLokalniId(UUID.randomUUID());
+        pregled.setPocetak(LocalDateTime.of(2026, 2, 1, 9, 0));
+        pregled.setKraj(LocalDateTime.of(2026, 2, 1, 10, 0));
+        pregled.setIdKorisnika(korisnikId);
+        pregled.setIdPostr(postrojenjeId);
+
+        List<PregledSyncRequest.StavkaDto> stavke = new ArrayList<>();
+        for (int idUred = prviUredaj; idUred < prviUredaj + brojStavki; idUred++) {
+            PregledSyncRequest.StavkaDto stavka = new PregledSyncRequest.StavkaDto();
+            stavka.setLokalniId(UUID.randomUUID());
+            stavka.setIdUred(idUred);
+            stavka.setIdParametra(drugiParametri.get((idUred - 1) % BROJ_VRSTA));
+            stavka.setVrijednostBool(true);
+            stavke.add(stavka);
+        }
+        return new PregledSyncRequest(pregled, stavke);
+    }
+}
@@ -0,0 +1,129 @@
+package hr.elektropregled.service;
+
+import hr.elektropregled.TestPodaci;
+import hr.elektropregled.dto.PregledSyncBatchRequest;
+import hr.elektropregled.dto.PregledSyncRequest;
+import hr.elektropregled.dto.PostrojenjeSummaryDto;
+import hr.elektropregled.dto.SyncBatchResponse;
+import hr.elektropregled.model.Postrojenje;
+import hr.elektropregled.model.VrstaUredaja;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Statistika postrojenja održavana pri sinkronizaciji mora biti jednaka onoj izračunatoj
+ * iz cijele tablice pregled, neovisno o redoslijedu kojim pregledi stižu.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestPodaci.class)
+class PostrojenjeStatsServiceTest {
+    @Autowired
+    private PregledSyncService pregledSyncService;
+    @Autowired
+    private PostrojenjeStatsService postrojenjeStatsService;
+    @Autowired
+    private PostrojenjeService postrojenjeService;
+
+    @Autowired
+    private TestPodaci podaci;
+
+    private Integer korisnikId;
+    private Integer postrojenjeId;
+    private Integer uredajId;
+    private Integer drugoPostrojenjeId;
+    private Integer drugiUredajId;
+    private Integer paramNumId;
+
+    @BeforeEach
+    void setUp() {
+        podaci.ocisti();
+        korisnikId = podaci.korisnik("mmaric").getIdKorisnika();
+        Postrojenje postrojenje = podaci.postrojenje(1, "TS Sjever");
+        postrojenjeId = postrojenje.getIdPostr();
+        VrstaUredaja vrsta = podaci.vrsta("ET", "Energetski transformator");
+        uredajId = podaci.uredaj(100, postrojenje, null, vrsta).getIdUred();
+        Postrojenje drugo = podaci.postrojenje(2, "TS Istok");
+        drugoPostrojenjeId = drugo.getIdPostr();
+        drugiUredajId = podaci.uredaj(200, drugo, null, vrsta).getIdUred();
+        paramNumId = podaci.parametar(vrsta, "Temperatura ulja", "NUMERIC", 1).getIdParametra();
+    }
+
+    @AfterEach
+    void ocisti() {
+        podaci.ocisti();
+    }
+
+    @Test
+    void incrementalStatsShouldMatchRebuild() {
+        sync(LocalDateTime.of(2026, 1, 10, 9, 0), LocalDateTime.of(2026, 1, 10, 12, 0), 55.0);
+        sync(LocalDateTime.of(2026, 3, 2, 8, 0), LocalDateTime.of(2026, 3, 2, 10, 0), 70.5);
+        // Stariji pregled sinkroniziran naknadno povećava broj, ali ne mijenja zadnji pregled
+        sync(LocalDateTime.of(2026, 1, 5, 9, 0), LocalDateTime.of(2026, 1, 5, 11, 0), 48.0);
+
+        PostrojenjeSummaryDto inkrementalno = statistika(postrojenjeId);
+        assertEquals(3L, inkrementalno.getTotalPregleda());
+        assertEquals(LocalDateTime.of(2026, 3, 2, 10, 0), inkrementalno.getZadnjiPregled());
+        assertEquals("mmaric", inkrementalno.getZadnjiKorisnik());
+
+        assertEquals(1, postrojenjeStatsService.obnovi());
+        assertEquals(inkrementalno, statistika(postrojenjeId));
+    }
+
+    @Test
+    void batchStatsShouldMatchRebuildAcrossPostrojenja() {
+        // Drugo postrojenje namjerno prvo u zahtjevu; statistika se svejedno upisuje po ID-u postrojenja
+        SyncBatchResponse odgovor = pregledSyncService.syncBatch(new PregledSyncBatchRequest(List.of(
+                zahtjev(drugoPostrojenjeId, drugiUredajId, LocalDateTime.of(2026, 2, 1, 9, 0), LocalDateTime.of(2026, 2, 1, 10, 0), 40.0),
+                zahtjev(postrojenjeId, uredajId, LocalDateTime.of(2026, 1, 10, 9, 0), LocalDateTime.of(2026, 1, 10, 12, 0), 55.0),
+                zahtjev(postrojenjeId, uredajId, LocalDateTime.of(2026, 3, 2, 8, 0), LocalDateTime.of(2026, 3, 2, 10, 0), 70.5))));
+        assertEquals(3, odgovor.getSynced());
+
+        List<PostrojenjeSummaryDto> inkrementalno = postrojenjeService.listPostrojenjaWithStats();
+        PostrojenjeSummaryDto prvo = statistika(postrojenjeId);
+        assertEquals(2L, prvo.getTotalPregleda());
+        assertEquals(LocalDateTime.of(2026, 3, 2, 10, 0), prvo.getZadnjiPregled());
+
+        assertEquals(2, postrojenjeStatsService.obnovi());
+        assertEquals(inkrementalno, postrojenjeService.listPostrojenjaWithStats());
+    }
+
+    private PostrojenjeSummaryDto statistika(Integer idPostr) {
+        return postrojenjeService.listPostrojenjaWithStats().stream()
+                .filter(p -> p.getIdPostr().equals(idPostr))
+                .findFirst().orElseThrow();
+    }
+
+    private void sync(LocalDateTime pocetak, LocalDateTime kraj, double vrijednost) {
+        pregledSyncService.sync(zahtjev(postrojenjeId, uredajId, pocetak, kraj, vrijednost));
+    }
+
+    private PregledSyncRequest zahtjev(Integer idPostr, Integer idUred, LocalDateTime pocetak, LocalDateTime kraj,
+                                       double vrijednost) {
+        PregledSyncRequest.PregledDto pregled = new PregledSyncRequest.PregledDto();
+        pregled.setLokalniId(UUID.randomUUID());
+        pregled.setPocetak(pocetak);
+        pregled.setKraj(kraj);
+        pregled.setIdKorisnika(korisnikId);
+        pregled.setIdPostr(idPostr);
+
+        PregledSyncRequest.StavkaDto stavka = new PregledSyncRequest.StavkaDto();
+        stavka.setLokalniId(UUID.randomUUID());
+        stavka.setIdUred(idUred);
+        stavka.setIdParametra(paramNumId);
+        stavka.setVrijednostNum(vrijednost);
+
+        return new PregledSyncRequest(pregled, List.of(stavka));
+    }
+}
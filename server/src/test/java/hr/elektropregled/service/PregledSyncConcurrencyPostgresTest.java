@@ -0,0 +1,18 @@
+package hr.elektropregled.service;
+
+import hr.elektropregled.PostgresBaza;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Isti scenarij kao {@link PregledSyncConcurrencyTest}, ali na PostgreSQL-u: istovremene transakcije
+ * na zasebnim konekcijama serijalizira {@code pg_advisory_xact_lock}, a ne lock unutar JVM-a.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class PregledSyncConcurrencyPostgresTest extends PregledSyncConcurrencyTest {
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        PostgresBaza.postavi(registry);
+    }
+}
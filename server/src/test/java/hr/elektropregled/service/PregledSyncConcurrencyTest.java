@@ -0,0 +1,130 @@
+package hr.elektropregled.service;
+
+import hr.elektropregled.TestPodaci;
+import hr.elektropregled.dto.PregledSyncRequest;
+import hr.elektropregled.dto.SyncResponse;
+import hr.elektropregled.model.Postrojenje;
+import hr.elektropregled.model.VrstaUredaja;
+import hr.elektropregled.repository.PostrojenjeStatsRepository;
+import hr.elektropregled.repository.PregledRepository;
+import hr.elektropregled.repository.StavkaPregledaRepository;
+import hr.elektropregled.repository.SyncZapisRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stres test: N istovremenih sinkronizacija istog pregleda mora završiti jednim spremljenim
+ * pregledom i istim odgovorom za sve zahtjeve, bez iznimki. Na H2 ovo provjerava samo lock unutar
+ * JVM-a iz {@link SyncLockService}; {@link PregledSyncConcurrencyPostgresTest} isti scenarij
+ * izvodi na PostgreSQL-u, gdje zahtjeve serijalizira {@code pg_advisory_xact_lock}.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestPodaci.class)
+class PregledSyncConcurrencyTest {
+    private static final int PARALELNIH_ZAHTJEVA = 16;
+
+    @Autowired
+    private PregledSyncService pregledSyncService;
+
+    @Autowired
+    private PregledRepository pregledRepository;
+    @Autowired
+    private StavkaPregledaRepository stavkaPregledaRepository;
+    @Autowired
+    private SyncZapisRepository syncZapisRepository;
+    @Autowired
+    private PostrojenjeStatsRepository postrojenjeStatsRepository;
+    @Autowired
+    private TestPodaci podaci;
+
+    private Integer korisnikId;
+    private Integer postrojenjeId;
+    private Integer uredajId;
+    private Integer paramBoolId;
+
+    @BeforeEach
+    void setUp() {
+        podaci.ocisti();
+        korisnikId = podaci.korisnik("aanic").getIdKorisnika();
+        Postrojenje postrojenje = podaci.postrojenje(1, "TP Centar");
+        postrojenjeId = postrojenje.getIdPostr();
+        VrstaUredaja vrsta = podaci.vrsta("PK", "Prekidac");
+        uredajId = podaci.uredaj(1, postrojenje, null, vrsta).getIdUred();
+        paramBoolId = podaci.parametar(vrsta, "Vidna Ispravnost", "BOOLEAN", 1).getIdParametra();
+    }
+
+    @Test
+    void parallelDuplicatesShouldPersistOnceAndReturnSameMappings() throws Exception {
+        PregledSyncRequest request = request(UUID.randomUUID(), UUID.randomUUID());
+
+        ExecutorService executor = Executors.newFixedThreadPool(PARALELNIH_ZAHTJEVA);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<SyncResponse>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < PARALELNIH_ZAHTJEVA; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return pregledSyncService.sync(request);
+                }));
+            }
+            start.countDown();
+
+            List<SyncResponse> responses = new ArrayList<>();
+            for (Future<SyncResponse> future : futures) {
+                // get() baca ExecutionException ako je bilo koji zahtjev završio iznimkom
+                responses.add(future.get(30, TimeUnit.SECONDS));
+            }
+
+            Integer serverPregledId = responses.get(0).getServerPregledId();
+            assertNotNull(serverPregledId);
+            for (SyncResponse response : responses) {
+                assertTrue(response.isSuccess());
+                assertEquals(serverPregledId, response.getServerPregledId());
+                assertEquals(responses.get(0).getIdMappings(), response.getIdMappings());
+            }
+            assertEquals(1, responses.stream()
+                    .filter(r -> r.getMessage().contains("uspješno"))
+                    .count());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, pregledRepository.count());
+        assertEquals(1, stavkaPregledaRepository.count());
+        assertEquals(1, syncZapisRepository.count());
+        assertEquals(1L, postrojenjeStatsRepository.findById(postrojenjeId).orElseThrow().getUkupnoPregleda());
+    }
+
+    private PregledSyncRequest request(UUID pregledId, UUID stavkaId) {
+        PregledSyncRequest.PregledDto pregled = new PregledSyncRequest.PregledDto();
+        pregled.setLokalniId(pregledId);
+        pregled.setPocetak(LocalDateTime.of(2026, 1, 26, 10, 30));
+        pregled.setIdKorisnika(korisnikId);
+        pregled.setIdPostr(postrojenjeId);
+
+        PregledSyncRequest.StavkaDto stavka = new PregledSyncRequest.StavkaDto();
+        stavka.setLokalniId(stavkaId);
+        stavka.setIdUred(uredajId);
+        stavka.setIdParametra(paramBoolId);
+        stavka.setVrijednostBool(true);
+
+        return new PregledSyncRequest(pregled, List.of(stavka));
+    }
+}
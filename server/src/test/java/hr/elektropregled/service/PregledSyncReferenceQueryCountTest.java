@@ -0,0 +1,140 @@
+package hr.elektropregled.service;
+
+import hr.elektropregled.TestPodaci;
+import hr.elektropregled.dto.PregledSyncBatchRequest;
+import hr.elektropregled.dto.PregledSyncRequest;
+import hr.elektropregled.model.Postrojenje;
+import hr.elektropregled.model.VrstaUredaja;
+import hr.elektropregled.repository.StavkaPregledaRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Reference sinkronizacije (postojeći pregledi i stavke, uređaji, predlošci parametara) dohvaćaju se
+ * skupnim IN upitima: jedan upit po vrsti reference bez obzira na broj stavki, a tek iznad
+ * {@code IN_CHUNK_SIZE} ID-eva upit se dijeli na komade.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestPodaci.class)
+class PregledSyncReferenceQueryCountTest {
+    // Jednako PregledSyncService.IN_CHUNK_SIZE
+    private static final int IN_CHUNK_SIZE = 10_000;
+    private static final int BROJ_UREDAJA = 100;
+    private static final int BROJ_PARAMETARA = 5;
+
+    private static final String UPIT_PREGLEDI = "SELECT p.lokalniId FROM Pregled p WHERE p.lokalniId IN :lokalniIds";
+    private static final String UPIT_STAVKE = "SELECT s.lokalniId FROM StavkaPregleda s WHERE s.lokalniId IN :lokalniIds";
+
+    @Autowired
+    private PregledSyncService pregledSyncService;
+    @Autowired
+    private StavkaPregledaRepository stavkaPregledaRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private TestPodaci podaci;
+
+    private Integer korisnikId;
+    private Integer postrojenjeId;
+    private final List<Integer> uredaji = new ArrayList<>();
+    private final List<Integer> parametri = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        podaci.ocisti();
+        uredaji.clear();
+        parametri.clear();
+        korisnikId = podaci.korisnik("iivic").getIdKorisnika();
+        Postrojenje postrojenje = podaci.postrojenje(1, "TS 110/35 kV");
+        postrojenjeId = postrojenje.getIdPostr();
+        VrstaUredaja vrsta = podaci.vrsta("SM", "Strujni mjerni transformator");
+        for (int p = 0; p < BROJ_PARAMETARA; p++) {
+            parametri.add(podaci.parametar(vrsta, "Parametar " + p, "TEXT", p + 1).getIdParametra());
+        }
+        for (int u = 0; u < BROJ_UREDAJA; u++) {
+            uredaji.add(podaci.uredaj(u + 1, postrojenje, null, vrsta).getIdUred());
+        }
+    }
+
+    @AfterEach
+    void ocisti() {
+        podaci.ocisti();
+    }
+
+    @Test
+    void referenceQueriesShouldNotDependOnNumberOfStavki() {
+        // Puni predloške i L2 cache uređaja, kako bi mjerenja razlikovala samo broj stavki
+        pregledSyncService.sync(pregledi(BROJ_UREDAJA).get(0));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        pregledSyncService.sync(pregledi(5).get(0));
+        long upitaZaPet = statistics.getQueryExecutionCount();
+        assertEquals(1, statistics.getQueryStatistics(UPIT_PREGLEDI).getExecutionCount());
+        assertEquals(1, statistics.getQueryStatistics(UPIT_STAVKE).getExecutionCount());
+
+        statistics.clear();
+        pregledSyncService.sync(pregledi(BROJ_UREDAJA * BROJ_PARAMETARA).get(0));
+        assertEquals(upitaZaPet, statistics.getQueryExecutionCount());
+        assertEquals(1, statistics.getQueryStatistics(UPIT_PREGLEDI).getExecutionCount());
+        assertEquals(1, statistics.getQueryStatistics(UPIT_STAVKE).getExecutionCount());
+    }
+
+    @Test
+    void stavkaLookupShouldSplitOnlyPastInChunkSize() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        pregledSyncService.syncBatch(new PregledSyncBatchRequest(pregledi(IN_CHUNK_SIZE)));
+        assertEquals(1, statistics.getQueryStatistics(UPIT_STAVKE).getExecutionCount());
+
+        statistics.clear();
+        pregledSyncService.syncBatch(new PregledSyncBatchRequest(pregledi(IN_CHUNK_SIZE + 1)));
+        assertEquals(2, statistics.getQueryStatistics(UPIT_STAVKE).getExecutionCount());
+        assertEquals(1, statistics.getQueryStatistics(UPIT_PREGLEDI).getExecutionCount());
+
+        assertEquals(2L * IN_CHUNK_SIZE + 1, stavkaPregledaRepository.count());
+    }
+
+    // Pregledi s ukupno brojStavki stavki; svaki pregled ima najviše jednu stavku po paru uređaj/parametar
+    private List<PregledSyncRequest> pregledi(int brojStavki) {
+        List<PregledSyncRequest> pregledi = new ArrayList<>();
+        int poPregledu = BROJ_UREDAJA * BROJ_PARAMETARA;
+        for (int pocetak = 0; pocetak < brojStavki; pocetak += poPregledu) {
+            PregledSyncRequest.PregledDto pregled = new PregledSyncRequest.PregledDto();
+            pregled.setLokalniId(UUID.randomUUID());
+            pregled.setPocetak(LocalDateTime.of(2026, 2, 10, 8, 0));
+            pregled.setKraj(LocalDateTime.of(2026, 2, 10, 9, 0));
+            pregled.setIdKorisnika(korisnikId);
+            pregled.setIdPostr(postrojenjeId);
+
+            List<PregledSyncRequest.StavkaDto> stavke = new ArrayList<>();
+            for (int i = 0; i < Math.min(poPregledu, brojStavki - pocetak); i++) {
+                PregledSyncRequest.StavkaDto stavka = new PregledSyncRequest.StavkaDto();
+                stavka.setLokalniId(UUID.randomUUID());
+                stavka.setIdUred(uredaji.get(i / BROJ_PARAMETARA));
+                stavka.setIdParametra(parametri.get(i % BROJ_PARAMETARA));
+                stavka.setVrijednostTxt("U redu");
+                stavke.add(stavka);
+            }
+            pregledi.add(new PregledSyncRequest(pregled, stavke));
+        }
+        return pregledi;
+    }
+}
@@ -0,0 +1,74 @@
+package hr.elektropregled.service;
+
+import hr.elektropregled.config.LoginConfig;
+import hr.elektropregled.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProvjeraLozinkeServiceTest {
+    private final CountDownLatch pusti = new CountDownLatch(1);
+    private final ThreadPoolTaskExecutor executor = new LoginConfig().provjeraLozinkeExecutor(1, 1);
+
+    // Provjera čeka dok test ne pusti, pa se pool i red mogu popuniti
+    private final PasswordEncoder encoder = new PasswordEncoder() {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            try {
+                pusti.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return rawPassword.toString().equals(encodedPassword);
+        }
+    };
+
+    @AfterEach
+    void ugasi() {
+        pusti.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    void fullQueueShouldBeRejectedWithRetryAfter() throws Exception {
+        ProvjeraLozinkeService service = new ProvjeraLozinkeService(encoder, executor, 7);
+
+        CompletableFuture<Boolean> prva = service.provjeri("tajna", "tajna");
+        // Čekaj da prva provjera zauzme jedinu dretvu, tek onda druga ide u red
+        for (int i = 0; i < 100 && executor.getActiveCount() == 0; i++) {
+            Thread.sleep(10);
+        }
+        CompletableFuture<Boolean> druga = service.provjeri("kriva", "tajna");
+
+        ServiceUnavailableException ex = assertThrows(ServiceUnavailableException.class,
+                () -> service.provjeri("tajna", "tajna"));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ex.getStatus());
+        assertEquals(7, ex.getRetryAfterSekundi());
+
+        ProvjeraLozinkeService.Statistika zauzet = service.statistika();
+        assertEquals(1, zauzet.uRedu());
+        assertEquals(1, zauzet.odbijenih());
+
+        pusti.countDown();
+        assertTrue(prva.get(5, TimeUnit.SECONDS));
+        assertFalse(druga.get(5, TimeUnit.SECONDS));
+
+        ProvjeraLozinkeService.Statistika gotovo = service.statistika();
+        assertEquals(2, gotovo.provjera());
+        assertEquals(0, gotovo.uRedu());
+        assertTrue(gotovo.najduljaProvjeraMs() > 0);
+    }
+}
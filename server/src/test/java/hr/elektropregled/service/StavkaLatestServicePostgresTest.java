@@ -0,0 +1,18 @@
+package hr.elektropregled.service;
+
+import hr.elektropregled.PostgresBaza;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Isti scenariji kao {@link StavkaLatestServiceTest}, ali na PostgreSQL-u, gdje se zadnja
+ * vrijednost upisuje s {@code INSERT ... ON CONFLICT DO UPDATE ... WHERE}.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class StavkaLatestServicePostgresTest extends StavkaLatestServiceTest {
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        PostgresBaza.postavi(registry);
+    }
+}
@@ -0,0 +1,123 @@
+package hr.elektropregled.service;
+
+import hr.elektropregled.TestPodaci;
+import hr.elektropregled.dto.PregledSyncRequest;
+import hr.elektropregled.dto.StavkaLatestProvjera;
+import hr.elektropregled.dto.SyncResponse;
+import hr.elektropregled.model.Postrojenje;
+import hr.elektropregled.model.StavkaLatest;
+import hr.elektropregled.model.VrstaUredaja;
+import hr.elektropregled.repository.StavkaLatestRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * stavka_latest mora nakon svake sinkronizacije pokazivati na istu stavku koju bi odabrao
+ * DISTINCT ON nad cijelom poviješću (kraj, zatim početak, zatim id_stavke), neovisno o
+ * redoslijedu kojim pregledi stižu. Ovdje se izvodi na H2 (usporedba u Javi), a u
+ * {@link StavkaLatestServicePostgresTest} kroz PostgreSQL upsert s uvjetom.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestPodaci.class)
+class StavkaLatestServiceTest {
+    @Autowired
+    private PregledSyncService pregledSyncService;
+    @Autowired
+    private StavkaLatestService stavkaLatestService;
+    @Autowired
+    private StavkaLatestRepository stavkaLatestRepository;
+    @Autowired
+    private TestPodaci podaci;
+
+    private Integer korisnikId;
+    private Integer postrojenjeId;
+    private Integer uredajId;
+    private Integer paramNumId;
+
+    @BeforeEach
+    void setUp() {
+        podaci.ocisti();
+        korisnikId = podaci.korisnik("mmaric").getIdKorisnika();
+        Postrojenje postrojenje = podaci.postrojenje(1, "TS Sjever");
+        postrojenjeId = postrojenje.getIdPostr();
+        VrstaUredaja vrsta = podaci.vrsta("ET", "Energetski transformator");
+        uredajId = podaci.uredaj(100, postrojenje, null, vrsta).getIdUred();
+        paramNumId = podaci.parametar(vrsta, "Temperatura ulja", "NUMERIC", 1).getIdParametra();
+    }
+
+    @AfterEach
+    void ocisti() {
+        podaci.ocisti();
+    }
+
+    @Test
+    void latestShouldFollowKrajPocetakPrecedenceRegardlessOfSyncOrder() {
+        Integer sijecanj = sync(LocalDateTime.of(2026, 1, 10, 9, 0), LocalDateTime.of(2026, 1, 10, 12, 0), 55.0);
+        assertEquals(sijecanj, zadnja().getIdStavke());
+
+        // Pregled bez kraja ima manju prednost od završenog, iako je počeo kasnije
+        sync(LocalDateTime.of(2026, 2, 10, 9, 0), null, 61.0);
+        assertEquals(sijecanj, zadnja().getIdStavke());
+
+        // Stariji pregled sinkroniziran naknadno ne prepisuje noviju vrijednost
+        sync(LocalDateTime.of(2026, 1, 5, 9, 0), LocalDateTime.of(2026, 1, 5, 11, 0), 48.0);
+        assertEquals(sijecanj, zadnja().getIdStavke());
+
+        Integer ozujak = sync(LocalDateTime.of(2026, 3, 2, 8, 0), LocalDateTime.of(2026, 3, 2, 10, 0), 70.5);
+        StavkaLatest zadnja = zadnja();
+        assertEquals(ozujak, zadnja.getIdStavke());
+        assertEquals(70.5, zadnja.getVrijednostNum());
+        assertEquals(LocalDateTime.of(2026, 3, 2, 10, 0), zadnja.getZadnjiPregledAt());
+
+        assertTrue(stavkaLatestService.provjeri().isKonzistentno());
+    }
+
+    @Test
+    void checkerShouldDetectDriftAndRebuildShouldRepairIt() {
+        sync(LocalDateTime.of(2026, 1, 10, 9, 0), LocalDateTime.of(2026, 1, 10, 12, 0), 55.0);
+        stavkaLatestRepository.deleteAll();
+
+        StavkaLatestProvjera provjera = stavkaLatestService.provjeri();
+        assertFalse(provjera.isKonzistentno());
+        assertEquals(1, provjera.getOcekivano());
+        assertEquals(1, provjera.getNedostaje());
+
+        assertEquals(1, stavkaLatestService.obnovi());
+        assertTrue(stavkaLatestService.provjeri().isKonzistentno());
+        assertEquals(55.0, zadnja().getVrijednostNum());
+    }
+
+    private StavkaLatest zadnja() {
+        return stavkaLatestRepository.findById(new StavkaLatest.Kljuc(uredajId, paramNumId)).orElseThrow();
+    }
+
+    private Integer sync(LocalDateTime pocetak, LocalDateTime kraj, double vrijednost) {
+        PregledSyncRequest.PregledDto pregled = new PregledSyncRequest.PregledDto();
+        pregled.setLokalniId(UUID.randomUUID());
+        pregled.setPocetak(pocetak);
+        pregled.setKraj(kraj);
+        pregled.setIdKorisnika(korisnikId);
+        pregled.setIdPostr(postrojenjeId);
+
+        PregledSyncRequest.StavkaDto stavka = new PregledSyncRequest.StavkaDto();
+        stavka.setLokalniId(UUID.randomUUID());
+        stavka.setIdUred(uredajId);
+        stavka.setIdParametra(paramNumId);
+        stavka.setVrijednostNum(vrijednost);
+
+        SyncResponse response = pregledSyncService.sync(new PregledSyncRequest(pregled, List.of(stavka)));
+        return response.getIdMappings().getStavke().get(0).getServerId();
+    }
+}
@@ -0,0 +1,181 @@
+package hr.elektropregled.service;
+
+import hr.elektropregled.TestPodaci;
+import hr.elektropregled.config.SyncQueueConfig;
+import hr.elektropregled.dto.PregledSyncRequest;
+import hr.elektropregled.dto.SyncTicketResponse;
+import hr.elektropregled.model.Postrojenje;
+import hr.elektropregled.model.SyncZahtjev;
+import hr.elektropregled.model.VrstaUredaja;
+import hr.elektropregled.repository.SyncZahtjevRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Red asinkronih sync zahtjeva: preuzimanje s tokenom vlasnika, vraćanje zastarjelih preuzimanja
+ * i izolacija zahtjeva koji ruši skupnu transakciju te povrat batcha koji executor odbije. Pozadinski worker je isključen dugim
+ * intervalima, pa test sam poziva {@code claim} i {@code process}.
+ */
+@SpringBootTest(properties = {"sync.async.poll-ms=3600000", "sync.async.reset-ms=3600000"})
+@ActiveProfiles("test")
+@Import(TestPodaci.class)
+class SyncQueueServiceTest {
+    @Autowired
+    private SyncQueueService syncQueueService;
+    @Autowired
+    private SyncZahtjevRepository syncZahtjevRepository;
+    @Autowired
+    private TestPodaci podaci;
+
+    private Integer korisnikId;
+    private Integer postrojenjeId;
+    private Integer uredajId;
+    private Integer paramTxtId;
+
+    @BeforeEach
+    void setUp() {
+        podaci.ocisti();
+        korisnikId = podaci.korisnik("mmaric").getIdKorisnika();
+        Postrojenje postrojenje = podaci.postrojenje(1, "TS Sjever");
+        postrojenjeId = postrojenje.getIdPostr();
+        VrstaUredaja vrsta = podaci.vrsta("ET", "Energetski transformator");
+        uredajId = podaci.uredaj(100, postrojenje, null, vrsta).getIdUred();
+        paramTxtId = podaci.parametar(vrsta, "Stanje brtvi", "TEXT", 1).getIdParametra();
+    }
+
+    @AfterEach
+    void ocisti() {
+        podaci.ocisti();
+    }
+
+    @Test
+    void claimShouldReturnOnlyRowsWithOwnToken() {
+        for (int i = 0; i < 3; i++) {
+            syncQueueService.enqueue(zahtjev("u redu"), "mmaric");
+        }
+
+        List<SyncZahtjev> prvi = syncQueueService.claim(2);
+        List<SyncZahtjev> drugi = syncQueueService.claim(10);
+
+        assertEquals(2, prvi.size());
+        assertEquals(1, drugi.size());
+        assertNotEquals(prvi.get(0).getVlasnik(), drugi.get(0).getVlasnik());
+        assertTrue(prvi.stream().noneMatch(z -> z.getTicket().equals(drugi.get(0).getTicket())));
+        assertTrue(syncQueueService.claim(10).isEmpty());
+    }
+
+    @Test
+    void resetStaleShouldOnlyReturnExpiredClaims() {
+        syncQueueService.enqueue(zahtjev("u redu"), "mmaric");
+        syncQueueService.enqueue(zahtjev("u redu"), "mmaric");
+        List<SyncZahtjev> preuzeti = syncQueueService.claim(10);
+        assertEquals(2, preuzeti.size());
+
+        assertEquals(0, syncQueueService.resetStale(Duration.ofMinutes(10)));
+
+        SyncZahtjev zastario = syncZahtjevRepository.findById(preuzeti.get(0).getTicket()).orElseThrow();
+        zastario.setPreuzetoAt(LocalDateTime.now().minusHours(1));
+        syncZahtjevRepository.save(zastario);
+
+        assertEquals(1, syncQueueService.resetStale(Duration.ofMinutes(10)));
+        assertEquals(SyncZahtjev.STATUS_PENDING, status(preuzeti.get(0).getTicket()));
+        assertEquals(SyncZahtjev.STATUS_PROCESSING, status(preuzeti.get(1).getTicket()));
+
+        // Worker koji je izgubio preuzimanje ne smije prepisati zahtjev koji je preuzeo netko drugi
+        List<SyncZahtjev> ponovo = syncQueueService.claim(10);
+        assertEquals(1, ponovo.size());
+        syncQueueService.process(List.of(preuzeti.get(0)));
+        assertEquals(SyncZahtjev.STATUS_PROCESSING, status(preuzeti.get(0).getTicket()));
+    }
+
+    @Test
+    void processShouldIsolateRequestThatFailsTheBatch() {
+        UUID ispravan = syncQueueService.enqueue(zahtjev("u redu"), "mmaric").getTicket();
+        // Predugačka vrijednost prolazi validaciju, ali ruši flush cijelog batcha
+        UUID predugacak = syncQueueService.enqueue(zahtjev("x".repeat(300)), "mmaric").getTicket();
+        UUID drugiIspravan = syncQueueService.enqueue(zahtjev("u redu"), "mmaric").getTicket();
+
+        syncQueueService.process(syncQueueService.claim(10));
+
+        assertEquals(SyncZahtjev.STATUS_DONE, status(ispravan));
+        assertEquals(SyncZahtjev.STATUS_DONE, status(drugiIspravan));
+        // Neuspjeli zahtjev se vraća na čekanje dok ne potroši pokušaje
+        assertEquals(SyncZahtjev.STATUS_PENDING, status(predugacak));
+
+        SyncTicketResponse odgovor = syncQueueService.status(ispravan, "mmaric");
+        assertTrue(odgovor.getRezultat().isSuccess());
+        assertNotNull(odgovor.getRezultat().getServerPregledId());
+    }
+
+    @Test
+    void corruptRequestShouldFailWithoutBlockingOthers() {
+        UUID ispravan = syncQueueService.enqueue(zahtjev("u redu"), "mmaric").getTicket();
+        UUID neispravan = syncQueueService.enqueue(zahtjev("u redu"), "mmaric").getTicket();
+        SyncZahtjev zahtjev = syncZahtjevRepository.findById(neispravan).orElseThrow();
+        zahtjev.setSadrzaj("{nije json");
+        syncZahtjevRepository.save(zahtjev);
+
+        syncQueueService.process(syncQueueService.claim(10));
+
+        assertEquals(SyncZahtjev.STATUS_DONE, status(ispravan));
+        assertEquals(SyncZahtjev.STATUS_FAILED, status(neispravan));
+    }
+
+    @Test
+    void otpustiShouldReturnUnfinishedClaimsToPending() {
+        UUID ticket = syncQueueService.enqueue(zahtjev("u redu"), "mmaric").getTicket();
+        List<SyncZahtjev> preuzeti = syncQueueService.claim(10);
+
+        assertEquals(1, syncQueueService.otpusti(preuzeti));
+        assertEquals(SyncZahtjev.STATUS_PENDING, status(ticket));
+        assertEquals(1, syncZahtjevRepository.findById(ticket).orElseThrow().getPokusaji());
+    }
+
+    @Test
+    void drainShouldReturnClaimsRejectedByExecutorToPending() {
+        UUID ticket = syncQueueService.enqueue(zahtjev("u redu"), "mmaric").getTicket();
+        ThreadPoolTaskExecutor ugaseni = new SyncQueueConfig().syncQueueExecutor(1);
+        ugaseni.shutdown();
+
+        SyncQueueWorker worker = new SyncQueueWorker(syncQueueService, ugaseni);
+        ReflectionTestUtils.setField(worker, "batchSize", 10);
+        worker.drain();
+
+        assertEquals(SyncZahtjev.STATUS_PENDING, status(ticket));
+    }
+
+    private String status(UUID ticket) {
+        return syncZahtjevRepository.findById(ticket).orElseThrow().getStatus();
+    }
+
+    private PregledSyncRequest zahtjev(String vrijednost) {
+        PregledSyncRequest.PregledDto pregled = new PregledSyncRequest.PregledDto();
+        pregled.setLokalniId(UUID.randomUUID());
+        pregled.setPocetak(LocalDateTime.of(2026, 1, 10, 9, 0));
+        pregled.setKraj(LocalDateTime.of(2026, 1, 10, 12, 0));
+        pregled.setIdKorisnika(korisnikId);
+        pregled.setIdPostr(postrojenjeId);
+
+        PregledSyncRequest.StavkaDto stavka = new PregledSyncRequest.StavkaDto();
+        stavka.setLokalniId(UUID.randomUUID());
+        stavka.setIdUred(uredajId);
+        stavka.setIdParametra(paramTxtId);
+        stavka.setVrijednostTxt(vrijednost);
+
+        return new PregledSyncRequest(pregled, List.of(stavka));
+    }
+}